@@ -18,61 +18,332 @@
  */
 package org.apache.chemistry.opencmis.bridge.lrucache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
 
 /**
- * Simple LRU cache for {@link CmisBinding} objects. The cache key is consists
- * of the repository id and the user.
+ * LRU cache for {@link CmisBinding} objects. The cache key is consists of the
+ * repository id and the user.
+ * <p>
+ * The cache is split into segments, each with its own lock and its own share
+ * of the cache size. Requests for different keys rarely contend and the
+ * least recently used entry is evicted per segment. Entries that haven't been
+ * used for longer than the max idle time are evicted, too.
+ * <p>
+ * If several threads ask for the same missing key at the same time, only one
+ * of them creates the binding. The others wait for it and get the same
+ * object.
  */
 public class CmisBindingCache implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final LinkedHashMap<String, CmisBinding> cache;
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_SIZE = 8;
 
+    private final int size;
+    private final long maxIdleTime;
+
+    private transient Segment[] segments;
+
+    /**
+     * Creates a cache without idle time limit.
+     *
+     * @param size
+     *            the maximum number of cached bindings
+     */
     public CmisBindingCache(final int size) {
-        cache = new LinkedHashMap<String, CmisBinding>(size + 1, 0.70f, true) {
+        this(size, 0);
+    }
 
-            private static final long serialVersionUID = 1L;
+    /**
+     * Creates a cache.
+     *
+     * @param size
+     *            the maximum number of cached bindings
+     * @param maxIdleTime
+     *            the time in milliseconds after which an unused binding is
+     *            evicted, 0 or less for no limit
+     */
+    public CmisBindingCache(final int size, final long maxIdleTime) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative!");
+        }
 
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, CmisBinding> eldest) {
-                return size() > size;
-            }
-        };
+        this.size = size;
+        this.maxIdleTime = (maxIdleTime > 0 ? maxIdleTime : 0);
+
+        initSegments();
     }
 
+    private void initSegments() {
+        // enough segments to spread the threads, but not so many that the
+        // per-segment LRU order gets meaningless
+        int concurrency = Math.min(MAX_SEGMENTS, Runtime.getRuntime().availableProcessors() * 4);
+        int count = 1;
+        while (count < concurrency && count * 2 * MIN_SEGMENT_SIZE <= size) {
+            count <<= 1;
+        }
+
+        long maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleTime);
+
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(size / count + (i < size % count ? 1 : 0), maxIdleNanos);
+        }
+    }
+
+    /**
+     * Returns the maximum number of cached bindings.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the max idle time in milliseconds or 0 if there is no limit.
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Returns the cached binding for the provided {@link CallContext} or
+     * <code>null</code> if there is none.
+     */
     public CmisBinding getCmisBinding(CallContext context) {
-        lock.writeLock().lock();
+        String key = getCacheKey(context);
+        Segment segment = getSegment(key);
+
+        long now = now();
+
+        synchronized (segment) {
+            Entry entry = segment.get(key, now);
+            if (entry != null && entry.isReady()) {
+                segment.hits++;
+                return entry.binding;
+            }
+
+            segment.misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Returns the cached binding for the provided {@link CallContext} or
+     * creates and caches a new one.
+     * <p>
+     * Concurrent calls for the same key are coalesced: only one of them
+     * calls the factory, the others wait for the result. If the factory
+     * fails, nothing is cached and all waiting threads get an exception.
+     */
+    public CmisBinding getCmisBinding(CallContext context, Callable<CmisBinding> factory) {
+        String key = getCacheKey(context);
+        Segment segment = getSegment(key);
+
+        long now = now();
+
+        Entry entry;
+        boolean create = false;
+        synchronized (segment) {
+            entry = segment.get(key, now);
+            if (entry == null) {
+                entry = new Entry(now);
+                segment.put(key, entry);
+                segment.misses++;
+                create = true;
+            } else if (entry.isReady()) {
+                segment.hits++;
+                return entry.binding;
+            } else {
+                segment.coalesced++;
+            }
+        }
+
+        if (!create) {
+            // another thread is creating the binding
+            return entry.await();
+        }
+
+        CmisBinding binding;
         try {
-            return cache.get(getCacheKey(context));
-        } finally {
-            lock.writeLock().unlock();
+            binding = factory.call();
+            if (binding == null) {
+                throw new CmisRuntimeException("Binding factory returned null!");
+            }
+        } catch (RuntimeException e) {
+            abort(segment, key, entry, e);
+            throw e;
+        } catch (Error e) {
+            abort(segment, key, entry, e);
+            throw e;
+        } catch (Exception e) {
+            CmisRuntimeException cre = new CmisRuntimeException("Could not create binding: " + e.getMessage(), e);
+            abort(segment, key, entry, cre);
+            throw cre;
         }
+
+        entry.complete(binding);
+
+        return binding;
     }
 
+    /**
+     * Puts a binding into the cache. If there is already a binding for the
+     * provided {@link CallContext}, the cached binding is returned instead.
+     */
     public CmisBinding putCmisBinding(CallContext context, CmisBinding binding) {
-        lock.writeLock().lock();
-        try {
-            String key = getCacheKey(context);
-            CmisBinding extistingBinding = cache.get(getCacheKey(context));
-            if (extistingBinding == null) {
-                cache.put(key, binding);
-            } else {
-                binding = extistingBinding;
+        String key = getCacheKey(context);
+        Segment segment = getSegment(key);
+
+        long now = now();
+
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key, now);
+            if (entry == null) {
+                segment.put(key, new Entry(binding, now));
+                return binding;
             }
 
-            return binding;
-        } finally {
-            lock.writeLock().unlock();
+            if (entry.isReady()) {
+                return entry.binding;
+            }
+        }
+
+        return entry.await();
+    }
+
+    /**
+     * Removes all bindings from the cache.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the current number of cached bindings.
+     */
+    public int getCount() {
+        int result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.map.size();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns how many lookups found a cached binding.
+     */
+    public long getHitCount() {
+        long result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.hits;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns how many lookups found no cached binding.
+     */
+    public long getMissCount() {
+        long result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.misses;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns how many lookups waited for a binding that another thread was
+     * creating.
+     */
+    public long getCoalescedCount() {
+        long result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.coalesced;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns how many bindings have been evicted because the cache was full.
+     */
+    public long getEvictionCount() {
+        long result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.evictions;
+            }
         }
+
+        return result;
+    }
+
+    /**
+     * Returns how many bindings have been evicted because they exceeded the
+     * max idle time.
+     */
+    public long getExpirationCount() {
+        long result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.expirations;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the ratio of lookups that didn't have to create a binding, or 0
+     * if there haven't been any lookups yet.
+     */
+    public double getHitRate() {
+        long hits = 0;
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                hits += segment.hits + segment.coalesced;
+                total += segment.hits + segment.coalesced + segment.misses;
+            }
+        }
+
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CmisBindingCache [size=" + size + ", maxIdleTime=" + maxIdleTime + ", count=" + getCount()
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", coalesced=" + getCoalescedCount()
+                + ", evictions=" + getEvictionCount() + ", expirations=" + getExpirationCount() + "]";
     }
 
     protected String getCacheKey(CallContext context) {
@@ -86,4 +357,153 @@ public class CmisBindingCache implements Serializable {
 
         return key;
     }
+
+    /**
+     * Returns the access time stamp, which is only needed for idle eviction.
+     */
+    private long now() {
+        return maxIdleTime > 0 ? System.nanoTime() : 0;
+    }
+
+    private Segment getSegment(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static void abort(Segment segment, String key, Entry entry, Throwable cause) {
+        synchronized (segment) {
+            segment.remove(key, entry);
+        }
+
+        entry.fail(cause);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+
+        // cached bindings are not serialized
+        initSegments();
+    }
+
+    /**
+     * A part of the cache with its own lock. All fields are guarded by the
+     * segment monitor.
+     */
+    private static final class Segment {
+
+        private final LinkedHashMap<String, Entry> map;
+        private final long maxIdleNanos;
+
+        private long hits;
+        private long misses;
+        private long coalesced;
+        private long evictions;
+        private long expirations;
+
+        public Segment(final int capacity, long maxIdleNanos) {
+            this.maxIdleNanos = maxIdleNanos;
+            this.map = new LinkedHashMap<String, Entry>(capacity + 1, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() > capacity) {
+                        evictions++;
+                        return true;
+                    }
+
+                    return false;
+                }
+            };
+        }
+
+        public Entry get(String key, long now) {
+            if (maxIdleNanos > 0) {
+                // the map is in access order, so idle entries are at the head
+                Iterator<Entry> iterator = map.values().iterator();
+                while (iterator.hasNext()) {
+                    if (now - iterator.next().lastAccess < maxIdleNanos) {
+                        break;
+                    }
+
+                    iterator.remove();
+                    expirations++;
+                }
+            }
+
+            Entry entry = map.get(key);
+            if (entry != null) {
+                entry.lastAccess = now;
+            }
+
+            return entry;
+        }
+
+        public void put(String key, Entry entry) {
+            map.put(key, entry);
+        }
+
+        public void remove(String key, Entry entry) {
+            if (map.get(key) == entry) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * A cached binding or a binding that is being created.
+     */
+    private static final class Entry {
+
+        private final CountDownLatch latch;
+        private volatile CmisBinding binding;
+        private volatile Throwable failure;
+        private long lastAccess;
+
+        /** Creates a pending entry. */
+        public Entry(long now) {
+            this.latch = new CountDownLatch(1);
+            this.lastAccess = now;
+        }
+
+        /** Creates a ready entry. */
+        public Entry(CmisBinding binding, long now) {
+            this.latch = null;
+            this.binding = binding;
+            this.lastAccess = now;
+        }
+
+        public boolean isReady() {
+            return binding != null;
+        }
+
+        public void complete(CmisBinding binding) {
+            this.binding = binding;
+            latch.countDown();
+        }
+
+        public void fail(Throwable cause) {
+            this.failure = cause;
+            latch.countDown();
+        }
+
+        public CmisBinding await() {
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CmisRuntimeException("Interrupted while waiting for binding!", e);
+                }
+            }
+
+            if (failure != null) {
+                throw new CmisRuntimeException("Could not create binding: " + failure.getMessage(), failure);
+            }
+
+            return binding;
+        }
+    }
 }
@@ -29,6 +29,8 @@ public class LruCacheBridgeServiceFactory extends AbstractBridgeServiceFactory {
 
     public static final String CACHE_SIZE = "cache.size";
     public static final int DEFAULT_CACHE_SIZE = 1000;
+    public static final String CACHE_MAX_IDLE_TIME = "cache.maxIdleTime";
+    public static final long DEFAULT_CACHE_MAX_IDLE_TIME = 0;
 
     private CmisBindingCache cache;
 
@@ -38,15 +40,27 @@ public class LruCacheBridgeServiceFactory extends AbstractBridgeServiceFactory {
 
         // initialize LRU cache
         int size = 0;
+        long maxIdleTime = 0;
         try {
             String sizeStr = parameters.get(CACHE_SIZE);
             size = (sizeStr == null || sizeStr.trim().length() == 0 ? DEFAULT_CACHE_SIZE : Integer.parseInt(sizeStr
                     .trim()));
+
+            String maxIdleTimeStr = parameters.get(CACHE_MAX_IDLE_TIME);
+            maxIdleTime = (maxIdleTimeStr == null || maxIdleTimeStr.trim().length() == 0 ? DEFAULT_CACHE_MAX_IDLE_TIME
+                    : Long.parseLong(maxIdleTimeStr.trim()));
         } catch (NumberFormatException e) {
             throw new RuntimeException("Could not parse cache configuration values: " + e.getMessage(), e);
         }
 
-        cache = new CmisBindingCache(size);
+        cache = new CmisBindingCache(size, maxIdleTime);
+    }
+
+    /**
+     * Returns the binding cache, for example to monitor its statistics.
+     */
+    public CmisBindingCache getCache() {
+        return cache;
     }
 
     @Override
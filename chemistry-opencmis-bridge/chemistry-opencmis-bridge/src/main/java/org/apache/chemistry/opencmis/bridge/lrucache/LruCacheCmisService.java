@@ -19,12 +19,16 @@
 package org.apache.chemistry.opencmis.bridge.lrucache;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.apache.chemistry.opencmis.bridge.CachedBindingCmisService;
 import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
 
 /**
  * Uses a LRU cache to cache {@link CmisBinding} objects.
+ * <p>
+ * Bindings are created through the cache, so concurrent requests of the same
+ * user for the same repository share a single new binding.
  */
 public abstract class LruCacheCmisService extends CachedBindingCmisService {
 
@@ -39,7 +43,11 @@ public abstract class LruCacheCmisService extends CachedBindingCmisService {
 
     @Override
     public CmisBinding getCmisBindingFromCache() {
-        return cache.getCmisBinding(getCallContext());
+        return cache.getCmisBinding(getCallContext(), new Callable<CmisBinding>() {
+            public CmisBinding call() {
+                return createCmisBinding();
+            }
+        });
     }
 
     @Override
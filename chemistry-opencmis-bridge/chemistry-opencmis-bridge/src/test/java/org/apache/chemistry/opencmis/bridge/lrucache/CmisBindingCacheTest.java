@@ -0,0 +1,395 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.bridge.lrucache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.junit.Test;
+
+public class CmisBindingCacheTest {
+
+    @Test
+    public void testGetAndPut() {
+        CmisBindingCache cache = new CmisBindingCache(10);
+
+        assertNull(cache.getCmisBinding(context("repo", "alice")));
+
+        CmisBinding binding = binding();
+        assertSame(binding, cache.putCmisBinding(context("repo", "alice"), binding));
+        assertSame(binding, cache.putCmisBinding(context("repo", "alice"), binding()));
+        assertSame(binding, cache.getCmisBinding(context("repo", "alice")));
+
+        assertNull(cache.getCmisBinding(context("repo", "bob")));
+        assertNull(cache.getCmisBinding(context("other", "alice")));
+        assertNull(cache.getCmisBinding(context("repo", null)));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(0.2, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testSizeEviction() {
+        CmisBindingCache cache = new CmisBindingCache(4);
+        CountingFactory factory = new CountingFactory();
+
+        for (int i = 0; i < 4; i++) {
+            cache.getCmisBinding(context("repo", "user" + i), factory);
+        }
+        assertEquals(4, cache.getCount());
+
+        // user0 is now the most recently used entry
+        cache.getCmisBinding(context("repo", "user0"), factory);
+
+        for (int i = 4; i < 10; i++) {
+            cache.getCmisBinding(context("repo", "user" + i), factory);
+        }
+
+        assertEquals(4, cache.getCount());
+        assertEquals(6, cache.getEvictionCount());
+        assertEquals(10, factory.count.get());
+        assertNull(cache.getCmisBinding(context("repo", "user1")));
+        assertNotNull(cache.getCmisBinding(context("repo", "user9")));
+    }
+
+    @Test
+    public void testSegmentedSizeEviction() {
+        CmisBindingCache cache = new CmisBindingCache(1000);
+        CountingFactory factory = new CountingFactory();
+
+        for (int i = 0; i < 5000; i++) {
+            cache.getCmisBinding(context("repo", "user" + i), factory);
+        }
+
+        assertEquals(1000, cache.getCount());
+        assertEquals(4000, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        CmisBindingCache cache = new CmisBindingCache(10, 100);
+        CountingFactory factory = new CountingFactory();
+
+        CmisBinding binding = cache.getCmisBinding(context("repo", "alice"), factory);
+        assertSame(binding, cache.getCmisBinding(context("repo", "alice"), factory));
+
+        Thread.sleep(200);
+
+        assertNotSame(binding, cache.getCmisBinding(context("repo", "alice"), factory));
+        assertEquals(2, factory.count.get());
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(1, cache.getCount());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        final int threadCount = 16;
+        final CmisBindingCache cache = new CmisBindingCache(10);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountingFactory factory = new CountingFactory() {
+            @Override
+            public CmisBinding call() throws Exception {
+                Thread.sleep(100);
+                return super.call();
+            }
+        };
+
+        final CmisBinding[] results = new CmisBinding[threadCount];
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            final int index = i;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results[index] = cache.getCmisBinding(context("repo", "alice"), factory);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+
+        runAll(threads, start);
+
+        assertEquals(1, factory.count.get());
+        for (CmisBinding result : results) {
+            assertNotNull(result);
+            assertSame(results[0], result);
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(threadCount - 1, cache.getHitCount() + cache.getCoalescedCount());
+    }
+
+    @Test
+    public void testFailedCreation() throws Exception {
+        final int threadCount = 8;
+        final CmisBindingCache cache = new CmisBindingCache(10);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final Callable<CmisBinding> failingFactory = new Callable<CmisBinding>() {
+            public CmisBinding call() throws Exception {
+                calls.incrementAndGet();
+                Thread.sleep(100);
+                throw new Exception("connection refused");
+            }
+        };
+
+        final AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        cache.getCmisBinding(context("repo", "alice"), failingFactory);
+                    } catch (CmisRuntimeException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+
+        runAll(threads, start);
+
+        // every caller either created or waited for the failing binding
+        assertEquals(threadCount, failures.get());
+        assertTrue(calls.get() >= 1);
+        assertEquals(0, cache.getCount());
+
+        // nothing has been cached, so the next call tries again
+        CountingFactory factory = new CountingFactory();
+        assertNotNull(cache.getCmisBinding(context("repo", "alice"), factory));
+        assertEquals(1, factory.count.get());
+    }
+
+    @Test
+    public void testFactoryRuntimeException() {
+        CmisBindingCache cache = new CmisBindingCache(10);
+        final IllegalStateException failure = new IllegalStateException();
+
+        try {
+            cache.getCmisBinding(context("repo", "alice"), new Callable<CmisBinding>() {
+                public CmisBinding call() {
+                    throw failure;
+                }
+            });
+            fail("Exception expected!");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        CmisBindingCache cache = new CmisBindingCache(100, 60000);
+        cache.getCmisBinding(context("repo", "alice"), new CountingFactory());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bos);
+        out.writeObject(cache);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+        CmisBindingCache cache2 = (CmisBindingCache) in.readObject();
+        in.close();
+
+        assertEquals(100, cache2.getSize());
+        assertEquals(60000, cache2.getMaxIdleTime());
+        assertEquals(0, cache2.getCount());
+        assertNotNull(cache2.getCmisBinding(context("repo", "alice"), new CountingFactory()));
+    }
+
+    @Test
+    public void testConcurrentStress() throws Exception {
+        final int threadCount = 16;
+        final int iterations = 50000;
+        final int keyCount = 500;
+
+        final CmisBindingCache cache = new CmisBindingCache(1000);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountingFactory factory = new CountingFactory();
+        final ConcurrentMap<String, CmisBinding> seen = new ConcurrentHashMap<String, CmisBinding>();
+        final AtomicReference<String> duplicate = new AtomicReference<String>();
+
+        final CallContext[] contexts = new CallContext[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            contexts[i] = context("repo" + (i % 5), "user" + i);
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            final Random random = new Random(i);
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            int k = random.nextInt(keyCount);
+                            CmisBinding binding = cache.getCmisBinding(contexts[k], factory);
+                            CmisBinding previous = seen.putIfAbsent("key" + k, binding);
+                            if (previous != null && previous != binding) {
+                                duplicate.set("key" + k);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+
+        long time = runAll(threads, start);
+
+        assertNull("Duplicate binding for " + duplicate.get(), duplicate.get());
+        assertEquals(keyCount, factory.count.get());
+        assertEquals(keyCount, cache.getCount());
+        assertEquals(keyCount, cache.getMissCount());
+        assertEquals((long) threadCount * iterations,
+                cache.getHitCount() + cache.getMissCount() + cache.getCoalescedCount());
+
+        System.out.println("CmisBindingCache: " + threadCount + " threads, "
+                + ((long) threadCount * iterations * 1000000000L / Math.max(1, time)) + " lookups/s, hit rate "
+                + cache.getHitRate());
+    }
+
+    @Test
+    public void testConcurrentEviction() throws Exception {
+        final int threadCount = 16;
+        final int iterations = 20000;
+        final int keyCount = 200;
+
+        final CmisBindingCache cache = new CmisBindingCache(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountingFactory factory = new CountingFactory();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            final Random random = new Random(i);
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            int k = random.nextInt(keyCount);
+                            assertNotNull(cache.getCmisBinding(context("repo", "user" + k), factory));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+
+        runAll(threads, start);
+
+        assertTrue(cache.getCount() <= 64);
+        assertEquals(factory.count.get(), cache.getMissCount());
+        assertEquals(cache.getMissCount() - cache.getCount(), cache.getEvictionCount());
+    }
+
+    private static long runAll(List<Thread> threads, CountDownLatch start) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return System.nanoTime() - startTime;
+    }
+
+    private static CallContext context(final String repositoryId, final String user) {
+        return (CallContext) Proxy.newProxyInstance(CmisBindingCacheTest.class.getClassLoader(),
+                new Class<?>[] { CallContext.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getRepositoryId")) {
+                            return repositoryId;
+                        } else if (method.getName().equals("getUsername")) {
+                            return user;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static CmisBinding binding() {
+        return (CmisBinding) Proxy.newProxyInstance(CmisBindingCacheTest.class.getClassLoader(),
+                new Class<?>[] { CmisBinding.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("equals")) {
+                            return proxy == args[0];
+                        } else if (method.getName().equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (method.getName().equals("toString")) {
+                            return "CmisBinding@" + Integer.toHexString(System.identityHashCode(proxy));
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class CountingFactory implements Callable<CmisBinding> {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        public CmisBinding call() throws Exception {
+            count.incrementAndGet();
+            return binding();
+        }
+    }
+}
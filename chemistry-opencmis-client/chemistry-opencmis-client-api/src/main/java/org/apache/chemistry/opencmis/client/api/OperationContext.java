@@ -187,6 +187,19 @@ public interface OperationContext extends Serializable {
      */
     void setCacheEnabled(boolean cacheEnabled);
 
+    /**
+     * Returns if objects are created as immutable snapshots.
+     */
+    boolean isSnapshotEnabled();
+
+    /**
+     * Enables or disables snapshot objects. The data of a snapshot object is
+     * published once and read without locking. A refresh replaces the data of
+     * a snapshot object as a whole. Snapshot objects and regular objects are
+     * cached separately.
+     */
+    void setSnapshotEnabled(boolean snapshotEnabled);
+
     /**
      * Returns a key for this OperationContext object that is used for caching.
      */
@@ -436,6 +436,39 @@ public interface Session extends Serializable {
      */
     CmisObject getObject(String objectId, OperationContext context);
 
+    /**
+     * Returns a list of CMIS objects. Objects found in the session cache are
+     * taken from the cache. The remaining objects are loaded from the
+     * repository with as few calls as possible and put into the cache.
+     * <p>
+     * If the repository supports queries, documents and folders are fetched
+     * in chunks with <code>cmis:objectId IN (...)</code> queries, one query
+     * per chunk and object type. The queries select the properties of the
+     * filter of the operation context. Objects with secondary types and all
+     * other objects are fetched with concurrent calls of
+     * {@link #getObject(String, OperationContext)}. The session parameter
+     * {@link org.apache.chemistry.opencmis.commons.SessionParameter#OBJECT_FETCH_THREADS}
+     * limits the number of concurrent calls.
+     * <p>
+     * Unlike {@link #getObject(String, OperationContext)}, this method doesn't
+     * throw a {@link CmisObjectNotFoundException} for IDs that don't exist.
+     * These IDs get a <code>null</code> entry in the returned list.
+     * <p>
+     * This method might return stale objects if they have been found in the
+     * cache. See {@link #getObject(String, OperationContext)}.
+     *
+     * @param objectIds
+     *            the object IDs
+     * @param context
+     *            the {@link OperationContext} to use
+     *
+     * @return the requested objects in the order of the given IDs, the list
+     *         contains <code>null</code> for each ID that doesn't exist
+     *
+     * @cmis 1.0
+     */
+    List<CmisObject> getObjects(Collection<String> objectIds, OperationContext context);
+
     /**
      * Returns a CMIS object from the session cache. If the object is not in the
      * cache or the cache is turned off per default {@link OperationContext}, it
@@ -53,6 +53,7 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
     private BindingSession session;
     private final BindingsObjectFactory objectFactory;
     private final RepositoryService repositoryServiceWrapper;
+    private transient String sharedCacheRegionKey;
 
     /**
      * Constructor.
@@ -146,6 +147,15 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
             typeDefCache.initialize(session);
         }
 
+        // back the type definition cache with the shared cache
+        boolean sharedCache = SharedMetadataCache.isEnabled(session);
+        if (sharedCache) {
+            TypeDefinitionCache sharedTypeDefCache = new SharedTypeDefinitionCacheImpl(
+                    CmisBindingsHelper.getTypeDefinitionCache(session));
+            sharedTypeDefCache.initialize(session);
+            session.put(CmisBindingsHelper.TYPE_DEFINTION_CACHE, sharedTypeDefCache);
+        }
+
         // set up caches
         clearAllCaches();
 
@@ -165,6 +175,11 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
                 ((SessionAwareAuthenticationProvider) authenticationProvider).setSession(session);
             }
         }
+
+        // register with the shared cache
+        if (sharedCache) {
+            sharedCacheRegionKey = SharedMetadataCache.acquire(session).getKey();
+        }
     }
 
     public String getSessionId() {
@@ -294,6 +309,11 @@ public final class CmisBindingImpl implements CmisBinding, Serializable {
         } finally {
             session.writeUnlock();
             session = null;
+
+            if (sharedCacheRegionKey != null) {
+                SharedMetadataCache.release(sharedCacheRegionKey);
+                sharedCacheRegionKey = null;
+            }
         }
 
     }
@@ -37,6 +37,8 @@ public class RepositoryInfoCache implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private final Cache cache;
+    private final String sharedRegionKey;
+    private final long sharedTtl;
 
     /**
      * Constructor.
@@ -56,6 +58,14 @@ public class RepositoryInfoCache implements Serializable {
         cache = new CacheImpl("Repository Info Cache");
         cache.initialize(new String[] { MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "="
                 + repCount });
+
+        if (SharedMetadataCache.isEnabled(session)) {
+            sharedRegionKey = SharedMetadataCache.getRegionKey(session);
+            sharedTtl = SharedMetadataCache.getTimeToLive(session);
+        } else {
+            sharedRegionKey = null;
+            sharedTtl = 0;
+        }
     }
 
     /**
@@ -70,6 +80,11 @@ public class RepositoryInfoCache implements Serializable {
         }
 
         cache.put(repositoryInfo, repositoryInfo.getId());
+
+        SharedMetadataCache.Region region = getSharedRegion();
+        if (region != null) {
+            region.putRepositoryInfo(repositoryInfo, sharedTtl);
+        }
     }
 
     /**
@@ -81,7 +96,20 @@ public class RepositoryInfoCache implements Serializable {
      *         not in the cache
      */
     public RepositoryInfo get(String repositoryId) {
-        return (RepositoryInfo) cache.get(repositoryId);
+        RepositoryInfo result = (RepositoryInfo) cache.get(repositoryId);
+        if (result != null) {
+            return result;
+        }
+
+        SharedMetadataCache.Region region = getSharedRegion();
+        if (region != null) {
+            result = region.getRepositoryInfo(repositoryId);
+            if (result != null) {
+                cache.put(result, repositoryId);
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -94,6 +122,10 @@ public class RepositoryInfoCache implements Serializable {
         cache.remove(repositoryId);
     }
 
+    private SharedMetadataCache.Region getSharedRegion() {
+        return sharedRegionKey == null ? null : SharedMetadataCache.getRegion(sharedRegionKey);
+    }
+
     @Override
     public String toString() {
         return cache.toString();
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+
+/**
+ * JVM-wide cache of repository infos and type definitions that is shared by
+ * all bindings connected to the same endpoint.
+ * <p>
+ * Repository infos and type definitions don't depend on the user, so
+ * bindings of different users can share them. The cache is divided into
+ * regions. A region holds the data of one endpoint and one locale and lives as
+ * long as at least one binding uses it. Entries are replaced or expire after
+ * their time-to-live.
+ * <p>
+ * Repository infos and type definitions are mutable. The cache therefore
+ * keeps them in serialized form and hands out a new copy on each lookup, so
+ * that a binding that modifies its instance doesn't change the data of other
+ * bindings. Objects that are not serializable are not shared.
+ * <p>
+ * This cache is used if the session parameter
+ * {@link SessionParameter#CACHE_SHARED} is set to "true".
+ */
+public final class SharedMetadataCache {
+
+    private static final ConcurrentMap<String, Region> REGIONS = new ConcurrentHashMap<String, Region>();
+
+    private SharedMetadataCache() {
+    }
+
+    /**
+     * Returns whether the shared cache is enabled for a binding session.
+     */
+    public static boolean isEnabled(BindingSession session) {
+        return session.get(SessionParameter.CACHE_SHARED, false);
+    }
+
+    /**
+     * Returns the time-to-live of shared entries in milliseconds.
+     */
+    public static long getTimeToLive(BindingSession session) {
+        return session.get(SessionParameter.CACHE_SHARED_TTL, SessionParameterDefaults.CACHE_SHARED_TTL);
+    }
+
+    /**
+     * Returns the region key of a binding session. The key is made of the
+     * binding type, the endpoint, the locale and the forced CMIS version.
+     */
+    public static String getRegionKey(BindingSession session) {
+        assert session != null;
+
+        String bindingType = getString(session, SessionParameter.BINDING_TYPE);
+
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(bindingType == null ? BindingType.CUSTOM.value() : bindingType);
+        sb.append(' ');
+        sb.append(getEndpoint(session));
+        sb.append(' ');
+        sb.append(getString(session, SessionParameter.LOCALE_ISO639_LANGUAGE));
+        sb.append('-');
+        sb.append(getString(session, SessionParameter.LOCALE_ISO3166_COUNTRY));
+        sb.append(' ');
+        sb.append(getString(session, SessionParameter.FORCE_CMIS_VERSION));
+
+        return sb.toString();
+    }
+
+    /**
+     * Returns the endpoint of a binding session.
+     */
+    public static String getEndpoint(BindingSession session) {
+        String bindingType = getString(session, SessionParameter.BINDING_TYPE);
+
+        if (BindingType.ATOMPUB.value().equals(bindingType)) {
+            return getString(session, SessionParameter.ATOMPUB_URL);
+        } else if (BindingType.BROWSER.value().equals(bindingType)) {
+            return getString(session, SessionParameter.BROWSER_URL);
+        } else if (BindingType.WEBSERVICES.value().equals(bindingType)) {
+            String endpoint = getString(session, SessionParameter.WEBSERVICES_REPOSITORY_SERVICE_ENDPOINT);
+            return endpoint != null ? endpoint : getString(session, SessionParameter.WEBSERVICES_REPOSITORY_SERVICE);
+        } else if (BindingType.LOCAL.value().equals(bindingType)) {
+            return getString(session, SessionParameter.LOCAL_FACTORY);
+        }
+
+        return getString(session, SessionParameter.BINDING_SPI_CLASS);
+    }
+
+    private static String getString(BindingSession session, String key) {
+        Object value = session.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Returns the region of a binding session and registers a new user of the
+     * region. Each call must be paired with a {@link #release(String)} call
+     * with the key of the returned region.
+     */
+    public static Region acquire(BindingSession session) {
+        String key = getRegionKey(session);
+
+        while (true) {
+            Region region = REGIONS.get(key);
+            if (region == null) {
+                Region newRegion = new Region(key, getEndpoint(session));
+                region = REGIONS.putIfAbsent(key, newRegion);
+                if (region == null) {
+                    region = newRegion;
+                }
+            }
+
+            if (region.retain()) {
+                return region;
+            }
+
+            // the region has just been disposed
+            REGIONS.remove(key, region);
+        }
+    }
+
+    /**
+     * Unregisters a user of a region. The region and its data are removed
+     * when the last user is gone.
+     */
+    public static void release(String key) {
+        Region region = REGIONS.get(key);
+        if (region != null && region.release()) {
+            REGIONS.remove(key, region);
+        }
+    }
+
+    /**
+     * Returns the region for the given key or <code>null</code> if no binding
+     * uses this region.
+     */
+    public static Region getRegion(String key) {
+        return REGIONS.get(key);
+    }
+
+    /**
+     * Removes all entries of an endpoint.
+     * 
+     * @param endpoint
+     *            the AtomPub URL, Browser URL, Web Services RepositoryService
+     *            endpoint or local factory class name
+     */
+    public static void invalidate(String endpoint) {
+        invalidate(endpoint, null);
+    }
+
+    /**
+     * Removes all entries of a repository of an endpoint.
+     * 
+     * @param endpoint
+     *            the AtomPub URL, Browser URL, Web Services RepositoryService
+     *            endpoint or local factory class name
+     * @param repositoryId
+     *            the repository ID, <code>null</code> for all repositories
+     */
+    public static void invalidate(String endpoint, String repositoryId) {
+        for (Region region : REGIONS.values()) {
+            if (region.endpoint != null && region.endpoint.equals(endpoint)) {
+                if (repositoryId == null) {
+                    region.clear();
+                } else {
+                    region.clear(repositoryId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of all regions.
+     */
+    public static void invalidateAll() {
+        for (Region region : REGIONS.values()) {
+            region.clear();
+        }
+    }
+
+    /**
+     * Returns the number of regions in use.
+     */
+    public static int getRegionCount() {
+        return REGIONS.size();
+    }
+
+    /**
+     * The cached data of one endpoint.
+     */
+    public static final class Region {
+
+        private final String key;
+        private final String endpoint;
+        private final AtomicInteger references = new AtomicInteger();
+        private final ConcurrentMap<String, Entry<RepositoryInfo>> repositoryInfos = new ConcurrentHashMap<String, Entry<RepositoryInfo>>();
+        private final ConcurrentMap<String, ConcurrentMap<String, Entry<TypeDefinition>>> typeDefinitions = new ConcurrentHashMap<String, ConcurrentMap<String, Entry<TypeDefinition>>>();
+
+        private Region(String key, String endpoint) {
+            this.key = key;
+            this.endpoint = endpoint;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * Adds a user. Returns <code>false</code> if the region has already
+         * been disposed.
+         */
+        private boolean retain() {
+            while (true) {
+                int count = references.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Removes a user. Returns <code>true</code> if this was the last user
+         * and the region has been disposed.
+         */
+        private boolean release() {
+            while (true) {
+                int count = references.get();
+                if (count <= 0) {
+                    return false;
+                }
+                if (count == 1) {
+                    if (references.compareAndSet(1, -1)) {
+                        clear();
+                        return true;
+                    }
+                } else if (references.compareAndSet(count, count - 1)) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Returns the number of bindings that use this region.
+         */
+        public int getReferenceCount() {
+            return Math.max(references.get(), 0);
+        }
+
+        public RepositoryInfo getRepositoryInfo(String repositoryId) {
+            if (repositoryId == null) {
+                return null;
+            }
+
+            return getValue(repositoryInfos, repositoryId);
+        }
+
+        public void putRepositoryInfo(RepositoryInfo repositoryInfo, long ttl) {
+            if (repositoryInfo == null || repositoryInfo.getId() == null) {
+                return;
+            }
+
+            Entry<RepositoryInfo> entry = Entry.create(repositoryInfo, ttl);
+            if (entry != null) {
+                repositoryInfos.put(repositoryInfo.getId(), entry);
+            }
+        }
+
+        public TypeDefinition getTypeDefinition(String repositoryId, String typeId) {
+            if (repositoryId == null || typeId == null) {
+                return null;
+            }
+
+            ConcurrentMap<String, Entry<TypeDefinition>> types = typeDefinitions.get(repositoryId);
+            if (types == null) {
+                return null;
+            }
+
+            return getValue(types, typeId);
+        }
+
+        public void putTypeDefinition(String repositoryId, TypeDefinition typeDefinition, long ttl) {
+            if (repositoryId == null || typeDefinition == null || typeDefinition.getId() == null) {
+                return;
+            }
+
+            Entry<TypeDefinition> entry = Entry.create(typeDefinition, ttl);
+            if (entry == null) {
+                return;
+            }
+
+            ConcurrentMap<String, Entry<TypeDefinition>> types = typeDefinitions.get(repositoryId);
+            if (types == null) {
+                ConcurrentMap<String, Entry<TypeDefinition>> newTypes = new ConcurrentHashMap<String, Entry<TypeDefinition>>();
+                types = typeDefinitions.putIfAbsent(repositoryId, newTypes);
+                if (types == null) {
+                    types = newTypes;
+                }
+            }
+
+            types.put(typeDefinition.getId(), entry);
+        }
+
+        public void removeTypeDefinition(String repositoryId, String typeId) {
+            if (repositoryId == null || typeId == null) {
+                return;
+            }
+
+            ConcurrentMap<String, Entry<TypeDefinition>> types = typeDefinitions.get(repositoryId);
+            if (types != null) {
+                types.remove(typeId);
+            }
+        }
+
+        /**
+         * Returns the number of cached type definitions of a repository.
+         */
+        public int getTypeDefinitionCount(String repositoryId) {
+            ConcurrentMap<String, Entry<TypeDefinition>> types = typeDefinitions.get(repositoryId);
+            return types == null ? 0 : types.size();
+        }
+
+        public void clear(String repositoryId) {
+            repositoryInfos.remove(repositoryId);
+            typeDefinitions.remove(repositoryId);
+        }
+
+        public void clear() {
+            repositoryInfos.clear();
+            typeDefinitions.clear();
+        }
+
+        private static <T> T getValue(ConcurrentMap<String, Entry<T>> map, String key) {
+            Entry<T> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.isExpired()) {
+                map.remove(key, entry);
+                return null;
+            }
+
+            T value = entry.getValue();
+            if (value == null) {
+                // the copy could not be restored
+                map.remove(key, entry);
+            }
+
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            int types = 0;
+            for (ConcurrentMap<String, Entry<TypeDefinition>> map : typeDefinitions.values()) {
+                types += map.size();
+            }
+
+            return "Shared metadata cache region [" + key + "]: " + getReferenceCount() + " bindings, "
+                    + repositoryInfos.size() + " repository infos, " + types + " type definitions";
+        }
+    }
+
+    /**
+     * An immutable cache entry that holds the serialized form of a value.
+     */
+    private static final class Entry<T> {
+
+        private final byte[] data;
+        private final long expires;
+
+        private Entry(byte[] data, long ttl) {
+            this.data = data;
+            this.expires = (ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE);
+        }
+
+        /**
+         * Creates an entry or returns <code>null</code> if the value cannot
+         * be serialized.
+         */
+        public static <T> Entry<T> create(T value, long ttl) {
+            if (!(value instanceof Serializable)) {
+                return null;
+            }
+
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 * 1024);
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(value);
+                out.close();
+
+                return new Entry<T>(bytes.toByteArray(), ttl);
+            } catch (IOException e) {
+                // a part of the value is not serializable
+                return null;
+            }
+        }
+
+        /**
+         * Returns a new copy of the value or <code>null</code> if it cannot be
+         * restored.
+         */
+        @SuppressWarnings("unchecked")
+        public T getValue() {
+            try {
+                ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+                try {
+                    return (T) in.readObject();
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return null;
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() > expires;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.impl;
+
+import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+
+/**
+ * A type definition cache that backs the type definition cache of a binding
+ * with the JVM-wide {@link SharedMetadataCache}.
+ * <p>
+ * Type definitions that are not in the local cache are looked up in the shared
+ * cache. Type definitions that are added to the local cache are also added to
+ * the shared cache. Clearing the local cache doesn't touch the shared cache.
+ * Shared entries expire or have to be invalidated with
+ * {@link SharedMetadataCache#invalidate(String, String)}.
+ */
+public class SharedTypeDefinitionCacheImpl implements TypeDefinitionCache {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TypeDefinitionCache localCache;
+    private String regionKey;
+    private long ttl;
+
+    /**
+     * Constructor.
+     * 
+     * @param localCache
+     *            the type definition cache of the binding
+     */
+    public SharedTypeDefinitionCacheImpl(TypeDefinitionCache localCache) {
+        assert localCache != null;
+
+        this.localCache = localCache;
+    }
+
+    /**
+     * Initializes the shared part of the cache. The local cache must have been
+     * initialized already.
+     */
+    public void initialize(BindingSession session) {
+        assert session != null;
+
+        regionKey = SharedMetadataCache.getRegionKey(session);
+        ttl = SharedMetadataCache.getTimeToLive(session);
+    }
+
+    public void put(String repositoryId, TypeDefinition typeDefinition) {
+        localCache.put(repositoryId, typeDefinition);
+
+        SharedMetadataCache.Region region = SharedMetadataCache.getRegion(regionKey);
+        if (region != null) {
+            region.putTypeDefinition(repositoryId, typeDefinition, ttl);
+        }
+    }
+
+    public TypeDefinition get(String repositoryId, String typeId) {
+        TypeDefinition result = localCache.get(repositoryId, typeId);
+        if (result != null) {
+            return result;
+        }
+
+        SharedMetadataCache.Region region = SharedMetadataCache.getRegion(regionKey);
+        if (region != null) {
+            result = region.getTypeDefinition(repositoryId, typeId);
+            if (result != null) {
+                localCache.put(repositoryId, result);
+            }
+        }
+
+        return result;
+    }
+
+    public void remove(String repositoryId, String typeId) {
+        localCache.remove(repositoryId, typeId);
+
+        // the type definition has been changed or deleted
+        SharedMetadataCache.Region region = SharedMetadataCache.getRegion(regionKey);
+        if (region != null) {
+            region.removeTypeDefinition(repositoryId, typeId);
+        }
+    }
+
+    public void remove(String repositoryId) {
+        localCache.remove(repositoryId);
+    }
+
+    public void removeAll() {
+        localCache.removeAll();
+    }
+
+    /**
+     * Returns the type definition cache of the binding.
+     */
+    public TypeDefinitionCache getLocalCache() {
+        return localCache;
+    }
+
+    @Override
+    public String toString() {
+        return localCache.toString() + " (shared: " + SharedMetadataCache.getRegion(regionKey) + ")";
+    }
+}
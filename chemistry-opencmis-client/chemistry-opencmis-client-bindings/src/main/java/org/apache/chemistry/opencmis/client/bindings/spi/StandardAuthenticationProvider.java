@@ -18,12 +18,16 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi;
 
+import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.chemistry.opencmis.client.bindings.spi.cookies.CmisCookieManager;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
@@ -48,8 +52,17 @@ public class StandardAuthenticationProvider extends AbstractAuthenticationProvid
     protected static final String WSSE_NAMESPACE = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
     protected static final String WSU_NAMESPACE = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd";
 
+    private static final int MAX_CACHED_HEADERS = 1000;
+
     private CmisCookieManager cookieManager;
-    private Map<String, List<String>> fixedHeaders = new HashMap<String, List<String>>();
+    private final Map<String, List<String>> fixedHeaders = new FixedHeadersMap();
+
+    // incremented whenever the fixed headers change
+    private final AtomicLong fixedHeadersVersion = new AtomicLong();
+    // immutable copy of the fixed headers
+    private volatile FixedHeadersSnapshot fixedHeadersSnapshot;
+    // fixed headers plus cookies by URL without query
+    private final ConcurrentMap<String, CachedHeaders> headersCache = new ConcurrentHashMap<String, CachedHeaders>();
 
     @Override
     public void setSession(BindingSession session) {
@@ -98,19 +111,115 @@ public class StandardAuthenticationProvider extends AbstractAuthenticationProvid
         addSessionParameterHeadersToFixedHeaders();
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * The headers are computed once and only recomputed if the fixed headers
+     * or the cookies for the URL change. Each call returns a new map that the
+     * caller may modify.
+     */
     @Override
     public Map<String, List<String>> getHTTPHeaders(String url) {
-        Map<String, List<String>> result = new HashMap<String, List<String>>(fixedHeaders);
+        Map<String, List<String>> headers = getCachedHTTPHeaders(url);
+
+        return headers == null ? null : new HashMap<String, List<String>>(headers);
+    }
+
+    /**
+     * Returns the shared, immutable headers for a URL.
+     */
+    private Map<String, List<String>> getCachedHTTPHeaders(String url) {
+        Map<String, List<String>> fixed = getImmutableFixedHeaders();
+
+        if (cookieManager == null) {
+            return fixed.isEmpty() ? null : fixed;
+        }
 
         // cookies
-        if (cookieManager != null) {
-            Map<String, List<String>> cookies = cookieManager.get(url, result);
-            if (!cookies.isEmpty()) {
-                result.putAll(cookies);
+        long cookieVersion = cookieManager.getVersion();
+        String key = getCacheKey(url);
+
+        CachedHeaders cached = headersCache.get(key);
+        if (cached != null && cached.cookieVersion == cookieVersion && cached.fixedHeaders == fixed) {
+            return cached.headers;
+        }
+
+        Map<String, List<String>> result = fixed;
+
+        Map<String, List<String>> cookies = cookieManager.get(url, fixed);
+        if (!cookies.isEmpty()) {
+            Map<String, List<String>> merged = new HashMap<String, List<String>>(fixed);
+            for (Map.Entry<String, List<String>> cookie : cookies.entrySet()) {
+                merged.put(cookie.getKey(), Collections.unmodifiableList(cookie.getValue()));
             }
+            result = Collections.unmodifiableMap(merged);
+        }
+
+        if (result.isEmpty()) {
+            result = null;
+        }
+
+        if (headersCache.size() >= MAX_CACHED_HEADERS) {
+            headersCache.clear();
+        }
+        headersCache.put(key, new CachedHeaders(cookieVersion, fixed, result));
+
+        return result;
+    }
+
+    /**
+     * Returns an immutable copy of the fixed headers. The copy is replaced as
+     * a whole. A copy that was built while the fixed headers changed carries
+     * an outdated version and is rebuilt on the next call.
+     */
+    private Map<String, List<String>> getImmutableFixedHeaders() {
+        long version = fixedHeadersVersion.get();
+
+        FixedHeadersSnapshot snapshot = fixedHeadersSnapshot;
+        if (snapshot != null && snapshot.version == version) {
+            return snapshot.headers;
+        }
+
+        Map<String, List<String>> copy = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> header : fixedHeaders.entrySet()) {
+            copy.put(header.getKey(), Collections.unmodifiableList(new ArrayList<String>(header.getValue())));
+        }
+
+        snapshot = new FixedHeadersSnapshot(version, Collections.unmodifiableMap(copy));
+        fixedHeadersSnapshot = snapshot;
+
+        return snapshot.headers;
+    }
+
+    /**
+     * Cookies are set per host and path. The query part of the URL doesn't
+     * matter.
+     */
+    private static String getCacheKey(String url) {
+        int end = url.length();
+
+        int q = url.indexOf('?');
+        if (q > -1) {
+            end = q;
+        }
+
+        int f = url.indexOf('#');
+        if (f > -1 && f < end) {
+            end = f;
         }
 
-        return result.isEmpty() ? null : result;
+        return end == url.length() ? url : url.substring(0, end);
+    }
+
+    /**
+     * Discards the precomputed headers. Changes through the <code>put</code>,
+     * <code>putAll</code>, <code>remove</code> and <code>clear</code> methods
+     * of the fixed headers map call this method automatically. It must be
+     * called after a header value list or a view of the map has been changed.
+     */
+    protected void resetHeaders() {
+        fixedHeadersVersion.incrementAndGet();
+        headersCache.clear();
     }
 
     @Override
@@ -187,7 +296,7 @@ public class StandardAuthenticationProvider extends AbstractAuthenticationProvid
 
     /**
      * Returns the HTTP headers that are sent with all requests. The returned
-     * map is mutable but not synchronized!
+     * map is mutable but not synchronized! See {@link #resetHeaders()}.
      */
     protected Map<String, List<String>> getFixedHeaders() {
         return fixedHeaders;
@@ -276,4 +385,70 @@ public class StandardAuthenticationProvider extends AbstractAuthenticationProvid
     protected boolean getHandleCookies() {
         return getSession().get(SessionParameter.COOKIES, false);
     }
+
+    /**
+     * Map of the fixed headers that discards the precomputed headers when it
+     * is changed.
+     */
+    private class FixedHeadersMap extends HashMap<String, List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public List<String> put(String key, List<String> value) {
+            List<String> result = super.put(key, value);
+            resetHeaders();
+            return result;
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends List<String>> m) {
+            super.putAll(m);
+            resetHeaders();
+        }
+
+        @Override
+        public List<String> remove(Object key) {
+            List<String> result = super.remove(key);
+            resetHeaders();
+            return result;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            resetHeaders();
+        }
+    }
+
+    /**
+     * Immutable copy of the fixed headers and the version it was built from.
+     */
+    private static class FixedHeadersSnapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long version;
+        final Map<String, List<String>> headers;
+
+        FixedHeadersSnapshot(long version, Map<String, List<String>> headers) {
+            this.version = version;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * HTTP headers computed for a cookie store version.
+     */
+    private static class CachedHeaders implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long cookieVersion;
+        final Map<String, List<String>> fixedHeaders;
+        final Map<String, List<String>> headers;
+
+        CachedHeaders(long cookieVersion, Map<String, List<String>> fixedHeaders, Map<String, List<String>> headers) {
+            this.cookieVersion = cookieVersion;
+            this.fixedHeaders = fixedHeaders;
+            this.headers = headers;
+        }
+    }
 }
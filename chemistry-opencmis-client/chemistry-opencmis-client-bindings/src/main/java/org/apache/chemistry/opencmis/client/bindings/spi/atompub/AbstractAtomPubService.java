@@ -214,6 +214,83 @@ public abstract class AbstractAtomPubService implements LinkAccess {
         return link;
     }
 
+    /**
+     * Gets a link from the cache if it is there. If it is not there, the link
+     * is synthesized from the link patterns of the repository or, if that's not
+     * possible, loaded into the cache.
+     * <p>
+     * Only use this method for links that are read with {@link #read(UrlBuilder)}
+     * or {@link #readContent(UrlBuilder, BigInteger, BigInteger)}. These methods
+     * fall back to the link of the object entry if a synthesized link turns out
+     * to be wrong.
+     */
+    protected String loadReadLink(String repositoryId, String id, String rel, String type) {
+        String link = getLink(repositoryId, id, rel, type);
+        if (link == null) {
+            link = getLinkCache().synthesizeLink(repositoryId, id, rel, type);
+            if (link == null) {
+                link = loadLink(repositoryId, id, rel, type);
+            }
+        }
+
+        return link;
+    }
+
+    /**
+     * Checks if a failed request has been sent to a synthesized link. If so,
+     * the object entry is loaded and the link is compared with the link of the
+     * object entry.
+     * 
+     * @return the URL to retry the request with or <code>null</code> if the
+     *         request has not been sent to a synthesized link or the
+     *         synthesized link was correct
+     */
+    protected UrlBuilder resolveSynthesizedLink(UrlBuilder url, int responseCode) {
+        if (responseCode != 404) {
+            return null;
+        }
+
+        String urlStr = url.toString();
+        LinkPatterns.SynthesizedLink synthesizedLink = getLinkCache().getSynthesizedLink(urlStr);
+        if (synthesizedLink == null) {
+            return null;
+        }
+
+        String repositoryId = synthesizedLink.getRepositoryId();
+        String id = synthesizedLink.getId();
+        String rel = synthesizedLink.getRel();
+        String type = synthesizedLink.getType();
+
+        try {
+            getObjectInternal(repositoryId, IdentifierType.ID, id, ReturnVersion.THIS, "cmis:objectId", Boolean.FALSE,
+                    IncludeRelationships.NONE, "cmis:none", Boolean.FALSE, Boolean.FALSE, null);
+        } catch (CmisObjectNotFoundException e) {
+            // the object doesn't exist
+            return null;
+        }
+
+        String link = getLink(repositoryId, id, rel, type);
+        if (link == null || link.equals(synthesizedLink.getLink())) {
+            return null;
+        }
+
+        // the pattern is wrong
+        getLinkCache().disableLinkSynthesis(repositoryId, rel, type);
+
+        // keep the parameters that have been added to the synthesized link
+        String remainder = urlStr.substring(synthesizedLink.getLink().length());
+        if (remainder.length() > 0) {
+            boolean hasQuery = link.indexOf('?') > -1;
+            if (remainder.charAt(0) == '?' && hasQuery) {
+                remainder = "&" + remainder.substring(1);
+            } else if (remainder.charAt(0) == '&' && !hasQuery) {
+                remainder = "?" + remainder.substring(1);
+            }
+        }
+
+        return new UrlBuilder(link + remainder);
+    }
+
     /**
      * Gets the content link from the cache if it is there or loads it into the
      * cache if it is not there.
@@ -634,6 +711,32 @@ public abstract class AbstractAtomPubService implements LinkAccess {
 
         // check response code
         if (resp.getResponseCode() != 200) {
+            UrlBuilder retryUrl = resolveSynthesizedLink(url, resp.getResponseCode());
+            if (retryUrl != null) {
+                return read(retryUrl);
+            }
+
+            throw convertStatusCode(resp.getResponseCode(), resp.getResponseMessage(), resp.getErrorContent(), null);
+        }
+
+        return resp;
+    }
+
+    /**
+     * Performs a GET on a content URL, checks the response code and returns
+     * the result.
+     */
+    protected Response readContent(UrlBuilder url, BigInteger offset, BigInteger length) {
+        // make the call
+        Response resp = getHttpInvoker().invokeGET(url, session, offset, length);
+
+        // check response code
+        if ((resp.getResponseCode() != 200) && (resp.getResponseCode() != 206)) {
+            UrlBuilder retryUrl = resolveSynthesizedLink(url, resp.getResponseCode());
+            if (retryUrl != null) {
+                return readContent(retryUrl, offset, length);
+            }
+
             throw convertStatusCode(resp.getResponseCode(), resp.getResponseMessage(), resp.getErrorContent(), null);
         }
 
@@ -936,7 +1039,7 @@ public abstract class AbstractAtomPubService implements LinkAccess {
             ExtensionsData extension) {
 
         // find the link
-        String link = loadLink(repositoryId, objectId, Constants.REL_ACL, Constants.MEDIATYPE_ACL);
+        String link = loadReadLink(repositoryId, objectId, Constants.REL_ACL, Constants.MEDIATYPE_ACL);
 
         if (link == null) {
             throwLinkException(repositoryId, objectId, Constants.REL_ACL, Constants.MEDIATYPE_ACL);
@@ -64,6 +64,7 @@ public class LinkCache implements Serializable {
     private final Cache collectionLinkCache;
     private final Cache templateCache;
     private final Cache repositoryLinkCache;
+    private final LinkPatterns linkPatterns;
 
     /**
      * Constructor.
@@ -120,6 +121,12 @@ public class LinkCache implements Serializable {
                 MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
                 MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=6" // rel
         });
+
+        if (session.get(SessionParameter.ATOMPUB_LINK_SYNTHESIS, false)) {
+            linkPatterns = new LinkPatterns();
+        } else {
+            linkPatterns = null;
+        }
     }
 
     /**
@@ -128,6 +135,9 @@ public class LinkCache implements Serializable {
     public void addLink(String repositoryId, String id, String rel, String type, String link) {
         if (KNOWN_LINKS.contains(rel)) {
             linkCache.put(link, repositoryId, id, rel, type);
+            if (linkPatterns != null) {
+                linkPatterns.learn(repositoryId, id, rel, type, link);
+            }
         } else if (Constants.REL_ALTERNATE.equals(rel)) {
             // use streamId instead of type as discriminating parameter
             String streamId = extractStreamId(link);
@@ -176,6 +186,42 @@ public class LinkCache implements Serializable {
         return getLink(repositoryId, id, rel, null);
     }
 
+    /**
+     * Synthesizes a link from the link patterns of the repository.
+     * 
+     * @return the link or <code>null</code> if the link cannot be synthesized
+     */
+    public String synthesizeLink(String repositoryId, String id, String rel, String type) {
+        if (linkPatterns == null) {
+            return null;
+        }
+
+        return linkPatterns.synthesize(repositoryId, id, rel, type);
+    }
+
+    /**
+     * Finds the synthesized link an URL has been built from.
+     * 
+     * @return the synthesized link or <code>null</code> if the URL hasn't been
+     *         built from a synthesized link
+     */
+    public LinkPatterns.SynthesizedLink getSynthesizedLink(String url) {
+        if (linkPatterns == null) {
+            return null;
+        }
+
+        return linkPatterns.getSynthesizedLink(url);
+    }
+
+    /**
+     * Stops synthesizing links for a relation and media type.
+     */
+    public void disableLinkSynthesis(String repositoryId, String rel, String type) {
+        if (linkPatterns != null) {
+            linkPatterns.disable(repositoryId, rel, type);
+        }
+    }
+
     /**
      * Checks a link.
      */
@@ -320,6 +366,9 @@ public class LinkCache implements Serializable {
         collectionLinkCache.remove(repositoryId);
         templateCache.remove(repositoryId);
         repositoryLinkCache.remove(repositoryId);
+        if (linkPatterns != null) {
+            linkPatterns.clearRepository(repositoryId);
+        }
     }
 
     /*
@@ -331,6 +380,6 @@ public class LinkCache implements Serializable {
     public String toString() {
         return "Link Cache [link cache=" + linkCache + ", type link cache=" + typeLinkCache
                 + ", collection link cache=" + collectionLinkCache + ", repository link cache=" + repositoryLinkCache
-                + ",  template cache=" + templateCache + "]";
+                + ",  template cache=" + templateCache + ", link patterns=" + linkPatterns + "]";
     }
 }
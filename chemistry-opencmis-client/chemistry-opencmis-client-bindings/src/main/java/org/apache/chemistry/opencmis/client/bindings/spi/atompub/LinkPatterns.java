@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+/**
+ * Learns the link patterns of a repository and synthesizes links of objects
+ * that are not in the link cache.
+ * <p>
+ * A pattern is derived from a link by locating the URL encoded object ID in
+ * the link. A pattern is only used after it has been confirmed by the links of
+ * two different objects. If a link contradicts a pattern, the pattern is
+ * dropped and no links are synthesized for this relation and media type
+ * anymore.
+ * <p>
+ * Every link that passes through the link cache is fed into
+ * {@link #learn(String, String, String, String, String)}. Patterns are
+ * immutable and are swapped atomically, so learning doesn't lock.
+ */
+public class LinkPatterns implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_OBSERVATIONS = 2;
+    private static final int MAX_SYNTHESIZED_LINKS = 100;
+
+    private final ConcurrentMap<String, Pattern> patterns = new ConcurrentHashMap<String, Pattern>();
+    private final SynthesizedLinkMap synthesizedLinks = new SynthesizedLinkMap();
+
+    /**
+     * Learns from a link of an object.
+     */
+    public void learn(String repositoryId, String id, String rel, String type, String link) {
+        if (repositoryId == null || id == null || id.length() == 0 || rel == null || link == null) {
+            return;
+        }
+
+        String key = createKey(repositoryId, rel, type);
+        while (true) {
+            Pattern pattern = patterns.get(key);
+
+            if (pattern == null) {
+                Pattern derived = Pattern.derive(id, link);
+                if (derived == null || patterns.putIfAbsent(key, derived) == null) {
+                    return;
+                }
+            } else if (pattern.isDisabled()) {
+                return;
+            } else if (pattern.matches(id, link)) {
+                if (pattern.isConfirmed() || id.equals(pattern.lastId)
+                        || patterns.replace(key, pattern, pattern.observe(id))) {
+                    return;
+                }
+            } else {
+                patterns.put(key, Pattern.DISABLED);
+                return;
+            }
+
+            // another thread has changed the pattern -> try again
+        }
+    }
+
+    /**
+     * Synthesizes a link.
+     * 
+     * @return the link or <code>null</code> if there is no confirmed pattern
+     *         for this relation and media type
+     */
+    public String synthesize(String repositoryId, String id, String rel, String type) {
+        if (repositoryId == null || id == null || id.length() == 0 || rel == null) {
+            return null;
+        }
+
+        Pattern pattern = patterns.get(createKey(repositoryId, rel, type));
+        if (pattern == null || !pattern.isConfirmed()) {
+            return null;
+        }
+
+        String link = pattern.createLink(id);
+        synchronized (synthesizedLinks) {
+            synthesizedLinks.put(link, new SynthesizedLink(repositoryId, id, rel, type, link));
+        }
+
+        return link;
+    }
+
+    /**
+     * Finds the synthesized link an URL has been built from.
+     * 
+     * @return the synthesized link or <code>null</code> if the URL hasn't been
+     *         built from a synthesized link
+     */
+    public SynthesizedLink getSynthesizedLink(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        synchronized (synthesizedLinks) {
+            SynthesizedLink result = synthesizedLinks.get(url);
+            if (result != null) {
+                return result;
+            }
+
+            // the URL may contain additional parameters
+            for (SynthesizedLink synthesizedLink : synthesizedLinks.values()) {
+                String link = synthesizedLink.getLink();
+                if (url.length() > link.length() && url.startsWith(link)) {
+                    char c = url.charAt(link.length());
+                    if ((c == '?' || c == '&' || c == '/')
+                            && (result == null || link.length() > result.getLink().length())) {
+                        result = synthesizedLink;
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Stops synthesizing links for a relation and media type.
+     */
+    public void disable(String repositoryId, String rel, String type) {
+        patterns.put(createKey(repositoryId, rel, type), Pattern.DISABLED);
+
+        synchronized (synthesizedLinks) {
+            for (Iterator<SynthesizedLink> iter = synthesizedLinks.values().iterator(); iter.hasNext();) {
+                SynthesizedLink synthesizedLink = iter.next();
+                String linkType = synthesizedLink.getType();
+                if (synthesizedLink.getRepositoryId().equals(repositoryId) && synthesizedLink.getRel().equals(rel)
+                        && (type == null ? linkType == null : type.equals(linkType))) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all patterns of a repository.
+     */
+    public void clearRepository(String repositoryId) {
+        String prefix = repositoryId + '\n';
+        for (Iterator<String> iter = patterns.keySet().iterator(); iter.hasNext();) {
+            if (iter.next().startsWith(prefix)) {
+                iter.remove();
+            }
+        }
+
+        synchronized (synthesizedLinks) {
+            for (Iterator<SynthesizedLink> iter = synthesizedLinks.values().iterator(); iter.hasNext();) {
+                if (iter.next().getRepositoryId().equals(repositoryId)) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    private static String createKey(String repositoryId, String rel, String type) {
+        return repositoryId + '\n' + rel + '\n' + (type == null ? "" : type);
+    }
+
+    @Override
+    public String toString() {
+        int confirmed = 0;
+        for (Pattern pattern : patterns.values()) {
+            if (pattern.isConfirmed()) {
+                confirmed++;
+            }
+        }
+
+        return "Link Patterns [patterns=" + patterns.size() + ", confirmed=" + confirmed + "]";
+    }
+
+    /**
+     * A link pattern. Instances are immutable.
+     */
+    private static final class Pattern implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        static final Pattern DISABLED = new Pattern(null, null, false, 0, null);
+
+        private final String prefix;
+        private final String suffix;
+        private final boolean pathEncoded;
+        private final int observations;
+        private final String lastId;
+
+        private Pattern(String prefix, String suffix, boolean pathEncoded, int observations, String lastId) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.pathEncoded = pathEncoded;
+            this.observations = observations;
+            this.lastId = lastId;
+        }
+
+        /**
+         * Derives a pattern from a link. Returns <code>null</code> if the
+         * object ID doesn't occur exactly once in the link.
+         */
+        static Pattern derive(String id, String link) {
+            boolean pathEncoded = false;
+            String encodedId = IOUtils.encodeURL(id);
+            int index = link.indexOf(encodedId);
+            if (index == -1) {
+                pathEncoded = true;
+                encodedId = UrlBuilder.quoteURIPathComponent(id, true);
+                index = link.indexOf(encodedId);
+            }
+
+            if (index == -1 || link.indexOf(encodedId, index + 1) != -1) {
+                return null;
+            }
+
+            return new Pattern(link.substring(0, index), link.substring(index + encodedId.length()), pathEncoded, 1,
+                    id);
+        }
+
+        boolean isDisabled() {
+            return prefix == null;
+        }
+
+        boolean isConfirmed() {
+            return prefix != null && observations >= MIN_OBSERVATIONS;
+        }
+
+        boolean matches(String id, String link) {
+            // check the cheap parts first
+            if (!link.startsWith(prefix) || !link.endsWith(suffix)) {
+                return false;
+            }
+
+            String encodedId = encode(id);
+            return link.length() == prefix.length() + encodedId.length() + suffix.length()
+                    && link.startsWith(encodedId, prefix.length());
+        }
+
+        Pattern observe(String id) {
+            return new Pattern(prefix, suffix, pathEncoded, observations + 1, id);
+        }
+
+        String createLink(String id) {
+            String encodedId = encode(id);
+            StringBuilder sb = new StringBuilder(prefix.length() + encodedId.length() + suffix.length());
+            sb.append(prefix);
+            sb.append(encodedId);
+            sb.append(suffix);
+            return sb.toString();
+        }
+
+        private String encode(String id) {
+            return pathEncoded ? UrlBuilder.quoteURIPathComponent(id, true) : IOUtils.encodeURL(id);
+        }
+    }
+
+    /**
+     * A synthesized link.
+     */
+    public static final class SynthesizedLink implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String repositoryId;
+        private final String id;
+        private final String rel;
+        private final String type;
+        private final String link;
+
+        public SynthesizedLink(String repositoryId, String id, String rel, String type, String link) {
+            this.repositoryId = repositoryId;
+            this.id = id;
+            this.rel = rel;
+            this.type = type;
+            this.link = link;
+        }
+
+        public String getRepositoryId() {
+            return repositoryId;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getRel() {
+            return rel;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getLink() {
+            return link;
+        }
+    }
+
+    /**
+     * LRU map of recently synthesized links.
+     */
+    private static final class SynthesizedLinkMap extends LinkedHashMap<String, SynthesizedLink> {
+
+        private static final long serialVersionUID = 1L;
+
+        public SynthesizedLinkMap() {
+            super(MAX_SYNTHESIZED_LINKS + 1, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SynthesizedLink> eldest) {
+            return size() > MAX_SYNTHESIZED_LINKS;
+        }
+    }
+}
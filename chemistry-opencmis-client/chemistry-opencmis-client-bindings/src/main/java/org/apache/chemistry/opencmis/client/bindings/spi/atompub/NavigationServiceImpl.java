@@ -66,7 +66,7 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
         ObjectInFolderListImpl result = new ObjectInFolderListImpl();
 
         // find the link
-        String link = loadLink(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
+        String link = loadReadLink(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
 
         if (link == null) {
             throwLinkException(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_CHILDREN);
@@ -141,7 +141,7 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
         List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>();
 
         // find the link
-        String link = loadLink(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_DESCENDANTS);
+        String link = loadReadLink(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_DESCENDANTS);
 
         if (link == null) {
             throwLinkException(repositoryId, folderId, Constants.REL_DOWN, Constants.MEDIATYPE_DESCENDANTS);
@@ -169,7 +169,7 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
         ObjectData result = null;
 
         // find the link
-        String link = loadLink(repositoryId, folderId, Constants.REL_UP, Constants.MEDIATYPE_ENTRY);
+        String link = loadReadLink(repositoryId, folderId, Constants.REL_UP, Constants.MEDIATYPE_ENTRY);
 
         if (link == null) {
             throwLinkException(repositoryId, folderId, Constants.REL_UP, Constants.MEDIATYPE_ENTRY);
@@ -223,7 +223,7 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
         List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>();
 
         // find the link
-        String link = loadLink(repositoryId, folderId, Constants.REL_FOLDERTREE, Constants.MEDIATYPE_DESCENDANTS);
+        String link = loadReadLink(repositoryId, folderId, Constants.REL_FOLDERTREE, Constants.MEDIATYPE_DESCENDANTS);
 
         if (link == null) {
             throwLinkException(repositoryId, folderId, Constants.REL_FOLDERTREE, Constants.MEDIATYPE_DESCENDANTS);
@@ -253,7 +253,7 @@ public class NavigationServiceImpl extends AbstractAtomPubService implements Nav
         List<ObjectParentData> result = new ArrayList<ObjectParentData>();
 
         // find the link
-        String link = loadLink(repositoryId, objectId, Constants.REL_UP, Constants.MEDIATYPE_FEED);
+        String link = loadReadLink(repositoryId, objectId, Constants.REL_UP, Constants.MEDIATYPE_FEED);
 
         if (link == null) {
             // root and unfiled objects have no UP link
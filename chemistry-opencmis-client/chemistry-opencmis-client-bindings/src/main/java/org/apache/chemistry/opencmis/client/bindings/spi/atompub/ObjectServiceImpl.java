@@ -29,6 +29,8 @@ import java.util.Map;
 
 import javax.xml.stream.XMLStreamException;
 
+import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomAllowableActions;
 import org.apache.chemistry.opencmis.client.bindings.spi.atompub.objects.AtomElement;
@@ -51,9 +53,13 @@ import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.PropertyId;
 import org.apache.chemistry.opencmis.commons.data.PropertyString;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
+import org.apache.chemistry.opencmis.commons.definitions.DocumentTypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.ContentStreamAllowed;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.UnfileObject;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
@@ -89,6 +95,28 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
             Acl removeAces, ExtensionsData extension) {
         checkCreateProperties(properties);
 
+        // large content is not embedded in the entry but uploaded as raw
+        // media stream after the document has been created
+        boolean uploadContent = isContentUploadRequired(repositoryId, properties, contentStream, versioningState);
+
+        AtomEntry entry = postDocument(repositoryId, properties, folderId, uploadContent ? null : contentStream,
+                versioningState, policies);
+
+        if (uploadContent) {
+            uploadContent(repositoryId, entry, contentStream);
+        }
+
+        // handle ACL modifications
+        handleAclModifications(repositoryId, entry, addAces, removeAces);
+
+        return entry.getId();
+    }
+
+    /**
+     * Posts a new document entry.
+     */
+    private AtomEntry postDocument(String repositoryId, Properties properties, String folderId,
+            ContentStream contentStream, VersioningState versioningState, List<String> policies) {
         // find the link
         String link = null;
 
@@ -125,12 +153,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
         });
 
         // parse the response
-        AtomEntry entry = parse(resp.getStream(), AtomEntry.class);
-
-        // handle ACL modifications
-        handleAclModifications(repositoryId, entry, addAces, removeAces);
-
-        return entry.getId();
+        return parse(resp.getStream(), AtomEntry.class);
     }
 
     public String createDocumentFromSource(String repositoryId, String sourceId, Properties properties,
@@ -549,7 +572,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
 
     public AllowableActions getAllowableActions(String repositoryId, String objectId, ExtensionsData extension) {
         // find the link
-        String link = loadLink(repositoryId, objectId, Constants.REL_ALLOWABLEACTIONS,
+        String link = loadReadLink(repositoryId, objectId, Constants.REL_ALLOWABLEACTIONS,
                 Constants.MEDIATYPE_ALLOWABLEACTION);
 
         if (link == null) {
@@ -578,7 +601,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
             }
         }
         if (link == null) {
-            link = loadLink(repositoryId, objectId, AtomPubParser.LINK_REL_CONTENT, null);
+            link = loadReadLink(repositoryId, objectId, AtomPubParser.LINK_REL_CONTENT, null);
         }
 
         if (link == null) {
@@ -591,12 +614,7 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
         url.addParameter(Constants.PARAM_STREAM_ID, streamId);
 
         // get the content
-        Response resp = getHttpInvoker().invokeGET(url, getSession(), offset, length);
-
-        // check response code
-        if ((resp.getResponseCode() != 200) && (resp.getResponseCode() != 206)) {
-            throw convertStatusCode(resp.getResponseCode(), resp.getResponseMessage(), resp.getErrorContent(), null);
-        }
+        Response resp = readContent(url, offset, length);
 
         ContentStreamImpl result;
         if (resp.getResponseCode() == 206) {
@@ -761,6 +779,100 @@ public class ObjectServiceImpl extends AbstractAtomPubService implements ObjectS
         }
     }
 
+    /**
+     * Decides whether a new document should be created without content and
+     * the content should be uploaded separately.
+     */
+    private boolean isContentUploadRequired(String repositoryId, Properties properties,
+            ContentStream contentStream, VersioningState versioningState) {
+        if (contentStream == null || contentStream.getStream() == null) {
+            return false;
+        }
+
+        int threshold = getSession().get(SessionParameter.ATOMPUB_CONTENT_UPLOAD_THRESHOLD, -1);
+        if (threshold < 0) {
+            return false;
+        }
+
+        long length = contentStream.getLength();
+        if (length >= 0 && length < threshold) {
+            return false;
+        }
+
+        // without a usable type ID the entry is posted as it is and the
+        // repository decides
+        PropertyData<?> typeIdProperty = properties.getProperties().get(PropertyIds.OBJECT_TYPE_ID);
+        if (typeIdProperty == null || !(typeIdProperty.getFirstValue() instanceof String)) {
+            return false;
+        }
+
+        String typeId = (String) typeIdProperty.getFirstValue();
+
+        TypeDefinitionCache cache = CmisBindingsHelper.getTypeDefinitionCache(getSession());
+        TypeDefinition type = cache.get(repositoryId, typeId);
+        if (type == null) {
+            try {
+                type = getTypeDefinitionInternal(repositoryId, typeId);
+            } catch (CmisObjectNotFoundException e) {
+                return false;
+            }
+            cache.put(repositoryId, type);
+        }
+
+        if (!(type instanceof DocumentTypeDefinition)) {
+            return false;
+        }
+
+        DocumentTypeDefinition docType = (DocumentTypeDefinition) type;
+
+        // the repository would reject a document without content
+        if (docType.getContentStreamAllowed() == ContentStreamAllowed.REQUIRED) {
+            return false;
+        }
+
+        // setting the content of a checked in version could create a second
+        // version, so only the PWC of a versionable document can be used
+        if (Boolean.TRUE.equals(docType.isVersionable())) {
+            return versioningState == VersioningState.CHECKEDOUT;
+        }
+
+        return true;
+    }
+
+    /**
+     * Uploads the content of a newly created document. The document is deleted
+     * if the upload fails.
+     */
+    private void uploadContent(String repositoryId, AtomEntry entry, ContentStream contentStream) {
+        String objectId = entry.getId();
+
+        // remember the links of the new document, the edit-media link is
+        // required for the upload
+        lockLinks();
+        try {
+            removeLinks(repositoryId, objectId);
+            for (AtomElement element : entry.getElements()) {
+                if (element.getObject() instanceof AtomLink) {
+                    addLink(repositoryId, objectId, (AtomLink) element.getObject());
+                }
+            }
+        } finally {
+            unlockLinks();
+        }
+
+        try {
+            setOrAppendContent(repositoryId, new Holder<String>(objectId), Boolean.TRUE, null, contentStream, true,
+                    false, null);
+        } catch (RuntimeException e) {
+            try {
+                deleteObject(repositoryId, objectId, Boolean.TRUE, null);
+            } catch (CmisBaseException de) {
+                // the original exception is more important
+            }
+            throw e;
+        }
+    }
+
     /**
      * Handles ACL modifications of newly created objects.
      */
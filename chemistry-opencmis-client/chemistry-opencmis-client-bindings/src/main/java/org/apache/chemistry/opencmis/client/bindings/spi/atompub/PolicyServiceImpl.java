@@ -78,7 +78,7 @@ public class PolicyServiceImpl extends AbstractAtomPubService implements PolicyS
         List<ObjectData> result = new ArrayList<ObjectData>();
 
         // find the link
-        String link = loadLink(repositoryId, objectId, Constants.REL_POLICIES, Constants.MEDIATYPE_FEED);
+        String link = loadReadLink(repositoryId, objectId, Constants.REL_POLICIES, Constants.MEDIATYPE_FEED);
 
         if (link == null) {
             throwLinkException(repositoryId, objectId, Constants.REL_POLICIES, Constants.MEDIATYPE_FEED);
@@ -54,7 +54,7 @@ public class RelationshipServiceImpl extends AbstractAtomPubService implements R
         ObjectListImpl result = new ObjectListImpl();
 
         // find the link
-        String link = loadLink(repositoryId, objectId, Constants.REL_RELATIONSHIPS, Constants.MEDIATYPE_FEED);
+        String link = loadReadLink(repositoryId, objectId, Constants.REL_RELATIONSHIPS, Constants.MEDIATYPE_FEED);
 
         if (link == null) {
             throwLinkException(repositoryId, objectId, Constants.REL_RELATIONSHIPS, Constants.MEDIATYPE_FEED);
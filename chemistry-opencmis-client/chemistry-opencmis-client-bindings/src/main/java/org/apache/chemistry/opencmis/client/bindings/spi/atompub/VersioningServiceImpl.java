@@ -223,7 +223,7 @@ public class VersioningServiceImpl extends AbstractAtomPubService implements Ver
         List<ObjectData> result = new ArrayList<ObjectData>();
 
         // find the link
-        String link = loadLink(repositoryId, objectId, Constants.REL_VERSIONHISTORY, Constants.MEDIATYPE_FEED);
+        String link = loadReadLink(repositoryId, objectId, Constants.REL_VERSIONHISTORY, Constants.MEDIATYPE_FEED);
 
         if (link == null) {
             throwLinkException(repositoryId, objectId, Constants.REL_VERSIONHISTORY, Constants.MEDIATYPE_FEED);
@@ -29,6 +29,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -55,6 +56,10 @@ public class CmisCookieManager implements Serializable {
     private final CmisCookieStoreImpl store;
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // copies of the store state that can be read without locking
+    private volatile long version;
+    private volatile long nextExpiry = Long.MAX_VALUE;
+
     /**
      * Constructs a new cookie manager.
      */
@@ -96,17 +101,18 @@ public class CmisCookieManager implements Serializable {
         try {
             List<CmisHttpCookie> cookies = store.get(uri);
             String uriPath = uri.getPath();
-            for (int i = 0; i < cookies.size(); i++) {
-                CmisHttpCookie cookie = cookies.get(i);
-                String cookiePath = cookie.getPath();
+            Iterator<CmisHttpCookie> iter = cookies.iterator();
+            while (iter.hasNext()) {
+                String cookiePath = iter.next().getPath();
                 // if the uri's path does not path-match cookie's path, remove
                 // cookies from the list
                 if (cookiePath == null || uriPath.length() == 0 || !uriPath.startsWith(cookiePath)) {
-                    cookies.remove(i);
+                    iter.remove();
                 }
             }
 
             Map<String, List<String>> map = getCookieMap(cookies, requestHeaders);
+            publishState();
 
             if (LOG.isDebugEnabled()) {
                 if (map != null && !map.isEmpty()) {
@@ -164,6 +170,13 @@ public class CmisCookieManager implements Serializable {
             throw new IllegalArgumentException("URL or headers are null!");
         }
 
+        // parse and construct cookies according to the map
+        List<CmisHttpCookie> cookies = parseCookie(responseHeaders);
+        if (cookies.isEmpty()) {
+            // most responses don't set cookies
+            return;
+        }
+
         URI uri;
         try {
             uri = new URI(url);
@@ -173,8 +186,6 @@ public class CmisCookieManager implements Serializable {
 
         lock.writeLock().lock();
         try {
-            // parse and construct cookies according to the map
-            List<CmisHttpCookie> cookies = parseCookie(responseHeaders);
             for (CmisHttpCookie cookie : cookies) {
                 if (cookie.getDomain() == null) {
                     cookie.setDomain(uri.getHost());
@@ -184,6 +195,7 @@ public class CmisCookieManager implements Serializable {
                 }
                 store.add(uri, cookie);
             }
+            publishState();
 
             if (LOG.isDebugEnabled()) {
                 if (!cookies.isEmpty()) {
@@ -217,6 +229,35 @@ public class CmisCookieManager implements Serializable {
         return cookies;
     }
 
+    /**
+     * Returns a number that changes whenever the cookies that are sent
+     * change, either because a server has set or deleted a cookie or because a
+     * cookie has expired. Callers can cache the result of
+     * {@link #get(String, Map)} as long as the version doesn't change.
+     */
+    public long getVersion() {
+        if (System.currentTimeMillis() < nextExpiry) {
+            return version;
+        }
+
+        lock.writeLock().lock();
+        try {
+            store.removeExpired();
+            publishState();
+            return version;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Publishes the store state. Must be called with the write lock held.
+     */
+    private void publishState() {
+        version = store.getVersion();
+        nextExpiry = store.getNextExpiry();
+    }
+
     /**
      * Gets current cookie store.
      * 
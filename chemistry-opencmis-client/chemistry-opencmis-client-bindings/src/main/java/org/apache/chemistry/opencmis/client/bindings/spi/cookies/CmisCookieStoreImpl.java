@@ -24,15 +24,25 @@ package org.apache.chemistry.opencmis.client.bindings.spi.cookies;
 
 import java.io.Serializable;
 import java.net.URI;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
  * Provides an in-memory cookie store.
+ * 
+ * The cookies are indexed by domain. A lookup only inspects the cookies of the
+ * domains a host can match. Expired cookies are evicted when the earliest
+ * expiry time has passed.
+ * 
+ * This class is not thread safe.
  */
 public class CmisCookieStoreImpl implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -40,8 +50,19 @@ public class CmisCookieStoreImpl implements Serializable {
     private static final String IP_ADDRESS_PATTERN_STR = "^([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])$";
     private static final Pattern IP_ADDRESS_PATTERN = Pattern.compile(IP_ADDRESS_PATTERN_STR);
 
+    private static final String LOCAL_STR = ".local";
+
+    private static final Comparator<StoredCookie> NEWEST_FIRST = new NewestFirstComparator();
+
     private final int maxUrls;
-    private final ArrayDeque<CmisHttpCookie> storeList;
+    /** All cookies, oldest first. */
+    private final LinkedHashMap<CmisHttpCookie, StoredCookie> cookies;
+    /** Cookies by lower case domain. */
+    private final Map<String, List<StoredCookie>> domainIndex;
+
+    private long sequence = 0;
+    private long nextExpiry = Long.MAX_VALUE;
+    private long version = 0;
 
     public CmisCookieStoreImpl() {
         this(300);
@@ -49,7 +70,8 @@ public class CmisCookieStoreImpl implements Serializable {
 
     public CmisCookieStoreImpl(final int maxUrls) {
         this.maxUrls = maxUrls;
-        storeList = new ArrayDeque<CmisHttpCookie>(maxUrls);
+        cookies = new LinkedHashMap<CmisHttpCookie, StoredCookie>();
+        domainIndex = new HashMap<String, List<StoredCookie>>();
     }
 
     public void add(final URI uri, final CmisHttpCookie cookie) {
@@ -57,24 +79,42 @@ public class CmisCookieStoreImpl implements Serializable {
             throw new IllegalArgumentException("URI and cookie must be set!");
         }
 
+        removeExpired();
+
         if (cookie.hasExpired()) {
-            storeList.remove(cookie);
+            if (remove(cookie) != null) {
+                version++;
+            }
             return;
         }
 
-        Iterator<CmisHttpCookie> iter = storeList.iterator();
-        while (iter.hasNext()) {
-            CmisHttpCookie storeCookie = iter.next();
+        StoredCookie old = remove(cookie);
 
-            if (storeCookie.equals(cookie) || storeCookie.hasExpired()) {
-                iter.remove();
+        StoredCookie stored;
+        if (old != null && old.isSentAs(cookie)) {
+            // the server has only refreshed the cookie
+            // -> keep the position and the version
+            stored = new StoredCookie(cookie, old.sequence);
+        } else {
+            stored = new StoredCookie(cookie, sequence++);
+            version++;
+        }
+
+        cookies.put(cookie, stored);
+        if (stored.domain != null) {
+            List<StoredCookie> domainCookies = domainIndex.get(stored.domain);
+            if (domainCookies == null) {
+                domainCookies = new ArrayList<StoredCookie>(2);
+                domainIndex.put(stored.domain, domainCookies);
             }
+            domainCookies.add(stored);
         }
 
-        storeList.addFirst(cookie);
+        nextExpiry = Math.min(nextExpiry, cookie.getExpiryTime());
 
-        if (storeList.size() > maxUrls) {
-            storeList.removeLast();
+        if (cookies.size() > maxUrls) {
+            remove(cookies.keySet().iterator().next());
+            version++;
         }
     }
 
@@ -83,6 +123,8 @@ public class CmisCookieStoreImpl implements Serializable {
             throw new IllegalArgumentException("URI is null!");
         }
 
+        removeExpired();
+
         final String uriHost = uri.getHost().toLowerCase(Locale.ENGLISH);
 
         boolean isSecure = false;
@@ -91,37 +133,128 @@ public class CmisCookieStoreImpl implements Serializable {
             isSecure = scheme.toLowerCase(Locale.ENGLISH).startsWith("https");
         }
 
-        List<CmisHttpCookie> cookies = new ArrayList<CmisHttpCookie>();
+        List<StoredCookie> candidates = new ArrayList<StoredCookie>();
+        collectCandidates(uriHost, candidates);
+        if (uriHost.indexOf('.') == -1) {
+            // RFC 2965 compares with the effective host name
+            collectCandidates(uriHost + LOCAL_STR, candidates);
+        }
 
-        Iterator<CmisHttpCookie> iter = storeList.iterator();
-        while (iter.hasNext()) {
-            CmisHttpCookie cookie = iter.next();
+        if (candidates.size() > 1) {
+            Collections.sort(candidates, NEWEST_FIRST);
+        }
 
-            if (cookie.hasExpired()) {
-                iter.remove();
-            } else if ((!cookie.getSecure() || isSecure) && cookie.getDomain() != null) {
-                String cookieDomain = cookie.getDomain().toLowerCase();
+        List<CmisHttpCookie> result = new ArrayList<CmisHttpCookie>(candidates.size());
+        for (StoredCookie stored : candidates) {
+            CmisHttpCookie cookie = stored.cookie;
+
+            if ((!cookie.getSecure() || isSecure) && cookie.getDomain() != null) {
+                String cookieDomain = stored.domain;
 
                 if (isIPAddress(uriHost) && uriHost.equals(cookieDomain)) {
-                    cookies.add(cookie);
+                    result.add(cookie);
                 } else {
                     if (cookie.getVersion() == 0) {
                         // Netscape, RFC 2109, RFC 6265
                         if (uriHost.endsWith(cookieDomain)
                                 && (uriHost.length() == cookieDomain.length() || cookieDomain.charAt(0) == '.')) {
-                            cookies.add(cookie);
+                            result.add(cookie);
                         }
                     } else if (cookie.getVersion() == 1) {
                         // RFC 2965
                         if (CmisHttpCookie.domainMatches(cookieDomain, uriHost)) {
-                            cookies.add(cookie);
+                            result.add(cookie);
                         }
                     }
                 }
             }
         }
 
-        return cookies;
+        return result;
+    }
+
+    /**
+     * Returns a number that changes whenever the cookies that are sent change.
+     */
+    public long getVersion() {
+        removeExpired();
+        return version;
+    }
+
+    /**
+     * Returns the point in time when the next cookie expires.
+     * 
+     * @return the time in milliseconds or {@link Long#MAX_VALUE} if no cookie
+     *         expires
+     */
+    public long getNextExpiry() {
+        return nextExpiry;
+    }
+
+    /**
+     * Removes all expired cookies if the earliest expiry time has passed.
+     */
+    public void removeExpired() {
+        if (nextExpiry == Long.MAX_VALUE || System.currentTimeMillis() < nextExpiry) {
+            return;
+        }
+
+        nextExpiry = Long.MAX_VALUE;
+
+        Iterator<StoredCookie> iter = cookies.values().iterator();
+        while (iter.hasNext()) {
+            StoredCookie stored = iter.next();
+            if (stored.cookie.hasExpired()) {
+                iter.remove();
+                removeFromIndex(stored);
+                version++;
+            } else {
+                nextExpiry = Math.min(nextExpiry, stored.cookie.getExpiryTime());
+            }
+        }
+    }
+
+    /**
+     * Collects the cookies of all domains that can match the given host: the
+     * host itself and all its suffixes that start with a dot.
+     */
+    private void collectCandidates(String host, List<StoredCookie> candidates) {
+        addAll(domainIndex.get(host), candidates);
+
+        int dot = host.indexOf('.');
+        while (dot > -1) {
+            addAll(domainIndex.get(host.substring(dot)), candidates);
+            dot = host.indexOf('.', dot + 1);
+        }
+    }
+
+    private static void addAll(List<StoredCookie> domainCookies, List<StoredCookie> candidates) {
+        if (domainCookies != null) {
+            candidates.addAll(domainCookies);
+        }
+    }
+
+    private StoredCookie remove(CmisHttpCookie cookie) {
+        StoredCookie stored = cookies.remove(cookie);
+        if (stored != null) {
+            removeFromIndex(stored);
+        }
+
+        return stored;
+    }
+
+    private void removeFromIndex(StoredCookie stored) {
+        if (stored.domain == null) {
+            return;
+        }
+
+        List<StoredCookie> domainCookies = domainIndex.get(stored.domain);
+        if (domainCookies != null) {
+            domainCookies.remove(stored);
+            if (domainCookies.isEmpty()) {
+                domainIndex.remove(stored.domain);
+            }
+        }
     }
 
     private boolean isIPAddress(String s) {
@@ -137,4 +270,35 @@ public class CmisCookieStoreImpl implements Serializable {
 
         return false;
     }
+
+    /**
+     * A cookie and its position in the store.
+     */
+    private static class StoredCookie implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final CmisHttpCookie cookie;
+        final String domain;
+        final long sequence;
+
+        StoredCookie(CmisHttpCookie cookie, long sequence) {
+            this.cookie = cookie;
+            this.domain = cookie.getDomain() == null ? null : cookie.getDomain().toLowerCase(Locale.ENGLISH);
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns whether the given cookie is sent exactly like this cookie.
+         */
+        boolean isSentAs(CmisHttpCookie other) {
+            return cookie.getSecure() == other.getSecure() && cookie.getVersion() == other.getVersion()
+                    && cookie.toString().equals(other.toString());
+        }
+    }
+
+    private static class NewestFirstComparator implements Comparator<StoredCookie> {
+        public int compare(StoredCookie s1, StoredCookie s2) {
+            return s1.sequence > s2.sequence ? -1 : (s1.sequence < s2.sequence ? 1 : 0);
+        }
+    }
 }
@@ -265,6 +265,7 @@ public final class CmisHttpCookie implements Cloneable, Serializable {
     private boolean secure;
     private String value;
     private int version = 1;
+    private long whenCreated;
 
     {
         attributeSet.put("comment", new Setter() {
@@ -422,6 +423,7 @@ public final class CmisHttpCookie implements Cloneable, Serializable {
 
         this.name = ntrim;
         this.value = value;
+        this.whenCreated = System.currentTimeMillis();
     }
 
     private void attrToString(StringBuilder builder, String attrName, String attrValue) {
@@ -598,12 +600,35 @@ public final class CmisHttpCookie implements Cloneable, Serializable {
         }
 
         boolean expired = false;
-        if (maxAge <= 0L) {
+        if (maxAge <= 0L || System.currentTimeMillis() >= getExpiryTime()) {
             expired = true;
         }
         return expired;
     }
 
+    /**
+     * Answers the point in time when this cookie expires. Max-Age is counted
+     * from the creation of this object.
+     * 
+     * @return the expiry time in milliseconds or {@link Long#MAX_VALUE} if the
+     *         cookie doesn't expire
+     */
+    long getExpiryTime() {
+        if (maxAge == -1L) {
+            return Long.MAX_VALUE;
+        }
+
+        if (maxAge <= 0L) {
+            return whenCreated;
+        }
+
+        if (maxAge > (Long.MAX_VALUE - whenCreated) / 1000L) {
+            return Long.MAX_VALUE;
+        }
+
+        return whenCreated + maxAge * 1000L;
+    }
+
     /**
      * Answers hash code of this http cookie. The result is calculated as below:
      * 
@@ -35,6 +35,7 @@ public abstract class AbstractLocalService {
 
     private BindingSession session;
     private CmisServiceFactory factory;
+    private LocalServiceManager serviceManager;
 
     private String user;
     private String password;
@@ -73,6 +74,24 @@ public abstract class AbstractLocalService {
         return factory;
     }
 
+    /**
+     * Sets the service manager. If a service manager is set, service objects
+     * are reused.
+     */
+    protected void setServiceManager(LocalServiceManager serviceManager) {
+        this.serviceManager = serviceManager;
+    }
+
+    /**
+     * Gets the service manager.
+     * 
+     * @return the service manager or {@code null} if service objects are not
+     *         reused
+     */
+    protected LocalServiceManager getServiceManager() {
+        return serviceManager;
+    }
+
     /**
      * Determines if the processing should be stopped before the service method
      * is called.
@@ -110,7 +129,25 @@ public abstract class AbstractLocalService {
         return new LocalCallContext(repositoryId, user, password);
     }
 
+    /**
+     * Gets a service object for the given repository. The object must be
+     * handed back with {@link #releaseService(CmisService)}.
+     */
     protected CmisService getService(String repositoryId) {
+        if (serviceManager != null) {
+            return serviceManager.getService(repositoryId);
+        }
+
         return factory.getService(createCallContext(repositoryId));
     }
+
+    /**
+     * Releases a service object. Reused service objects are closed when the
+     * service manager is closed.
+     */
+    protected void releaseService(CmisService service) {
+        if (serviceManager == null) {
+            service.close();
+        }
+    }
 }
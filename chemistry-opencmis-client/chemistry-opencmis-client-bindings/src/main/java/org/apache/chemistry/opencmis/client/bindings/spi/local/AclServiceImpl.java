@@ -57,7 +57,7 @@ public class AclServiceImpl extends AbstractLocalService implements AclService,
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -77,7 +77,7 @@ public class AclServiceImpl extends AbstractLocalService implements AclService,
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -97,7 +97,7 @@ public class AclServiceImpl extends AbstractLocalService implements AclService,
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
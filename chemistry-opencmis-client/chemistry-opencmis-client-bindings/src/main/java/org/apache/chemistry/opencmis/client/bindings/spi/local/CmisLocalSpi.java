@@ -29,6 +29,7 @@ import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.server.ReusableCmisServiceFactory;
 import org.apache.chemistry.opencmis.commons.spi.AclService;
 import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
 import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
@@ -49,6 +50,7 @@ public class CmisLocalSpi implements CmisSpi {
     private static final Logger LOG = LoggerFactory.getLogger(CmisLocalSpi.class);
 
     private final CmisServiceFactory factory;
+    private final LocalServiceManager serviceManager;
 
     private final RepositoryService repositoryService;
     private final NavigationService navigationService;
@@ -91,15 +93,27 @@ public class CmisLocalSpi implements CmisSpi {
             throw new CmisConnectionException("Factory cannot be created: " + e.getMessage(), e);
         }
 
-        repositoryService = new RepositoryServiceImpl(session, factory);
-        navigationService = new NavigationServiceImpl(session, factory);
-        objectService = new ObjectServiceImpl(session, factory);
-        versioningService = new VersioningServiceImpl(session, factory);
-        discoveryService = new DiscoveryServiceImpl(session, factory);
-        multiFilingService = new MultiFilingServiceImpl(session, factory);
-        relationshipService = new RelationshipServiceImpl(session, factory);
-        policyService = new PolicyServiceImpl(session, factory);
-        aclService = new AclServiceImpl(session, factory);
+        // reuse call contexts and service objects if the factory allows it
+        if (LocalServiceManager.isReusable(factory)) {
+            serviceManager = new LocalServiceManager(session, (ReusableCmisServiceFactory) factory);
+        } else {
+            serviceManager = null;
+        }
+
+        repositoryService = init(new RepositoryServiceImpl(session, factory));
+        navigationService = init(new NavigationServiceImpl(session, factory));
+        objectService = init(new ObjectServiceImpl(session, factory));
+        versioningService = init(new VersioningServiceImpl(session, factory));
+        discoveryService = init(new DiscoveryServiceImpl(session, factory));
+        multiFilingService = init(new MultiFilingServiceImpl(session, factory));
+        relationshipService = init(new RelationshipServiceImpl(session, factory));
+        policyService = init(new PolicyServiceImpl(session, factory));
+        aclService = init(new AclServiceImpl(session, factory));
+    }
+
+    private <T extends AbstractLocalService> T init(T service) {
+        service.setServiceManager(serviceManager);
+        return service;
     }
 
     public RepositoryService getRepositoryService() {
@@ -145,6 +159,10 @@ public class CmisLocalSpi implements CmisSpi {
     }
 
     public void close() {
+        if (serviceManager != null) {
+            serviceManager.close();
+        }
+
         factory.destroy();
     }
 }
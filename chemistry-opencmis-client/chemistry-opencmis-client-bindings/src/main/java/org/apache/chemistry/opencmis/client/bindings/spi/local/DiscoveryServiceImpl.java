@@ -59,7 +59,7 @@ public class DiscoveryServiceImpl extends AbstractLocalService implements Discov
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -82,7 +82,7 @@ public class DiscoveryServiceImpl extends AbstractLocalService implements Discov
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
@@ -0,0 +1,109 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.local;
+
+import java.io.File;
+import java.math.BigInteger;
+
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+
+/**
+ * Immutable {@link CallContext} implementation that can be shared by all calls
+ * of a user to a repository.
+ * 
+ * @see LocalServiceManager
+ */
+public class ImmutableLocalCallContext implements CallContext {
+
+    private final String repositoryId;
+    private final String user;
+    private final String password;
+
+    public ImmutableLocalCallContext(String repositoryId, String user, String password) {
+        this.repositoryId = repositoryId;
+        this.user = user;
+        this.password = password;
+    }
+
+    public String getBinding() {
+        return BINDING_LOCAL;
+    }
+
+    public Object get(String key) {
+        if (REPOSITORY_ID.equals(key)) {
+            return repositoryId;
+        } else if (USERNAME.equals(key)) {
+            return user;
+        } else if (PASSWORD.equals(key)) {
+            return password;
+        }
+
+        return null;
+    }
+
+    public CmisVersion getCmisVersion() {
+        return CmisVersion.CMIS_1_1;
+    }
+
+    public String getRepositoryId() {
+        return repositoryId;
+    }
+
+    public String getUsername() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getLocale() {
+        return null;
+    }
+
+    public BigInteger getOffset() {
+        return null;
+    }
+
+    public BigInteger getLength() {
+        return null;
+    }
+
+    public boolean isObjectInfoRequired() {
+        return false;
+    }
+
+    public File getTempDirectory() {
+        return null;
+    }
+
+    public boolean encryptTempFiles() {
+        return false;
+    }
+
+    public int getMemoryThreshold() {
+        return 0;
+    }
+
+    public long getMaxContentSize() {
+        return -1;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.local;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.server.ReusableCmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.server.ReusableCmisServiceFactory.ServiceReuse;
+
+/**
+ * Hands out reusable {@link CmisService} objects for a local binding session.
+ * 
+ * The user of a session doesn't change, so there is one immutable call context
+ * per repository. Depending on the {@link ServiceReuse} level declared by the
+ * factory, the service objects are kept per thread or shared by all threads.
+ * All service objects are closed when the manager is closed.
+ */
+public class LocalServiceManager {
+
+    /** Map key for calls without a repository id. */
+    private static final Object NO_REPOSITORY = new Object();
+
+    private final ReusableCmisServiceFactory factory;
+    private final boolean shared;
+
+    private final String user;
+    private final String password;
+
+    private final ConcurrentMap<Object, CallContext> contexts = new ConcurrentHashMap<Object, CallContext>();
+    private final ConcurrentMap<Object, CmisService> sharedServices = new ConcurrentHashMap<Object, CmisService>();
+    private final ThreadLocal<Map<Object, CmisService>> threadServices = new ThreadLocal<Map<Object, CmisService>>();
+    private final Queue<Map<Object, CmisService>> allThreadServices =
+            new ConcurrentLinkedQueue<Map<Object, CmisService>>();
+    private final Queue<CmisService> allServices = new ConcurrentLinkedQueue<CmisService>();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     * 
+     * @param session
+     *            the binding session, provides the user and password
+     * @param factory
+     *            the factory, must declare {@link ServiceReuse#PER_THREAD} or
+     *            {@link ServiceReuse#SHARED}
+     */
+    public LocalServiceManager(BindingSession session, ReusableCmisServiceFactory factory) {
+        assert isReusable(factory);
+
+        this.factory = factory;
+        this.shared = (factory.getServiceReuse() == ServiceReuse.SHARED);
+
+        Object userObj = session.get(SessionParameter.USER);
+        user = userObj instanceof String ? userObj.toString() : null;
+
+        Object passwordObj = session.get(SessionParameter.PASSWORD);
+        password = passwordObj instanceof String ? passwordObj.toString() : null;
+    }
+
+    /**
+     * Returns <code>true</code> if the given factory declares reusable
+     * services.
+     */
+    public static boolean isReusable(CmisServiceFactory factory) {
+        if (!(factory instanceof ReusableCmisServiceFactory)) {
+            return false;
+        }
+
+        ServiceReuse reuse = ((ReusableCmisServiceFactory) factory).getServiceReuse();
+        return reuse == ServiceReuse.PER_THREAD || reuse == ServiceReuse.SHARED;
+    }
+
+    /**
+     * Returns the call context for the given repository.
+     */
+    public CallContext getCallContext(String repositoryId) {
+        Object key = (repositoryId == null ? NO_REPOSITORY : repositoryId);
+
+        CallContext context = contexts.get(key);
+        if (context == null) {
+            context = new ImmutableLocalCallContext(repositoryId, user, password);
+            CallContext existing = contexts.putIfAbsent(key, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+
+        return context;
+    }
+
+    /**
+     * Returns a service object for the given repository. The returned object
+     * must not be closed by the caller.
+     */
+    public CmisService getService(String repositoryId) {
+        if (closed) {
+            throw new CmisConnectionException("Session has been closed!");
+        }
+
+        Object key = (repositoryId == null ? NO_REPOSITORY : repositoryId);
+
+        if (shared) {
+            CmisService service = sharedServices.get(key);
+            if (service == null) {
+                service = createService(repositoryId);
+                CmisService existing = sharedServices.putIfAbsent(key, service);
+                if (existing != null) {
+                    // another thread was faster
+                    allServices.remove(service);
+                    service.close();
+                    service = existing;
+                }
+            }
+
+            return service;
+        }
+
+        Map<Object, CmisService> services = threadServices.get();
+        if (services == null) {
+            // the map is cleared by close(), which may run on another thread
+            services = new ConcurrentHashMap<Object, CmisService>();
+            threadServices.set(services);
+            allThreadServices.add(services);
+        }
+
+        CmisService service = services.get(key);
+        if (service == null) {
+            service = createService(repositoryId);
+            services.put(key, service);
+        }
+
+        return service;
+    }
+
+    private CmisService createService(String repositoryId) {
+        CmisService service = factory.getService(getCallContext(repositoryId));
+        allServices.add(service);
+
+        // the manager might have been closed in the meantime
+        if (closed) {
+            if (allServices.remove(service)) {
+                service.close();
+            }
+            throw new CmisConnectionException("Session has been closed!");
+        }
+
+        return service;
+    }
+
+    /**
+     * Closes all service objects. The service objects kept for other threads
+     * are released, too.
+     */
+    public void close() {
+        closed = true;
+
+        threadServices.remove();
+
+        Map<Object, CmisService> services;
+        while ((services = allThreadServices.poll()) != null) {
+            services.clear();
+        }
+
+        sharedServices.clear();
+
+        CmisService service;
+        while ((service = allServices.poll()) != null) {
+            service.close();
+        }
+    }
+}
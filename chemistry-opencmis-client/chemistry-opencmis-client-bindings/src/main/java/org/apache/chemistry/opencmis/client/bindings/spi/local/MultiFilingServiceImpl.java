@@ -51,7 +51,7 @@ public class MultiFilingServiceImpl extends AbstractLocalService implements Mult
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -69,7 +69,7 @@ public class MultiFilingServiceImpl extends AbstractLocalService implements Mult
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
@@ -63,7 +63,7 @@ public class NavigationServiceImpl extends AbstractLocalService implements Navig
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -87,7 +87,7 @@ public class NavigationServiceImpl extends AbstractLocalService implements Navig
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -109,7 +109,7 @@ public class NavigationServiceImpl extends AbstractLocalService implements Navig
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -129,7 +129,7 @@ public class NavigationServiceImpl extends AbstractLocalService implements Navig
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -151,7 +151,7 @@ public class NavigationServiceImpl extends AbstractLocalService implements Navig
             }
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -175,7 +175,7 @@ public class NavigationServiceImpl extends AbstractLocalService implements Navig
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
@@ -70,7 +70,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -93,7 +93,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -115,7 +115,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -137,7 +137,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -158,7 +158,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -180,7 +180,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -200,7 +200,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
             }
 
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -219,7 +219,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
             }
 
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -241,7 +241,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -261,7 +261,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -283,7 +283,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -306,7 +306,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -329,7 +329,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -349,7 +349,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -371,7 +371,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -390,7 +390,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -409,7 +409,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -428,7 +428,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -447,7 +447,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -470,7 +470,7 @@ public class ObjectServiceImpl extends AbstractLocalService implements ObjectSer
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
@@ -53,7 +53,7 @@ public class PolicyServiceImpl extends AbstractLocalService implements PolicySer
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -73,7 +73,7 @@ public class PolicyServiceImpl extends AbstractLocalService implements PolicySer
 
             return serviceResut;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -91,7 +91,7 @@ public class PolicyServiceImpl extends AbstractLocalService implements PolicySer
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
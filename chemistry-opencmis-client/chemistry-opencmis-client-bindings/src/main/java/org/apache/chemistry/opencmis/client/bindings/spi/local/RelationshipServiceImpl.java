@@ -60,7 +60,7 @@ public class RelationshipServiceImpl extends AbstractLocalService implements Rel
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
@@ -62,7 +62,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -82,7 +82,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -102,7 +102,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -124,7 +124,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -146,7 +146,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -166,7 +166,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -186,7 +186,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -204,7 +204,7 @@ public class RepositoryServiceImpl extends AbstractLocalService implements Repos
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
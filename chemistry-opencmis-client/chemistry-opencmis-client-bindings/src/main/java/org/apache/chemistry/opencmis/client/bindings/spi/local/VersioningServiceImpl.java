@@ -59,7 +59,7 @@ public class VersioningServiceImpl extends AbstractLocalService implements Versi
             }
 
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -80,7 +80,7 @@ public class VersioningServiceImpl extends AbstractLocalService implements Versi
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -99,7 +99,7 @@ public class VersioningServiceImpl extends AbstractLocalService implements Versi
                 return;
             }
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -121,7 +121,7 @@ public class VersioningServiceImpl extends AbstractLocalService implements Versi
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -145,7 +145,7 @@ public class VersioningServiceImpl extends AbstractLocalService implements Versi
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 
@@ -167,7 +167,7 @@ public class VersioningServiceImpl extends AbstractLocalService implements Versi
 
             return serviceResult;
         } finally {
-            service.close();
+            releaseService(service);
         }
     }
 }
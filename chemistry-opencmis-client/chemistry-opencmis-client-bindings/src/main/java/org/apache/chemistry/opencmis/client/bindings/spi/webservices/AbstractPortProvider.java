@@ -21,20 +21,18 @@ package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.SoftReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
@@ -51,6 +49,7 @@ import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.SessionParameterDefaults;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
@@ -91,8 +90,6 @@ public abstract class AbstractPortProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractPortProvider.class);
 
-    private static final int PORT_CACHE_SIZE = 5;
-
     protected static final int CHUNK_SIZE = (64 * 1024) - 1;
 
     protected enum CmisWebSerivcesService {
@@ -178,14 +175,34 @@ public abstract class AbstractPortProvider {
 
     class CmisServiceHolder {
         private final CmisWebSerivcesService service;
-        private SoftReference<Service> serviceObject;
         private final URL endpointUrl;
+        private final HandlerResolver handlerResolver;
+        private final PortPool portPool;
 
         public CmisServiceHolder(final CmisWebSerivcesService service, final URL endpointUrl)
                 throws InstantiationException, IllegalAccessException, InvocationTargetException, NoSuchMethodException {
             this.service = service;
             this.endpointUrl = endpointUrl;
-            this.serviceObject = new SoftReference<Service>(createServiceObject());
+
+            AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(getSession());
+            this.handlerResolver = (authProvider == null ? null : authProvider.getHandlerResolver());
+
+            int poolSize = getSession().get(SessionParameter.WEBSERVICES_PORT_POOL_SIZE,
+                    SessionParameterDefaults.WEBSERVICES_PORT_POOL_SIZE);
+            int idleTimeout = getSession().get(SessionParameter.WEBSERVICES_PORT_POOL_IDLE_TIMEOUT,
+                    SessionParameterDefaults.WEBSERVICES_PORT_POOL_IDLE_TIMEOUT);
+
+            String poolKey = AbstractPortProvider.this.getClass().getName() + " " + service.getServiceName() + " "
+                    + endpointUrl + " " + getSession().get(SessionParameter.WEBSERVICES_MEMORY_THRESHOLD);
+
+            if (handlerResolver == null) {
+                this.portPool = PortPool.getSharedPool(poolKey, poolSize, idleTimeout);
+            } else {
+                // handlers are bound to the service object -> don't share
+                this.portPool = new PortPool(poolKey + " " + getSession().getSessionId(), poolSize, idleTimeout);
+            }
+
+            getServiceObject();
         }
 
         private Service createServiceObject() throws InstantiationException, IllegalAccessException,
@@ -200,12 +217,8 @@ public abstract class AbstractPortProvider {
 
             Service newService = serviceConstructor.newInstance(new Object[] { wsdlUrl, service.getQName() });
 
-            AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(getSession());
-            if (authProvider != null) {
-                HandlerResolver handlerResolver = authProvider.getHandlerResolver();
-                if (handlerResolver != null) {
-                    newService.setHandlerResolver(handlerResolver);
-                }
+            if (handlerResolver != null) {
+                newService.setHandlerResolver(handlerResolver);
             }
 
             return newService;
@@ -217,15 +230,24 @@ public abstract class AbstractPortProvider {
 
         public Service getServiceObject() throws InstantiationException, IllegalAccessException,
                 InvocationTargetException, NoSuchMethodException {
-            Service result = serviceObject.get();
+            Service result = portPool.getService();
             if (result == null) {
-                result = createServiceObject();
-                serviceObject = new SoftReference<Service>(result);
+                synchronized (portPool) {
+                    result = portPool.getService();
+                    if (result == null) {
+                        result = createServiceObject();
+                        portPool.setService(result);
+                    }
+                }
             }
 
             return result;
         }
 
+        public PortPool getPortPool() {
+            return portPool;
+        }
+
         public URL getEndpointUrl() {
             return endpointUrl;
         }
@@ -240,10 +262,6 @@ public abstract class AbstractPortProvider {
     private boolean useClientCompression;
     private String acceptLanguage;
 
-    private final ReentrantLock portObjectLock = new ReentrantLock();
-    private final EnumMap<CmisWebSerivcesService, ArrayDeque<SoftReference<BindingProvider>>> portObjectCache = new EnumMap<CmisWebSerivcesService, ArrayDeque<SoftReference<BindingProvider>>>(
-            CmisWebSerivcesService.class);
-
     public BindingSession getSession() {
         return session;
     }
@@ -365,9 +383,14 @@ public abstract class AbstractPortProvider {
     }
 
     public void endCall(Object portObject) {
+        if (!(portObject instanceof BindingProvider)) {
+            return;
+        }
+
+        BindingProvider bp = (BindingProvider) portObject;
+
         AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
-        if (authProvider != null && portObject instanceof BindingProvider) {
-            BindingProvider bp = (BindingProvider) portObject;
+        if (authProvider != null) {
             String url = (String) bp.getRequestContext().get(BindingProvider.ENDPOINT_ADDRESS_PROPERTY);
             if (bp.getResponseContext() != null) {
                 @SuppressWarnings("unchecked")
@@ -376,56 +399,69 @@ public abstract class AbstractPortProvider {
                 Integer statusCode = (Integer) bp.getResponseContext().get(MessageContext.HTTP_RESPONSE_CODE);
                 authProvider.putResponseHeaders(url, statusCode == null ? -1 : statusCode, headers);
             }
+        }
 
-            CmisWebSerivcesService service = null;
-
-            if (portObject instanceof RepositoryServicePort) {
-                service = CmisWebSerivcesService.REPOSITORY_SERVICE;
-            } else if (portObject instanceof NavigationServicePort) {
-                service = CmisWebSerivcesService.NAVIGATION_SERVICE;
-            } else if (portObject instanceof ObjectServicePort) {
-                service = CmisWebSerivcesService.OBJECT_SERVICE;
-            } else if (portObject instanceof VersioningServicePort) {
-                service = CmisWebSerivcesService.VERSIONING_SERVICE;
-            } else if (portObject instanceof DiscoveryServicePort) {
-                service = CmisWebSerivcesService.DISCOVERY_SERVICE;
-            } else if (portObject instanceof MultiFilingServicePort) {
-                service = CmisWebSerivcesService.MULTIFILING_SERVICE;
-            } else if (portObject instanceof RelationshipServicePort) {
-                service = CmisWebSerivcesService.RELATIONSHIP_SERVICE;
-            } else if (portObject instanceof PolicyServicePort) {
-                service = CmisWebSerivcesService.POLICY_SERVICE;
-            } else if (portObject instanceof ACLServicePort) {
-                service = CmisWebSerivcesService.ACL_SERVICE;
-            }
+        CmisWebSerivcesService service = null;
+
+        if (portObject instanceof RepositoryServicePort) {
+            service = CmisWebSerivcesService.REPOSITORY_SERVICE;
+        } else if (portObject instanceof NavigationServicePort) {
+            service = CmisWebSerivcesService.NAVIGATION_SERVICE;
+        } else if (portObject instanceof ObjectServicePort) {
+            service = CmisWebSerivcesService.OBJECT_SERVICE;
+        } else if (portObject instanceof VersioningServicePort) {
+            service = CmisWebSerivcesService.VERSIONING_SERVICE;
+        } else if (portObject instanceof DiscoveryServicePort) {
+            service = CmisWebSerivcesService.DISCOVERY_SERVICE;
+        } else if (portObject instanceof MultiFilingServicePort) {
+            service = CmisWebSerivcesService.MULTIFILING_SERVICE;
+        } else if (portObject instanceof RelationshipServicePort) {
+            service = CmisWebSerivcesService.RELATIONSHIP_SERVICE;
+        } else if (portObject instanceof PolicyServicePort) {
+            service = CmisWebSerivcesService.POLICY_SERVICE;
+        } else if (portObject instanceof ACLServicePort) {
+            service = CmisWebSerivcesService.ACL_SERVICE;
+        }
 
-            if (service == null) {
-                return;
-            }
+        if (service == null) {
+            return;
+        }
 
-            portObjectLock.lock();
-            try {
-                ArrayDeque<SoftReference<BindingProvider>> queue = portObjectCache.get(service);
-                if (queue == null) {
-                    throw new CmisRuntimeException("This is a bug!");
-                }
+        @SuppressWarnings("unchecked")
+        Map<CmisWebSerivcesService, CmisServiceHolder> serviceMap = (Map<CmisWebSerivcesService, CmisServiceHolder>) session
+                .get(SpiSessionParameter.SERVICES);
+        if (serviceMap == null) {
+            throw new CmisRuntimeException("This is a bug!");
+        }
 
-                if (queue.size() < PORT_CACHE_SIZE) {
-                    queue.push(new SoftReference<BindingProvider>(bp));
-                } else {
-                    Iterator<SoftReference<BindingProvider>> iter = queue.iterator();
-                    while (iter.hasNext()) {
-                        SoftReference<BindingProvider> ref = iter.next();
-                        if (ref.get() == null) {
-                            iter.remove();
-                            queue.push(new SoftReference<BindingProvider>(bp));
-                            break;
-                        }
-                    }
-                }
-            } finally {
-                portObjectLock.unlock();
+        CmisServiceHolder serviceHolder = serviceMap.get(service);
+        if (serviceHolder == null) {
+            throw new CmisRuntimeException("This is a bug!");
+        }
+
+        serviceHolder.getPortPool().release(bp);
+    }
+
+    /**
+     * Returns the port object pools of this session.
+     */
+    public Collection<PortPool> getPortPools() {
+        @SuppressWarnings("unchecked")
+        Map<CmisWebSerivcesService, CmisServiceHolder> serviceMap = (Map<CmisWebSerivcesService, CmisServiceHolder>) session
+                .get(SpiSessionParameter.SERVICES);
+        if (serviceMap == null) {
+            return Collections.emptyList();
+        }
+
+        session.readLock();
+        try {
+            List<PortPool> result = new ArrayList<PortPool>();
+            for (CmisServiceHolder serviceHolder : serviceMap.values()) {
+                result.add(serviceHolder.getPortPool());
             }
+            return result;
+        } finally {
+            session.readUnlock();
         }
     }
 
@@ -543,9 +579,48 @@ public abstract class AbstractPortProvider {
     }
 
     /**
-     * Reads the URL and extracts the endpoint URL of the given service.
+     * Extracts the endpoint URL of the given service from a WSDL.
      */
     private URL getEndpointUrlFromWsdl(final String wsdlUrl, final CmisWebSerivcesService service) {
+        Map<String, String> endpoints = getWsdlEndpoints(wsdlUrl);
+
+        String name = service.getQName().getLocalPart();
+        if (!endpoints.containsKey(name)) {
+            throw new CmisRuntimeException("This service does not provide an endpoint address: "
+                    + service.getServiceName());
+        }
+
+        String location = endpoints.get(name);
+        if (location == null) {
+            throw new CmisRuntimeException("This service has no endpoint address: " + service.getServiceName());
+        }
+
+        try {
+            return new URL(location);
+        } catch (MalformedURLException e) {
+            throw new CmisRuntimeException("This service provides an invalid endpoint address: "
+                    + service.getServiceName(), e);
+        }
+    }
+
+    /**
+     * Reads a WSDL and returns the endpoint addresses of all services. The
+     * WSDL is read only once per session.
+     */
+    private Map<String, String> getWsdlEndpoints(final String wsdlUrl) {
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, String>> wsdlEndpoints = (Map<String, Map<String, String>>) session
+                .get(SpiSessionParameter.WSDL_ENDPOINTS);
+        if (wsdlEndpoints == null) {
+            wsdlEndpoints = new HashMap<String, Map<String, String>>();
+            session.put(SpiSessionParameter.WSDL_ENDPOINTS, wsdlEndpoints, true);
+        }
+
+        Map<String, String> endpoints = wsdlEndpoints.get(wsdlUrl);
+        if (endpoints != null) {
+            return endpoints;
+        }
+
         InputStream wsdlStream;
         URL url;
 
@@ -581,48 +656,37 @@ public abstract class AbstractPortProvider {
         try {
             final Document doc = XMLUtils.parseDomDocument(new BufferedInputStream(wsdlStream, 64 * 1024));
 
+            endpoints = new HashMap<String, String>();
+
             NodeList serivceList = doc.getElementsByTagNameNS("http://schemas.xmlsoap.org/wsdl/", "service");
             for (int i = 0; i < serivceList.getLength(); i++) {
                 Element serviceNode = (Element) serivceList.item(i);
 
                 String name = serviceNode.getAttribute("name");
-                if (name == null) {
+                if (name == null || endpoints.get(name) != null) {
                     continue;
                 }
 
-                if (!service.getQName().getLocalPart().equals(name)) {
-                    continue;
-                }
+                String location = null;
 
                 NodeList portList = serviceNode.getElementsByTagNameNS("http://schemas.xmlsoap.org/wsdl/", "port");
-                if (portList.getLength() < 1) {
-                    throw new CmisRuntimeException("This service has no ports: " + service.getServiceName());
-                }
-
-                Element port = (Element) portList.item(0);
-
-                NodeList addressList = port.getElementsByTagNameNS("http://schemas.xmlsoap.org/wsdl/soap/", "address");
-                if (addressList.getLength() < 1) {
-                    throw new CmisRuntimeException("This service has no endpoint address: " + service.getServiceName());
-                }
-
-                Element address = (Element) addressList.item(0);
-
-                String location = address.getAttribute("location");
-                if (location == null) {
-                    throw new CmisRuntimeException("This service has no endpoint address: " + service.getServiceName());
+                if (portList.getLength() > 0) {
+                    Element port = (Element) portList.item(0);
+
+                    NodeList addressList = port.getElementsByTagNameNS("http://schemas.xmlsoap.org/wsdl/soap/",
+                            "address");
+                    if (addressList.getLength() > 0) {
+                        Element address = (Element) addressList.item(0);
+                        location = address.getAttribute("location");
+                    }
                 }
 
-                try {
-                    return new URL(location);
-                } catch (MalformedURLException e) {
-                    throw new CmisRuntimeException("This service provides an invalid endpoint address: "
-                            + service.getServiceName(), e);
-                }
+                endpoints.put(name, location);
             }
 
-            throw new CmisRuntimeException("This service does not provide an endpoint address: "
-                    + service.getServiceName());
+            wsdlEndpoints.put(wsdlUrl, endpoints);
+
+            return endpoints;
         } catch (ParserConfigurationException pe) {
             throw new CmisRuntimeException("Cannot parse this WSDL: " + wsdlUrl, pe);
         } catch (SAXException se) {
@@ -692,26 +756,46 @@ public abstract class AbstractPortProvider {
      */
     protected BindingProvider createPortObjectFromServiceHolder(final CmisServiceHolder serviceHolder,
             WebServiceFeature... features) throws Exception {
-        portObjectLock.lock();
-        try {
-            ArrayDeque<SoftReference<BindingProvider>> queue = portObjectCache.get(serviceHolder.getService());
-            if (queue == null) {
-                queue = new ArrayDeque<SoftReference<BindingProvider>>();
-                portObjectCache.put(serviceHolder.getService(), queue);
-            }
+        PortPool portPool = serviceHolder.getPortPool();
 
-            while (!queue.isEmpty()) {
-                BindingProvider bp = queue.pop().get();
-                if (bp != null) {
-                    return bp;
-                }
-            }
-        } finally {
-            portObjectLock.unlock();
+        BindingProvider portObject = portPool.acquire();
+        if (portObject != null) {
+            resetPortObject(portObject);
+            return portObject;
         }
 
-        return (BindingProvider) serviceHolder.getServiceObject().getPort(serviceHolder.getService().getPortClass(),
-                features);
+        portObject = (BindingProvider) serviceHolder.getServiceObject().getPort(
+                serviceHolder.getService().getPortClass(), features);
+        portPool.portCreated();
+
+        return portObject;
+    }
+
+    /**
+     * Removes the session specific settings from a pooled port object before
+     * it is configured for the current session. The port object might have been
+     * used by another session before.
+     */
+    protected void resetPortObject(BindingProvider portObject) {
+        removeRequestContextProperty(portObject, MessageContext.HTTP_REQUEST_HEADERS);
+        removeRequestContextProperty(portObject, BindingProvider.USERNAME_PROPERTY);
+        removeRequestContextProperty(portObject, BindingProvider.PASSWORD_PROPERTY);
+    }
+
+    /**
+     * Removes a property from the request context of a port object. Some
+     * JAX-WS implementations reject the removal of properties that have never
+     * been set.
+     */
+    protected static void removeRequestContextProperty(BindingProvider portObject, String key) {
+        Map<String, Object> requestContext = portObject.getRequestContext();
+        try {
+            if (requestContext.containsKey(key)) {
+                requestContext.remove(key);
+            }
+        } catch (IllegalArgumentException e) {
+            // the property is unknown to this JAX-WS implementation
+        }
     }
 
     /**
@@ -121,4 +121,16 @@ public class Axis2PortProvider extends AbstractPortProvider {
             throw new CmisConnectionException("Cannot initalize Web Services port object: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Removes the session specific settings from a pooled port object.
+     */
+    @Override
+    protected void resetPortObject(BindingProvider portObject) {
+        super.resetPortObject(portObject);
+
+        removeRequestContextProperty(portObject, Constants.JAXWS_OUTBOUND_SOAP_HEADERS);
+        removeRequestContextProperty(portObject, HTTPConstants.CONNECTION_TIMEOUT);
+        removeRequestContextProperty(portObject, HTTPConstants.SO_TIMEOUT);
+    }
 }
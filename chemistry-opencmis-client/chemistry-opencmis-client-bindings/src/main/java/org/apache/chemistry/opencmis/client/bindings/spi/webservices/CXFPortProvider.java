@@ -114,4 +114,14 @@ public class CXFPortProvider extends AbstractPortProvider {
             throw new CmisConnectionException("Cannot initalize Web Services port object: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Removes the session specific settings from a pooled port object.
+     */
+    @Override
+    protected void resetPortObject(BindingProvider portObject) {
+        super.resetPortObject(portObject);
+
+        removeRequestContextProperty(portObject, Header.HEADER_LIST);
+    }
 }
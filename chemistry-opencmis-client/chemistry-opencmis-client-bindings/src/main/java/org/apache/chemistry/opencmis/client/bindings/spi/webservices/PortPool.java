@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.Service;
+
+/**
+ * A pool of port objects of one Web Service and one endpoint.
+ * <p>
+ * Pools are shared by all sessions that connect to the same endpoint with the
+ * same port provider. The pool also holds the JAX-WS service object, which
+ * means that the WSDL is parsed only once per endpoint.
+ * <p>
+ * Port objects that have not been used for longer than the idle timeout are
+ * dropped when the pool is accessed.
+ */
+public class PortPool {
+
+    private static final ConcurrentMap<String, PortPool> POOLS = new ConcurrentHashMap<String, PortPool>();
+
+    private final String key;
+    private final int maxSize;
+    private final long idleTimeout;
+
+    private volatile Service service;
+
+    private final Queue<PooledPort> ports = new ConcurrentLinkedQueue<PooledPort>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger inUseCount = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    /**
+     * Creates a pool that is not shared.
+     * 
+     * @param key
+     *            the pool name
+     * @param maxSize
+     *            maximum number of idle port objects
+     * @param idleTimeout
+     *            time in milliseconds after which an idle port object is
+     *            dropped, 0 or less means port objects are never dropped
+     */
+    public PortPool(String key, int maxSize, long idleTimeout) {
+        this.key = key;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the shared pool for the given key. If the pool doesn't exist yet,
+     * it is created with the given settings.
+     */
+    public static PortPool getSharedPool(String key, int maxSize, long idleTimeout) {
+        PortPool pool = POOLS.get(key);
+        if (pool == null) {
+            PortPool newPool = new PortPool(key, maxSize, idleTimeout);
+            pool = POOLS.putIfAbsent(key, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Returns all shared pools.
+     */
+    public static Collection<PortPool> getSharedPools() {
+        return Collections.unmodifiableCollection(new ArrayList<PortPool>(POOLS.values()));
+    }
+
+    /**
+     * Removes all idle port objects and service objects from all shared pools.
+     */
+    public static void clearSharedPools() {
+        for (PortPool pool : POOLS.values()) {
+            pool.clear();
+        }
+        POOLS.clear();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Service getService() {
+        return service;
+    }
+
+    public void setService(Service service) {
+        this.service = service;
+    }
+
+    /**
+     * Takes an idle port object from the pool.
+     * 
+     * @return the port object or <code>null</code> if the pool is empty, in
+     *         which case the caller has to create a new port object and call
+     *         {@link #portCreated()}
+     */
+    public BindingProvider acquire() {
+        long now = System.currentTimeMillis();
+
+        PooledPort pooledPort;
+        while ((pooledPort = ports.poll()) != null) {
+            idleCount.decrementAndGet();
+
+            if (idleTimeout > 0 && now - pooledPort.lastUsed > idleTimeout) {
+                evictedCount.incrementAndGet();
+                continue;
+            }
+
+            reusedCount.incrementAndGet();
+            inUseCount.incrementAndGet();
+            return pooledPort.portObject;
+        }
+
+        return null;
+    }
+
+    /**
+     * Records that a new port object has been created for this pool.
+     */
+    public void portCreated() {
+        createdCount.incrementAndGet();
+        inUseCount.incrementAndGet();
+    }
+
+    /**
+     * Returns a port object to the pool. If the pool is full, the port object
+     * is dropped.
+     */
+    public void release(BindingProvider portObject) {
+        if (portObject == null) {
+            return;
+        }
+
+        inUseCount.decrementAndGet();
+
+        if (idleCount.incrementAndGet() > maxSize) {
+            idleCount.decrementAndGet();
+            evictedCount.incrementAndGet();
+            return;
+        }
+
+        ports.offer(new PooledPort(portObject, System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes all idle port objects and the service object.
+     */
+    public void clear() {
+        while (ports.poll() != null) {
+            idleCount.decrementAndGet();
+        }
+        service = null;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns the number of port objects that are waiting in the pool.
+     */
+    public int getIdleCount() {
+        return Math.max(idleCount.get(), 0);
+    }
+
+    /**
+     * Returns the number of port objects that have been handed out and not
+     * returned yet.
+     */
+    public int getInUseCount() {
+        return Math.max(inUseCount.get(), 0);
+    }
+
+    /**
+     * Returns the number of port objects that have been created.
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * Returns the number of times a port object has been taken from the pool.
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * Returns the number of port objects that have been dropped because they
+     * were idle for too long or the pool was full.
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Port pool [" + key + "]: idle=" + getIdleCount() + ", in use=" + getInUseCount() + ", max idle="
+                + maxSize + ", created=" + getCreatedCount() + ", reused=" + getReusedCount() + ", evicted="
+                + getEvictedCount();
+    }
+
+    private static class PooledPort {
+        final BindingProvider portObject;
+        final long lastUsed;
+
+        PooledPort(BindingProvider portObject, long lastUsed) {
+            this.portObject = portObject;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -24,6 +24,7 @@ package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
 public final class SpiSessionParameter {
 
     public static final String SERVICES = "org.apache.chemistry.opencmis.binding.webservices.services";
+    public static final String WSDL_ENDPOINTS = "org.apache.chemistry.opencmis.binding.webservices.wsdlendpoints";
 
     private SpiSessionParameter() {
     }
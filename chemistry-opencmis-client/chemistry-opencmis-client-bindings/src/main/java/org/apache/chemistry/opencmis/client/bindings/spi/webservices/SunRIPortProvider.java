@@ -127,4 +127,19 @@ public class SunRIPortProvider extends AbstractPortProvider {
             throw new CmisConnectionException("Cannot initalize Web Services port object: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Removes the session specific settings from a pooled port object.
+     */
+    @Override
+    protected void resetPortObject(BindingProvider portObject) {
+        super.resetPortObject(portObject);
+
+        ((WSBindingProvider) portObject).setOutboundHeaders();
+
+        removeRequestContextProperty(portObject, JAXWSProperties.SSL_SOCKET_FACTORY);
+        removeRequestContextProperty(portObject, JAXWSProperties.HOSTNAME_VERIFIER);
+        removeRequestContextProperty(portObject, JAXWSProperties.CONNECT_TIMEOUT);
+        removeRequestContextProperty(portObject, "com.sun.xml.ws.request.timeout");
+    }
 }
@@ -113,4 +113,16 @@ public class WebSpherePortProvider extends AbstractPortProvider {
             throw new CmisConnectionException("Cannot initalize Web Services port object: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Removes the session specific settings from a pooled port object.
+     */
+    @Override
+    protected void resetPortObject(BindingProvider portObject) {
+        super.resetPortObject(portObject);
+
+        removeRequestContextProperty(portObject, "jaxws.binding.soap.headers.outbound");
+        removeRequestContextProperty(portObject, "connection_timeout");
+        removeRequestContextProperty(portObject, "request_timeout");
+    }
 }
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingImpl;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.impl.SharedMetadataCache;
+import org.apache.chemistry.opencmis.client.bindings.impl.SharedMetadataCache.Region;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+
+/**
+ * Tests the JVM-wide shared metadata cache.
+ */
+public class SharedMetadataCacheTest extends TestCase {
+
+    private static final String REPOSITORY_ID = "repo";
+
+    public void testReferenceCounting() {
+        BindingSession session = createSession(UUID.randomUUID().toString());
+        String key = SharedMetadataCache.getRegionKey(session);
+        assertNull(SharedMetadataCache.getRegion(key));
+
+        Region region1 = SharedMetadataCache.acquire(session);
+        Region region2 = SharedMetadataCache.acquire(createSession(session));
+        assertSame(region1, region2);
+        assertSame(region1, SharedMetadataCache.getRegion(key));
+        assertEquals(2, region1.getReferenceCount());
+
+        region1.putTypeDefinition(REPOSITORY_ID, createType("test:type"), 0);
+
+        SharedMetadataCache.release(key);
+        assertEquals(1, region1.getReferenceCount());
+        assertNotNull(region1.getTypeDefinition(REPOSITORY_ID, "test:type"));
+
+        // the last release disposes the region and its data
+        SharedMetadataCache.release(key);
+        assertEquals(0, region1.getReferenceCount());
+        assertNull(SharedMetadataCache.getRegion(key));
+        assertEquals(0, region1.getTypeDefinitionCount(REPOSITORY_ID));
+
+        // an unbalanced release is ignored
+        SharedMetadataCache.release(key);
+
+        // a new binding gets a new region
+        Region region3 = SharedMetadataCache.acquire(session);
+        assertNotSame(region1, region3);
+        assertEquals(1, region3.getReferenceCount());
+        SharedMetadataCache.release(key);
+        assertNull(SharedMetadataCache.getRegion(key));
+    }
+
+    public void testRegionKey() {
+        BindingSession session1 = createSession("endpoint");
+        BindingSession session2 = createSession("endpoint");
+        session2.put(SessionParameter.LOCALE_ISO639_LANGUAGE, "de");
+
+        assertEquals(SharedMetadataCache.getRegionKey(session1),
+                SharedMetadataCache.getRegionKey(createSession("endpoint")));
+        assertFalse(SharedMetadataCache.getRegionKey(session1).equals(SharedMetadataCache.getRegionKey(session2)));
+        assertFalse(SharedMetadataCache.getRegionKey(session1).equals(
+                SharedMetadataCache.getRegionKey(createSession("other"))));
+    }
+
+    public void testDefensiveCopies() {
+        BindingSession session = createSession(UUID.randomUUID().toString());
+        Region region = SharedMetadataCache.acquire(session);
+        try {
+            DocumentTypeDefinitionImpl type = createType("test:type");
+            region.putTypeDefinition(REPOSITORY_ID, type, 0);
+
+            // changing the original doesn't change the cached type
+            type.setDisplayName("changed");
+            type.getPropertyDefinitions().clear();
+
+            TypeDefinition copy1 = region.getTypeDefinition(REPOSITORY_ID, "test:type");
+            assertNotSame(type, copy1);
+            assertEquals("test:type", copy1.getDisplayName());
+            assertEquals(1, copy1.getPropertyDefinitions().size());
+
+            // changing a copy doesn't change the cached type
+            ((DocumentTypeDefinitionImpl) copy1).setDisplayName("changed");
+            copy1.getPropertyDefinitions().clear();
+
+            TypeDefinition copy2 = region.getTypeDefinition(REPOSITORY_ID, "test:type");
+            assertNotSame(copy1, copy2);
+            assertEquals("test:type", copy2.getDisplayName());
+            assertEquals(1, copy2.getPropertyDefinitions().size());
+
+            RepositoryInfoImpl info = createRepositoryInfo();
+            region.putRepositoryInfo(info, 0);
+            info.setName("changed");
+
+            RepositoryInfo infoCopy = region.getRepositoryInfo(REPOSITORY_ID);
+            assertNotSame(info, infoCopy);
+            assertEquals("Repository", infoCopy.getName());
+            ((RepositoryInfoImpl) infoCopy).setName("changed");
+            assertEquals("Repository", region.getRepositoryInfo(REPOSITORY_ID).getName());
+        } finally {
+            SharedMetadataCache.release(region.getKey());
+        }
+    }
+
+    public void testNotSerializable() {
+        BindingSession session = createSession(UUID.randomUUID().toString());
+        Region region = SharedMetadataCache.acquire(session);
+        try {
+            TypeDefinition type = (TypeDefinition) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { TypeDefinition.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return "getId".equals(method.getName()) ? "test:proxy" : null;
+                        }
+                    });
+
+            // objects that cannot be copied are not shared
+            region.putTypeDefinition(REPOSITORY_ID, type, 0);
+            assertNull(region.getTypeDefinition(REPOSITORY_ID, "test:proxy"));
+            assertEquals(0, region.getTypeDefinitionCount(REPOSITORY_ID));
+        } finally {
+            SharedMetadataCache.release(region.getKey());
+        }
+    }
+
+    public void testTimeToLive() throws Exception {
+        BindingSession session = createSession(UUID.randomUUID().toString());
+        Region region = SharedMetadataCache.acquire(session);
+        try {
+            region.putTypeDefinition(REPOSITORY_ID, createType("test:short"), 1);
+            region.putTypeDefinition(REPOSITORY_ID, createType("test:forever"), 0);
+            region.putRepositoryInfo(createRepositoryInfo(), 1);
+
+            Thread.sleep(50);
+
+            assertNull(region.getTypeDefinition(REPOSITORY_ID, "test:short"));
+            assertNull(region.getRepositoryInfo(REPOSITORY_ID));
+            assertNotNull(region.getTypeDefinition(REPOSITORY_ID, "test:forever"));
+
+            // expired entries are removed on access
+            assertEquals(1, region.getTypeDefinitionCount(REPOSITORY_ID));
+        } finally {
+            SharedMetadataCache.release(region.getKey());
+        }
+    }
+
+    public void testInvalidate() {
+        String endpoint = UUID.randomUUID().toString();
+        BindingSession session1 = createSession(endpoint);
+        BindingSession session2 = createSession(endpoint);
+        session2.put(SessionParameter.LOCALE_ISO639_LANGUAGE, "de");
+        BindingSession otherSession = createSession(UUID.randomUUID().toString());
+
+        Region region1 = SharedMetadataCache.acquire(session1);
+        Region region2 = SharedMetadataCache.acquire(session2);
+        Region otherRegion = SharedMetadataCache.acquire(otherSession);
+        try {
+            for (Region region : new Region[] { region1, region2, otherRegion }) {
+                region.putRepositoryInfo(createRepositoryInfo(), 0);
+                region.putTypeDefinition(REPOSITORY_ID, createType("test:type"), 0);
+                region.putTypeDefinition("other", createType("test:type"), 0);
+            }
+
+            // one repository of an endpoint in all locales
+            SharedMetadataCache.invalidate(endpoint, REPOSITORY_ID);
+            assertNull(region1.getRepositoryInfo(REPOSITORY_ID));
+            assertNull(region2.getTypeDefinition(REPOSITORY_ID, "test:type"));
+            assertNotNull(region1.getTypeDefinition("other", "test:type"));
+            assertNotNull(otherRegion.getTypeDefinition(REPOSITORY_ID, "test:type"));
+
+            // all repositories of an endpoint
+            SharedMetadataCache.invalidate(endpoint);
+            assertNull(region1.getTypeDefinition("other", "test:type"));
+            assertNull(region2.getTypeDefinition("other", "test:type"));
+            assertNotNull(otherRegion.getTypeDefinition("other", "test:type"));
+
+            // everything
+            SharedMetadataCache.invalidateAll();
+            assertNull(otherRegion.getRepositoryInfo(REPOSITORY_ID));
+            assertEquals(0, otherRegion.getTypeDefinitionCount(REPOSITORY_ID));
+
+            // the regions stay in use
+            assertSame(region1, SharedMetadataCache.getRegion(region1.getKey()));
+        } finally {
+            SharedMetadataCache.release(region1.getKey());
+            SharedMetadataCache.release(region2.getKey());
+            SharedMetadataCache.release(otherRegion.getKey());
+        }
+    }
+
+    public void testBindings() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, SpiMock.class.getName());
+        parameters.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        parameters.put(SessionParameter.CACHE_SHARED, "true");
+
+        String key = SharedMetadataCache.getRegionKey(createSession(SpiMock.class.getName()));
+        SpiMock.CALLS.set(0);
+
+        CmisBindingImpl binding1 = new CmisBindingImpl(parameters);
+        CmisBindingImpl binding2 = new CmisBindingImpl(parameters);
+        assertEquals(2, SharedMetadataCache.getRegion(key).getReferenceCount());
+
+        TypeDefinition type1 = binding1.getRepositoryService().getTypeDefinition(REPOSITORY_ID, "test:type", null);
+        assertEquals(1, SpiMock.CALLS.get());
+
+        // the second binding gets its own copy from the shared cache
+        TypeDefinition type2 = binding2.getRepositoryService().getTypeDefinition(REPOSITORY_ID, "test:type", null);
+        assertEquals(1, SpiMock.CALLS.get());
+        assertNotSame(type1, type2);
+        assertEquals(type1.getId(), type2.getId());
+
+        // closing the bindings releases the region
+        binding1.close();
+        assertEquals(1, SharedMetadataCache.getRegion(key).getReferenceCount());
+        binding2.close();
+        assertNull(SharedMetadataCache.getRegion(key));
+
+        // a new binding has to fetch the type again
+        CmisBindingImpl binding3 = new CmisBindingImpl(parameters);
+        try {
+            binding3.getRepositoryService().getTypeDefinition(REPOSITORY_ID, "test:type", null);
+            assertEquals(2, SpiMock.CALLS.get());
+        } finally {
+            binding3.close();
+        }
+    }
+
+    private static BindingSession createSession(String spiClass) {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.BINDING_SPI_CLASS, spiClass);
+        return session;
+    }
+
+    private static BindingSession createSession(BindingSession template) {
+        SessionImpl session = new SessionImpl();
+        for (String key : template.getKeys()) {
+            session.put(key, (String) template.get(key));
+        }
+        return session;
+    }
+
+    private static DocumentTypeDefinitionImpl createType(String id) {
+        DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+        type.setId(id);
+        type.setDisplayName(id);
+        type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+
+        PropertyStringDefinitionImpl property = new PropertyStringDefinitionImpl();
+        property.setId("test:property");
+        type.addPropertyDefinition(property);
+
+        return type;
+    }
+
+    private static RepositoryInfoImpl createRepositoryInfo() {
+        RepositoryInfoImpl info = new RepositoryInfoImpl();
+        info.setId(REPOSITORY_ID);
+        info.setName("Repository");
+        return info;
+    }
+
+    /**
+     * SPI that serves type definitions and counts the calls.
+     */
+    public static class SpiMock implements CmisSpi {
+
+        static final AtomicInteger CALLS = new AtomicInteger();
+
+        public SpiMock(BindingSession session) {
+        }
+
+        public RepositoryService getRepositoryService() {
+            return (RepositoryService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { RepositoryService.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if ("getTypeDefinition".equals(method.getName())) {
+                                CALLS.incrementAndGet();
+                                return createType((String) args[1]);
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        public NavigationService getNavigationService() {
+            return null;
+        }
+
+        public ObjectService getObjectService() {
+            return null;
+        }
+
+        public VersioningService getVersioningService() {
+            return null;
+        }
+
+        public RelationshipService getRelationshipService() {
+            return null;
+        }
+
+        public DiscoveryService getDiscoveryService() {
+            return null;
+        }
+
+        public MultiFilingService getMultiFilingService() {
+            return null;
+        }
+
+        public AclService getAclService() {
+            return null;
+        }
+
+        public PolicyService getPolicyService() {
+            return null;
+        }
+
+        public void clearAllCaches() {
+        }
+
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        public void close() {
+        }
+    }
+}
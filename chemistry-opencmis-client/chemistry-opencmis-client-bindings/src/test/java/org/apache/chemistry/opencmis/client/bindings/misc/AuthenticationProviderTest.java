@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.misc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.StandardAuthenticationProvider;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+public class AuthenticationProviderTest extends TestCase {
+
+    public void testFixedHeaders() {
+        StandardAuthenticationProvider provider = createProvider(false);
+
+        Map<String, List<String>> headers1 = provider.getHTTPHeaders("http://www.example.com/a?b");
+        Map<String, List<String>> headers2 = provider.getHTTPHeaders("http://www.example.org/c");
+
+        assertNotSame(headers1, headers2);
+        assertEquals(headers1, headers2);
+        assertEquals(Collections.singletonList("Basic dGVzdDpzZWNyZXQ="), headers1.get("Authorization"));
+        assertEquals(Collections.singletonList("value"), headers1.get("X-Test"));
+
+        // callers may modify the returned map
+        headers1.put("X-Other", Collections.singletonList("other"));
+        assertNull(provider.getHTTPHeaders("http://www.example.com/a?b").get("X-Other"));
+    }
+
+    public void testSubclassHeaders() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.HEADER + ".0", "X-Test: value");
+
+        StandardAuthenticationProvider provider = new StandardAuthenticationProvider() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Map<String, List<String>> getHTTPHeaders(String url) {
+                Map<String, List<String>> headers = super.getHTTPHeaders(url);
+                headers.put("X-Url", Collections.singletonList(url));
+                return headers;
+            }
+        };
+        provider.setSession(session);
+
+        assertEquals(Collections.singletonList("http://www.example.com/1"),
+                provider.getHTTPHeaders("http://www.example.com/1").get("X-Url"));
+        assertEquals(Collections.singletonList("http://www.example.com/2"),
+                provider.getHTTPHeaders("http://www.example.com/2").get("X-Url"));
+    }
+
+    public void testChangedFixedHeaders() {
+        FixedHeadersProvider provider = new FixedHeadersProvider();
+        provider.setSession(new SessionImpl());
+        assertNull(provider.getHTTPHeaders("http://www.example.com/"));
+
+        provider.putFixedHeader("X-Test", "1");
+        assertEquals(Collections.singletonList("1"), provider.getHTTPHeaders("http://www.example.com/").get("X-Test"));
+
+        provider.putFixedHeader("X-Test", "2");
+        assertEquals(Collections.singletonList("2"), provider.getHTTPHeaders("http://www.example.com/").get("X-Test"));
+
+        provider.removeFixedHeader("X-Test");
+        assertNull(provider.getHTTPHeaders("http://www.example.com/"));
+    }
+
+    public void testCookieHeaders() {
+        StandardAuthenticationProvider provider = createProvider(true);
+        String url = "http://www.example.com/cmis/atom";
+
+        Map<String, List<String>> headers1 = provider.getHTTPHeaders(url + "?id=1");
+        assertNull(headers1.get("Cookie"));
+
+        setCookie(provider, url, "c1=1");
+
+        Map<String, List<String>> headers2 = provider.getHTTPHeaders(url + "?id=2");
+        assertEquals(Collections.singletonList("c1=1"), headers2.get("Cookie"));
+        assertEquals(headers1.get("Authorization"), headers2.get("Authorization"));
+
+        // nothing has changed -> same headers
+        assertEquals(headers2, provider.getHTTPHeaders(url + "?id=3"));
+
+        // the same cookie again -> same headers
+        setCookie(provider, url, "c1=1");
+        assertEquals(headers2, provider.getHTTPHeaders(url + "?id=4"));
+
+        setCookie(provider, url, "c1=2");
+        assertEquals(Collections.singletonList("c1=2"), provider.getHTTPHeaders(url).get("Cookie"));
+
+        // other host
+        assertNull(provider.getHTTPHeaders("http://www.example.org/cmis/atom").get("Cookie"));
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final StandardAuthenticationProvider provider = createProvider(true);
+        final int threadCount = 8;
+        final int iterations = 20000;
+        final int hosts = 20;
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+
+        for (int t = 0; t < threadCount; t++) {
+            final int threadNumber = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < iterations && failure.get() == null; i++) {
+                            String host = "host" + ((i + threadNumber) % hosts) + ".example.com";
+                            String url = "http://" + host + "/cmis/browser?id=" + i;
+
+                            if (threadNumber % 2 == 0 && i % 10 == 0) {
+                                setCookie(provider, url, "c" + (i % 5) + "=" + host + "-" + i);
+                            }
+
+                            Map<String, List<String>> headers = provider.getHTTPHeaders(url);
+                            assertNotNull(headers.get("Authorization"));
+
+                            List<String> cookies = headers.get("Cookie");
+                            if (cookies != null) {
+                                for (String cookie : cookies) {
+                                    assertTrue(cookie, cookie.contains("=" + host + "-"));
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+    }
+
+    private static class FixedHeadersProvider extends StandardAuthenticationProvider {
+        private static final long serialVersionUID = 1L;
+
+        void putFixedHeader(String name, String value) {
+            getFixedHeaders().put(name, Collections.singletonList(value));
+        }
+
+        void removeFixedHeader(String name) {
+            getFixedHeaders().remove(name);
+        }
+    }
+
+    private static StandardAuthenticationProvider createProvider(boolean cookies) {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.USER, "test");
+        session.put(SessionParameter.PASSWORD, "secret");
+        session.put(SessionParameter.AUTH_HTTP_BASIC, "true");
+        session.put(SessionParameter.HEADER + ".0", "X-Test: value");
+        session.put(SessionParameter.COOKIES, cookies ? "true" : "false");
+
+        StandardAuthenticationProvider provider = new StandardAuthenticationProvider();
+        provider.setSession(session);
+
+        return provider;
+    }
+
+    private static void setCookie(StandardAuthenticationProvider provider, String url, String cookie) {
+        Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
+        responseHeaders.put("Set-Cookie", Collections.singletonList(cookie));
+
+        provider.putResponseHeaders(url, 200, responseHeaders);
+    }
+}
@@ -57,6 +57,98 @@ public class CookiesTest extends TestCase {
         assertEquals(cookies.get(1), "cookie1=c1-2222");
     }
 
+    public void testDomains() {
+        CmisCookieManager manager = new CmisCookieManager();
+
+        setCookie(manager, "http://www.example.com/", "host=1");
+        setCookie(manager, "http://www.example.com/", "parent=2; Domain=.example.com");
+        setCookie(manager, "http://other.example.com/", "other=3");
+        setCookie(manager, "http://www.example.org/", "org=4");
+        setCookie(manager, "http://10.0.0.1/", "ip=5");
+
+        assertEquals("[parent=2, host=1]", getCookies(manager, "http://www.example.com/a").toString());
+        assertEquals("[other=3, parent=2]", getCookies(manager, "http://other.example.com/a").toString());
+        assertEquals("[parent=2]", getCookies(manager, "http://a.b.example.com/a").toString());
+        assertEquals("[org=4]", getCookies(manager, "http://WWW.EXAMPLE.ORG/a").toString());
+        assertEquals("[ip=5]", getCookies(manager, "http://10.0.0.1/a").toString());
+        assertNull(getCookies(manager, "http://example.com/a"));
+        assertNull(getCookies(manager, "http://10.0.0.2/a"));
+    }
+
+    public void testPaths() {
+        CmisCookieManager manager = new CmisCookieManager();
+        String url = "http://www.example.com/a/b/c";
+
+        setCookie(manager, url, "c1=1; Path=/x");
+        setCookie(manager, url, "c2=2; Path=/y");
+        setCookie(manager, url, "c3=3; Path=/a");
+        setCookie(manager, url, "c4=4; Path=/z");
+
+        // two consecutive cookies that don't match must both be removed
+        assertEquals("[c3=3]", getCookies(manager, url).toString());
+    }
+
+    public void testExpiry() throws Exception {
+        CmisCookieManager manager = new CmisCookieManager();
+        String url = "http://www.example.com/";
+
+        setCookie(manager, url, "session=1");
+        setCookie(manager, url, "short=2; Max-Age=1");
+        setCookie(manager, url, "long=3; Max-Age=3600");
+
+        List<String> cookies = getCookies(manager, url);
+        assertEquals(3, cookies.size());
+        assertTrue(cookies.get(1).startsWith("short="));
+
+        long version = manager.getVersion();
+        Thread.sleep(1100);
+
+        assertTrue(version != manager.getVersion());
+
+        cookies = getCookies(manager, url);
+        assertEquals(2, cookies.size());
+        assertTrue(cookies.get(0).startsWith("long="));
+        assertTrue(cookies.get(1).startsWith("session="));
+    }
+
+    public void testVersion() {
+        CmisCookieManager manager = new CmisCookieManager();
+        String url = "http://www.example.com/";
+
+        long version = manager.getVersion();
+
+        setCookie(manager, url, "c1=1");
+        assertTrue(version != manager.getVersion());
+        version = manager.getVersion();
+
+        // response without cookies
+        manager.put(url, Collections.singletonMap("Content-Type", Collections.singletonList("text/plain")));
+        assertEquals(version, manager.getVersion());
+
+        // the server sends the same cookie again
+        setCookie(manager, url, "c1=1");
+        assertEquals(version, manager.getVersion());
+
+        setCookie(manager, url, "c1=2");
+        assertTrue(version != manager.getVersion());
+        version = manager.getVersion();
+
+        setCookie(manager, url, "c1=2; Max-Age=0");
+        assertTrue(version != manager.getVersion());
+        assertNull(getCookies(manager, url));
+    }
+
+    private void setCookie(CmisCookieManager manager, String url, String cookie) {
+        Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
+        responseHeaders.put("Set-Cookie", Collections.singletonList(cookie));
+
+        manager.put(url, responseHeaders);
+    }
+
+    private List<String> getCookies(CmisCookieManager manager, String url) {
+        return manager.get(url, new HashMap<String, List<String>>()).get("Cookie");
+    }
+
     private void addCookie(CmisCookieManager manager, String url, String name, String value, String path) {
         Map<String, List<String>> responseHeaders = new HashMap<String, List<String>>();
 
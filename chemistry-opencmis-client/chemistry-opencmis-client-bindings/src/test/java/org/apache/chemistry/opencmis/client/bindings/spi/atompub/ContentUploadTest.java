@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.ContentStreamAllowed;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+
+/**
+ * Tests the creation of documents without content and the separate upload of
+ * the content.
+ */
+public class ContentUploadTest extends TestCase {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String FOLDER_ID = "folder";
+    private static final String DOC_ID = "doc";
+    private static final String CONTENT = "0123456789012345678901234567890123456789";
+
+    private ServiceMock service;
+
+    @Override
+    protected void setUp() {
+        SessionImpl session = createSession();
+        session.put(SessionParameter.ATOMPUB_CONTENT_UPLOAD_THRESHOLD, "10");
+        service = new ServiceMock(session);
+    }
+
+    public void testSmallContentIsEmbedded() {
+        assertEquals(DOC_ID, createDocument("cmis:document", createContent("abc", 3), null));
+
+        assertEquals(1, service.requests.size());
+        assertEquals("POST", service.requests.get(0));
+        assertTrue(service.bodies.get(0).contains("cmisra:content"));
+    }
+
+    public void testLargeContentIsUploaded() {
+        assertEquals(DOC_ID, createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null));
+
+        assertEquals(2, service.requests.size());
+
+        // the entry is posted without content ...
+        assertEquals("POST", service.requests.get(0));
+        assertFalse(service.bodies.get(0).contains("cmisra:content"));
+        assertTrue(service.bodies.get(0).contains("Test"));
+
+        // ... and the raw content is put to the edit-media link of the new
+        // document, which needs no extra request
+        assertEquals("PUT http://host/content?id=doc&overwriteFlag=true", service.requests.get(1));
+        assertEquals(CONTENT, service.bodies.get(1));
+        assertEquals("text/plain", service.contentType);
+        assertEquals(1, service.typeLoads);
+    }
+
+    public void testContentOfUnknownLengthIsUploaded() {
+        createDocument("cmis:document", createContent(CONTENT, -1), null);
+
+        assertEquals(2, service.requests.size());
+        assertEquals(CONTENT, service.bodies.get(1));
+    }
+
+    public void testTypeDefinitionIsCached() {
+        createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null);
+        createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null);
+
+        assertEquals(4, service.requests.size());
+        assertEquals(1, service.typeLoads);
+    }
+
+    public void testDisabledByDefault() {
+        service = new ServiceMock(createSession());
+
+        createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null);
+
+        assertEquals(1, service.requests.size());
+        assertTrue(service.bodies.get(0).contains("cmisra:content"));
+        assertEquals(0, service.typeLoads);
+    }
+
+    public void testRequiredContentIsEmbedded() {
+        service.contentStreamAllowed = ContentStreamAllowed.REQUIRED;
+
+        createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null);
+
+        assertEquals(1, service.requests.size());
+        assertTrue(service.bodies.get(0).contains("cmisra:content"));
+    }
+
+    public void testVersionableTypes() {
+        service.versionable = true;
+
+        // the content of a checked in version is embedded
+        createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), VersioningState.MAJOR);
+        assertEquals(1, service.requests.size());
+
+        // the content of a PWC is uploaded
+        createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), VersioningState.CHECKEDOUT);
+        assertEquals(3, service.requests.size());
+        assertEquals(CONTENT, service.bodies.get(2));
+    }
+
+    public void testUnknownTypeIsPosted() {
+        // the repository decides about unknown types
+        createDocument("unknown", createContent(CONTENT, CONTENT.length()), null);
+
+        assertEquals(1, service.requests.size());
+        assertTrue(service.bodies.get(0).contains("cmisra:content"));
+    }
+
+    public void testMissingTypeIdIsPosted() {
+        // a property without value and a property map with a null entry
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, (String) null));
+        createDocument(properties, createContent(CONTENT, CONTENT.length()), null);
+
+        createDocument(new NullTypeIdProperties(), createContent(CONTENT, CONTENT.length()), null);
+
+        assertEquals(2, service.requests.size());
+        assertEquals("POST", service.requests.get(0));
+        assertEquals("POST", service.requests.get(1));
+        assertEquals(0, service.typeLoads);
+    }
+
+    public void testFailedUploadDeletesDocument() {
+        service.uploadFails = true;
+
+        try {
+            createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null);
+            fail("Upload succeeded!");
+        } catch (CmisRuntimeException e) {
+            // expected
+        }
+
+        assertEquals(3, service.requests.size());
+        assertEquals("DELETE http://host/entry?id=doc&allVersions=true", service.requests.get(2));
+    }
+
+    public void testFailedDeleteKeepsUploadException() {
+        service.uploadFails = true;
+        service.deleteFails = true;
+
+        try {
+            createDocument("cmis:document", createContent(CONTENT, CONTENT.length()), null);
+            fail("Upload succeeded!");
+        } catch (CmisRuntimeException e) {
+            assertEquals("Upload Failed", e.getMessage());
+        }
+
+        assertEquals(3, service.requests.size());
+    }
+
+    private static SessionImpl createSession() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        return session;
+    }
+
+    private String createDocument(String typeId, ContentStream contentStream, VersioningState versioningState) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, typeId));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "Test"));
+
+        return createDocument(properties, contentStream, versioningState);
+    }
+
+    private String createDocument(Properties properties, ContentStream contentStream,
+            VersioningState versioningState) {
+        return service.createDocument(REPOSITORY_ID, properties, FOLDER_ID, contentStream, versioningState, null,
+                null, null, null);
+    }
+
+    private static ContentStream createContent(String content, long length) {
+        return new ContentStreamImpl("test.txt", length < 0 ? null : BigInteger.valueOf(length), "text/plain",
+                new ByteArrayInputStream(content.getBytes()));
+    }
+
+    /**
+     * Properties with a type ID key but no type ID property.
+     */
+    private static class NullTypeIdProperties extends PropertiesImpl {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Map<String, PropertyData<?>> getProperties() {
+            Map<String, PropertyData<?>> map = new HashMap<String, PropertyData<?>>();
+            map.put(PropertyIds.OBJECT_TYPE_ID, null);
+            return map;
+        }
+    }
+
+    /**
+     * Object service that records all HTTP requests and answers them like a
+     * repository that creates the document "doc".
+     */
+    private static class ServiceMock extends ObjectServiceImpl {
+
+        final List<String> requests = new ArrayList<String>();
+        final List<String> bodies = new ArrayList<String>();
+        String contentType;
+        ContentStreamAllowed contentStreamAllowed = ContentStreamAllowed.ALLOWED;
+        boolean versionable;
+        boolean uploadFails;
+        boolean deleteFails;
+        int typeLoads;
+
+        public ServiceMock(BindingSession session) {
+            super(session);
+        }
+
+        @Override
+        public String loadLink(String repositoryId, String id, String rel, String type) {
+            if (Constants.REL_DOWN.equals(rel)) {
+                return "http://host/children?id=" + id;
+            }
+
+            return super.loadLink(repositoryId, id, rel, type);
+        }
+
+        @Override
+        protected CmisVersion getCmisVersion(String repositoryId) {
+            return CmisVersion.CMIS_1_1;
+        }
+
+        @Override
+        protected TypeDefinition getTypeDefinitionInternal(String repositoryId, String typeId) {
+            typeLoads++;
+
+            if (!"cmis:document".equals(typeId)) {
+                throw new CmisObjectNotFoundException(typeId);
+            }
+
+            DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+            type.setId(typeId);
+            type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            type.setContentStreamAllowed(contentStreamAllowed);
+            type.setIsVersionable(versionable);
+
+            return type;
+        }
+
+        @Override
+        protected HttpInvoker getHttpInvoker() {
+            return (HttpInvoker) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HttpInvoker.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                            String name = method.getName();
+                            String url = args[0].toString();
+
+                            if ("invokePOST".equals(name)) {
+                                requests.add("POST");
+                                bodies.add(write((Output) args[2]));
+                                return new Response(201, "Created", null, new ByteArrayInputStream(
+                                        createEntry().getBytes("UTF-8")), null);
+                            } else if ("invokePUT".equals(name)) {
+                                requests.add("PUT " + url);
+                                contentType = (String) args[1];
+                                bodies.add(write((Output) args[3]));
+                                if (uploadFails) {
+                                    return new Response(500, "Upload Failed", null, null, new ByteArrayInputStream(
+                                            new byte[0]));
+                                }
+                                return new Response(204, "No Content", null, null, null);
+                            } else if ("invokeDELETE".equals(name)) {
+                                requests.add("DELETE " + url);
+                                if (deleteFails) {
+                                    return new Response(500, "Delete Failed", null, null, new ByteArrayInputStream(
+                                            new byte[0]));
+                                }
+                                return new Response(204, "No Content", null, null, null);
+                            }
+
+                            throw new UnsupportedOperationException(name);
+                        }
+                    });
+        }
+
+        private static String write(Output output) throws Exception {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            output.write(out);
+            return out.toString("UTF-8");
+        }
+
+        private static String createEntry() {
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + "<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\""
+                    + " xmlns:cmis=\"http://docs.oasis-open.org/ns/cmis/core/200908/\""
+                    + " xmlns:cmisra=\"http://docs.oasis-open.org/ns/cmis/restatom/200908/\">"
+                    + "<atom:link rel=\"self\" href=\"http://host/entry?id=doc\""
+                    + " type=\"application/atom+xml;type=entry\"/>"
+                    + "<atom:link rel=\"edit-media\" href=\"http://host/content?id=doc\"/>"
+                    + "<cmisra:object><cmis:properties>"
+                    + "<cmis:propertyId propertyDefinitionId=\"cmis:objectId\"><cmis:value>doc</cmis:value>"
+                    + "</cmis:propertyId></cmis:properties></cmisra:object></atom:entry>";
+        }
+    }
+}
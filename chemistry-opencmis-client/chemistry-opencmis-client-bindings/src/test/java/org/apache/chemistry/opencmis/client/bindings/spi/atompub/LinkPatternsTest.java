@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.atompub.LinkPatterns.SynthesizedLink;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
+
+/**
+ * Tests learning and synthesizing AtomPub links.
+ */
+public class LinkPatternsTest extends TestCase {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String REL = Constants.REL_DOWN;
+    private static final String TYPE = Constants.MEDIATYPE_CHILDREN;
+
+    public void testLearnAndConfirm() {
+        LinkPatterns patterns = new LinkPatterns();
+
+        patterns.learn(REPOSITORY_ID, "a1", REL, TYPE, "http://host/cmis/children?id=a1");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+
+        // the same object doesn't confirm a pattern
+        patterns.learn(REPOSITORY_ID, "a1", REL, TYPE, "http://host/cmis/children?id=a1");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+
+        patterns.learn(REPOSITORY_ID, "b2", REL, TYPE, "http://host/cmis/children?id=b2");
+        assertEquals("http://host/cmis/children?id=x%2Fy+z", patterns.synthesize(REPOSITORY_ID, "x/y z", REL, TYPE));
+
+        // patterns are kept per repository, relation and media type
+        assertNull(patterns.synthesize("other", "x", REL, TYPE));
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", Constants.REL_UP, TYPE));
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, Constants.MEDIATYPE_DESCENDANTS));
+        assertNull(patterns.synthesize(REPOSITORY_ID, null, REL, TYPE));
+    }
+
+    public void testPathEncodedIds() {
+        LinkPatterns patterns = new LinkPatterns();
+
+        patterns.learn(REPOSITORY_ID, "a 1", REL, TYPE, "http://host/cmis/objects/a%201/children");
+        patterns.learn(REPOSITORY_ID, "b 2", REL, TYPE, "http://host/cmis/objects/b%202/children");
+
+        assertEquals("http://host/cmis/objects/x%2Fy%20z/children",
+                patterns.synthesize(REPOSITORY_ID, "x/y z", REL, TYPE));
+    }
+
+    public void testNoPattern() {
+        LinkPatterns patterns = new LinkPatterns();
+
+        // the ID is not part of the link
+        patterns.learn(REPOSITORY_ID, "a1", REL, TYPE, "http://host/cmis/children?token=123");
+        patterns.learn(REPOSITORY_ID, "b2", REL, TYPE, "http://host/cmis/children?token=456");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+
+        // the ID occurs twice in the link
+        patterns.learn(REPOSITORY_ID, "c", Constants.REL_UP, TYPE, "http://host/cmis/c/parents?id=c");
+        patterns.learn(REPOSITORY_ID, "d", Constants.REL_UP, TYPE, "http://host/cmis/d/parents?id=d");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", Constants.REL_UP, TYPE));
+    }
+
+    public void testContradiction() {
+        LinkPatterns patterns = new LinkPatterns();
+
+        patterns.learn(REPOSITORY_ID, "a1", REL, TYPE, "http://host/cmis/children?id=a1");
+        patterns.learn(REPOSITORY_ID, "b2", REL, TYPE, "http://host/cmis/children?id=b2");
+        assertNotNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+
+        // a link that doesn't fit disables the pattern for good
+        patterns.learn(REPOSITORY_ID, "c3", REL, TYPE, "http://host/cmis/folder/children?id=c3");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+
+        patterns.learn(REPOSITORY_ID, "d4", REL, TYPE, "http://host/cmis/children?id=d4");
+        patterns.learn(REPOSITORY_ID, "e5", REL, TYPE, "http://host/cmis/children?id=e5");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+    }
+
+    public void testContradictionBeforeConfirmation() {
+        LinkPatterns patterns = new LinkPatterns();
+
+        patterns.learn(REPOSITORY_ID, "a1", REL, TYPE, "http://host/cmis/children?id=a1");
+        patterns.learn(REPOSITORY_ID, "b2", REL, TYPE, "http://host/cmis/children?id=b2&x=1");
+        patterns.learn(REPOSITORY_ID, "c3", REL, TYPE, "http://host/cmis/children?id=c3");
+        patterns.learn(REPOSITORY_ID, "d4", REL, TYPE, "http://host/cmis/children?id=d4");
+
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+    }
+
+    public void testSynthesizedLinks() {
+        LinkPatterns patterns = confirmedPatterns();
+
+        String link = patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE);
+
+        SynthesizedLink synthesizedLink = patterns.getSynthesizedLink(link);
+        assertNotNull(synthesizedLink);
+        assertEquals(REPOSITORY_ID, synthesizedLink.getRepositoryId());
+        assertEquals("x", synthesizedLink.getId());
+        assertEquals(REL, synthesizedLink.getRel());
+        assertEquals(TYPE, synthesizedLink.getType());
+        assertEquals(link, synthesizedLink.getLink());
+
+        // parameters that have been added to the link
+        assertSame(synthesizedLink, patterns.getSynthesizedLink(link + "&filter=*"));
+        assertNull(patterns.getSynthesizedLink(link + "y"));
+        assertNull(patterns.getSynthesizedLink("http://host/cmis/children?id=y"));
+        assertNull(patterns.getSynthesizedLink(null));
+    }
+
+    public void testDisable() {
+        LinkPatterns patterns = confirmedPatterns();
+        String link = patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE);
+
+        patterns.disable(REPOSITORY_ID, REL, TYPE);
+
+        assertNull(patterns.synthesize(REPOSITORY_ID, "y", REL, TYPE));
+        assertNull(patterns.getSynthesizedLink(link));
+
+        // learning doesn't enable it again
+        patterns.learn(REPOSITORY_ID, "c3", REL, TYPE, "http://host/cmis/children?id=c3");
+        patterns.learn(REPOSITORY_ID, "d4", REL, TYPE, "http://host/cmis/children?id=d4");
+        assertNull(patterns.synthesize(REPOSITORY_ID, "y", REL, TYPE));
+    }
+
+    public void testClearRepository() {
+        LinkPatterns patterns = confirmedPatterns();
+        String link = patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE);
+        patterns.disable(REPOSITORY_ID, Constants.REL_UP, null);
+
+        patterns.clearRepository(REPOSITORY_ID);
+
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+        assertNull(patterns.getSynthesizedLink(link));
+
+        // the repository can be learned again, including disabled patterns
+        patterns.learn(REPOSITORY_ID, "a1", Constants.REL_UP, null, "http://host/cmis/parents?id=a1");
+        patterns.learn(REPOSITORY_ID, "b2", Constants.REL_UP, null, "http://host/cmis/parents?id=b2");
+        assertEquals("http://host/cmis/parents?id=c3",
+                patterns.synthesize(REPOSITORY_ID, "c3", Constants.REL_UP, null));
+    }
+
+    public void testConcurrentLearning() throws Exception {
+        final LinkPatterns patterns = new LinkPatterns();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 1000; i++) {
+                            String id = thread + "-" + i;
+                            patterns.learn(REPOSITORY_ID, id, REL, TYPE, "http://host/cmis/children?id=" + id);
+                            String up = (i % 2 == 0 ? "http://host/cmis/up?id=" : "http://host/cmis/up?id=p") + id;
+                            patterns.learn(REPOSITORY_ID, id, Constants.REL_UP, null, up);
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals("http://host/cmis/children?id=x", patterns.synthesize(REPOSITORY_ID, "x", REL, TYPE));
+        // every other parents link has a different form
+        assertNull(patterns.synthesize(REPOSITORY_ID, "x", Constants.REL_UP, null));
+    }
+
+    private static LinkPatterns confirmedPatterns() {
+        LinkPatterns patterns = new LinkPatterns();
+        patterns.learn(REPOSITORY_ID, "a1", REL, TYPE, "http://host/cmis/children?id=a1");
+        patterns.learn(REPOSITORY_ID, "b2", REL, TYPE, "http://host/cmis/children?id=b2");
+        return patterns;
+    }
+}
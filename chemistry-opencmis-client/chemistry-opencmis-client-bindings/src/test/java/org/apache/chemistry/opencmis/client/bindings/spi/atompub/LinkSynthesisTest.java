@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.atompub;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
+import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.Constants;
+import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+
+/**
+ * Tests the use of synthesized links by the AtomPub services.
+ */
+public class LinkSynthesisTest extends TestCase {
+
+    private static final String REPOSITORY_ID = "repo";
+    private static final String REL = Constants.REL_DOWN;
+    private static final String TYPE = Constants.MEDIATYPE_CHILDREN;
+
+    private ServiceMock service;
+
+    @Override
+    protected void setUp() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.ATOMPUB_LINK_SYNTHESIS, "true");
+        service = new ServiceMock(session);
+
+        // confirm the pattern http://host/children?id=<id>
+        service.addObject("a", "http://host/children?id=a");
+        service.addObject("b", "http://host/children?id=b");
+        service.loadLink(REPOSITORY_ID, "a", REL, TYPE);
+        service.loadLink(REPOSITORY_ID, "b", REL, TYPE);
+        service.objectLoads = 0;
+    }
+
+    public void testSynthesizedLink() {
+        service.addObject("c", "http://host/children?id=c");
+
+        String link = service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE);
+
+        assertEquals("http://host/children?id=c", link);
+        assertEquals(0, service.objectLoads);
+
+        service.read(new UrlBuilder(link));
+        assertEquals(0, service.objectLoads);
+    }
+
+    public void testDisabledByDefault() {
+        service = new ServiceMock(new SessionImpl());
+        service.addObject("a", "http://host/children?id=a");
+        service.addObject("b", "http://host/children?id=b");
+        service.addObject("c", "http://host/children?id=c");
+        service.loadLink(REPOSITORY_ID, "a", REL, TYPE);
+        service.loadLink(REPOSITORY_ID, "b", REL, TYPE);
+
+        assertEquals("http://host/children?id=c", service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE));
+        assertEquals(3, service.objectLoads);
+    }
+
+    public void testDisabled() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.ATOMPUB_LINK_SYNTHESIS, "false");
+        service = new ServiceMock(session);
+        service.addObject("a", "http://host/children?id=a");
+        service.addObject("b", "http://host/children?id=b");
+        service.addObject("c", "http://host/children?id=c");
+        service.loadLink(REPOSITORY_ID, "a", REL, TYPE);
+        service.loadLink(REPOSITORY_ID, "b", REL, TYPE);
+
+        assertEquals("http://host/children?id=c", service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE));
+        assertEquals(3, service.objectLoads);
+    }
+
+    public void testWrongPattern() {
+        // the repository uses another link for this object
+        service.addObject("c", "http://host/folder/children?id=c");
+
+        String link = service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE);
+        assertEquals("http://host/children?id=c", link);
+
+        UrlBuilder url = new UrlBuilder(link);
+        url.addParameter(Constants.PARAM_FILTER, "*");
+        service.read(url);
+
+        // the object entry has been loaded and the request has been repeated
+        // with the real link and the same parameters
+        assertEquals(1, service.objectLoads);
+        assertEquals(2, service.requests.size());
+        assertEquals("http://host/folder/children?id=c&filter=*", service.requests.get(1));
+
+        // the pattern is not used anymore
+        service.addObject("d", "http://host/children?id=d");
+        service.loadReadLink(REPOSITORY_ID, "d", REL, TYPE);
+        assertEquals(2, service.objectLoads);
+        assertNull(service.getLinkCache().getSynthesizedLink(link));
+    }
+
+    public void testParametersOfRealLink() {
+        service.addObject("c", "http://host/folder/children/c");
+
+        UrlBuilder url = new UrlBuilder(service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE));
+        url.addParameter(Constants.PARAM_FILTER, "*");
+        service.read(url);
+
+        assertEquals("http://host/folder/children/c?filter=*", service.requests.get(1));
+    }
+
+    public void testObjectNotFound() {
+        String link = service.loadReadLink(REPOSITORY_ID, "unknown", REL, TYPE);
+        assertEquals("http://host/children?id=unknown", link);
+
+        try {
+            service.read(new UrlBuilder(link));
+            fail("Object found!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        // the pattern has been correct
+        assertEquals(1, service.objectLoads);
+        assertEquals(1, service.requests.size());
+        assertNotNull(service.synthesizeLink("x"));
+    }
+
+    public void testCorrectLinkNotFound() {
+        // the link is right, but the children don't exist anymore
+        service.addObject("c", "http://host/children?id=c");
+        service.missing.add("http://host/children?id=c");
+
+        try {
+            service.read(new UrlBuilder(service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE)));
+            fail("Children found!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        assertEquals(1, service.objectLoads);
+        assertEquals(1, service.requests.size());
+        assertNotNull(service.synthesizeLink("x"));
+    }
+
+    public void testOtherErrors() {
+        service.addObject("c", "http://host/folder/children?id=c");
+        service.errors.add("http://host/children?id=c");
+
+        try {
+            service.read(new UrlBuilder(service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE)));
+            fail("No error!");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        // only a 404 is checked
+        assertEquals(0, service.objectLoads);
+        assertNotNull(service.synthesizeLink("x"));
+    }
+
+    public void testRealLinksAreNotResolved() {
+        service.addObject("c", "http://host/children?id=c");
+        service.missing.add("http://host/children?id=c");
+        service.loadLink(REPOSITORY_ID, "c", REL, TYPE);
+        service.objectLoads = 0;
+
+        try {
+            service.read(new UrlBuilder(service.loadReadLink(REPOSITORY_ID, "c", REL, TYPE)));
+            fail("Children found!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        assertEquals(0, service.objectLoads);
+    }
+
+    /**
+     * AtomPub service that serves object entries from a map and answers all
+     * other requests with 200, 404 or 500.
+     */
+    private static class ServiceMock extends AbstractAtomPubService {
+
+        final Map<String, String> links = new HashMap<String, String>();
+        final Set<String> missing = new HashSet<String>();
+        final Set<String> errors = new HashSet<String>();
+        final List<String> requests = new ArrayList<String>();
+        int objectLoads;
+
+        public ServiceMock(BindingSession session) {
+            setSession(session);
+        }
+
+        public void addObject(String id, String childrenLink) {
+            links.put(id, childrenLink);
+        }
+
+        public String synthesizeLink(String id) {
+            return getLinkCache().synthesizeLink(REPOSITORY_ID, id, REL, TYPE);
+        }
+
+        @Override
+        protected ObjectData getObjectInternal(String repositoryId, IdentifierType idOrPath, String objectIdOrPath,
+                ReturnVersion returnVersion, String filter, Boolean includeAllowableActions,
+                IncludeRelationships includeRelationships, String renditionFilter, Boolean includePolicyIds,
+                Boolean includeAcl, ExtensionsData extension) {
+            objectLoads++;
+
+            String link = links.get(objectIdOrPath);
+            if (link == null) {
+                throw new CmisObjectNotFoundException(objectIdOrPath);
+            }
+
+            removeLinks(repositoryId, objectIdOrPath);
+            addLink(repositoryId, objectIdOrPath, REL, TYPE, link);
+
+            return new ObjectDataImpl();
+        }
+
+        @Override
+        protected HttpInvoker getHttpInvoker() {
+            return (HttpInvoker) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HttpInvoker.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            String url = args[0].toString();
+                            requests.add(url);
+
+                            String path = url.indexOf("&filter") > -1 ? url.substring(0, url.indexOf("&filter"))
+                                    : url;
+                            if (path.indexOf("?filter") > -1) {
+                                path = path.substring(0, path.indexOf("?filter"));
+                            }
+
+                            if (errors.contains(path)) {
+                                return new Response(500, "Internal Server Error", null, null,
+                                        new ByteArrayInputStream(new byte[0]));
+                            }
+                            if (missing.contains(path) || !links.containsValue(path)) {
+                                return new Response(404, "Not Found", null, null, new ByteArrayInputStream(
+                                        new byte[0]));
+                            }
+                            return new Response(200, "OK", null, new ByteArrayInputStream(new byte[0]), null);
+                        }
+                    });
+        }
+    }
+}
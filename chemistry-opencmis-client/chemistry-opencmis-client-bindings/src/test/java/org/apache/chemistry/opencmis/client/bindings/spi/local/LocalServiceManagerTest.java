@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.local;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.server.ReusableCmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.server.ReusableCmisServiceFactory.ServiceReuse;
+
+/**
+ * Tests the reuse of call contexts and service objects in the local binding.
+ */
+public class LocalServiceManagerTest extends TestCase {
+
+    private static final String REUSE = "test.reuse";
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        FactoryMock.SERVICES.clear();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void testIsReusable() {
+        assertTrue(LocalServiceManager.isReusable(createFactory(ServiceReuse.PER_THREAD)));
+        assertTrue(LocalServiceManager.isReusable(createFactory(ServiceReuse.SHARED)));
+        assertFalse(LocalServiceManager.isReusable(createFactory(ServiceReuse.PER_CALL)));
+        assertFalse(LocalServiceManager.isReusable(createFactory(null)));
+        assertFalse(LocalServiceManager.isReusable((CmisServiceFactory) Proxy.newProxyInstance(getClass()
+                .getClassLoader(), new Class<?>[] { CmisServiceFactory.class }, new ServiceMock(null))));
+    }
+
+    public void testCallContext() {
+        LocalServiceManager manager = createManager(ServiceReuse.PER_THREAD);
+
+        CallContext context = manager.getCallContext("repo");
+        assertSame(context, manager.getCallContext("repo"));
+        assertNotSame(context, manager.getCallContext("other"));
+        assertSame(manager.getCallContext(null), manager.getCallContext(null));
+
+        assertTrue(context instanceof ImmutableLocalCallContext);
+        assertEquals(CallContext.BINDING_LOCAL, context.getBinding());
+        assertEquals("repo", context.getRepositoryId());
+        assertEquals("repo", context.get(CallContext.REPOSITORY_ID));
+        assertEquals("alice", context.getUsername());
+        assertEquals("alice", context.get(CallContext.USERNAME));
+        assertEquals("secret", context.getPassword());
+        assertEquals("secret", context.get(CallContext.PASSWORD));
+        assertEquals(CmisVersion.CMIS_1_1, context.getCmisVersion());
+        assertNull(context.get("unknown"));
+        assertNull(manager.getCallContext(null).getRepositoryId());
+    }
+
+    public void testPerThreadReuse() throws Exception {
+        final LocalServiceManager manager = createManager(ServiceReuse.PER_THREAD);
+
+        CmisService service = manager.getService("repo");
+        assertSame(service, manager.getService("repo"));
+        assertNotSame(service, manager.getService("other"));
+        assertSame(manager.getCallContext("repo"), getMock(service).context);
+
+        // another thread gets its own service object
+        CmisService otherService = executor.submit(new Callable<CmisService>() {
+            public CmisService call() {
+                return manager.getService("repo");
+            }
+        }).get();
+        assertNotSame(service, otherService);
+        assertSame(manager.getCallContext("repo"), getMock(otherService).context);
+
+        assertEquals(3, FactoryMock.SERVICES.size());
+        assertEquals(0, getMock(service).closed.get());
+    }
+
+    public void testSharedReuse() throws Exception {
+        final LocalServiceManager manager = createManager(ServiceReuse.SHARED);
+
+        CmisService service = manager.getService("repo");
+        assertSame(service, manager.getService("repo"));
+
+        CmisService otherService = executor.submit(new Callable<CmisService>() {
+            public CmisService call() {
+                return manager.getService("repo");
+            }
+        }).get();
+        assertSame(service, otherService);
+        assertEquals(1, FactoryMock.SERVICES.size());
+    }
+
+    public void testClose() throws Exception {
+        final LocalServiceManager manager = createManager(ServiceReuse.PER_THREAD);
+
+        manager.getService("repo");
+        manager.getService("other");
+        executor.submit(new Callable<CmisService>() {
+            public CmisService call() {
+                return manager.getService("repo");
+            }
+        }).get();
+
+        manager.close();
+
+        // all service objects are closed once, also those of other threads
+        assertEquals(3, FactoryMock.SERVICES.size());
+        for (ServiceMock mock : FactoryMock.SERVICES) {
+            assertEquals(1, mock.closed.get());
+        }
+
+        try {
+            manager.getService("repo");
+            fail("Closed manager returned a service object!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+
+        manager.close();
+        for (ServiceMock mock : FactoryMock.SERVICES) {
+            assertEquals(1, mock.closed.get());
+        }
+    }
+
+    public void testCloseReleasesServicesOfOtherThreads() throws Exception {
+        final LocalServiceManager manager = createManager(ServiceReuse.PER_THREAD);
+
+        // the pool thread stays alive after the call
+        WeakReference<CmisService> ref = executor.submit(new Callable<WeakReference<CmisService>>() {
+            public WeakReference<CmisService> call() {
+                return new WeakReference<CmisService>(manager.getService("repo"));
+            }
+        }).get();
+
+        FactoryMock.SERVICES.clear();
+        manager.close();
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        // the pool thread and the manager are still alive, but the service
+        // object is gone
+        assertTrue("Service object has not been released!", ref.get() == null);
+        assertFalse(executor.isTerminated());
+        assertNotNull(manager.getCallContext("repo"));
+    }
+
+    public void testConcurrentSharedCreation() throws Exception {
+        final LocalServiceManager manager = createManager(ServiceReuse.SHARED);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<CmisService>> futures = new ArrayList<Future<CmisService>>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(executor.submit(new Callable<CmisService>() {
+                public CmisService call() throws Exception {
+                    start.await();
+                    return manager.getService("repo");
+                }
+            }));
+        }
+        start.countDown();
+
+        CmisService service = futures.get(0).get(10, TimeUnit.SECONDS);
+        assertSame(service, futures.get(1).get(10, TimeUnit.SECONDS));
+
+        // a surplus service object has been closed right away
+        for (ServiceMock mock : FactoryMock.SERVICES) {
+            assertEquals(mock.proxy == service ? 0 : 1, mock.closed.get());
+        }
+
+        manager.close();
+        for (ServiceMock mock : FactoryMock.SERVICES) {
+            assertEquals(1, mock.closed.get());
+        }
+    }
+
+    public void testLocalSpi() {
+        SessionImpl session = createSession(ServiceReuse.PER_THREAD);
+        CmisLocalSpi spi = new CmisLocalSpi(session);
+
+        spi.getRepositoryService().getRepositoryInfos(null);
+        spi.getRepositoryService().getRepositoryInfos(null);
+
+        // the service object is kept between calls
+        assertEquals(1, FactoryMock.SERVICES.size());
+        assertEquals(0, FactoryMock.SERVICES.get(0).closed.get());
+        assertTrue(FactoryMock.SERVICES.get(0).context instanceof ImmutableLocalCallContext);
+
+        spi.close();
+        assertEquals(1, FactoryMock.SERVICES.get(0).closed.get());
+    }
+
+    public void testLocalSpiWithoutReuse() {
+        SessionImpl session = createSession(ServiceReuse.PER_CALL);
+        CmisLocalSpi spi = new CmisLocalSpi(session);
+
+        spi.getRepositoryService().getRepositoryInfos(null);
+        spi.getRepositoryService().getRepositoryInfos(null);
+
+        // a new service object per call
+        assertEquals(2, FactoryMock.SERVICES.size());
+        for (ServiceMock mock : FactoryMock.SERVICES) {
+            assertEquals(1, mock.closed.get());
+            assertTrue(mock.context instanceof LocalCallContext);
+        }
+
+        spi.close();
+    }
+
+    private static SessionImpl createSession(ServiceReuse reuse) {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.USER, "alice");
+        session.put(SessionParameter.PASSWORD, "secret");
+        session.put(SessionParameter.LOCAL_FACTORY, FactoryMock.class.getName());
+        session.put(REUSE, reuse.name());
+        return session;
+    }
+
+    private static LocalServiceManager createManager(ServiceReuse reuse) {
+        return new LocalServiceManager(createSession(reuse), createFactory(reuse));
+    }
+
+    private static FactoryMock createFactory(ServiceReuse reuse) {
+        FactoryMock factory = new FactoryMock();
+        factory.reuse = reuse;
+        return factory;
+    }
+
+    private static ServiceMock getMock(CmisService service) {
+        return (ServiceMock) Proxy.getInvocationHandler(service);
+    }
+
+    /**
+     * Service factory that records all service objects it creates.
+     */
+    public static class FactoryMock implements ReusableCmisServiceFactory {
+
+        static final List<ServiceMock> SERVICES = Collections.synchronizedList(new ArrayList<ServiceMock>());
+
+        private ServiceReuse reuse;
+
+        public void init(Map<String, String> parameters) {
+            reuse = ServiceReuse.valueOf(parameters.get(REUSE));
+        }
+
+        public void destroy() {
+        }
+
+        public CmisService getService(CallContext context) {
+            ServiceMock mock = new ServiceMock(context);
+            mock.proxy = (CmisService) Proxy.newProxyInstance(FactoryMock.class.getClassLoader(),
+                    new Class<?>[] { CmisService.class }, mock);
+            SERVICES.add(mock);
+            return mock.proxy;
+        }
+
+        public File getTempDirectory() {
+            return null;
+        }
+
+        public boolean encryptTempFiles() {
+            return false;
+        }
+
+        public int getMemoryThreshold() {
+            return 0;
+        }
+
+        public long getMaxContentSize() {
+            return -1;
+        }
+
+        public ServiceReuse getServiceReuse() {
+            return reuse;
+        }
+    }
+
+    /**
+     * Service object that counts how often it has been closed.
+     */
+    private static class ServiceMock implements InvocationHandler {
+        final CallContext context;
+        final AtomicInteger closed = new AtomicInteger();
+        CmisService proxy;
+
+        public ServiceMock(CallContext context) {
+            this.context = context;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                closed.incrementAndGet();
+                return null;
+            } else if ("getRepositoryInfos".equals(name)) {
+                return Collections.emptyList();
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import javax.xml.ws.BindingProvider;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the pool of Web Services port objects.
+ */
+public class PortPoolTest extends TestCase {
+
+    public void testAcquireAndRelease() {
+        PortPool pool = new PortPool("test", 2, 0);
+
+        assertNull(pool.acquire());
+
+        BindingProvider port = createPort();
+        pool.portCreated();
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getInUseCount());
+        assertEquals(0, pool.getIdleCount());
+
+        pool.release(port);
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(1, pool.getIdleCount());
+
+        assertSame(port, pool.acquire());
+        assertEquals(1, pool.getReusedCount());
+        assertEquals(1, pool.getInUseCount());
+        assertEquals(0, pool.getIdleCount());
+        assertNull(pool.acquire());
+
+        // null is ignored
+        pool.release(null);
+        assertEquals(1, pool.getInUseCount());
+    }
+
+    public void testMaxSize() {
+        PortPool pool = new PortPool("test", 2, 0);
+
+        List<BindingProvider> ports = new ArrayList<BindingProvider>();
+        for (int i = 0; i < 3; i++) {
+            ports.add(createPort());
+            pool.portCreated();
+        }
+
+        for (BindingProvider port : ports) {
+            pool.release(port);
+        }
+
+        // the third port didn't fit into the pool
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(1, pool.getEvictedCount());
+        assertEquals(0, pool.getInUseCount());
+
+        assertSame(ports.get(0), pool.acquire());
+        assertSame(ports.get(1), pool.acquire());
+        assertNull(pool.acquire());
+    }
+
+    public void testIdleTimeout() throws Exception {
+        PortPool pool = new PortPool("test", 10, 20);
+
+        pool.portCreated();
+        pool.portCreated();
+        pool.release(createPort());
+        pool.release(createPort());
+        assertEquals(2, pool.getIdleCount());
+
+        Thread.sleep(100);
+
+        // idle ports are dropped on access
+        assertNull(pool.acquire());
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(2, pool.getEvictedCount());
+        assertEquals(0, pool.getReusedCount());
+    }
+
+    public void testNoIdleTimeout() throws Exception {
+        PortPool pool = new PortPool("test", 10, 0);
+
+        BindingProvider port = createPort();
+        pool.portCreated();
+        pool.release(port);
+
+        Thread.sleep(50);
+
+        assertSame(port, pool.acquire());
+    }
+
+    public void testClear() {
+        PortPool pool = new PortPool("test", 10, 0);
+        pool.setService(null);
+
+        pool.portCreated();
+        pool.release(createPort());
+        pool.clear();
+
+        assertEquals(0, pool.getIdleCount());
+        assertNull(pool.acquire());
+        assertNull(pool.getService());
+    }
+
+    public void testSharedPools() {
+        String key = UUID.randomUUID().toString();
+
+        PortPool pool = PortPool.getSharedPool(key, 3, 1000);
+        assertSame(pool, PortPool.getSharedPool(key, 5, 2000));
+        assertEquals(key, pool.getKey());
+        assertEquals(3, pool.getMaxSize());
+        assertEquals(1000, pool.getIdleTimeout());
+        assertTrue(PortPool.getSharedPools().contains(pool));
+
+        assertNotSame(pool, PortPool.getSharedPool(key + "x", 3, 1000));
+
+        // a private pool is not shared
+        assertFalse(PortPool.getSharedPools().contains(new PortPool(key + "y", 3, 1000)));
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final PortPool pool = new PortPool("test", 4, 0);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Set<BindingProvider> inUse = Collections.synchronizedSet(new HashSet<BindingProvider>());
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 2000; i++) {
+                            BindingProvider port = pool.acquire();
+                            if (port == null) {
+                                port = createPort();
+                                pool.portCreated();
+                            }
+
+                            // a port is never handed out twice at the same time
+                            if (!inUse.add(port)) {
+                                throw new AssertionError("Port is used by two threads!");
+                            }
+                            inUse.remove(port);
+
+                            pool.release(port);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(0, pool.getInUseCount());
+        assertTrue(pool.getIdleCount() <= 4);
+        assertEquals(8 * 2000, pool.getCreatedCount() + pool.getReusedCount());
+        assertEquals(pool.getCreatedCount(), pool.getIdleCount() + pool.getEvictedCount());
+    }
+
+    private static BindingProvider createPort() {
+        return (BindingProvider) Proxy.newProxyInstance(PortPoolTest.class.getClassLoader(),
+                new Class<?>[] { BindingProvider.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        } else if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
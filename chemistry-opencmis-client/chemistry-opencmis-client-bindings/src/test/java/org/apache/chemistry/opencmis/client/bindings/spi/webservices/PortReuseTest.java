@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.webservices;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.Handler;
+import javax.xml.ws.handler.HandlerResolver;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.PortInfo;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.StandardAuthenticationProvider;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.RepositoryServicePort;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks that a pooled port object doesn't carry the settings of the session
+ * that used it before.
+ */
+public class PortReuseTest extends TestCase {
+
+    private static final String RESPONSE = "<S:Envelope xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+            + "<S:Body><getRepositoriesResponse xmlns=\"http://docs.oasis-open.org/ns/cmis/messaging/200908/\"/>"
+            + "</S:Body></S:Envelope>";
+
+    private HttpServer server;
+    private String endpoint;
+    private final List<Headers> requestHeaders = Collections.synchronizedList(new ArrayList<Headers>());
+    private final List<String> requestBodies = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                requestHeaders.add(exchange.getRequestHeaders());
+                requestBodies.add(read(exchange.getRequestBody()));
+
+                byte[] response = RESPONSE.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+                exchange.sendResponseHeaders(200, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.start();
+
+        endpoint = "http://localhost:" + server.getAddress().getPort() + "/" + getName();
+    }
+
+    @Override
+    protected void tearDown() {
+        server.stop(0);
+        PortPool.clearSharedPools();
+    }
+
+    public void testReusedPortIsReset() throws Exception {
+        // first session: credentials, SOAP header, SSL settings and timeouts
+        SessionImpl session1 = createSession();
+        session1.put(SessionParameter.USER, "alice");
+        session1.put(SessionParameter.PASSWORD, "secret");
+        session1.put(SessionParameter.AUTH_HTTP_BASIC, "true");
+        session1.put(SessionParameter.AUTH_SOAP_USERNAMETOKEN, "true");
+        session1.put(SessionParameter.CONNECT_TIMEOUT, "1234");
+        session1.put(SessionParameter.READ_TIMEOUT, "5678");
+        setAuthenticationProvider(session1, new SslAuthenticationProvider());
+
+        AbstractPortProvider provider1 = createPortProvider(session1);
+        RepositoryServicePort port1 = provider1.getRepositoryServicePort(CmisVersion.CMIS_1_1, "getRepositories");
+        Map<String, Object> context1 = new HashMap<String, Object>(
+                ((BindingProvider) port1).getRequestContext());
+        ((BindingProvider) port1).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, "alice");
+        ((BindingProvider) port1).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, "secret");
+        try {
+            port1.getRepositories(null);
+        } finally {
+            provider1.endCall(port1);
+        }
+
+        assertTrue(hasKey(context1, "timeout"));
+        assertTrue(hasKey(context1, "ssl"));
+        assertTrue(hasKey(context1, "hostname"));
+        assertNotNull(requestHeaders.get(0).getFirst("Authorization"));
+        assertTrue(requestBodies.get(0).contains("UsernameToken"));
+
+        // second session: nothing
+        SessionImpl session2 = createSession();
+        setAuthenticationProvider(session2, new StandardAuthenticationProvider());
+
+        AbstractPortProvider provider2 = createPortProvider(session2);
+        RepositoryServicePort port2 = provider2.getRepositoryServicePort(CmisVersion.CMIS_1_1, "getRepositories");
+        assertSame(port1, port2);
+
+        Map<String, Object> context2 = ((BindingProvider) port2).getRequestContext();
+        assertFalse(hasKey(context2, "timeout"));
+        assertFalse(hasKey(context2, "ssl"));
+        assertFalse(hasKey(context2, "hostname"));
+        assertFalse(context2.containsKey(BindingProvider.USERNAME_PROPERTY));
+        assertFalse(context2.containsKey(BindingProvider.PASSWORD_PROPERTY));
+        @SuppressWarnings("unchecked")
+        Map<String, List<String>> httpHeaders = (Map<String, List<String>>) context2
+                .get(MessageContext.HTTP_REQUEST_HEADERS);
+        assertTrue(httpHeaders == null || !httpHeaders.containsKey("Authorization"));
+
+        try {
+            port2.getRepositories(null);
+        } finally {
+            provider2.endCall(port2);
+        }
+
+        assertNull(requestHeaders.get(1).getFirst("Authorization"));
+        assertFalse(requestBodies.get(1).contains("UsernameToken"));
+        assertFalse(requestBodies.get(1).contains("alice"));
+
+        PortPool pool = provider2.getPortPools().iterator().next();
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getReusedCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    public void testPortsWithoutAuthenticationProviderAreReturned() throws Exception {
+        SessionImpl session = createSession();
+        AbstractPortProvider provider = createPortProvider(session);
+
+        RepositoryServicePort port1 = provider.getRepositoryServicePort(CmisVersion.CMIS_1_1, "getRepositories");
+        provider.endCall(port1);
+        RepositoryServicePort port2 = provider.getRepositoryServicePort(CmisVersion.CMIS_1_1, "getRepositories");
+        provider.endCall(port2);
+
+        assertSame(port1, port2);
+    }
+
+    public void testHandlerResolverGetsPrivatePool() throws Exception {
+        SessionImpl session1 = createSession();
+        setAuthenticationProvider(session1, new StandardAuthenticationProvider());
+        AbstractPortProvider provider1 = createPortProvider(session1);
+        RepositoryServicePort port1 = provider1.getRepositoryServicePort(CmisVersion.CMIS_1_1, "getRepositories");
+        provider1.endCall(port1);
+
+        SessionImpl session2 = createSession();
+        setAuthenticationProvider(session2, new StandardAuthenticationProvider() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public HandlerResolver getHandlerResolver() {
+                return new HandlerResolver() {
+                    @SuppressWarnings("rawtypes")
+                    public List<Handler> getHandlerChain(PortInfo portInfo) {
+                        return new ArrayList<Handler>();
+                    }
+                };
+            }
+        });
+        AbstractPortProvider provider2 = createPortProvider(session2);
+        RepositoryServicePort port2 = provider2.getRepositoryServicePort(CmisVersion.CMIS_1_1, "getRepositories");
+        provider2.endCall(port2);
+
+        assertNotSame(port1, port2);
+        assertFalse(PortPool.getSharedPools().containsAll(provider2.getPortPools()));
+    }
+
+    private SessionImpl createSession() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.WEBSERVICES_REPOSITORY_SERVICE_ENDPOINT, endpoint);
+        return session;
+    }
+
+    private static void setAuthenticationProvider(SessionImpl session, StandardAuthenticationProvider authProvider) {
+        authProvider.setSession(session);
+        session.put(CmisBindingsHelper.AUTHENTICATION_PROVIDER_OBJECT, authProvider, true);
+    }
+
+    private static AbstractPortProvider createPortProvider(SessionImpl session) {
+        AbstractPortProvider provider = new SunRIPortProvider();
+        provider.setSession(session);
+        return provider;
+    }
+
+    private static boolean hasKey(Map<String, Object> context, String part) {
+        for (String key : context.keySet()) {
+            if (key.toLowerCase().contains(part)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int b;
+        while ((b = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, b);
+        }
+        return out.toString("UTF-8");
+    }
+
+    private static class SslAuthenticationProvider extends StandardAuthenticationProvider {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public SSLSocketFactory getSSLSocketFactory() {
+            return HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+
+        @Override
+        public HostnameVerifier getHostnameVerifier() {
+            return HttpsURLConnection.getDefaultHostnameVerifier();
+        }
+    }
+}
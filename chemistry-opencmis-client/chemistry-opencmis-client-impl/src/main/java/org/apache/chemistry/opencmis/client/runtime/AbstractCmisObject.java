@@ -50,11 +50,13 @@ import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.AllowableActions;
 import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
 import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.Action;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
 import org.apache.chemistry.opencmis.commons.enums.ExtensionLevel;
 import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
@@ -68,19 +70,37 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     private static final long serialVersionUID = 1L;
 
     private SessionImpl session;
-    private ObjectType objectType;
-    private List<SecondaryType> secondaryTypes;
-    private Map<String, Property<?>> properties;
-    private AllowableActions allowableActions;
-    private List<Rendition> renditions;
-    private Acl acl;
-    private List<Policy> policies;
-    private List<Relationship> relationships;
-    private Map<ExtensionLevel, List<CmisExtensionElement>> extensions;
-    private OperationContext creationContext;
-    private long refreshTimestamp;
-
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ObjectState state;
+
+    /**
+     * Lock of this object, <code>null</code> for snapshot objects.
+     */
+    private ReentrantReadWriteLock lock;
+
+    /**
+     * The state of an object as retrieved from the repository. A new state is
+     * built by each refresh and published as a whole, so that readers always
+     * see a consistent state without locking. The fields must not be changed
+     * after the state has been published, except for the lazily converted
+     * properties, renditions and ACL.
+     */
+    private static final class ObjectState implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private ObjectType objectType;
+        private List<SecondaryType> secondaryTypes;
+        private volatile Map<String, Property<?>> properties;
+        private AllowableActions allowableActions;
+        private volatile List<Rendition> renditions;
+        private volatile Acl acl;
+        private List<Policy> policies;
+        private List<Relationship> relationships;
+        private Map<ExtensionLevel, List<CmisExtensionElement>> extensions;
+        private OperationContext creationContext;
+        private long refreshTimestamp;
+        private ObjectData lazyObjectData;
+    }
 
     /**
      * Initializes the object.
@@ -102,15 +122,45 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
         }
 
         this.session = session;
-        this.objectType = objectType;
-        this.secondaryTypes = null;
-        this.extensions = new EnumMap<ExtensionLevel, List<CmisExtensionElement>>(ExtensionLevel.class);
-        this.creationContext = new OperationContextImpl(context);
-        this.refreshTimestamp = System.currentTimeMillis();
+        if (lock == null && !context.isSnapshotEnabled()) {
+            lock = new ReentrantReadWriteLock();
+        }
+
+        // values that are not part of the object data are kept from the
+        // previous state, lazily initialized values are only converted if
+        // they are not replaced by the new object data
+        ObjectState previous = this.state;
+        ObjectState newState = new ObjectState();
+        if (previous != null) {
+            if (objectData == null || objectData.getProperties() == null) {
+                newState.properties = getPropertyMap(previous);
+            }
+            newState.allowableActions = previous.allowableActions;
+            if (objectData == null || objectData.getRenditions() == null) {
+                newState.renditions = getRenditions(previous);
+            }
+            if (objectData == null || objectData.getAcl() == null) {
+                newState.acl = getAcl(previous);
+            }
+            newState.policies = previous.policies;
+            newState.relationships = previous.relationships;
+        }
+
+        newState.objectType = objectType;
+        newState.secondaryTypes = null;
+        newState.extensions = new EnumMap<ExtensionLevel, List<CmisExtensionElement>>(ExtensionLevel.class);
+        newState.creationContext = new OperationContextImpl(context);
+        newState.refreshTimestamp = System.currentTimeMillis();
 
         ObjectFactory of = getObjectFactory();
 
         if (objectData != null) {
+            // keep the object data and convert properties, renditions and
+            // ACL when they are accessed for the first time
+            boolean lazy = session.isLazyObjectInitialization();
+            if (lazy) {
+                newState.lazyObjectData = objectData;
+            }
 
             // handle properties
             if (objectData.getProperties() != null) {
@@ -123,123 +173,204 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
                     List<String> stids = (List<String>) objectData.getProperties().getProperties()
                             .get(PropertyIds.SECONDARY_OBJECT_TYPE_IDS).getValues();
                     if (isNotEmpty(stids)) {
-                        secondaryTypes = new ArrayList<SecondaryType>();
+                        newState.secondaryTypes = new ArrayList<SecondaryType>();
                         for (String stid : stids) {
                             if (stid != null) {
                                 ObjectType type = session.getTypeDefinition(stid);
                                 if (type instanceof SecondaryType) {
-                                    secondaryTypes.add((SecondaryType) type);
+                                    newState.secondaryTypes.add((SecondaryType) type);
                                 }
                             }
                         }
                     }
                 }
 
-                this.properties = of.convertProperties(objectType, secondaryTypes, objectData.getProperties());
-                extensions.put(ExtensionLevel.PROPERTIES, objectData.getProperties().getExtensions());
+                newState.properties = lazy ? null : of.convertProperties(objectType, newState.secondaryTypes,
+                        objectData.getProperties());
+                newState.extensions.put(ExtensionLevel.PROPERTIES, objectData.getProperties().getExtensions());
             }
 
             // handle allowable actions
             if (objectData.getAllowableActions() != null) {
-                this.allowableActions = objectData.getAllowableActions();
-                extensions.put(ExtensionLevel.ALLOWABLE_ACTIONS, objectData.getAllowableActions().getExtensions());
+                newState.allowableActions = objectData.getAllowableActions();
+                newState.extensions.put(ExtensionLevel.ALLOWABLE_ACTIONS, objectData.getAllowableActions()
+                        .getExtensions());
             }
 
             // handle renditions
             if (objectData.getRenditions() != null) {
-                this.renditions = new ArrayList<Rendition>();
-                for (RenditionData rd : objectData.getRenditions()) {
-                    this.renditions.add(of.convertRendition(getId(), rd));
-                }
+                newState.renditions = lazy ? null : convertRenditions(objectData);
             }
 
             // handle ACL
             if (objectData.getAcl() != null) {
-                acl = objectData.getAcl();
-                extensions.put(ExtensionLevel.ACL, objectData.getAcl().getExtensions());
-
-                if (objectData.isExactAcl() != null) {
-                    final Acl objectAcl = objectData.getAcl();
-                    final Boolean isExact = objectData.isExactAcl();
-                    acl = new Acl() {
-
-                        @Override
-                        public void setExtensions(List<CmisExtensionElement> extensions) {
-                            objectAcl.setExtensions(extensions);
-                        }
-
-                        @Override
-                        public List<CmisExtensionElement> getExtensions() {
-                            return objectAcl.getExtensions();
-                        }
-
-                        @Override
-                        public Boolean isExact() {
-                            return isExact;
-                        }
-
-                        @Override
-                        public List<Ace> getAces() {
-                            return objectAcl.getAces();
-                        }
-                    };
-                }
+                newState.acl = lazy ? null : convertAcl(objectData);
+                newState.extensions.put(ExtensionLevel.ACL, objectData.getAcl().getExtensions());
             }
 
             // handle policies
             if ((objectData.getPolicyIds() != null) && (objectData.getPolicyIds().getPolicyIds() != null)) {
-                policies = new ArrayList<Policy>();
+                newState.policies = new ArrayList<Policy>();
                 for (String pid : objectData.getPolicyIds().getPolicyIds()) {
                     CmisObject policy = session.getObject(pid);
                     if (policy instanceof Policy) {
-                        policies.add((Policy) policy);
+                        newState.policies.add((Policy) policy);
                     }
                 }
-                extensions.put(ExtensionLevel.POLICIES, objectData.getPolicyIds().getExtensions());
+                newState.extensions.put(ExtensionLevel.POLICIES, objectData.getPolicyIds().getExtensions());
             }
 
             // handle relationships
             if (objectData.getRelationships() != null) {
-                relationships = new ArrayList<Relationship>();
+                newState.relationships = new ArrayList<Relationship>();
                 for (ObjectData rod : objectData.getRelationships()) {
-                    CmisObject relationship = of.convertObject(rod, this.creationContext);
+                    CmisObject relationship = of.convertObject(rod, newState.creationContext);
                     if (relationship instanceof Relationship) {
-                        relationships.add((Relationship) relationship);
+                        newState.relationships.add((Relationship) relationship);
                     }
                 }
             }
 
-            extensions.put(ExtensionLevel.OBJECT, objectData.getExtensions());
+            newState.extensions.put(ExtensionLevel.OBJECT, objectData.getExtensions());
+        }
+
+        // publish the new state
+        this.state = newState;
+    }
+
+    /**
+     * Converts the renditions of the given object data.
+     */
+    private List<Rendition> convertRenditions(ObjectData objectData) {
+        ObjectFactory of = getObjectFactory();
+        List<Rendition> result = new ArrayList<Rendition>();
+        for (RenditionData rd : objectData.getRenditions()) {
+            result.add(of.convertRendition(objectData.getId(), rd));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the ACL of the given object data including the exact flag.
+     */
+    private Acl convertAcl(ObjectData objectData) {
+        final Acl objectAcl = objectData.getAcl();
+        if (objectData.isExactAcl() == null) {
+            return objectAcl;
         }
 
+        final Boolean isExact = objectData.isExactAcl();
+        return new Acl() {
+
+            @Override
+            public void setExtensions(List<CmisExtensionElement> extensions) {
+                objectAcl.setExtensions(extensions);
+            }
+
+            @Override
+            public List<CmisExtensionElement> getExtensions() {
+                return objectAcl.getExtensions();
+            }
+
+            @Override
+            public Boolean isExact() {
+                return isExact;
+            }
+
+            @Override
+            public List<Ace> getAces() {
+                return objectAcl.getAces();
+            }
+        };
     }
 
     /**
-     * Acquires a write lock.
+     * Returns the property map of a state. Properties of a lazily initialized
+     * object are converted on the first call. Concurrent readers may convert
+     * the properties twice, but they always publish an equal map.
+     */
+    private Map<String, Property<?>> getPropertyMap(ObjectState s) {
+        Map<String, Property<?>> result = s.properties;
+        if (result == null && s.lazyObjectData != null && s.lazyObjectData.getProperties() != null) {
+            result = getObjectFactory().convertProperties(s.objectType, s.secondaryTypes,
+                    s.lazyObjectData.getProperties());
+            s.properties = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the renditions of a state, converting them on the first call.
+     */
+    private List<Rendition> getRenditions(ObjectState s) {
+        List<Rendition> result = s.renditions;
+        if (result == null && s.lazyObjectData != null && s.lazyObjectData.getRenditions() != null) {
+            result = convertRenditions(s.lazyObjectData);
+            s.renditions = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the ACL of a state, converting it on the first call.
+     */
+    private Acl getAcl(ObjectState s) {
+        Acl result = s.acl;
+        if (result == null && s.lazyObjectData != null && s.lazyObjectData.getAcl() != null) {
+            result = convertAcl(s.lazyObjectData);
+            s.acl = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns <code>true</code> if this object is an immutable snapshot that is
+     * read without locking.
+     * 
+     * @see OperationContext#isSnapshotEnabled()
+     */
+    protected boolean isSnapshot() {
+        return lock == null;
+    }
+
+    /**
+     * Acquires a write lock. Does nothing for snapshot objects.
      */
     protected void writeLock() {
-        lock.writeLock().lock();
+        if (lock != null) {
+            lock.writeLock().lock();
+        }
     }
 
     /**
-     * Releases a write lock.
+     * Releases a write lock. Does nothing for snapshot objects.
      */
     protected void writeUnlock() {
-        lock.writeLock().unlock();
+        if (lock != null) {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
-     * Acquires a read lock.
+     * Acquires a read lock. Does nothing for snapshot objects.
      */
     protected void readLock() {
-        lock.readLock().lock();
+        if (lock != null) {
+            lock.readLock().lock();
+        }
     }
 
     /**
-     * Releases a read lock.
+     * Releases a read lock. Does nothing for snapshot objects.
      */
     protected void readUnlock() {
-        lock.readLock().unlock();
+        if (lock != null) {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -262,7 +393,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     protected ObjectType getObjectType() {
         readLock();
         try {
-            return objectType;
+            return state.objectType;
         } finally {
             readUnlock();
         }
@@ -299,7 +430,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
      * Returns the {@link OperationContext} that was used to create this object.
      */
     protected OperationContext getCreationContext() {
-        return creationContext;
+        return state.creationContext;
     }
 
     /**
@@ -308,7 +439,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     protected String getPropertyQueryName(String propertyId) {
         readLock();
         try {
-            PropertyDefinition<?> propDef = objectType.getPropertyDefinitions().get(propertyId);
+            PropertyDefinition<?> propDef = state.objectType.getPropertyDefinitions().get(propertyId);
             if (propDef == null) {
                 return null;
             }
@@ -357,6 +488,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
         readLock();
         String newObjectId = null;
         try {
+            ObjectState s = state;
             String objectId = getObjectId();
             Holder<String> objectIdHolder = new Holder<String>(objectId);
 
@@ -378,7 +510,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
                     objectIdHolder,
                     changeTokenHolder,
                     getObjectFactory()
-                            .convertProperties(properties, this.objectType, this.secondaryTypes, updatebility), null);
+                            .convertProperties(properties, s.objectType, s.secondaryTypes, updatebility), null);
 
             newObjectId = objectIdHolder.getValue();
 
@@ -476,7 +608,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public List<Property<?>> getProperties() {
         readLock();
         try {
-            return Collections.unmodifiableList(new ArrayList<Property<?>>(this.properties.values()));
+            return Collections.unmodifiableList(new ArrayList<Property<?>>(getPropertyMap(state).values()));
         } finally {
             readUnlock();
         }
@@ -486,7 +618,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public <T> Property<T> getProperty(String id) {
         readLock();
         try {
-            return (Property<T>) this.properties.get(id);
+            return (Property<T>) getPropertyMap(state).get(id);
         } finally {
             readUnlock();
         }
@@ -494,6 +626,24 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
 
     @SuppressWarnings("unchecked")
     public <T> T getPropertyValue(String id) {
+        readLock();
+        try {
+            ObjectState s = state;
+            if (s.properties == null && s.lazyObjectData != null && s.lazyObjectData.getProperties() != null) {
+                // single values can be read without converting all properties
+                PropertyDefinition<?> propDef = findPropertyDefinition(s, id);
+                if (propDef != null && propDef.getCardinality() == Cardinality.SINGLE) {
+                    PropertyData<?> pd = s.lazyObjectData.getProperties().getProperties().get(id);
+                    if (pd == null || pd.getValues() == null || pd.getValues().isEmpty()) {
+                        return null;
+                    }
+                    return (T) pd.getValues().get(0);
+                }
+            }
+        } finally {
+            readUnlock();
+        }
+
         Property<T> property = getProperty(id);
         if (property == null) {
             return null;
@@ -502,10 +652,30 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
         return (T) property.getValue();
     }
 
+    /**
+     * Finds the definition of a property in the object type or the secondary
+     * types of a state.
+     */
+    private PropertyDefinition<?> findPropertyDefinition(ObjectState s, String id) {
+        PropertyDefinition<?> propDef = s.objectType.getPropertyDefinitions().get(id);
+        if (propDef == null && s.secondaryTypes != null) {
+            for (SecondaryType secondaryType : s.secondaryTypes) {
+                if (secondaryType.getPropertyDefinitions() != null) {
+                    propDef = secondaryType.getPropertyDefinitions().get(id);
+                    if (propDef != null) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return propDef;
+    }
+
     public ObjectType getType() {
         readLock();
         try {
-            return this.objectType;
+            return state.objectType;
         } finally {
             readUnlock();
         }
@@ -514,7 +684,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public List<SecondaryType> getSecondaryTypes() {
         readLock();
         try {
-            return this.secondaryTypes;
+            return state.secondaryTypes;
         } finally {
             readUnlock();
         }
@@ -525,13 +695,14 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
 
         readLock();
         try {
-            if (objectType.getPropertyDefinitions().containsKey(id)) {
+            ObjectState s = state;
+            if (s.objectType.getPropertyDefinitions().containsKey(id)) {
                 result = new ArrayList<ObjectType>();
-                result.add(objectType);
+                result.add(s.objectType);
             }
 
-            if (secondaryTypes != null) {
-                for (SecondaryType secondaryType : secondaryTypes) {
+            if (s.secondaryTypes != null) {
+                for (SecondaryType secondaryType : s.secondaryTypes) {
                     if (secondaryType.getPropertyDefinitions() != null
                             && secondaryType.getPropertyDefinitions().containsKey(id)) {
                         if (result == null) {
@@ -553,7 +724,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public AllowableActions getAllowableActions() {
         readLock();
         try {
-            return this.allowableActions;
+            return state.allowableActions;
         } finally {
             readUnlock();
         }
@@ -577,7 +748,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public List<Rendition> getRenditions() {
         readLock();
         try {
-            return this.renditions;
+            return getRenditions(state);
         } finally {
             readUnlock();
         }
@@ -617,7 +788,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public Acl getAcl() {
         readLock();
         try {
-            return this.acl;
+            return getAcl(state);
         } finally {
             readUnlock();
         }
@@ -634,13 +805,13 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
             throw new IllegalStateException("ACLs are not available!");
         }
 
-        if (isNullOrEmpty(acl.getAces())) {
+        if (isNullOrEmpty(currentAcl.getAces())) {
             return Collections.emptySet();
         }
 
         HashSet<String> result = new HashSet<String>();
 
-        for (Ace ace : acl.getAces()) {
+        for (Ace ace : currentAcl.getAces()) {
             if (principalId.equals(ace.getPrincipalId()) && ace.getPermissions() != null) {
                 result.addAll(ace.getPermissions());
             }
@@ -680,7 +851,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public List<Policy> getPolicies() {
         readLock();
         try {
-            return this.policies;
+            return state.policies;
         } finally {
             readUnlock();
         }
@@ -691,7 +862,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public List<Relationship> getRelationships() {
         readLock();
         try {
-            return this.relationships;
+            return state.relationships;
         } finally {
             readUnlock();
         }
@@ -700,7 +871,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     // --- extensions ---
 
     public List<CmisExtensionElement> getExtensions(ExtensionLevel level) {
-        List<CmisExtensionElement> ext = extensions.get(level);
+        List<CmisExtensionElement> ext = state.extensions.get(level);
         if (ext == null) {
             return null;
         }
@@ -719,7 +890,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public long getRefreshTimestamp() {
         readLock();
         try {
-            return this.refreshTimestamp;
+            return state.refreshTimestamp;
         } finally {
             readUnlock();
         }
@@ -730,7 +901,8 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
         try {
             String objectId = getObjectId();
 
-            OperationContext oc = getCreationContext();
+            ObjectState s = state;
+            OperationContext oc = s.creationContext;
 
             // get the latest data from the repository
             ObjectData objectData = getSession()
@@ -741,7 +913,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
                             oc.isIncludeAcls(), null);
 
             // reset this object
-            initialize(session, session.getTypeDefinition(objectType.getId()), objectData, creationContext);
+            initialize(session, session.getTypeDefinition(s.objectType.getId()), objectData, oc);
         } finally {
             writeUnlock();
         }
@@ -750,7 +922,7 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public void refreshIfOld(long durationInMillis) {
         writeLock();
         try {
-            if (this.refreshTimestamp < System.currentTimeMillis() - durationInMillis) {
+            if (state.refreshTimestamp < System.currentTimeMillis() - durationInMillis) {
                 refresh();
             }
         } finally {
@@ -762,11 +934,12 @@ public abstract class AbstractCmisObject implements CmisObject, Serializable {
     public String toString() {
         readLock();
         try {
-            if (objectType == null) {
+            ObjectState s = state;
+            if (s == null || s.objectType == null) {
                 return "<unknown>";
             }
 
-            return objectType.getBaseTypeId() + " (" + objectType.getId() + "): " + getId();
+            return s.objectType.getBaseTypeId() + " (" + s.objectType.getId() + "): " + getId();
         } finally {
             readUnlock();
         }
@@ -47,6 +47,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
     private boolean includePathSegments;
     private String orderBy;
     private boolean cacheEnabled;
+    private boolean snapshotEnabled;
     private String cacheKey;
     private int maxItemsPerPage;
 
@@ -84,6 +85,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
         setIncludePathSegments(source.isIncludePathSegments());
         setOrderBy(source.getOrderBy());
         setCacheEnabled(source.isCacheEnabled());
+        setSnapshotEnabled(source.isSnapshotEnabled());
         generateCacheKey();
 
         setMaxItemsPerPage(source.getMaxItemsPerPage());
@@ -338,6 +340,15 @@ public class OperationContextImpl implements OperationContext, Serializable {
         this.cacheEnabled = cacheEnabled;
     }
 
+    public final boolean isSnapshotEnabled() {
+        return snapshotEnabled;
+    }
+
+    public final void setSnapshotEnabled(boolean snapshotEnabled) {
+        this.snapshotEnabled = snapshotEnabled;
+        generateCacheKey();
+    }
+
     public final String getCacheKey() {
         return cacheKey;
     }
@@ -364,6 +375,10 @@ public class OperationContextImpl implements OperationContext, Serializable {
         sb.append('|');
         sb.append(renditionFilter == null ? "" : getRenditionFilterString());
 
+        if (snapshotEnabled) {
+            sb.append("|s");
+        }
+
         cacheKey = sb.toString();
     }
 
@@ -29,6 +29,7 @@ import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.SessionFactory;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.TypeSystemSnapshot;
 import org.apache.chemistry.opencmis.client.runtime.repository.RepositoryImpl;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
@@ -108,6 +109,41 @@ public class SessionFactoryImpl implements SessionFactory, Serializable {
         return session;
     }
 
+    /**
+     * Creates a new session that takes the repository info and the type
+     * definitions from a snapshot. The snapshot is ignored if it belongs to a
+     * different repository.
+     * 
+     * @param parameters
+     *            a {@code Map} of name/value pairs with parameters for the
+     *            session
+     * @param objectFactory
+     *            an object factory instance
+     * @param authenticationProvider
+     *            an authentication provider instance
+     * @param cache
+     *            a cache instance
+     * @param typeDefCache
+     *            a type definition cache instance
+     * @param typeSystemSnapshot
+     *            a snapshot created by
+     *            {@link SessionImpl#createTypeSystemSnapshot()}
+     * @return a {@link Session} connected to the CMIS repository
+     * @throws CmisBaseException
+     *             if the connection could not be established
+     * 
+     * @see SessionParameter
+     */
+    public Session createSession(Map<String, String> parameters, ObjectFactory objectFactory,
+            AuthenticationProvider authenticationProvider, Cache cache, TypeDefinitionCache typeDefCache,
+            TypeSystemSnapshot typeSystemSnapshot) {
+        SessionImpl session = new SessionImpl(parameters, objectFactory, authenticationProvider, cache, typeDefCache,
+                typeSystemSnapshot);
+        session.connect();
+
+        return session;
+    }
+
     public List<Repository> getRepositories(Map<String, String> parameters) {
         return getRepositories(parameters, null, null, null, null);
     }
@@ -18,6 +18,7 @@
  */
 package org.apache.chemistry.opencmis.client.runtime;
 
+import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNullOrEmpty;
 
 import java.math.BigInteger;
@@ -26,11 +27,18 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.client.api.ChangeEvent;
@@ -50,9 +58,11 @@ import org.apache.chemistry.opencmis.client.api.Relationship;
 import org.apache.chemistry.opencmis.client.api.SecondaryType;
 import org.apache.chemistry.opencmis.client.api.Session;
 import org.apache.chemistry.opencmis.client.api.Tree;
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
 import org.apache.chemistry.opencmis.client.bindings.cache.TypeDefinitionCache;
 import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
 import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.TypeSystemSnapshot;
 import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
 import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
@@ -69,19 +79,23 @@ import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
@@ -117,6 +131,17 @@ public class SessionImpl implements Session {
         CREATE_AND_CHECKOUT_UPDATABILITY.add(Updatability.WHENCHECKEDOUT);
     }
 
+    /**
+     * Maximum number of object IDs in a single query of
+     * {@link #getObjects(Collection, OperationContext)}.
+     */
+    private static final int GET_OBJECTS_QUERY_CHUNK_SIZE = 100;
+
+    /**
+     * Page size of the getTypeChildren calls of the parallel type warmup.
+     */
+    private static final int TYPE_WARMUP_PAGE_SIZE = 100;
+
     // private static Logger log = LoggerFactory.getLogger(SessionImpl.class);
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -158,11 +183,26 @@ public class SessionImpl implements Session {
     private Cache cache;
     private final boolean cachePathOmit;
 
+    /*
+     * Convert object data on first access.
+     */
+    private final boolean lazyObjectInitialization;
+
+    /*
+     * Maximum number of concurrent getObject calls of getObjects().
+     */
+    private final int objectFetchThreads;
+
     /*
      * Type cache.
      */
     private TypeDefinitionCache typeDefCache;
 
+    /*
+     * Repository info and types to start with (serializable)
+     */
+    private final TypeSystemSnapshot typeSystemSnapshot;
+
     /*
      * Repository info (serializable)
      */
@@ -178,6 +218,19 @@ public class SessionImpl implements Session {
      */
     public SessionImpl(Map<String, String> parameters, ObjectFactory objectFactory,
             AuthenticationProvider authenticationProvider, Cache cache, TypeDefinitionCache typeDefCache) {
+        this(parameters, objectFactory, authenticationProvider, cache, typeDefCache, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param typeSystemSnapshot
+     *            repository info and type definitions to start with, may be
+     *            <code>null</code>
+     */
+    public SessionImpl(Map<String, String> parameters, ObjectFactory objectFactory,
+            AuthenticationProvider authenticationProvider, Cache cache, TypeDefinitionCache typeDefCache,
+            TypeSystemSnapshot typeSystemSnapshot) {
         if (parameters == null) {
             throw new IllegalArgumentException("No parameters provided!");
         }
@@ -189,8 +242,22 @@ public class SessionImpl implements Session {
         this.authenticationProvider = authenticationProvider;
         this.cache = (cache == null ? createCache() : cache);
         this.typeDefCache = typeDefCache;
+        this.typeSystemSnapshot = typeSystemSnapshot;
 
         cachePathOmit = Boolean.parseBoolean(parameters.get(SessionParameter.CACHE_PATH_OMIT));
+        lazyObjectInitialization = Boolean.parseBoolean(parameters
+                .get(SessionParameter.OBJECT_LAZY_INITIALIZATION));
+
+        String threadsStr = parameters.get(SessionParameter.OBJECT_FETCH_THREADS);
+        if (threadsStr == null) {
+            objectFetchThreads = SessionParameterDefaults.OBJECT_FETCH_THREADS;
+        } else {
+            try {
+                objectFetchThreads = Integer.parseInt(threadsStr.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number of object fetch threads: " + threadsStr, e);
+            }
+        }
     }
 
     private Locale determineLocale(Map<String, String> parameters) {
@@ -268,6 +335,24 @@ public class SessionImpl implements Session {
         }
     }
 
+    private TypeDefinitionCache createTypeDefinitionCache() {
+        try {
+            String classname = parameters.get(SessionParameter.TYPE_DEFINITION_CACHE_CLASS);
+            if (classname == null) {
+                classname = CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS;
+            }
+
+            Object tdc = ClassLoaderUtil.loadClass(classname).newInstance();
+            if (!(tdc instanceof TypeDefinitionCache)) {
+                throw new InstantiationException("Class does not implement TypeDefinitionCache!");
+            }
+
+            return (TypeDefinitionCache) tdc;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to create type definition cache: " + e, e);
+        }
+    }
+
     public void clear() {
         lock.writeLock().lock();
         try {
@@ -481,6 +566,14 @@ public class SessionImpl implements Session {
         return locale;
     }
 
+    /**
+     * Returns whether objects of this session should keep the object data and
+     * convert properties, renditions and ACLs only when they are accessed.
+     */
+    protected boolean isLazyObjectInitialization() {
+        return lazyObjectInitialization;
+    }
+
     public CmisObject getObject(ObjectId objectId) {
         return getObject(objectId, getDefaultContext());
     }
@@ -530,6 +623,303 @@ public class SessionImpl implements Session {
         return result;
     }
 
+    public List<CmisObject> getObjects(Collection<String> objectIds, OperationContext context) {
+        if (objectIds == null) {
+            throw new IllegalArgumentException("Object IDs must be set!");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("Operation context must be set!");
+        }
+
+        Map<String, CmisObject> found = new HashMap<String, CmisObject>();
+        Set<String> missing = new LinkedHashSet<String>();
+
+        // ask the cache first
+        for (String objectId : objectIds) {
+            if (objectId == null) {
+                throw new IllegalArgumentException("Object ID must be set!");
+            }
+            if (found.containsKey(objectId) || missing.contains(objectId)) {
+                continue;
+            }
+
+            CmisObject object = null;
+            if (context.isCacheEnabled()) {
+                object = cache.getById(objectId, context.getCacheKey());
+            }
+            if (object != null) {
+                found.put(objectId, object);
+            } else {
+                missing.add(objectId);
+            }
+        }
+
+        // fetch documents and folders in chunks
+        if (!missing.isEmpty() && canQueryObjects(context)) {
+            queryObjects(BaseTypeId.CMIS_DOCUMENT, missing, context, found);
+            queryObjects(BaseTypeId.CMIS_FOLDER, missing, context, found);
+        }
+
+        // fetch everything else one by one
+        if (!missing.isEmpty()) {
+            fetchObjects(missing, context, found);
+        }
+
+        List<CmisObject> result = new ArrayList<CmisObject>(objectIds.size());
+        for (String objectId : objectIds) {
+            result.add(found.get(objectId));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether objects can be fetched with a query for the given
+     * context. Queries don't return ACLs and policies.
+     */
+    private boolean canQueryObjects(OperationContext context) {
+        if (context.isIncludeAcls() || context.isIncludePolicies() || context.loadSecondaryTypeProperties()) {
+            return false;
+        }
+
+        RepositoryInfo info = getRepositoryInfo();
+        return info.getCapabilities() != null && info.getCapabilities().getQueryCapability() != null
+                && info.getCapabilities().getQueryCapability() != CapabilityQuery.NONE;
+    }
+
+    /**
+     * Fetches objects of a base type and its subtypes with
+     * <code>cmis:objectId IN (...)</code> queries. Found objects are removed
+     * from the set of object IDs.
+     * <p>
+     * A query on a type only returns the properties of this type. Therefore
+     * the base type is queried first, and the objects of each subtype found
+     * there are queried again with their own type. Objects with secondary
+     * types are left for {@link #fetchObjects(Collection, OperationContext, Map)}.
+     */
+    private void queryObjects(BaseTypeId baseTypeId, Set<String> objectIds, OperationContext context,
+            Map<String, CmisObject> result) {
+        if (objectIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Set<String>> pending = new LinkedHashMap<String, Set<String>>();
+        pending.put(baseTypeId.value(), new LinkedHashSet<String>(objectIds));
+        Set<String> queriedTypes = new HashSet<String>();
+
+        while (!pending.isEmpty()) {
+            Map.Entry<String, Set<String>> next = pending.entrySet().iterator().next();
+            pending.remove(next.getKey());
+            if (!queriedTypes.add(next.getKey())) {
+                continue;
+            }
+
+            ObjectType type;
+            try {
+                type = getTypeDefinition(next.getKey());
+            } catch (CmisObjectNotFoundException e) {
+                continue;
+            }
+
+            if (!queryObjects(type, next.getValue(), objectIds, context, result, pending)
+                    && baseTypeId.value().equals(type.getId())) {
+                // the repository doesn't support this query
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fetches objects of a type with <code>cmis:objectId IN (...)</code>
+     * queries. Only objects of exactly this type are taken from the query
+     * results, the IDs of objects of subtypes are added to the pending map.
+     * 
+     * @return <code>false</code> if the type cannot be queried
+     */
+    private boolean queryObjects(ObjectType type, Set<String> queryIds, Set<String> objectIds,
+            OperationContext context, Map<String, CmisObject> result, Map<String, Set<String>> pending) {
+        if (!Boolean.TRUE.equals(type.isQueryable()) || type.getQueryName() == null) {
+            return false;
+        }
+
+        String selectList = getSelectList(type, context);
+
+        List<String> ids = new ArrayList<String>(queryIds);
+        for (int i = 0; i < ids.size(); i += GET_OBJECTS_QUERY_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(i, Math.min(ids.size(), i + GET_OBJECTS_QUERY_CHUNK_SIZE));
+
+            QueryStatement statement = createQueryStatement("SELECT " + selectList + " FROM ? WHERE "
+                    + PropertyIds.OBJECT_ID + " IN (?)");
+            statement.setType(1, type);
+            statement.setString(2, chunk.toArray(new String[chunk.size()]));
+
+            ObjectList objectList;
+            try {
+                objectList = getBinding().getDiscoveryService().query(getRepositoryId(),
+                        statement.toQueryString(), Boolean.FALSE, context.isIncludeAllowableActions(),
+                        context.getIncludeRelationships(), context.getRenditionFilterString(),
+                        BigInteger.valueOf(chunk.size()), null, null);
+            } catch (CmisNotSupportedException e) {
+                return false;
+            } catch (CmisInvalidArgumentException e) {
+                return false;
+            }
+
+            if (objectList == null || objectList.getObjects() == null) {
+                continue;
+            }
+
+            for (ObjectData objectData : objectList.getObjects()) {
+                if (objectData.getProperties() == null || objectData.getProperties().getProperties() == null) {
+                    continue;
+                }
+
+                String objectId = objectData.getId();
+                if (objectId == null || !objectIds.contains(objectId)) {
+                    continue;
+                }
+
+                Map<String, PropertyData<?>> properties = objectData.getProperties().getProperties();
+                PropertyData<?> secondaryTypesProperty = properties.get(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+                if (secondaryTypesProperty != null && isNotEmpty(secondaryTypesProperty.getValues())) {
+                    continue;
+                }
+
+                PropertyData<?> typeProperty = properties.get(PropertyIds.OBJECT_TYPE_ID);
+                Object typeId = (typeProperty == null ? null : typeProperty.getFirstValue());
+                if (!(typeId instanceof String)) {
+                    continue;
+                }
+
+                if (!type.getId().equals(typeId)) {
+                    Set<String> subTypeIds = pending.get(typeId);
+                    if (subTypeIds == null) {
+                        subTypeIds = new LinkedHashSet<String>();
+                        pending.put((String) typeId, subTypeIds);
+                    }
+                    subTypeIds.add(objectId);
+                    continue;
+                }
+
+                objectIds.remove(objectId);
+
+                CmisObject object = getObjectFactory().convertObject(objectData, context);
+                result.put(objectId, object);
+
+                if (context.isCacheEnabled()) {
+                    cache.put(object, context.getCacheKey());
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Builds the select list of a getObjects query from the property filter of
+     * the operation context. A query can only select properties of the queried
+     * type. The IDs that sort the results are always selected. The secondary
+     * type IDs are only selected if the filter names properties the type
+     * doesn't define, because these could be secondary type properties.
+     */
+    private static String getSelectList(ObjectType type, OperationContext context) {
+        Set<String> filter = context.getFilter();
+        if (filter == null || filter.contains(OperationContextImpl.PROPERTIES_STAR)
+                || type.getPropertyDefinitions() == null) {
+            return OperationContextImpl.PROPERTIES_STAR;
+        }
+
+        Set<String> unknown = new HashSet<String>(filter);
+        StringBuilder sb = new StringBuilder();
+        String secondaryTypesQueryName = null;
+
+        for (PropertyDefinition<?> propDef : type.getPropertyDefinitions().values()) {
+            String queryName = propDef.getQueryName();
+            if (queryName == null) {
+                continue;
+            }
+
+            unknown.remove(queryName);
+
+            if (PropertyIds.SECONDARY_OBJECT_TYPE_IDS.equals(propDef.getId())) {
+                secondaryTypesQueryName = queryName;
+            }
+
+            if (filter.contains(queryName) || PropertyIds.OBJECT_ID.equals(propDef.getId())
+                    || PropertyIds.BASE_TYPE_ID.equals(propDef.getId())
+                    || PropertyIds.OBJECT_TYPE_ID.equals(propDef.getId())) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(queryName);
+            }
+        }
+
+        if (sb.length() == 0) {
+            return OperationContextImpl.PROPERTIES_STAR;
+        }
+
+        if (!unknown.isEmpty() && secondaryTypesQueryName != null && !filter.contains(secondaryTypesQueryName)) {
+            sb.append(',');
+            sb.append(secondaryTypesQueryName);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Fetches objects with concurrent getObject calls. The threads are created
+     * for this call and stopped when it returns. Objects that don't exist are
+     * mapped to <code>null</code>.
+     */
+    private void fetchObjects(Collection<String> objectIds, final OperationContext context,
+            Map<String, CmisObject> result) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(
+                Math.min(objectFetchThreads, objectIds.size()), 1));
+        try {
+            Map<String, Future<CmisObject>> futures = new LinkedHashMap<String, Future<CmisObject>>();
+            for (final String objectId : objectIds) {
+                futures.put(objectId, executor.submit(new Callable<CmisObject>() {
+                    public CmisObject call() {
+                        try {
+                            return getObject(objectId, context);
+                        } catch (CmisObjectNotFoundException e) {
+                            return null;
+                        }
+                    }
+                }));
+            }
+
+            for (Map.Entry<String, Future<CmisObject>> entry : futures.entrySet()) {
+                result.put(entry.getKey(), getFutureResult(entry.getValue(), "Interrupted while fetching objects!"));
+            }
+        } finally {
+            // don't leave tasks of a failed call behind
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a task and passes its exception on.
+     */
+    private static <T> T getFutureResult(Future<T> future, String interruptMessage) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException(interruptMessage, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CmisRuntimeException(cause.getMessage(), cause);
+        }
+    }
+
     public CmisObject getObjectByPath(String path) {
         return getObjectByPath(path, getDefaultContext());
     }
@@ -1040,21 +1430,200 @@ public class SessionImpl implements Session {
     public void connect() {
         lock.writeLock().lock();
         try {
-            binding = CmisBindingHelper.createBinding(parameters, authenticationProvider, typeDefCache);
-
             /* get initial repository ID from session parameter */
             String repositoryId = parameters.get(SessionParameter.REPOSITORY_ID);
             if (repositoryId == null) {
                 throw new IllegalStateException("Repository ID is not set!");
             }
 
-            repositoryInfo = objectFactory.convertRepositoryInfo(getBinding().getRepositoryService().getRepositoryInfo(
-                    repositoryId, null));
+            boolean useSnapshot = typeSystemSnapshot != null
+                    && repositoryId.equals(typeSystemSnapshot.getRepositoryId());
+
+            // the snapshot types are added to the type definition cache
+            if (useSnapshot && typeDefCache == null) {
+                typeDefCache = createTypeDefinitionCache();
+            }
+
+            binding = CmisBindingHelper.createBinding(parameters, authenticationProvider, typeDefCache);
+
+            if (useSnapshot) {
+                repositoryInfo = objectFactory.convertRepositoryInfo(typeSystemSnapshot.getRepositoryInfo());
+
+                for (TypeDefinition typeDefinition : typeSystemSnapshot.getTypeDefinitions()) {
+                    typeDefCache.put(repositoryId, typeDefinition);
+                    convertAndCacheTypeDefinition(typeDefinition, true);
+                }
+            } else {
+                repositoryInfo = objectFactory.convertRepositoryInfo(getBinding().getRepositoryService()
+                        .getRepositoryInfo(repositoryId, null));
+
+                warmUpTypes(repositoryId);
+            }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /**
+     * Loads all type definitions into the type definition caches if the
+     * session parameters request a type warmup.
+     */
+    private void warmUpTypes(String repositoryId) {
+        String mode = parameters.get(SessionParameter.CACHE_TYPES_WARMUP);
+        if (mode == null) {
+            return;
+        }
+
+        mode = mode.trim().toLowerCase(Locale.ENGLISH);
+        if (mode.length() == 0 || "none".equals(mode)) {
+            return;
+        }
+
+        int threads = SessionParameterDefaults.CACHE_TYPES_WARMUP_THREADS;
+        String threadsStr = parameters.get(SessionParameter.CACHE_TYPES_WARMUP_THREADS);
+        if (threadsStr != null) {
+            try {
+                threads = Integer.parseInt(threadsStr.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number of type warmup threads: " + threadsStr, e);
+            }
+        }
+
+        // the binding repository service fills the binding type definition
+        // cache
+        RepositoryService repositoryService = binding.getRepositoryService();
+
+        List<TypeDefinition> typeDefinitions;
+        if ("descendants".equals(mode)) {
+            try {
+                typeDefinitions = new ArrayList<TypeDefinition>();
+                collectTypeDefinitions(repositoryService.getTypeDescendants(repositoryId, null,
+                        BigInteger.valueOf(-1), Boolean.TRUE, null), typeDefinitions);
+            } catch (CmisNotSupportedException e) {
+                typeDefinitions = loadTypeDefinitions(repositoryService, repositoryId, threads);
+            }
+        } else if ("parallel".equals(mode)) {
+            typeDefinitions = loadTypeDefinitions(repositoryService, repositoryId, threads);
+        } else {
+            throw new IllegalArgumentException("Invalid type warmup mode: " + mode);
+        }
+
+        for (TypeDefinition typeDefinition : typeDefinitions) {
+            convertAndCacheTypeDefinition(typeDefinition, true);
+        }
+    }
+
+    private static void collectTypeDefinitions(List<TypeDefinitionContainer> containers,
+            List<TypeDefinition> typeDefinitions) {
+        if (containers == null) {
+            return;
+        }
+
+        for (TypeDefinitionContainer container : containers) {
+            if (container.getTypeDefinition() != null) {
+                typeDefinitions.add(container.getTypeDefinition());
+            }
+            collectTypeDefinitions(container.getChildren(), typeDefinitions);
+        }
+    }
+
+    /**
+     * Walks the type hierarchy level by level. The type definitions and the
+     * children of all types of a level are fetched concurrently.
+     */
+    private static List<TypeDefinition> loadTypeDefinitions(final RepositoryService repositoryService,
+            final String repositoryId, int threads) {
+        List<TypeDefinition> result = new ArrayList<TypeDefinition>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            List<String> level = getTypeChildrenIds(repositoryService, repositoryId, null);
+            while (!level.isEmpty()) {
+                List<Future<TypeNode>> futures = new ArrayList<Future<TypeNode>>(level.size());
+                for (final String typeId : level) {
+                    futures.add(executor.submit(new Callable<TypeNode>() {
+                        public TypeNode call() {
+                            TypeNode node = new TypeNode();
+                            node.typeDefinition = repositoryService.getTypeDefinition(repositoryId, typeId, null);
+                            node.childrenIds = getTypeChildrenIds(repositoryService, repositoryId, typeId);
+                            return node;
+                        }
+                    }));
+                }
+
+                List<String> nextLevel = new ArrayList<String>();
+                for (Future<TypeNode> future : futures) {
+                    TypeNode node = getFutureResult(future, "Interrupted while loading types!");
+                    if (node.typeDefinition != null) {
+                        result.add(node.typeDefinition);
+                    }
+                    nextLevel.addAll(node.childrenIds);
+                }
+
+                level = nextLevel;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the IDs of the child types of a type or the IDs of the base
+     * types if the type ID is <code>null</code>.
+     */
+    private static List<String> getTypeChildrenIds(RepositoryService repositoryService, String repositoryId,
+            String typeId) {
+        List<String> result = new ArrayList<String>();
+
+        BigInteger maxItems = BigInteger.valueOf(TYPE_WARMUP_PAGE_SIZE);
+        BigInteger skipCount = BigInteger.ZERO;
+        while (true) {
+            TypeDefinitionList children = repositoryService.getTypeChildren(repositoryId, typeId, Boolean.FALSE,
+                    maxItems, skipCount, null);
+            if (children == null || isNullOrEmpty(children.getList())) {
+                break;
+            }
+
+            for (TypeDefinition child : children.getList()) {
+                result.add(child.getId());
+            }
+
+            if (!Boolean.TRUE.equals(children.hasMoreItems())) {
+                break;
+            }
+            skipCount = skipCount.add(BigInteger.valueOf(children.getList().size()));
+        }
+
+        return result;
+    }
+
+    private static class TypeNode {
+        TypeDefinition typeDefinition;
+        List<String> childrenIds;
+    }
+
+    /**
+     * Creates a snapshot of the repository info and all type definitions of
+     * the repository. The type definitions are fetched with one
+     * getTypeDescendants call.
+     * 
+     * @see SessionFactoryImpl#createSession(Map, ObjectFactory,
+     *      AuthenticationProvider, Cache, TypeDefinitionCache,
+     *      TypeSystemSnapshot)
+     */
+    public TypeSystemSnapshot createTypeSystemSnapshot() {
+        RepositoryService repositoryService = getBinding().getRepositoryService();
+        String repositoryId = getRepositoryId();
+
+        List<TypeDefinition> typeDefinitions = new ArrayList<TypeDefinition>();
+        collectTypeDefinitions(repositoryService.getTypeDescendants(repositoryId, null, BigInteger.valueOf(-1),
+                Boolean.TRUE, null), typeDefinitions);
+
+        return new TypeSystemSnapshot(repositoryService.getRepositoryInfo(repositoryId, null), typeDefinitions);
+    }
+
     public CmisBinding getBinding() {
         lock.readLock().lock();
         try {
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+
+/**
+ * A copy of the repository info and all type definitions of a repository.
+ * <p>
+ * A snapshot can be shared by any number of sessions and can be serialized,
+ * for example to a file. Sessions that connect with a snapshot of their
+ * repository take the repository info and the type definitions from the
+ * snapshot instead of fetching them from the repository. A snapshot is not
+ * updated when types are created, updated or deleted.
+ * 
+ * @see org.apache.chemistry.opencmis.client.runtime.SessionImpl#createTypeSystemSnapshot()
+ */
+public class TypeSystemSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RepositoryInfo repositoryInfo;
+    private final Map<String, TypeDefinition> typeDefinitions;
+    private final long creationTime;
+
+    /**
+     * Constructor.
+     * 
+     * @param repositoryInfo
+     *            the repository info
+     * @param typeDefinitions
+     *            the type definitions of the repository
+     */
+    public TypeSystemSnapshot(RepositoryInfo repositoryInfo, Collection<TypeDefinition> typeDefinitions) {
+        if (repositoryInfo == null || repositoryInfo.getId() == null) {
+            throw new IllegalArgumentException("Repository info must be set!");
+        }
+
+        this.repositoryInfo = repositoryInfo;
+        this.typeDefinitions = new LinkedHashMap<String, TypeDefinition>();
+        if (typeDefinitions != null) {
+            for (TypeDefinition typeDefinition : typeDefinitions) {
+                if (typeDefinition != null && typeDefinition.getId() != null) {
+                    this.typeDefinitions.put(typeDefinition.getId(), typeDefinition);
+                }
+            }
+        }
+        this.creationTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the repository ID.
+     */
+    public String getRepositoryId() {
+        return repositoryInfo.getId();
+    }
+
+    /**
+     * Returns the repository info.
+     */
+    public RepositoryInfo getRepositoryInfo() {
+        return repositoryInfo;
+    }
+
+    /**
+     * Returns all type definitions.
+     */
+    public Collection<TypeDefinition> getTypeDefinitions() {
+        return Collections.unmodifiableCollection(typeDefinitions.values());
+    }
+
+    /**
+     * Returns a type definition.
+     * 
+     * @return the type definition or <code>null</code> if the snapshot
+     *         doesn't contain the type
+     */
+    public TypeDefinition getTypeDefinition(String typeId) {
+        return typeDefinitions.get(typeId);
+    }
+
+    /**
+     * Returns the number of type definitions.
+     */
+    public int getTypeCount() {
+        return typeDefinitions.size();
+    }
+
+    /**
+     * Returns the time when the snapshot has been created in milliseconds
+     * since January 1, 1970 UTC.
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    @Override
+    public String toString() {
+        return "Type system snapshot of repository " + getRepositoryId() + " (" + typeDefinitions.size()
+                + " types)";
+    }
+}
@@ -192,6 +192,14 @@ public final class OperationContextUtils {
                 throw new UnsupportedOperationException();
             }
 
+            public boolean isSnapshotEnabled() {
+                return context.isSnapshotEnabled();
+            }
+
+            public void setSnapshotEnabled(boolean snapshotEnabled) {
+                throw new UnsupportedOperationException();
+            }
+
             public String getCacheKey() {
                 return context.getCacheKey();
             }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+
+/**
+ * SPI that connects a session to a {@link RepositoryMock}.
+ */
+public class CmisSpiMock implements CmisSpi {
+
+    private final RepositoryMock repository;
+
+    public CmisSpiMock(BindingSession session) {
+        repository = RepositoryMock.get((String) session.get(RepositoryMock.REPOSITORY_MOCK));
+    }
+
+    public RepositoryService getRepositoryService() {
+        return repository.createService(RepositoryService.class);
+    }
+
+    public NavigationService getNavigationService() {
+        return repository.createService(NavigationService.class);
+    }
+
+    public ObjectService getObjectService() {
+        return repository.createService(ObjectService.class);
+    }
+
+    public VersioningService getVersioningService() {
+        return repository.createService(VersioningService.class);
+    }
+
+    public RelationshipService getRelationshipService() {
+        return repository.createService(RelationshipService.class);
+    }
+
+    public DiscoveryService getDiscoveryService() {
+        return repository.createService(DiscoveryService.class);
+    }
+
+    public MultiFilingService getMultiFilingService() {
+        return repository.createService(MultiFilingService.class);
+    }
+
+    public AclService getAclService() {
+        return repository.createService(AclService.class);
+    }
+
+    public PolicyService getPolicyService() {
+        return repository.createService(PolicyService.class);
+    }
+
+    public void clearAllCaches() {
+    }
+
+    public void clearRepositoryCache(String repositoryId) {
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Folder;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GetObjectsTest {
+
+    private static final int DOCUMENTS = 150;
+
+    private RepositoryMock repository;
+    private Session session;
+    private OperationContext context;
+    private List<String> ids;
+
+    @Before
+    public void setUp() {
+        repository = new RepositoryMock();
+
+        ids = new ArrayList<String>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            repository.addDocument("doc-" + i, BaseTypeId.CMIS_DOCUMENT.value());
+            ids.add("doc-" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            repository.addDocument("custom-" + i, RepositoryMock.CUSTOM_DOCUMENT_TYPE);
+            ids.add(i * 10, "custom-" + i);
+        }
+        for (int i = 0; i < 2; i++) {
+            repository.addDocument("secondary-" + i, BaseTypeId.CMIS_DOCUMENT.value(),
+                    RepositoryMock.SECONDARY_TYPE);
+            ids.add("secondary-" + i);
+        }
+        repository.addFolder("folder");
+        ids.add(5, "folder");
+
+        context = new OperationContextImpl();
+        context.setCacheEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        repository.unregister();
+    }
+
+    @Test
+    public void testGetObjects() {
+        session = repository.createSession(null);
+        repository.resetCalls();
+
+        List<String> requested = new ArrayList<String>(ids);
+        requested.add(7, "unknown");
+        requested.add("doc-0");
+
+        List<CmisObject> objects = session.getObjects(requested, context);
+        assertResult(requested, objects);
+
+        // 2 chunks of the document type, one query for the subtype, one for
+        // the folder type
+        assertEquals(4, repository.getCalls("query"));
+        // objects with secondary types and the unknown object
+        assertEquals(3, repository.getCalls("getObject"));
+    }
+
+    @Test
+    public void testSubtypeProperties() {
+        session = repository.createSession(null);
+
+        List<CmisObject> objects = session.getObjects(Arrays.asList("custom-1", "secondary-1"), context);
+        assertEquals(RepositoryMock.CUSTOM_DOCUMENT_TYPE, objects.get(0).getType().getId());
+        assertEquals(Arrays.asList("a", "b"), objects.get(0).getPropertyValue(RepositoryMock.CUSTOM_PROPERTY));
+        assertEquals("secondary", objects.get(1).getPropertyValue(RepositoryMock.SECONDARY_PROPERTY));
+        assertEquals(1, objects.get(1).getSecondaryTypes().size());
+    }
+
+    @Test
+    public void testQuerySelectsFilter() {
+        session = repository.createSession(null);
+        context.setFilterString(PropertyIds.NAME);
+        repository.resetCalls();
+
+        List<CmisObject> objects = session.getObjects(ids, context);
+        assertResult(ids, objects);
+        // the filter only names properties of the base types, objects with
+        // secondary types can be taken from the query results
+        assertEquals(0, repository.getCalls("getObject"));
+
+        CmisObject object = objects.get(ids.indexOf("doc-1"));
+        assertNotNull(object.getProperty(PropertyIds.OBJECT_TYPE_ID));
+        assertNull(object.getProperty(PropertyIds.CREATED_BY));
+        assertNull(object.getProperty(PropertyIds.SECONDARY_OBJECT_TYPE_IDS));
+    }
+
+    @Test
+    public void testQuerySelectsSubtypeFilter() {
+        session = repository.createSession(null);
+        context.setFilterString(PropertyIds.NAME + "," + RepositoryMock.CUSTOM_PROPERTY);
+        repository.resetCalls();
+
+        List<CmisObject> objects = session.getObjects(ids, context);
+        assertResult(ids, objects);
+        // the custom property could be a secondary type property
+        assertEquals(2, repository.getCalls("getObject"));
+
+        CmisObject object = objects.get(ids.indexOf("custom-1"));
+        assertEquals(Arrays.asList("a", "b"), object.getPropertyValue(RepositoryMock.CUSTOM_PROPERTY));
+        assertNull(object.getProperty(PropertyIds.CREATED_BY));
+    }
+
+    @Test
+    public void testFetchThreads() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.OBJECT_FETCH_THREADS, "1");
+        session = repository.createSession(parameters);
+        repository.setQueryException(new CmisNotSupportedException("no queries"));
+
+        assertResult(ids, session.getObjects(ids, context));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFetchThreads() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.OBJECT_FETCH_THREADS, "many");
+        repository.createSession(parameters);
+    }
+
+    @Test
+    public void testCacheIsFilled() {
+        session = repository.createSession(null);
+        session.getObjects(ids, context);
+
+        repository.resetCalls();
+        List<CmisObject> objects = session.getObjects(ids, context);
+        assertResult(ids, objects);
+        assertEquals(0, repository.getTotalCalls());
+
+        assertSame(objects.get(0), session.getObject(ids.get(0), context));
+        assertEquals(0, repository.getTotalCalls());
+    }
+
+    @Test
+    public void testQueryNotSupported() {
+        session = repository.createSession(null);
+        repository.setQueryException(new CmisNotSupportedException("no queries"));
+        repository.resetCalls();
+
+        assertResult(ids, session.getObjects(ids, context));
+        assertEquals(2, repository.getCalls("query"));
+        assertEquals(ids.size(), repository.getCalls("getObject"));
+    }
+
+    @Test
+    public void testQueryErrorsArePassedOn() {
+        session = repository.createSession(null);
+        repository.setQueryException(new CmisPermissionDeniedException("denied"));
+
+        try {
+            session.getObjects(ids, context);
+            fail("Exception expected!");
+        } catch (CmisPermissionDeniedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoQueryCapability() {
+        ((RepositoryCapabilitiesImpl) repository.getRepositoryInfo().getCapabilities())
+                .setCapabilityQuery(CapabilityQuery.NONE);
+        session = repository.createSession(null);
+        repository.resetCalls();
+
+        assertResult(ids, session.getObjects(ids, context));
+        assertEquals(0, repository.getCalls("query"));
+        assertEquals(ids.size(), repository.getCalls("getObject"));
+    }
+
+    @Test
+    public void testNoQueryWithAcls() {
+        session = repository.createSession(null);
+        context.setIncludeAcls(true);
+        repository.resetCalls();
+
+        assertResult(ids, session.getObjects(ids, context));
+        assertEquals(0, repository.getCalls("query"));
+        assertEquals(ids.size(), repository.getCalls("getObject"));
+    }
+
+    @Test
+    public void testGetObjectErrorsArePassedOn() {
+        session = repository.createSession(null);
+        repository.setQueryException(new CmisNotSupportedException("no queries"));
+        repository.getObjectData("doc-3").setProperties(null);
+
+        try {
+            session.getObjects(ids, context);
+            fail("Exception expected!");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        // the session is still usable
+        repository.addDocument("doc-3", BaseTypeId.CMIS_DOCUMENT.value());
+        assertResult(ids, session.getObjects(ids, context));
+    }
+
+    @Test
+    public void testConcurrentCalls() throws Exception {
+        session = repository.createSession(null);
+        repository.setQueryException(new CmisNotSupportedException("no queries"));
+
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        assertResult(ids, session.getObjects(ids, new OperationContextImpl()));
+                    } catch (Throwable t) {
+                        synchronized (failures) {
+                            failures.add(t);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    private static void assertResult(List<String> requested, List<CmisObject> objects) {
+        assertEquals(requested.size(), objects.size());
+        for (int i = 0; i < requested.size(); i++) {
+            String id = requested.get(i);
+            CmisObject object = objects.get(i);
+            if ("unknown".equals(id)) {
+                assertNull(object);
+                continue;
+            }
+
+            assertNotNull(id, object);
+            assertEquals(id, object.getId());
+            assertEquals("name-" + id, object.getName());
+            if ("folder".equals(id)) {
+                assertTrue(object instanceof Folder);
+            }
+        }
+    }
+}
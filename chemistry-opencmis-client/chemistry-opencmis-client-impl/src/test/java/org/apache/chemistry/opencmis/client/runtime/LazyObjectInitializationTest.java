@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.api.Rendition;
+import org.apache.chemistry.opencmis.client.api.SecondaryType;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.Ace;
+import org.apache.chemistry.opencmis.commons.data.Acl;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.RenditionData;
+import org.apache.chemistry.opencmis.commons.enums.ExtensionLevel;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that lazily initialized objects return the same data as eagerly
+ * initialized objects.
+ */
+public class LazyObjectInitializationTest {
+
+    private static final String DOC_ID = "doc";
+
+    private RepositoryMock repository;
+    private Session eagerSession;
+    private Session lazySession;
+    private OperationContext context;
+
+    @Before
+    public void setUp() {
+        CountingObjectFactory.reset();
+
+        repository = new RepositoryMock();
+        repository.addFullDocument(DOC_ID);
+
+        Map<String, String> eager = new HashMap<String, String>();
+        eager.put(SessionParameter.OBJECT_FACTORY_CLASS, CountingObjectFactory.class.getName());
+        eagerSession = repository.createSession(eager);
+
+        Map<String, String> lazy = new HashMap<String, String>(eager);
+        lazy.put(SessionParameter.OBJECT_LAZY_INITIALIZATION, "true");
+        lazySession = repository.createSession(lazy);
+
+        context = eagerSession.createOperationContext();
+        context.setIncludeAcls(true);
+        context.setRenditionFilterString("*");
+        context.setCacheEnabled(false);
+    }
+
+    @After
+    public void tearDown() {
+        repository.unregister();
+    }
+
+    @Test
+    public void testSameData() {
+        CmisObject eagerObject = eagerSession.getObject(DOC_ID, context);
+        CmisObject lazyObject = lazySession.getObject(DOC_ID, context);
+
+        assertSameData(eagerObject, lazyObject);
+    }
+
+    @Test
+    public void testSameDataAfterRefresh() {
+        CmisObject eagerObject = eagerSession.getObject(DOC_ID, context);
+        CmisObject lazyObject = lazySession.getObject(DOC_ID, context);
+
+        // read the lazy object before the refresh
+        assertSameData(eagerObject, lazyObject);
+
+        ObjectDataImpl objectData = repository.getObjectData(DOC_ID);
+        PropertiesImpl properties = new PropertiesImpl(objectData.getProperties());
+        properties.replaceProperty(new PropertyStringImpl(PropertyIds.NAME, "renamed"));
+        properties.replaceProperty(new PropertyStringImpl(PropertyIds.CHANGE_TOKEN, "2"));
+        objectData.setProperties(properties);
+        objectData.setRenditions(new ArrayList<RenditionData>(objectData.getRenditions().subList(0, 1)));
+
+        eagerObject.refresh();
+        lazyObject.refresh();
+
+        assertEquals("renamed", lazyObject.getName());
+        assertEquals("2", lazyObject.getChangeToken());
+        assertEquals(1, lazyObject.getRenditions().size());
+        assertSameData(eagerObject, lazyObject);
+    }
+
+    @Test
+    public void testSameDataAfterRefreshWithoutReading() {
+        CmisObject eagerObject = eagerSession.getObject(DOC_ID, context);
+        CmisObject lazyObject = lazySession.getObject(DOC_ID, context);
+
+        eagerObject.refresh();
+        lazyObject.refresh();
+
+        assertSameData(eagerObject, lazyObject);
+    }
+
+    @Test
+    public void testConversionOnFirstAccess() {
+        CountingObjectFactory.reset();
+
+        CmisObject lazyObject = lazySession.getObject(DOC_ID, context);
+        assertEquals(0, CountingObjectFactory.PROPERTY_CONVERSIONS.get());
+        assertEquals(0, CountingObjectFactory.RENDITION_CONVERSIONS.get());
+
+        // single values are read from the object data
+        assertEquals("name-" + DOC_ID, lazyObject.getName());
+        assertEquals(DOC_ID, lazyObject.getId());
+        assertEquals(RepositoryMock.CUSTOM_DOCUMENT_TYPE, lazyObject.getPropertyValue(PropertyIds.OBJECT_TYPE_ID));
+        assertEquals("secondary", lazyObject.getPropertyValue(RepositoryMock.SECONDARY_PROPERTY));
+        assertEquals(0, CountingObjectFactory.PROPERTY_CONVERSIONS.get());
+
+        // a refresh doesn't convert the replaced data
+        lazyObject.refresh();
+        assertEquals(0, CountingObjectFactory.PROPERTY_CONVERSIONS.get());
+        assertEquals(0, CountingObjectFactory.RENDITION_CONVERSIONS.get());
+
+        // multi values need the property map, it is converted once
+        List<?> values = lazyObject.getPropertyValue(RepositoryMock.CUSTOM_PROPERTY);
+        assertEquals(2, values.size());
+        lazyObject.getProperties();
+        assertEquals(1, CountingObjectFactory.PROPERTY_CONVERSIONS.get());
+
+        lazyObject.getRenditions();
+        lazyObject.getRenditions();
+        assertEquals(2, CountingObjectFactory.RENDITION_CONVERSIONS.get());
+    }
+
+    @Test
+    public void testEagerConversion() {
+        CountingObjectFactory.reset();
+
+        eagerSession.getObject(DOC_ID, context);
+        assertEquals(1, CountingObjectFactory.PROPERTY_CONVERSIONS.get());
+        assertEquals(2, CountingObjectFactory.RENDITION_CONVERSIONS.get());
+    }
+
+    private static void assertSameData(CmisObject expected, CmisObject actual) {
+        // properties
+        assertEquals(expected.getProperties().size(), actual.getProperties().size());
+        for (Property<?> property : expected.getProperties()) {
+            Property<?> other = actual.getProperty(property.getId());
+            assertNotNull(property.getId(), other);
+            assertEquals(property.getId(), property.getDefinition().getId(), other.getDefinition().getId());
+            assertEquals(property.getId(), property.getValues(), other.getValues());
+            assertEquals(property.getId(), expected.getPropertyValue(property.getId()),
+                    actual.getPropertyValue(property.getId()));
+        }
+        assertNull(actual.getPropertyValue("unknown:property"));
+        assertNull(actual.getProperty("unknown:property"));
+
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCreationDate(), actual.getCreationDate());
+        assertEquals(expected.getBaseTypeId(), actual.getBaseTypeId());
+        assertEquals(getIds(expected.getSecondaryTypes()), getIds(actual.getSecondaryTypes()));
+
+        // renditions
+        assertNotNull(actual.getRenditions());
+        assertEquals(expected.getRenditions().size(), actual.getRenditions().size());
+        for (int i = 0; i < expected.getRenditions().size(); i++) {
+            Rendition expectedRendition = expected.getRenditions().get(i);
+            Rendition actualRendition = actual.getRenditions().get(i);
+            assertEquals(expectedRendition.getStreamId(), actualRendition.getStreamId());
+            assertEquals(expectedRendition.getMimeType(), actualRendition.getMimeType());
+            assertEquals(expectedRendition.getLength(), actualRendition.getLength());
+            assertEquals(expectedRendition.getKind(), actualRendition.getKind());
+            assertEquals(expectedRendition.getTitle(), actualRendition.getTitle());
+            assertEquals(expectedRendition.getHeight(), actualRendition.getHeight());
+            assertEquals(expectedRendition.getWidth(), actualRendition.getWidth());
+        }
+
+        // ACL
+        Acl expectedAcl = expected.getAcl();
+        Acl actualAcl = actual.getAcl();
+        assertNotNull(actualAcl);
+        assertEquals(expectedAcl.isExact(), actualAcl.isExact());
+        assertTrue(actualAcl.isExact());
+        assertEquals(expectedAcl.getAces().size(), actualAcl.getAces().size());
+        for (int i = 0; i < expectedAcl.getAces().size(); i++) {
+            Ace expectedAce = expectedAcl.getAces().get(i);
+            Ace actualAce = actualAcl.getAces().get(i);
+            assertEquals(expectedAce.getPrincipalId(), actualAce.getPrincipalId());
+            assertEquals(expectedAce.getPermissions(), actualAce.getPermissions());
+        }
+        assertEquals(expected.getPermissionsForPrincipal("bob"), actual.getPermissionsForPrincipal("bob"));
+
+        // allowable actions
+        assertEquals(expected.getAllowableActions().getAllowableActions(), actual.getAllowableActions()
+                .getAllowableActions());
+
+        // extensions
+        for (ExtensionLevel level : ExtensionLevel.values()) {
+            assertEquals(level.toString(), getNames(expected.getExtensions(level)),
+                    getNames(actual.getExtensions(level)));
+        }
+        assertEquals(1, actual.getExtensions(ExtensionLevel.PROPERTIES).size());
+        assertEquals(1, actual.getExtensions(ExtensionLevel.ACL).size());
+    }
+
+    private static List<String> getIds(List<? extends ObjectType> types) {
+        if (types == null) {
+            return null;
+        }
+
+        List<String> result = new ArrayList<String>();
+        for (ObjectType type : types) {
+            result.add(type.getId());
+        }
+        return result;
+    }
+
+    private static List<String> getNames(List<CmisExtensionElement> extensions) {
+        if (extensions == null) {
+            return null;
+        }
+
+        List<String> result = new ArrayList<String>();
+        for (CmisExtensionElement extension : extensions) {
+            result.add(extension.getName() + "=" + extension.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Object factory that counts property and rendition conversions.
+     */
+    public static class CountingObjectFactory extends ObjectFactoryImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        static final AtomicInteger PROPERTY_CONVERSIONS = new AtomicInteger();
+        static final AtomicInteger RENDITION_CONVERSIONS = new AtomicInteger();
+
+        static void reset() {
+            PROPERTY_CONVERSIONS.set(0);
+            RENDITION_CONVERSIONS.set(0);
+        }
+
+        @Override
+        public Map<String, Property<?>> convertProperties(ObjectType objectType,
+                Collection<SecondaryType> secondaryTypes, Properties properties) {
+            PROPERTY_CONVERSIONS.incrementAndGet();
+            return super.convertProperties(objectType, secondaryTypes, properties);
+        }
+
+        @Override
+        public Rendition convertRendition(String objectId, RenditionData rendition) {
+            RENDITION_CONVERSIONS.incrementAndGet();
+            return super.convertRendition(objectId, rendition);
+        }
+    }
+}
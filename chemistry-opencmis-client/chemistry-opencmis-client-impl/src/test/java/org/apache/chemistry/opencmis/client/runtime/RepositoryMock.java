@@ -0,0 +1,606 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.Ace;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.RenditionData;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.Action;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.enums.Updatability;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractTypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlEntryImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrincipalDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AllowableActionsImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RenditionDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.SecondaryTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionListImpl;
+
+/**
+ * A small in-memory repository behind {@link CmisSpiMock}. It serves
+ * repository info, type definitions, getObject and
+ * <code>cmis:objectId IN (...)</code> queries and counts all service calls.
+ * All other service methods throw a {@link CmisNotSupportedException}.
+ */
+public class RepositoryMock implements InvocationHandler {
+
+    /** Session parameter that selects the repository of a session. */
+    public static final String REPOSITORY_MOCK = "org.apache.chemistry.opencmis.test.repositorymock";
+
+    public static final String REPOSITORY_ID = "mock";
+    public static final String ROOT_FOLDER_ID = "root";
+    public static final String CUSTOM_DOCUMENT_TYPE = "test:document";
+    public static final String CUSTOM_PROPERTY = "test:string";
+    public static final String SECONDARY_TYPE = "test:secondary";
+    public static final String SECONDARY_PROPERTY = "test:secondaryString";
+    public static final String EXTENSION_NAMESPACE = "http://chemistry.apache.org/test";
+
+    private static final Map<String, RepositoryMock> REPOSITORIES = new ConcurrentHashMap<String, RepositoryMock>();
+
+    private static final Pattern QUERY_SELECT = Pattern.compile("SELECT\\s+(.*?)\\s+FROM");
+    private static final Pattern QUERY_TYPE = Pattern.compile("FROM\\s+(\\S+)");
+    private static final Pattern QUERY_IDS = Pattern.compile("IN\\s*\\((.*)\\)");
+    private static final Pattern QUERY_ID = Pattern.compile("'([^']*)'");
+
+    private final String key = UUID.randomUUID().toString();
+    private final RepositoryInfoImpl repositoryInfo;
+    private final Map<String, TypeDefinition> types = Collections
+            .synchronizedMap(new LinkedHashMap<String, TypeDefinition>());
+    private final Map<String, ObjectData> objects = new ConcurrentHashMap<String, ObjectData>();
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<String, AtomicInteger>();
+
+    private volatile boolean typeDescendantsSupported = true;
+    private volatile int maxTypeChildren = Integer.MAX_VALUE;
+    private volatile RuntimeException queryException;
+
+    public RepositoryMock() {
+        RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+        capabilities.setCapabilityQuery(CapabilityQuery.METADATAONLY);
+
+        repositoryInfo = new RepositoryInfoImpl();
+        repositoryInfo.setId(REPOSITORY_ID);
+        repositoryInfo.setName("Mock Repository");
+        repositoryInfo.setRootFolder(ROOT_FOLDER_ID);
+        repositoryInfo.setCmisVersion(CmisVersion.CMIS_1_1);
+        repositoryInfo.setCmisVersionSupported(CmisVersion.CMIS_1_1.value());
+        repositoryInfo.setCapabilities(capabilities);
+
+        DocumentTypeDefinitionImpl documentType = new DocumentTypeDefinitionImpl();
+        initType(documentType, BaseTypeId.CMIS_DOCUMENT.value(), BaseTypeId.CMIS_DOCUMENT, null);
+        addType(documentType);
+
+        FolderTypeDefinitionImpl folderType = new FolderTypeDefinitionImpl();
+        initType(folderType, BaseTypeId.CMIS_FOLDER.value(), BaseTypeId.CMIS_FOLDER, null);
+        folderType.addPropertyDefinition(createPropertyDefinition(PropertyIds.PARENT_ID, PropertyType.ID,
+                Cardinality.SINGLE));
+        addType(folderType);
+
+        DocumentTypeDefinitionImpl customType = new DocumentTypeDefinitionImpl();
+        initType(customType, CUSTOM_DOCUMENT_TYPE, BaseTypeId.CMIS_DOCUMENT, BaseTypeId.CMIS_DOCUMENT.value());
+        customType.addPropertyDefinition(createPropertyDefinition(CUSTOM_PROPERTY, PropertyType.STRING,
+                Cardinality.MULTI));
+        addType(customType);
+
+        SecondaryTypeDefinitionImpl secondaryType = new SecondaryTypeDefinitionImpl();
+        secondaryType.setId(SECONDARY_TYPE);
+        secondaryType.setLocalName(SECONDARY_TYPE);
+        secondaryType.setQueryName(SECONDARY_TYPE);
+        secondaryType.setDisplayName(SECONDARY_TYPE);
+        secondaryType.setBaseTypeId(BaseTypeId.CMIS_SECONDARY);
+        secondaryType.setIsQueryable(Boolean.TRUE);
+        secondaryType.addPropertyDefinition(createPropertyDefinition(SECONDARY_PROPERTY, PropertyType.STRING,
+                Cardinality.SINGLE));
+        addType(secondaryType);
+    }
+
+    private static void initType(AbstractTypeDefinition type, String id, BaseTypeId baseTypeId, String parentTypeId) {
+        type.setId(id);
+        type.setLocalName(id);
+        type.setQueryName(id);
+        type.setDisplayName(id);
+        type.setBaseTypeId(baseTypeId);
+        type.setParentTypeId(parentTypeId);
+        type.setIsCreatable(Boolean.TRUE);
+        type.setIsFileable(Boolean.TRUE);
+        type.setIsQueryable(Boolean.TRUE);
+        type.setIsIncludedInSupertypeQuery(Boolean.TRUE);
+
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.NAME, PropertyType.STRING,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.DESCRIPTION, PropertyType.STRING,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.OBJECT_ID, PropertyType.ID,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.BASE_TYPE_ID, PropertyType.ID,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.OBJECT_TYPE_ID, PropertyType.ID,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.SECONDARY_OBJECT_TYPE_IDS,
+                PropertyType.ID, Cardinality.MULTI));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.CREATED_BY, PropertyType.STRING,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.CREATION_DATE, PropertyType.DATETIME,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.LAST_MODIFIED_BY, PropertyType.STRING,
+                Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.LAST_MODIFICATION_DATE,
+                PropertyType.DATETIME, Cardinality.SINGLE));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.CHANGE_TOKEN, PropertyType.STRING,
+                Cardinality.SINGLE));
+    }
+
+    private static PropertyDefinition<?> createPropertyDefinition(String id, PropertyType propertyType,
+            Cardinality cardinality) {
+        AbstractPropertyDefinition<?> result;
+        switch (propertyType) {
+        case ID:
+            result = new PropertyIdDefinitionImpl();
+            break;
+        case DATETIME:
+            result = new PropertyDateTimeDefinitionImpl();
+            break;
+        case BOOLEAN:
+            result = new PropertyBooleanDefinitionImpl();
+            break;
+        case INTEGER:
+            result = new PropertyIntegerDefinitionImpl();
+            break;
+        default:
+            result = new PropertyStringDefinitionImpl();
+        }
+
+        result.setId(id);
+        result.setLocalName(id);
+        result.setQueryName(id);
+        result.setDisplayName(id);
+        result.setPropertyType(propertyType);
+        result.setCardinality(cardinality);
+        result.setUpdatability(Updatability.READWRITE);
+        result.setIsInherited(Boolean.FALSE);
+        result.setIsQueryable(Boolean.TRUE);
+        result.setIsOrderable(Boolean.TRUE);
+        result.setIsRequired(Boolean.FALSE);
+
+        return result;
+    }
+
+    // --- setup ---
+
+    /**
+     * Returns session parameters that connect a session to this repository.
+     */
+    public Map<String, String> createSessionParameters() {
+        REPOSITORIES.put(key, this);
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, CmisSpiMock.class.getName());
+        parameters.put(SessionParameter.TYPE_DEFINITION_CACHE_CLASS,
+                CmisBindingFactory.DEFAULT_TYPE_DEFINITION_CACHE_CLASS);
+        parameters.put(SessionParameter.REPOSITORY_ID, REPOSITORY_ID);
+        parameters.put(REPOSITORY_MOCK, key);
+
+        return parameters;
+    }
+
+    /**
+     * Creates and connects a session.
+     */
+    public Session createSession(Map<String, String> additionalParameters) {
+        Map<String, String> parameters = createSessionParameters();
+        if (additionalParameters != null) {
+            parameters.putAll(additionalParameters);
+        }
+
+        return SessionFactoryImpl.newInstance().createSession(parameters);
+    }
+
+    /**
+     * Removes this repository from the registry.
+     */
+    public void unregister() {
+        REPOSITORIES.remove(key);
+    }
+
+    static RepositoryMock get(String key) {
+        RepositoryMock repository = REPOSITORIES.get(key);
+        if (repository == null) {
+            throw new IllegalStateException("Unknown repository: " + key);
+        }
+
+        return repository;
+    }
+
+    public RepositoryInfoImpl getRepositoryInfo() {
+        return repositoryInfo;
+    }
+
+    public void addType(TypeDefinition type) {
+        types.put(type.getId(), type);
+    }
+
+    public TypeDefinition getType(String typeId) {
+        return types.get(typeId);
+    }
+
+    public void setTypeDescendantsSupported(boolean typeDescendantsSupported) {
+        this.typeDescendantsSupported = typeDescendantsSupported;
+    }
+
+    /**
+     * Caps the page size of getTypeChildren like a repository with a lower
+     * maximum page size.
+     */
+    public void setMaxTypeChildren(int maxTypeChildren) {
+        this.maxTypeChildren = maxTypeChildren;
+    }
+
+    /**
+     * Sets an exception that is thrown by all queries.
+     */
+    public void setQueryException(RuntimeException queryException) {
+        this.queryException = queryException;
+    }
+
+    public void putObject(ObjectData objectData) {
+        objects.put(objectData.getId(), objectData);
+    }
+
+    public ObjectDataImpl getObjectData(String objectId) {
+        return (ObjectDataImpl) objects.get(objectId);
+    }
+
+    /**
+     * Creates an object with the standard properties and stores it.
+     */
+    public ObjectDataImpl addDocument(String id, String typeId, String... secondaryTypeIds) {
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.add(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+        properties.add(new PropertyStringImpl(PropertyIds.DESCRIPTION, (String) null));
+        properties.add(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, getType(typeId).getBaseTypeId().value()));
+        properties.add(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, typeId));
+        properties.add(new PropertyStringImpl(PropertyIds.CREATED_BY, "creator"));
+        properties.add(new PropertyDateTimeImpl(PropertyIds.CREATION_DATE, new GregorianCalendar(2010, 1, 1)));
+        properties.add(new PropertyStringImpl(PropertyIds.LAST_MODIFIED_BY, "modifier"));
+        properties.add(new PropertyDateTimeImpl(PropertyIds.LAST_MODIFICATION_DATE,
+                new GregorianCalendar(2011, 2, 2)));
+        properties.add(new PropertyStringImpl(PropertyIds.CHANGE_TOKEN, "1"));
+        if (CUSTOM_DOCUMENT_TYPE.equals(typeId)) {
+            properties.add(new PropertyStringImpl(CUSTOM_PROPERTY, Arrays.asList("a", "b")));
+        }
+        if (secondaryTypeIds.length > 0) {
+            properties.add(new PropertyIdImpl(PropertyIds.SECONDARY_OBJECT_TYPE_IDS, Arrays
+                    .asList(secondaryTypeIds)));
+            properties.add(new PropertyStringImpl(SECONDARY_PROPERTY, "secondary"));
+        }
+
+        ObjectDataImpl objectData = new ObjectDataImpl();
+        objectData.setProperties(new PropertiesImpl(properties));
+        objectData.setAllowableActions(createAllowableActions());
+
+        putObject(objectData);
+
+        return objectData;
+    }
+
+    /**
+     * Creates a folder with the standard properties and stores it.
+     */
+    public ObjectDataImpl addFolder(String id) {
+        return addDocument(id, BaseTypeId.CMIS_FOLDER.value());
+    }
+
+    /**
+     * Creates a document with properties, allowable actions, renditions, an
+     * ACL and extensions on all levels and stores it.
+     */
+    public ObjectDataImpl addFullDocument(String id) {
+        ObjectDataImpl objectData = addDocument(id, CUSTOM_DOCUMENT_TYPE, SECONDARY_TYPE);
+
+        ((PropertiesImpl) objectData.getProperties()).setExtensions(createExtensions("properties"));
+        ((AllowableActionsImpl) objectData.getAllowableActions()).setExtensions(createExtensions("actions"));
+
+        List<RenditionData> renditions = new ArrayList<RenditionData>();
+        renditions.add(new RenditionDataImpl("thumbnail", "image/png", BigInteger.valueOf(100), "cmis:thumbnail",
+                "Thumbnail", BigInteger.valueOf(10), BigInteger.valueOf(10), null));
+        renditions.add(new RenditionDataImpl("preview", "application/pdf", BigInteger.valueOf(1000), "preview",
+                "Preview", null, null, null));
+        objectData.setRenditions(renditions);
+
+        List<Ace> aces = new ArrayList<Ace>();
+        aces.add(new AccessControlEntryImpl(new AccessControlPrincipalDataImpl("alice"), Arrays
+                .asList("cmis:read")));
+        aces.add(new AccessControlEntryImpl(new AccessControlPrincipalDataImpl("bob"), Arrays.asList("cmis:read",
+                "cmis:write")));
+        AccessControlListImpl acl = new AccessControlListImpl(aces);
+        acl.setExtensions(createExtensions("acl"));
+        objectData.setAcl(acl);
+        objectData.setIsExactAcl(Boolean.TRUE);
+
+        objectData.setExtensions(createExtensions("object"));
+
+        return objectData;
+    }
+
+    private static AllowableActionsImpl createAllowableActions() {
+        AllowableActionsImpl allowableActions = new AllowableActionsImpl();
+        allowableActions.setAllowableActions(new HashSet<Action>(Arrays.asList(Action.CAN_GET_PROPERTIES,
+                Action.CAN_UPDATE_PROPERTIES, Action.CAN_GET_CONTENT_STREAM)));
+        return allowableActions;
+    }
+
+    private static List<CmisExtensionElement> createExtensions(String name) {
+        List<CmisExtensionElement> extensions = new ArrayList<CmisExtensionElement>();
+        extensions.add(new CmisExtensionElementImpl(EXTENSION_NAMESPACE, name, null, name + "-value"));
+        return extensions;
+    }
+
+    // --- call counting ---
+
+    /**
+     * Returns how often a service method has been called.
+     */
+    public int getCalls(String methodName) {
+        AtomicInteger counter = calls.get(methodName);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Returns the number of all service calls.
+     */
+    public int getTotalCalls() {
+        int result = 0;
+        for (AtomicInteger counter : calls.values()) {
+            result += counter.get();
+        }
+        return result;
+    }
+
+    public void resetCalls() {
+        calls.clear();
+    }
+
+    // --- services ---
+
+    /**
+     * Creates a service object that is backed by this repository.
+     */
+    public <T> T createService(Class<T> serviceInterface) {
+        return serviceInterface.cast(Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { serviceInterface }, this));
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            return "RepositoryMock service";
+        }
+
+        synchronized (calls) {
+            if (!calls.containsKey(name)) {
+                calls.put(name, new AtomicInteger());
+            }
+        }
+        calls.get(name).incrementAndGet();
+
+        if ("getRepositoryInfos".equals(name)) {
+            return Collections.singletonList(repositoryInfo);
+        } else if ("getRepositoryInfo".equals(name)) {
+            return repositoryInfo;
+        } else if ("getTypeDefinition".equals(name)) {
+            return getTypeDefinition((String) args[1]);
+        } else if ("getTypeChildren".equals(name)) {
+            return getTypeChildren((String) args[1], (BigInteger) args[3], (BigInteger) args[4]);
+        } else if ("getTypeDescendants".equals(name)) {
+            if (!typeDescendantsSupported) {
+                throw new CmisNotSupportedException("getTypeDescendants");
+            }
+            return getTypeDescendants((String) args[1]);
+        } else if ("getObject".equals(name)) {
+            return getObject((String) args[1]);
+        } else if ("query".equals(name)) {
+            return query((String) args[1], (BigInteger) args[6]);
+        }
+
+        throw new CmisNotSupportedException(name);
+    }
+
+    private TypeDefinition getTypeDefinition(String typeId) {
+        TypeDefinition type = types.get(typeId);
+        if (type == null) {
+            throw new CmisObjectNotFoundException("Unknown type: " + typeId);
+        }
+        return type;
+    }
+
+    private List<TypeDefinition> getChildTypes(String typeId) {
+        List<TypeDefinition> result = new ArrayList<TypeDefinition>();
+        synchronized (types) {
+            for (TypeDefinition type : types.values()) {
+                if (typeId == null ? type.getParentTypeId() == null : typeId.equals(type.getParentTypeId())) {
+                    result.add(type);
+                }
+            }
+        }
+        return result;
+    }
+
+    private TypeDefinitionListImpl getTypeChildren(String typeId, BigInteger maxItems, BigInteger skipCount) {
+        List<TypeDefinition> children = getChildTypes(typeId);
+
+        int skip = skipCount == null ? 0 : skipCount.intValue();
+        int max = Math.min(maxItems == null ? Integer.MAX_VALUE : maxItems.intValue(), maxTypeChildren);
+        int end = (int) Math.min((long) skip + max, children.size());
+
+        TypeDefinitionListImpl result = new TypeDefinitionListImpl();
+        result.setList(new ArrayList<TypeDefinition>(children.subList(Math.min(skip, end), end)));
+        result.setHasMoreItems(end < children.size());
+        result.setNumItems(BigInteger.valueOf(children.size()));
+        return result;
+    }
+
+    private List<TypeDefinitionContainer> getTypeDescendants(String typeId) {
+        List<TypeDefinitionContainer> result = new ArrayList<TypeDefinitionContainer>();
+        for (TypeDefinition type : getChildTypes(typeId)) {
+            TypeDefinitionContainerImpl container = new TypeDefinitionContainerImpl(type);
+            container.setChildren(getTypeDescendants(type.getId()));
+            result.add(container);
+        }
+        return result;
+    }
+
+    private ObjectData getObject(String objectId) {
+        ObjectData objectData = objects.get(objectId);
+        if (objectData == null) {
+            throw new CmisObjectNotFoundException("Unknown object: " + objectId);
+        }
+        return objectData;
+    }
+
+    /**
+     * Evaluates <code>SELECT ... FROM type WHERE cmis:objectId IN (...)</code>.
+     * Like a real repository, only the selected properties of the queried type
+     * are returned.
+     */
+    private ObjectListImpl query(String statement, BigInteger maxItems) {
+        if (queryException != null) {
+            throw queryException;
+        }
+
+        Matcher selectMatcher = QUERY_SELECT.matcher(statement);
+        Matcher typeMatcher = QUERY_TYPE.matcher(statement);
+        Matcher idsMatcher = QUERY_IDS.matcher(statement);
+        if (!selectMatcher.find() || !typeMatcher.find() || !idsMatcher.find()) {
+            throw new CmisNotSupportedException("Unsupported query: " + statement);
+        }
+        TypeDefinition queryType = getTypeDefinition(typeMatcher.group(1));
+
+        Set<String> selectList = null;
+        if (!"*".equals(selectMatcher.group(1).trim())) {
+            selectList = new HashSet<String>();
+            for (String queryName : selectMatcher.group(1).split(",")) {
+                selectList.add(queryName.trim());
+            }
+        }
+
+        List<ObjectData> result = new ArrayList<ObjectData>();
+        Matcher idMatcher = QUERY_ID.matcher(idsMatcher.group(1));
+        while (idMatcher.find()) {
+            ObjectData objectData = objects.get(idMatcher.group(1));
+            if (objectData == null || !isOfType(objectData, queryType.getId())) {
+                continue;
+            }
+
+            List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+            for (PropertyData<?> property : objectData.getProperties().getPropertyList()) {
+                PropertyDefinition<?> propDef = queryType.getPropertyDefinitions().get(property.getId());
+                if (propDef != null && (selectList == null || selectList.contains(propDef.getQueryName()))) {
+                    properties.add(property);
+                }
+            }
+
+            ObjectDataImpl hit = new ObjectDataImpl();
+            hit.setProperties(new PropertiesImpl(properties));
+            hit.setAllowableActions(objectData.getAllowableActions());
+            result.add(hit);
+        }
+
+        if (maxItems != null && result.size() > maxItems.intValue()) {
+            result = result.subList(0, maxItems.intValue());
+        }
+
+        ObjectListImpl objectList = new ObjectListImpl();
+        objectList.setObjects(result);
+        objectList.setNumItems(BigInteger.valueOf(result.size()));
+        objectList.setHasMoreItems(Boolean.FALSE);
+        return objectList;
+    }
+
+    private boolean isOfType(ObjectData objectData, String typeId) {
+        String objectTypeId = (String) objectData.getProperties().getProperties().get(PropertyIds.OBJECT_TYPE_ID)
+                .getFirstValue();
+        while (objectTypeId != null) {
+            if (objectTypeId.equals(typeId)) {
+                return true;
+            }
+            objectTypeId = getTypeDefinition(objectTypeId).getParentTypeId();
+        }
+        return false;
+    }
+}
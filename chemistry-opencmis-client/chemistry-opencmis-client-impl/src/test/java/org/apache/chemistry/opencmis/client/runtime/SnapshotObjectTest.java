@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.Property;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotObjectTest {
+
+    private static final String DOC_ID = "doc";
+
+    private RepositoryMock repository;
+    private Session session;
+
+    @Before
+    public void setUp() {
+        repository = new RepositoryMock();
+        repository.addFullDocument(DOC_ID);
+        session = repository.createSession(null);
+    }
+
+    @After
+    public void tearDown() {
+        repository.unregister();
+    }
+
+    @Test
+    public void testOperationContext() {
+        OperationContextImpl context = new OperationContextImpl();
+        assertFalse(context.isSnapshotEnabled());
+
+        String cacheKey = context.getCacheKey();
+        context.setSnapshotEnabled(true);
+        assertTrue(context.isSnapshotEnabled());
+        assertFalse(cacheKey.equals(context.getCacheKey()));
+
+        OperationContextImpl copy = new OperationContextImpl(context);
+        assertTrue(copy.isSnapshotEnabled());
+        assertEquals(context.getCacheKey(), copy.getCacheKey());
+
+        context.setSnapshotEnabled(false);
+        assertEquals(cacheKey, context.getCacheKey());
+
+        // the flag is part of the public interface
+        OperationContextImpl maximum = new OperationContextImpl(OperationContextUtils.createMaximumOperationContext());
+        maximum.setSnapshotEnabled(true);
+        OperationContext unmodifiable = OperationContextUtils.unmodifiableOperationContext(maximum);
+        assertTrue(unmodifiable.isSnapshotEnabled());
+        assertEquals(maximum.getCacheKey(), unmodifiable.getCacheKey());
+        assertTrue(new OperationContextImpl(unmodifiable).isSnapshotEnabled());
+    }
+
+    @Test
+    public void testSnapshotObjects() {
+        OperationContextImpl context = new OperationContextImpl();
+        CmisObject object = session.getObject(DOC_ID, context);
+        assertFalse(((AbstractCmisObject) object).isSnapshot());
+
+        context.setSnapshotEnabled(true);
+        CmisObject snapshot = session.getObject(DOC_ID, context);
+        assertTrue(((AbstractCmisObject) snapshot).isSnapshot());
+        assertEquals(object.getName(), snapshot.getName());
+        assertEquals(object.getProperties().size(), snapshot.getProperties().size());
+
+        // a refresh keeps the object a snapshot
+        snapshot.refresh();
+        assertTrue(((AbstractCmisObject) snapshot).isSnapshot());
+    }
+
+    @Test
+    public void testSnapshotsAreCachedSeparately() {
+        OperationContextImpl context = new OperationContextImpl();
+        context.setCacheEnabled(true);
+        OperationContextImpl snapshotContext = new OperationContextImpl(context);
+        snapshotContext.setSnapshotEnabled(true);
+
+        repository.resetCalls();
+
+        CmisObject object = session.getObject(DOC_ID, context);
+        CmisObject snapshot = session.getObject(DOC_ID, snapshotContext);
+        assertNotSame(object, snapshot);
+        assertEquals(2, repository.getCalls("getObject"));
+
+        assertSame(object, session.getObject(DOC_ID, context));
+        assertSame(snapshot, session.getObject(DOC_ID, snapshotContext));
+        assertEquals(2, repository.getCalls("getObject"));
+
+        assertFalse(((AbstractCmisObject) session.getObject(DOC_ID, context)).isSnapshot());
+        assertTrue(((AbstractCmisObject) session.getObject(DOC_ID, snapshotContext)).isSnapshot());
+    }
+
+    @Test
+    public void testRefreshPublishesConsistentState() throws Exception {
+        OperationContextImpl context = new OperationContextImpl();
+        context.setSnapshotEnabled(true);
+        final CmisObject snapshot = session.getObject(DOC_ID, context);
+        setNameAndChangeToken(0);
+        snapshot.refresh();
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        // name and change token must come from the same state
+                        String name = null;
+                        String changeToken = null;
+                        for (Property<?> property : snapshot.getProperties()) {
+                            if (PropertyIds.NAME.equals(property.getId())) {
+                                name = property.getValueAsString();
+                            } else if (PropertyIds.CHANGE_TOKEN.equals(property.getId())) {
+                                changeToken = property.getValueAsString();
+                            }
+                        }
+                        if (name == null || !name.equals("name-" + changeToken)) {
+                            failure.set(name + " / " + changeToken);
+                        }
+                    }
+                }
+            };
+            readers[i].start();
+        }
+
+        for (int i = 1; i <= 500; i++) {
+            setNameAndChangeToken(i);
+            snapshot.refresh();
+        }
+
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals("name-500", snapshot.getName());
+        assertEquals("500", snapshot.getChangeToken());
+    }
+
+    private void setNameAndChangeToken(int version) {
+        ObjectDataImpl objectData = repository.getObjectData(DOC_ID);
+        PropertiesImpl properties = new PropertiesImpl(objectData.getProperties());
+        properties.replaceProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + version));
+        properties.replaceProperty(new PropertyStringImpl(PropertyIds.CHANGE_TOKEN, String.valueOf(version)));
+        objectData.setProperties(properties);
+    }
+}
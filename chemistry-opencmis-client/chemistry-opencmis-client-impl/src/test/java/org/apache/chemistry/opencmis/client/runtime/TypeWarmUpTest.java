@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.client.api.ObjectType;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.cache.TypeSystemSnapshot;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TypeWarmUpTest {
+
+    private static final int CHILD_TYPES = 7;
+
+    private RepositoryMock repository;
+    private int typeCount;
+
+    @Before
+    public void setUp() {
+        repository = new RepositoryMock();
+
+        // a second level below the custom document type
+        for (int i = 0; i < CHILD_TYPES; i++) {
+            DocumentTypeDefinitionImpl type = new DocumentTypeDefinitionImpl();
+            type.setId("test:child" + i);
+            type.setLocalName(type.getId());
+            type.setQueryName(type.getId());
+            type.setDisplayName(type.getId());
+            type.setBaseTypeId(BaseTypeId.CMIS_DOCUMENT);
+            type.setParentTypeId(RepositoryMock.CUSTOM_DOCUMENT_TYPE);
+            type.setPropertyDefinitions(repository.getType(RepositoryMock.CUSTOM_DOCUMENT_TYPE)
+                    .getPropertyDefinitions());
+            repository.addType(type);
+        }
+
+        // cmis:document, cmis:folder, cmis:secondary (test:secondary),
+        // test:document and the children
+        typeCount = 4 + CHILD_TYPES;
+    }
+
+    @After
+    public void tearDown() {
+        repository.unregister();
+    }
+
+    @Test
+    public void testNoWarmUp() {
+        Session session = repository.createSession(null);
+
+        assertEquals(0, repository.getCalls("getTypeDescendants"));
+        assertEquals(0, repository.getCalls("getTypeChildren"));
+        assertEquals(0, repository.getCalls("getTypeDefinition"));
+
+        session.getTypeDefinition(RepositoryMock.CUSTOM_DOCUMENT_TYPE);
+        assertEquals(1, repository.getCalls("getTypeDefinition"));
+    }
+
+    @Test
+    public void testDescendantsWarmUp() {
+        Session session = createSession("descendants", null);
+
+        assertEquals(1, repository.getCalls("getTypeDescendants"));
+        assertEquals(0, repository.getCalls("getTypeChildren"));
+        assertEquals(0, repository.getCalls("getTypeDefinition"));
+
+        assertAllTypesCached(session);
+    }
+
+    @Test
+    public void testDescendantsFallBackToParallel() {
+        repository.setTypeDescendantsSupported(false);
+
+        Session session = createSession("descendants", null);
+
+        assertEquals(1, repository.getCalls("getTypeDescendants"));
+        assertEquals(typeCount, repository.getCalls("getTypeDefinition"));
+        // one call for the base types and one call per type
+        assertEquals(typeCount + 1, repository.getCalls("getTypeChildren"));
+
+        assertAllTypesCached(session);
+    }
+
+    @Test
+    public void testParallelWarmUp() {
+        Session session = createSession("parallel", "2");
+
+        assertEquals(0, repository.getCalls("getTypeDescendants"));
+        assertEquals(typeCount, repository.getCalls("getTypeDefinition"));
+        assertEquals(typeCount + 1, repository.getCalls("getTypeChildren"));
+
+        assertAllTypesCached(session);
+    }
+
+    @Test
+    public void testParallelWarmUpWithPaging() {
+        // the children of test:document need four pages
+        repository.setMaxTypeChildren(2);
+
+        Session session = createSession("parallel", "3");
+
+        assertEquals(typeCount, repository.getCalls("getTypeDefinition"));
+        // base types: 2 pages, test:document: 4 pages, all other types: 1
+        assertEquals(2 + 4 + (typeCount - 1), repository.getCalls("getTypeChildren"));
+
+        assertAllTypesCached(session);
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        try {
+            createSession("everything", null);
+            fail("Invalid warmup mode accepted!");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            createSession("parallel", "many");
+            fail("Invalid number of threads accepted!");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        repository.resetCalls();
+        createSession("none", null);
+        assertEquals(0, repository.getCalls("getTypeDefinition"));
+        assertEquals(0, repository.getCalls("getTypeChildren"));
+    }
+
+    @Test
+    public void testCreateTypeSystemSnapshot() {
+        SessionImpl session = (SessionImpl) repository.createSession(null);
+        repository.resetCalls();
+
+        TypeSystemSnapshot snapshot = session.createTypeSystemSnapshot();
+
+        assertEquals(1, repository.getCalls("getTypeDescendants"));
+        assertEquals(RepositoryMock.REPOSITORY_ID, snapshot.getRepositoryId());
+        assertEquals(RepositoryMock.REPOSITORY_ID, snapshot.getRepositoryInfo().getId());
+        assertEquals(typeCount, snapshot.getTypeCount());
+        assertEquals(typeCount, snapshot.getTypeDefinitions().size());
+        assertNotNull(snapshot.getTypeDefinition("test:child3"));
+        assertTrue(snapshot.getCreationTime() > 0);
+
+        try {
+            snapshot.getTypeDefinitions().clear();
+            fail("Snapshot type definitions are modifiable!");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        try {
+            new TypeSystemSnapshot(new RepositoryInfoImpl(), snapshot.getTypeDefinitions());
+            fail("Snapshot without repository ID accepted!");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSessionFromSnapshot() {
+        SessionImpl source = (SessionImpl) repository.createSession(null);
+        TypeSystemSnapshot snapshot = source.createTypeSystemSnapshot();
+        repository.resetCalls();
+
+        Session session = SessionFactoryImpl.newInstance().createSession(repository.createSessionParameters(), null,
+                null, null, null, snapshot);
+
+        // no remote calls at connect
+        assertEquals(0, repository.getTotalCalls());
+        assertEquals(RepositoryMock.REPOSITORY_ID, session.getRepositoryInfo().getId());
+        assertEquals("Mock Repository", session.getRepositoryInfo().getName());
+
+        // and none for the types of the snapshot
+        assertAllTypesCached(session);
+        assertEquals(0, repository.getTotalCalls());
+    }
+
+    @Test
+    public void testSnapshotOfOtherRepository() {
+        RepositoryInfoImpl otherInfo = new RepositoryInfoImpl();
+        otherInfo.setId("other");
+        TypeSystemSnapshot snapshot = new TypeSystemSnapshot(otherInfo, null);
+
+        Session session = SessionFactoryImpl.newInstance().createSession(repository.createSessionParameters(), null,
+                null, null, null, snapshot);
+
+        // the snapshot is ignored
+        assertEquals(1, repository.getCalls("getRepositoryInfo"));
+        assertEquals(RepositoryMock.REPOSITORY_ID, session.getRepositoryInfo().getId());
+    }
+
+    private Session createSession(String mode, String threads) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_TYPES_WARMUP, mode);
+        if (threads != null) {
+            parameters.put(SessionParameter.CACHE_TYPES_WARMUP_THREADS, threads);
+        }
+
+        return repository.createSession(parameters);
+    }
+
+    private void assertAllTypesCached(Session session) {
+        int calls = repository.getTotalCalls();
+
+        String[] typeIds = new String[typeCount];
+        typeIds[0] = BaseTypeId.CMIS_DOCUMENT.value();
+        typeIds[1] = BaseTypeId.CMIS_FOLDER.value();
+        typeIds[2] = RepositoryMock.SECONDARY_TYPE;
+        typeIds[3] = RepositoryMock.CUSTOM_DOCUMENT_TYPE;
+        for (int i = 0; i < CHILD_TYPES; i++) {
+            typeIds[4 + i] = "test:child" + i;
+        }
+
+        for (String typeId : typeIds) {
+            ObjectType type = session.getTypeDefinition(typeId);
+            assertEquals(typeId, type.getId());
+            assertTrue(type.getPropertyDefinitions().size() > 0);
+        }
+
+        assertEquals(calls, repository.getTotalCalls());
+    }
+}
@@ -86,6 +86,23 @@ package org.apache.chemistry.opencmis.commons;
  * </td>
  * </tr>
  * <tr>
+ * <td>{@link #OBJECT_LAZY_INITIALIZATION}</td>
+ * <td>Convert properties, renditions and ACLs of objects on first access</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>false</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #OBJECT_FETCH_THREADS}</td>
+ * <td>Maximum number of concurrent getObject calls of Session.getObjects(). The
+ * threads only live for the duration of the call.</td>
+ * <td>all</td>
+ * <td>number of threads</td>
+ * <td>no</td>
+ * <td>8</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>Authentication settings</b></td>
  * </tr>
  * <tr>
@@ -290,6 +307,25 @@ package org.apache.chemistry.opencmis.commons;
  * <td>100</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_TYPES_WARMUP}</td>
+ * <td>Load all type definitions when the session connects. "descendants"
+ * fetches the type tree with one call, "parallel" fetches the type definitions
+ * one by one with multiple threads. The type definition cache size should be
+ * large enough to hold all types.</td>
+ * <td>all</td>
+ * <td>"none", "descendants", "parallel"</td>
+ * <td>no</td>
+ * <td>none</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_TYPES_WARMUP_THREADS}</td>
+ * <td>Number of threads of the "parallel" type warmup</td>
+ * <td>all</td>
+ * <td>number of threads</td>
+ * <td>no</td>
+ * <td>4</td>
+ * </tr>
+ * <tr>
  * <td>{@link #CACHE_SIZE_LINKS}</td>
  * <td>AtomPub link cache size</td>
  * <td>AtomPub</td>
@@ -298,6 +334,23 @@ package org.apache.chemistry.opencmis.commons;
  * <td>400</td>
  * </tr>
  * <tr>
+ * <td>{@link #CACHE_SHARED}</td>
+ * <td>Share repository infos and type definitions with all sessions that
+ * connect to the same endpoint</td>
+ * <td>all</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>"false"</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #CACHE_SHARED_TTL}</td>
+ * <td>Time-to-live of shared repository infos and type definitions</td>
+ * <td>all</td>
+ * <td>milliseconds</td>
+ * <td>no</td>
+ * <td>3600000 (1 hour)</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>AtomPub Binding settings</b></td>
  * </tr>
  * <tr>
@@ -309,6 +362,29 @@ package org.apache.chemistry.opencmis.commons;
  * <td>-</td>
  * </tr>
  * <tr>
+ * <td>{@link #ATOMPUB_LINK_SYNTHESIS}</td>
+ * <td>Build links of objects that are not in the link cache from the link
+ * patterns of the repository instead of fetching the object entry first. Only
+ * enable this for repositories with uniform link patterns. A wrong link costs
+ * an additional round trip.</td>
+ * <td>AtomPub</td>
+ * <td>"true", "false"</td>
+ * <td>no</td>
+ * <td>"false"</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #ATOMPUB_CONTENT_UPLOAD_THRESHOLD}</td>
+ * <td>Content size in bytes from which new documents are created without
+ * content first and the content is then uploaded as raw media stream
+ * (instead of being embedded base64 encoded in the Atom entry). Content of
+ * unknown length always takes this path. Documents of versionable types are
+ * only created this way if they are created checked out.</td>
+ * <td>AtomPub</td>
+ * <td>number of bytes</td>
+ * <td>no</td>
+ * <td>-1 (disabled)</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>Web Services Binding settings</b></td>
  * </tr>
  * <tr>
@@ -484,6 +560,24 @@ package org.apache.chemistry.opencmis.commons;
  * <td>4194304 (4MB)</td>
  * </tr>
  * <tr>
+ * <td>{@link #WEBSERVICES_PORT_POOL_SIZE}</td>
+ * <td>Maximum number of idle port objects per Web Service and endpoint. The
+ * pools are shared by all sessions that connect to the same endpoint. The
+ * first session that connects to an endpoint defines the pool settings.</td>
+ * <td>Web Services</td>
+ * <td>number of port objects</td>
+ * <td>no</td>
+ * <td>16</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #WEBSERVICES_PORT_POOL_IDLE_TIMEOUT}</td>
+ * <td>Time after which an idle port object is dropped from the pool</td>
+ * <td>Web Services</td>
+ * <td>milliseconds, 0 to keep idle port objects</td>
+ * <td>no</td>
+ * <td>300000 (5 minutes)</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>Browser Binding</b></td>
  * </tr>
  * <tr>
@@ -571,6 +665,8 @@ public final class SessionParameter {
 
     /** URL of the AtomPub service document. */
     public static final String ATOMPUB_URL = "org.apache.chemistry.opencmis.binding.atompub.url";
+    public static final String ATOMPUB_LINK_SYNTHESIS = "org.apache.chemistry.opencmis.binding.atompub.linksynthesis";
+    public static final String ATOMPUB_CONTENT_UPLOAD_THRESHOLD = "org.apache.chemistry.opencmis.binding.atompub.contentupload.threshold";
 
     /** WSDL URLs for Web Services. */
     public static final String WEBSERVICES_REPOSITORY_SERVICE = "org.apache.chemistry.opencmis.binding.webservices.RepositoryService";
@@ -596,6 +692,9 @@ public final class SessionParameter {
 
     public static final String WEBSERVICES_MEMORY_THRESHOLD = "org.apache.chemistry.opencmis.binding.webservices.memoryThreshold";
 
+    public static final String WEBSERVICES_PORT_POOL_SIZE = "org.apache.chemistry.opencmis.binding.webservices.portpool.size";
+    public static final String WEBSERVICES_PORT_POOL_IDLE_TIMEOUT = "org.apache.chemistry.opencmis.binding.webservices.portpool.idletimeout";
+
     public static final String WEBSERVICES_PORT_PROVIDER_CLASS = "org.apache.chemistry.opencmis.binding.webservices.portprovider.classname";
 
     public static final String WEBSERVICES_JAXWS_IMPL = "org.apache.chemistry.opencmis.binding.webservices.jaxws.impl";
@@ -672,7 +771,11 @@ public final class SessionParameter {
 
     public static final String CACHE_SIZE_REPOSITORIES = "org.apache.chemistry.opencmis.binding.cache.repositories.size";
     public static final String CACHE_SIZE_TYPES = "org.apache.chemistry.opencmis.binding.cache.types.size";
+    public static final String CACHE_TYPES_WARMUP = "org.apache.chemistry.opencmis.cache.types.warmup";
+    public static final String CACHE_TYPES_WARMUP_THREADS = "org.apache.chemistry.opencmis.cache.types.warmup.threads";
     public static final String CACHE_SIZE_LINKS = "org.apache.chemistry.opencmis.binding.cache.links.size";
+    public static final String CACHE_SHARED = "org.apache.chemistry.opencmis.binding.cache.shared";
+    public static final String CACHE_SHARED_TTL = "org.apache.chemistry.opencmis.binding.cache.shared.ttl";
 
     // --- session control ---
 
@@ -681,6 +784,8 @@ public final class SessionParameter {
     public static final String LOCALE_VARIANT = "org.apache.chemistry.opencmis.locale.variant";
 
     public static final String OBJECT_FACTORY_CLASS = "org.apache.chemistry.opencmis.objectfactory.classname";
+    public static final String OBJECT_LAZY_INITIALIZATION = "org.apache.chemistry.opencmis.objects.lazyinit";
+    public static final String OBJECT_FETCH_THREADS = "org.apache.chemistry.opencmis.objects.fetch.threads";
     public static final String CACHE_CLASS = "org.apache.chemistry.opencmis.cache.classname";
     public static final String TYPE_DEFINITION_CACHE_CLASS = "org.apache.chemistry.opencmis.cache.types.classname";
 
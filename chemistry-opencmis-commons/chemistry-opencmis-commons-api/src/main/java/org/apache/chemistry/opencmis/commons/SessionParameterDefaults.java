@@ -32,4 +32,11 @@ public class SessionParameterDefaults {
     public static final int CACHE_SIZE_REPOSITORIES = 10;
     public static final int CACHE_SIZE_TYPES = 100;
     public static final int CACHE_SIZE_LINKS = 400;
+    public static final int CACHE_TYPES_WARMUP_THREADS = 4;
+    public static final int CACHE_SHARED_TTL = 60 * 60 * 1000;
+
+    public static final int OBJECT_FETCH_THREADS = 8;
+
+    public static final int WEBSERVICES_PORT_POOL_SIZE = 16;
+    public static final int WEBSERVICES_PORT_POOL_IDLE_TIMEOUT = 5 * 60 * 1000;
 }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.server;
+
+/**
+ * CmisServiceFactory classes that implement this interface declare whether
+ * the {@link CmisService} objects they return can be reused.
+ * 
+ * By default, the server framework requests a new {@link CmisService} object
+ * for each call and closes it afterwards. If the factory declares
+ * {@link ServiceReuse#PER_THREAD} or {@link ServiceReuse#SHARED}, a binding may
+ * keep the {@link CmisService} object and call it again with the same
+ * {@link CallContext} object, without closing it in between. A kept object is
+ * closed once, when the binding is closed.
+ * 
+ * The {@link CallContext} objects handed to {@link #getService(CallContext)}
+ * are immutable in this case, because they are shared by all calls of the same
+ * user to the same repository.
+ * 
+ * Currently only the Local Binding makes use of this interface.
+ */
+public interface ReusableCmisServiceFactory extends CmisServiceFactory {
+
+    public enum ServiceReuse {
+        /**
+         * A new {@link CmisService} object is requested and closed for each
+         * call. This is the default for all factories.
+         */
+        PER_CALL,
+        /**
+         * A {@link CmisService} object can be reused by the thread that has
+         * requested it.
+         */
+        PER_THREAD,
+        /**
+         * A {@link CmisService} object is thread-safe and can be shared by all
+         * threads.
+         */
+        SHARED
+    };
+
+    /**
+     * Returns how the {@link CmisService} objects returned by this factory can
+     * be reused.
+     * 
+     * @return the reuse level, not {@code null}
+     */
+    ServiceReuse getServiceReuse();
+}
@@ -0,0 +1,691 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Table driven Base64 encoder and decoder (RFC 4648, standard alphabet, no
+ * line breaks).
+ * <p>
+ * The encoder and decoder work on whole blocks of data. The stream classes
+ * process data in large chunks and don't allocate memory after they have been
+ * created.
+ * <p>
+ * The decoder ignores whitespace and stops at the first padding character.
+ */
+public final class Base64Codec {
+
+    /** Size of the internal buffers of the stream classes. */
+    public static final int BUFFER_SIZE = 48 * 1024;
+
+    private static final byte[] ENCODE_TABLE = { 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M',
+            'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h',
+            'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2',
+            '3', '4', '5', '6', '7', '8', '9', '+', '/' };
+
+    private static final byte PAD = '=';
+
+    private static final int INVALID = -1;
+    private static final int WHITESPACE = -2;
+    private static final int PADDING = -3;
+
+    private static final int[] DECODE_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < DECODE_TABLE.length; i++) {
+            DECODE_TABLE[i] = INVALID;
+        }
+        for (int i = 0; i < ENCODE_TABLE.length; i++) {
+            DECODE_TABLE[ENCODE_TABLE[i]] = i;
+        }
+        DECODE_TABLE[' '] = WHITESPACE;
+        DECODE_TABLE['\t'] = WHITESPACE;
+        DECODE_TABLE['\r'] = WHITESPACE;
+        DECODE_TABLE['\n'] = WHITESPACE;
+        DECODE_TABLE[PAD] = PADDING;
+    }
+
+    private Base64Codec() {
+    }
+
+    // ---- encoding ----
+
+    /**
+     * Returns the length of the Base64 representation of the given number of
+     * bytes.
+     */
+    public static int getEncodedLength(int length) {
+        return ((length + 2) / 3) * 4;
+    }
+
+    /**
+     * Encodes bytes including the padding at the end.
+     * 
+     * @return the number of bytes written to <code>dest</code>
+     */
+    public static int encode(byte[] src, int srcOff, int len, byte[] dest, int destOff) {
+        int full = len - (len % 3);
+        int d = encodeBlocks(src, srcOff, full, dest, destOff);
+
+        int rest = len - full;
+        if (rest > 0) {
+            int s = srcOff + full;
+            int bits = (src[s] & 0xFF) << 16;
+            if (rest == 2) {
+                bits |= (src[s + 1] & 0xFF) << 8;
+            }
+
+            dest[d++] = ENCODE_TABLE[(bits >>> 18) & 0x3F];
+            dest[d++] = ENCODE_TABLE[(bits >>> 12) & 0x3F];
+            dest[d++] = (rest == 2 ? ENCODE_TABLE[(bits >>> 6) & 0x3F] : PAD);
+            dest[d++] = PAD;
+        }
+
+        return d - destOff;
+    }
+
+    /**
+     * Encodes complete 3 byte blocks. <code>len</code> must be a multiple of
+     * 3.
+     * 
+     * @return the index in <code>dest</code> after the last written byte
+     */
+    private static int encodeBlocks(byte[] src, int srcOff, int len, byte[] dest, int destOff) {
+        int s = srcOff;
+        int d = destOff;
+        int end = srcOff + len;
+
+        while (s < end) {
+            int bits = ((src[s] & 0xFF) << 16) | ((src[s + 1] & 0xFF) << 8) | (src[s + 2] & 0xFF);
+            s += 3;
+
+            dest[d] = ENCODE_TABLE[(bits >>> 18) & 0x3F];
+            dest[d + 1] = ENCODE_TABLE[(bits >>> 12) & 0x3F];
+            dest[d + 2] = ENCODE_TABLE[(bits >>> 6) & 0x3F];
+            dest[d + 3] = ENCODE_TABLE[bits & 0x3F];
+            d += 4;
+        }
+
+        return d;
+    }
+
+    /**
+     * Encodes bytes.
+     */
+    public static byte[] encodeToBytes(byte[] src, int off, int len) {
+        byte[] result = new byte[getEncodedLength(len)];
+        encode(src, off, len, result, 0);
+        return result;
+    }
+
+    /**
+     * Encodes bytes.
+     */
+    public static String encodeBytes(byte[] src, int off, int len) {
+        byte[] encoded = encodeToBytes(src, off, len);
+
+        char[] chars = new char[encoded.length];
+        for (int i = 0; i < encoded.length; i++) {
+            chars[i] = (char) encoded[i];
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Encodes bytes.
+     */
+    public static String encodeBytes(byte[] src) {
+        if (src == null) {
+            throw new IllegalArgumentException("Source must not be null!");
+        }
+
+        return encodeBytes(src, 0, src.length);
+    }
+
+    // ---- decoding ----
+
+    /**
+     * Decodes Base64 data.
+     * 
+     * @throws IOException
+     *             if the data contains invalid characters
+     */
+    public static byte[] decode(byte[] src, int off, int len) throws IOException {
+        Decoder decoder = new Decoder();
+
+        byte[] buffer = new byte[(len / 4) * 3 + 3];
+        int length = decoder.decode(src, off, len, buffer, 0);
+        length += decoder.finish(buffer, length);
+
+        if (length == buffer.length) {
+            return buffer;
+        }
+
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Decodes Base64 data.
+     * 
+     * @throws IOException
+     *             if the data contains invalid characters
+     */
+    public static byte[] decode(byte[] src) throws IOException {
+        if (src == null) {
+            throw new IllegalArgumentException("Source must not be null!");
+        }
+
+        return decode(src, 0, src.length);
+    }
+
+    /**
+     * Decodes a Base64 string.
+     * 
+     * @throws IOException
+     *             if the string contains invalid characters
+     */
+    public static byte[] decode(String s) throws IOException {
+        if (s == null) {
+            throw new IllegalArgumentException("Source must not be null!");
+        }
+
+        char[] chars = s.toCharArray();
+        Decoder decoder = new Decoder();
+
+        byte[] buffer = new byte[(chars.length / 4) * 3 + 3];
+        int length = decoder.decode(chars, 0, chars.length, buffer, 0);
+        length += decoder.finish(buffer, length);
+
+        byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Incremental decoder. Decodes chunks of data and keeps incomplete blocks
+     * for the next chunk.
+     */
+    static final class Decoder {
+        private int bits;
+        private int count;
+        private boolean finished;
+
+        /**
+         * Returns the maximum number of bytes that decoding the given number of
+         * characters can produce.
+         */
+        int getMaxDecodedLength(int len) {
+            return ((count + len) / 4) * 3;
+        }
+
+        /**
+         * Decodes a chunk of Base64 bytes.
+         * 
+         * @return the number of bytes written to <code>dest</code>
+         */
+        int decode(byte[] src, int off, int len, byte[] dest, int destOff) throws IOException {
+            int s = off;
+            int end = off + len;
+            int d = destOff;
+
+            while (s < end && !finished) {
+                // fast path: complete and clean blocks
+                if (count == 0) {
+                    while (s + 4 <= end) {
+                        int b0 = DECODE_TABLE[src[s] & 0xFF];
+                        int b1 = DECODE_TABLE[src[s + 1] & 0xFF];
+                        int b2 = DECODE_TABLE[src[s + 2] & 0xFF];
+                        int b3 = DECODE_TABLE[src[s + 3] & 0xFF];
+                        if ((b0 | b1 | b2 | b3) < 0) {
+                            break;
+                        }
+
+                        int block = (b0 << 18) | (b1 << 12) | (b2 << 6) | b3;
+                        dest[d] = (byte) (block >>> 16);
+                        dest[d + 1] = (byte) (block >>> 8);
+                        dest[d + 2] = (byte) block;
+                        d += 3;
+                        s += 4;
+                    }
+
+                    if (s >= end) {
+                        break;
+                    }
+                }
+
+                d = decodeValue(DECODE_TABLE[src[s] & 0xFF], dest, d);
+                s++;
+            }
+
+            return d - destOff;
+        }
+
+        /**
+         * Decodes a chunk of Base64 characters.
+         * 
+         * @return the number of bytes written to <code>dest</code>
+         */
+        int decode(char[] src, int off, int len, byte[] dest, int destOff) throws IOException {
+            int s = off;
+            int end = off + len;
+            int d = destOff;
+
+            while (s < end && !finished) {
+                // fast path: complete and clean blocks
+                if (count == 0) {
+                    while (s + 4 <= end) {
+                        char c0 = src[s];
+                        char c1 = src[s + 1];
+                        char c2 = src[s + 2];
+                        char c3 = src[s + 3];
+                        if ((c0 | c1 | c2 | c3) > 0xFF) {
+                            break;
+                        }
+
+                        int b0 = DECODE_TABLE[c0];
+                        int b1 = DECODE_TABLE[c1];
+                        int b2 = DECODE_TABLE[c2];
+                        int b3 = DECODE_TABLE[c3];
+                        if ((b0 | b1 | b2 | b3) < 0) {
+                            break;
+                        }
+
+                        int block = (b0 << 18) | (b1 << 12) | (b2 << 6) | b3;
+                        dest[d] = (byte) (block >>> 16);
+                        dest[d + 1] = (byte) (block >>> 8);
+                        dest[d + 2] = (byte) block;
+                        d += 3;
+                        s += 4;
+                    }
+
+                    if (s >= end) {
+                        break;
+                    }
+                }
+
+                char c = src[s];
+                d = decodeValue(c > 0xFF ? INVALID : DECODE_TABLE[c], dest, d);
+                s++;
+            }
+
+            return d - destOff;
+        }
+
+        /**
+         * Decodes a single table value.
+         * 
+         * @return the index in <code>dest</code> after the last written byte
+         */
+        private int decodeValue(int value, byte[] dest, int d) throws IOException {
+            if (value >= 0) {
+                bits = (bits << 6) | value;
+                if (++count == 4) {
+                    dest[d] = (byte) (bits >>> 16);
+                    dest[d + 1] = (byte) (bits >>> 8);
+                    dest[d + 2] = (byte) bits;
+                    d += 3;
+                    bits = 0;
+                    count = 0;
+                }
+            } else if (value == PADDING) {
+                d += finish(dest, d);
+                finished = true;
+            } else if (value == INVALID) {
+                throw new IOException("Invalid character in Base64 data.");
+            }
+
+            return d;
+        }
+
+        /**
+         * Writes the remaining bytes of an incomplete block.
+         * 
+         * @return the number of bytes written to <code>dest</code>
+         */
+        int finish(byte[] dest, int destOff) throws IOException {
+            int d = destOff;
+
+            if (count == 1) {
+                throw new IOException("Incomplete Base64 data.");
+            } else if (count == 2) {
+                dest[d++] = (byte) (bits >>> 4);
+            } else if (count == 3) {
+                dest[d++] = (byte) (bits >>> 10);
+                dest[d++] = (byte) (bits >>> 2);
+            }
+
+            bits = 0;
+            count = 0;
+
+            return d - destOff;
+        }
+    }
+
+    // ---- streams ----
+
+    /**
+     * Reads raw data from the underlying stream and returns it Base64 encoded.
+     */
+    public static class EncodingInputStream extends FilterInputStream {
+
+        private final byte[] rawBuffer = new byte[BUFFER_SIZE];
+        private final byte[] encodedBuffer = new byte[getEncodedLength(BUFFER_SIZE)];
+        private int encodedPos;
+        private int encodedLength;
+        private boolean eof;
+
+        public EncodingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Fills the encoded buffer.
+         * 
+         * @return <code>false</code> if the end of the stream has been reached
+         */
+        private boolean fill() throws IOException {
+            if (eof) {
+                return false;
+            }
+
+            // read whole blocks, only the last block may be incomplete
+            int rawLength = 0;
+            while (rawLength < rawBuffer.length) {
+                int r = in.read(rawBuffer, rawLength, rawBuffer.length - rawLength);
+                if (r == -1) {
+                    eof = true;
+                    break;
+                }
+                rawLength += r;
+            }
+
+            encodedPos = 0;
+            encodedLength = encode(rawBuffer, 0, rawLength, encodedBuffer, 0);
+
+            return encodedLength > 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (encodedPos == encodedLength && !fill()) {
+                return -1;
+            }
+
+            return encodedBuffer[encodedPos++];
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (encodedPos == encodedLength && !fill()) {
+                return -1;
+            }
+
+            int n = Math.min(len, encodedLength - encodedPos);
+            System.arraycopy(encodedBuffer, encodedPos, b, off, n);
+            encodedPos += n;
+
+            return n;
+        }
+
+        /**
+         * Reads Base64 characters.
+         * 
+         * @return the number of characters read or -1 if the end of the stream
+         *         has been reached
+         */
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (encodedPos == encodedLength && !fill()) {
+                return -1;
+            }
+
+            int n = Math.min(len, encodedLength - encodedPos);
+            for (int i = 0; i < n; i++) {
+                cbuf[off + i] = (char) encodedBuffer[encodedPos + i];
+            }
+            encodedPos += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (encodedPos == encodedLength && !fill()) {
+                    break;
+                }
+
+                int s = (int) Math.min(n - skipped, encodedLength - encodedPos);
+                encodedPos += s;
+                skipped += s;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return encodedLength - encodedPos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+    }
+
+    /**
+     * Reads Base64 data from the underlying stream and returns it decoded.
+     */
+    public static class DecodingInputStream extends FilterInputStream {
+
+        private final Decoder decoder = new Decoder();
+        private final byte[] encodedBuffer = new byte[getEncodedLength(BUFFER_SIZE)];
+        private final byte[] decodedBuffer = new byte[BUFFER_SIZE + 3];
+        private int decodedPos;
+        private int decodedLength;
+        private boolean eof;
+
+        public DecodingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Fills the decoded buffer.
+         * 
+         * @return <code>false</code> if the end of the stream has been reached
+         */
+        private boolean fill() throws IOException {
+            decodedPos = 0;
+            decodedLength = 0;
+
+            while (decodedLength == 0) {
+                if (eof) {
+                    return false;
+                }
+
+                int r = in.read(encodedBuffer, 0, encodedBuffer.length);
+                if (r == -1) {
+                    eof = true;
+                    decodedLength = decoder.finish(decodedBuffer, 0);
+                } else {
+                    decodedLength = decoder.decode(encodedBuffer, 0, r, decodedBuffer, 0);
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (decodedPos == decodedLength && !fill()) {
+                return -1;
+            }
+
+            return decodedBuffer[decodedPos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (decodedPos == decodedLength && !fill()) {
+                return -1;
+            }
+
+            int n = Math.min(len, decodedLength - decodedPos);
+            System.arraycopy(decodedBuffer, decodedPos, b, off, n);
+            decodedPos += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (decodedPos == decodedLength && !fill()) {
+                    break;
+                }
+
+                int s = (int) Math.min(n - skipped, decodedLength - decodedPos);
+                decodedPos += s;
+                skipped += s;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decodedLength - decodedPos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+    }
+
+    /**
+     * Decodes Base64 data and writes the decoded data to the underlying stream.
+     * {@link #close()} must be called to write the last block.
+     */
+    public static class DecodingOutputStream extends FilterOutputStream {
+
+        private static final int CHUNK_SIZE = getEncodedLength(BUFFER_SIZE);
+
+        private final Decoder decoder = new Decoder();
+        private final byte[] decodedBuffer = new byte[BUFFER_SIZE + 3];
+        private boolean closed;
+
+        public DecodingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK_SIZE);
+                int decoded = decoder.decode(b, off, chunk, decodedBuffer, 0);
+                if (decoded > 0) {
+                    out.write(decodedBuffer, 0, decoded);
+                }
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        /**
+         * Decodes Base64 characters.
+         */
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK_SIZE);
+                int decoded = decoder.decode(cbuf, off, chunk, decodedBuffer, 0);
+                if (decoded > 0) {
+                    out.write(decodedBuffer, 0, decoded);
+                }
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        /**
+         * Writes the last block and closes the underlying stream.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                int decoded = decoder.finish(decodedBuffer, 0);
+                if (decoded > 0) {
+                    out.write(decodedBuffer, 0, decoded);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
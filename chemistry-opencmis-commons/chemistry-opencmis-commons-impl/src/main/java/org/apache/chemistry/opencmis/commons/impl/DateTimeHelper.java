@@ -18,102 +18,175 @@
  */
 package org.apache.chemistry.opencmis.commons.impl;
 
-import java.math.BigDecimal;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses and formats xsd:dateTime and HTTP date values.
+ * <p>
+ * The parsers and formatters work directly on the characters and calculate
+ * the time with integer arithmetic. Dates outside the years 1583 to 9999 (the
+ * Gregorian calendar without the Julian cut-over) and calendars with unusual
+ * settings are handled by {@link GregorianCalendar}.
+ */
 public final class DateTimeHelper {
 
     private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
 
-    private static final Pattern XML_DATETIME = Pattern
-            .compile("(\\d{4,9})-([01]\\d)-([0-3]\\d)T([0-2]\\d):([0-5]\\d):([0-5]\\d)(\\.(\\d+))?(([+-][0-2]\\d:[0-5]\\d)|Z)?");
-    private static final BigDecimal BD1000 = new BigDecimal(1000);
+    /** Maximum length of a formatted xsd:dateTime value. */
+    public static final int XML_DATETIME_MAX_LENGTH = 40;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long DEFAULT_GREGORIAN_CUTOVER = -12219292800000L;
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
 
     private static final String[] WDAYS = new String[] { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
 
     private static final String[] MONTHS = new String[] { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug",
             "Sep", "Oct", "Nov", "Dec" };
 
-    private static final Map<String, Integer> MONTHS_MAP = new HashMap<String, Integer>();
-    static {
-        for (int i = 0; i < MONTHS.length; i++) {
-            MONTHS_MAP.put(MONTHS[i], i);
-        }
-    }
+    /** Time zones of xsd:dateTime offsets by offset and sign. */
+    private static final ConcurrentHashMap<Integer, TimeZone> OFFSET_TIME_ZONES = new ConcurrentHashMap<Integer, TimeZone>();
 
-    private static final Pattern HTTP_DATETIME1 = Pattern
-            .compile("\\w{3}, ([0-3]\\d) (\\w{3}) (\\d{4}) ([0-2]\\d):([0-5]\\d):([0-5]\\d) GMT");
-
-    private static final Pattern HTTP_DATETIME2 = Pattern
-            .compile("\\w{6,9}, ([0-3]\\d)-(\\w{3})-(\\d{2}) ([0-2]\\d):([0-5]\\d):([0-5]\\d) GMT");
+    private DateTimeHelper() {
+    }
 
-    private static final Pattern HTTP_DATETIME3 = Pattern
-            .compile("\\w{3} (\\w{3}) ([0-3 ]\\d) ([0-2]\\d):([0-5]\\d):([0-5]\\d) (\\d{4})");
+    /**
+     * Creates a GMT calendar set to the given time.
+     */
+    public static GregorianCalendar createGMTCalendar(long millis) {
+        final GregorianCalendar result = new GregorianCalendar((TimeZone) GMT.clone());
+        result.setTimeInMillis(millis);
 
-    private DateTimeHelper() {
+        return result;
     }
 
     /**
      * Parses a xsd:dateTime string.
      */
     public static GregorianCalendar parseXmlDateTime(String s) {
+        return parseXmlDateTime((CharSequence) s);
+    }
+
+    /**
+     * Parses a xsd:dateTime value.
+     * 
+     * @return the calendar or <code>null</code> if the value is not a valid
+     *         xsd:dateTime value
+     */
+    public static GregorianCalendar parseXmlDateTime(CharSequence s) {
         if (s == null) {
             return null;
         }
 
-        final Matcher m = XML_DATETIME.matcher(s);
+        final int length = s.length();
 
-        if (!m.matches()) {
+        // year: 4 to 9 digits
+        int pos = 0;
+        int year = 0;
+        while (pos < length && pos < 10 && isDigit(s.charAt(pos))) {
+            year = year * 10 + (s.charAt(pos) - '0');
+            pos++;
+        }
+        if (pos < 4 || pos > 9) {
             return null;
         }
 
-        try {
-            int year = Integer.parseInt(m.group(1));
-            int month = Integer.parseInt(m.group(2));
-            int day = Integer.parseInt(m.group(3));
-            int hour = Integer.parseInt(m.group(4));
-            int minute = Integer.parseInt(m.group(5));
-            int second = Integer.parseInt(m.group(6));
-            int millisecond = 0;
+        // -MM-DDThh:mm:ss
+        if (pos + 15 > length || s.charAt(pos) != '-' || s.charAt(pos + 3) != '-' || s.charAt(pos + 6) != 'T'
+                || s.charAt(pos + 9) != ':' || s.charAt(pos + 12) != ':') {
+            return null;
+        }
 
-            if (m.group(8) != null) {
-                millisecond = (new BigDecimal("0." + m.group(8))).multiply(BD1000).intValue();
+        int month = parse2d(s, pos + 1, '1');
+        int day = parse2d(s, pos + 4, '3');
+        int hour = parse2d(s, pos + 7, '2');
+        int minute = parse2d(s, pos + 10, '5');
+        int second = parse2d(s, pos + 13, '5');
+        if ((month | day | hour | minute | second) < 0) {
+            return null;
+        }
+        pos += 15;
+
+        // fraction, only milliseconds are used
+        int millisecond = 0;
+        if (pos < length && s.charAt(pos) == '.') {
+            pos++;
+            int start = pos;
+            int factor = 100;
+            while (pos < length && isDigit(s.charAt(pos))) {
+                millisecond += (s.charAt(pos) - '0') * factor;
+                factor /= 10;
+                pos++;
             }
+            if (pos == start) {
+                return null;
+            }
+        }
 
-            TimeZone tz = GMT;
-
-            if (m.group(10) != null) {
-                tz = TimeZone.getTimeZone("GMT" + m.group(10));
+        // time zone
+        TimeZone tz = GMT;
+        if (pos < length) {
+            char c = s.charAt(pos);
+            if (c == 'Z') {
+                pos++;
+            } else if (c == '+' || c == '-') {
+                if (pos + 6 != length || s.charAt(pos + 3) != ':') {
+                    return null;
+                }
+                int tzHour = parse2d(s, pos + 1, '2');
+                int tzMinute = parse2d(s, pos + 4, '5');
+                if ((tzHour | tzMinute) < 0) {
+                    return null;
+                }
+                tz = getOffsetTimeZone(c == '-', tzHour, tzMinute);
+                pos += 6;
+            } else {
+                return null;
             }
+        }
 
-            final GregorianCalendar result = new GregorianCalendar();
-            result.clear();
+        if (pos != length) {
+            return null;
+        }
+
+        if (year >= MIN_YEAR && year <= MAX_YEAR) {
+            long time = toMillis(year, month, day, hour, minute, second) + millisecond - tz.getRawOffset();
 
-            result.setTimeZone(tz);
-            result.set(year, month - 1, day, hour, minute, second);
-            result.set(Calendar.MILLISECOND, millisecond);
+            final GregorianCalendar result = new GregorianCalendar(tz);
+            result.setTimeInMillis(time);
 
             return result;
-        } catch (NumberFormatException e) {
-            return null;
         }
+
+        final GregorianCalendar result = new GregorianCalendar();
+        result.clear();
+
+        result.setTimeZone(tz);
+        result.set(year, month - 1, day, hour, minute, second);
+        result.set(Calendar.MILLISECOND, millisecond);
+
+        return result;
     }
 
     /**
      * Returns a xsd:dateTime string.
      */
     public static String formatXmlDateTime(long millis) {
-        final GregorianCalendar cal = new GregorianCalendar(GMT);
-        cal.setTimeInMillis(millis);
+        final char[] buffer = new char[XML_DATETIME_MAX_LENGTH];
+        int length = formatXmlDateTime(millis, 0, buffer);
+        if (length < 0) {
+            final GregorianCalendar cal = new GregorianCalendar(GMT);
+            cal.setTimeInMillis(millis);
+
+            return formatXmlDateTimeWithCalendar(cal);
+        }
 
-        return formatXmlDateTime(cal);
+        return new String(buffer, 0, length);
     }
 
     /**
@@ -124,7 +197,107 @@ public final class DateTimeHelper {
             throw new IllegalArgumentException();
         }
 
-        final StringBuilder sb = new StringBuilder();
+        final char[] buffer = new char[XML_DATETIME_MAX_LENGTH];
+        int length = formatXmlDateTimeFast(cal, buffer);
+        if (length < 0) {
+            return formatXmlDateTimeWithCalendar(cal);
+        }
+
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Writes a xsd:dateTime value into a buffer.
+     * 
+     * @param buffer
+     *            the buffer, must have at least
+     *            {@link #XML_DATETIME_MAX_LENGTH} characters
+     * 
+     * @return the number of characters written
+     */
+    public static int formatXmlDateTime(GregorianCalendar cal, char[] buffer) {
+        if (cal == null) {
+            throw new IllegalArgumentException();
+        }
+
+        int length = formatXmlDateTimeFast(cal, buffer);
+        if (length < 0) {
+            String s = formatXmlDateTimeWithCalendar(cal);
+            length = s.length();
+            s.getChars(0, length, buffer, 0);
+        }
+
+        return length;
+    }
+
+    /**
+     * Formats plain Gregorian calendars.
+     * 
+     * @return the number of characters written or -1 if the calendar has to be
+     *         formatted by {@link #formatXmlDateTimeWithCalendar}
+     */
+    private static int formatXmlDateTimeFast(GregorianCalendar cal, char[] buffer) {
+        if (cal.getClass() != GregorianCalendar.class
+                || cal.getGregorianChange().getTime() != DEFAULT_GREGORIAN_CUTOVER) {
+            return -1;
+        }
+
+        long millis = cal.getTimeInMillis();
+        return formatXmlDateTime(millis, cal.getTimeZone().getOffset(millis), buffer);
+    }
+
+    /**
+     * Formats a point in time with the given time zone offset.
+     * 
+     * @return the number of characters written or -1 if the date is out of
+     *         the supported range
+     */
+    private static int formatXmlDateTime(long millis, int offset, char[] buffer) {
+        long local = millis + offset;
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+
+        long ymd = toYearMonthDay(days);
+        int year = (int) (ymd / 10000);
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return -1;
+        }
+
+        int pos = 0;
+        pos = put4d(buffer, pos, year);
+        buffer[pos++] = '-';
+        pos = put2d(buffer, pos, (int) (ymd / 100 % 100));
+        buffer[pos++] = '-';
+        pos = put2d(buffer, pos, (int) (ymd % 100));
+        buffer[pos++] = 'T';
+        pos = put2d(buffer, pos, millisOfDay / 3600000);
+        buffer[pos++] = ':';
+        pos = put2d(buffer, pos, millisOfDay / 60000 % 60);
+        buffer[pos++] = ':';
+        pos = put2d(buffer, pos, millisOfDay / 1000 % 60);
+
+        int ms = millisOfDay % 1000;
+        if (ms > 0) {
+            buffer[pos++] = '.';
+            buffer[pos++] = (char) ('0' + ms / 100);
+            if (ms % 100 > 0) {
+                buffer[pos++] = (char) ('0' + ms / 10 % 10);
+                if (ms % 10 > 0) {
+                    buffer[pos++] = (char) ('0' + ms % 10);
+                }
+            }
+        }
+
+        pos = putOffset(buffer, pos, offset);
+
+        return pos;
+    }
+
+    /**
+     * Formats any calendar through its fields.
+     */
+    private static String formatXmlDateTimeWithCalendar(GregorianCalendar cal) {
+        final StringBuilder sb = new StringBuilder(XML_DATETIME_MAX_LENGTH);
         add4d(sb, cal.get(Calendar.YEAR));
         sb.append('-');
         add2d(sb, cal.get(Calendar.MONTH) + 1);
@@ -146,21 +319,9 @@ public final class DateTimeHelper {
             }
         }
 
-        int tz = cal.getTimeZone().getOffset(cal.getTimeInMillis());
-        if (tz == 0) {
-            sb.append('Z');
-        } else {
-            if (tz > 0) {
-                sb.append('+');
-            } else {
-                sb.append('-');
-                tz *= -1;
-            }
-            add2d(sb, tz / 3600000);
-            sb.append(':');
-            int tzm = tz % 3600000;
-            add2d(sb, tzm == 0 ? 0 : tzm / 60000);
-        }
+        char[] offset = new char[6];
+        int length = putOffset(offset, 0, cal.getTimeZone().getOffset(cal.getTimeInMillis()));
+        sb.append(offset, 0, length);
 
         return sb.toString();
     }
@@ -178,79 +339,127 @@ public final class DateTimeHelper {
             s = s.substring(1, s.length() - 1);
         }
 
-        final GregorianCalendar cal = new GregorianCalendar(GMT);
-        cal.set(Calendar.MILLISECOND, 0);
+        int length = s.length();
+        int pos = 0;
+        while (pos < length && isWordChar(s.charAt(pos))) {
+            pos++;
+        }
 
-        Matcher m = null;
+        int day;
+        int month;
+        int year;
+        int timePos;
 
-        m = HTTP_DATETIME1.matcher(s);
-        if (m.matches()) {
-            final Integer month = MONTHS_MAP.get(m.group(2));
-            if (month == null) {
+        if (pos == 3 && length == 29 && s.charAt(3) == ',') {
+            // RFC 1123: Sun, 06 Nov 1994 08:49:37 GMT
+            if (s.charAt(4) != ' ' || s.charAt(7) != ' ' || s.charAt(11) != ' ' || s.charAt(16) != ' '
+                    || !s.startsWith(" GMT", 25)) {
                 return null;
             }
-
-            cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(1)));
-            cal.set(Calendar.MONTH, month);
-            cal.set(Calendar.YEAR, Integer.parseInt(m.group(3)));
-            cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(m.group(4)));
-            cal.set(Calendar.MINUTE, Integer.parseInt(m.group(5)));
-            cal.set(Calendar.SECOND, Integer.parseInt(m.group(6)));
-
-            return cal.getTime();
-        }
-
-        m = HTTP_DATETIME2.matcher(s);
-        if (m.matches()) {
-            final Integer month = MONTHS_MAP.get(m.group(2));
-            if (month == null) {
+            day = parse2d(s, 5, '3');
+            month = parseMonth(s, 8);
+            year = parse4d(s, 12);
+            timePos = 17;
+        } else if (pos >= 6 && pos <= 9 && length == pos + 24 && s.charAt(pos) == ',') {
+            // RFC 850: Sunday, 06-Nov-94 08:49:37 GMT
+            int p = pos + 1;
+            if (s.charAt(p) != ' ' || s.charAt(p + 3) != '-' || s.charAt(p + 7) != '-' || s.charAt(p + 10) != ' '
+                    || !s.startsWith(" GMT", p + 19)) {
                 return null;
             }
-
-            cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(1)));
-            cal.set(Calendar.MONTH, month);
-            int year = Integer.parseInt(m.group(3));
-            if (year < 100) {
-                final int thisYear = (new GregorianCalendar(GMT)).get(Calendar.YEAR);
+            day = parse2d(s, p + 1, '3');
+            month = parseMonth(s, p + 4);
+            year = parse2d(s, p + 8, '9');
+            if (year >= 0) {
+                final int thisYear = getYear(System.currentTimeMillis());
                 final int testYear = year + thisYear - thisYear % 100;
                 year = (testYear < thisYear + 20 ? testYear : testYear - 100);
             }
-            cal.set(Calendar.YEAR, year);
-            cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(m.group(4)));
-            cal.set(Calendar.MINUTE, Integer.parseInt(m.group(5)));
-            cal.set(Calendar.SECOND, Integer.parseInt(m.group(6)));
-
-            return cal.getTime();
-        }
-
-        m = HTTP_DATETIME3.matcher(s);
-        if (m.matches()) {
-            final Integer month = MONTHS_MAP.get(m.group(1));
-            if (month == null) {
+            timePos = p + 11;
+        } else if (pos == 3 && length == 24 && s.charAt(3) == ' ') {
+            // ANSI C asctime(): Sun Nov  6 08:49:37 1994
+            if (s.charAt(7) != ' ' || s.charAt(10) != ' ' || s.charAt(19) != ' ') {
                 return null;
             }
+            month = parseMonth(s, 4);
+            char d1 = s.charAt(8);
+            char d2 = s.charAt(9);
+            if (d1 == ' ' && isDigit(d2)) {
+                day = d2 - '0';
+            } else {
+                day = parse2d(s, 8, '3');
+            }
+            year = parse4d(s, 20);
+            timePos = 11;
+        } else {
+            return null;
+        }
 
-            cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(m.group(2).trim()));
-            cal.set(Calendar.MONTH, month);
-            cal.set(Calendar.YEAR, Integer.parseInt(m.group(6)));
-            cal.set(Calendar.HOUR_OF_DAY, Integer.parseInt(m.group(3)));
-            cal.set(Calendar.MINUTE, Integer.parseInt(m.group(4)));
-            cal.set(Calendar.SECOND, Integer.parseInt(m.group(5)));
+        if (s.charAt(timePos + 2) != ':' || s.charAt(timePos + 5) != ':') {
+            return null;
+        }
+        int hour = parse2d(s, timePos, '2');
+        int minute = parse2d(s, timePos + 3, '5');
+        int second = parse2d(s, timePos + 6, '5');
+
+        if ((day | month | year | hour | minute | second) < 0) {
+            return null;
+        }
 
-            return cal.getTime();
+        if (year >= MIN_YEAR && year <= MAX_YEAR) {
+            return new Date(toMillis(year, month + 1, day, hour, minute, second));
         }
 
-        return null;
+        final GregorianCalendar cal = new GregorianCalendar(GMT);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.set(Calendar.DAY_OF_MONTH, day);
+        cal.set(Calendar.MONTH, month);
+        cal.set(Calendar.YEAR, year);
+        cal.set(Calendar.HOUR_OF_DAY, hour);
+        cal.set(Calendar.MINUTE, minute);
+        cal.set(Calendar.SECOND, second);
+
+        return cal.getTime();
     }
 
     /**
      * Returns a HTTP date.
      */
     public static String formatHttpDateTime(long millis) {
+        long days = floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+        long ymd = toYearMonthDay(days);
+        int year = (int) (ymd / 10000);
+
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return formatHttpDateTimeWithCalendar(millis);
+        }
+
+        final char[] buffer = new char[29];
+        WDAYS[(int) floorMod(days + 4, 7)].getChars(0, 3, buffer, 0);
+        buffer[3] = ',';
+        buffer[4] = ' ';
+        put2d(buffer, 5, (int) (ymd % 100));
+        buffer[7] = ' ';
+        MONTHS[(int) (ymd / 100 % 100) - 1].getChars(0, 3, buffer, 8);
+        buffer[11] = ' ';
+        put4d(buffer, 12, year);
+        buffer[16] = ' ';
+        put2d(buffer, 17, millisOfDay / 3600000);
+        buffer[19] = ':';
+        put2d(buffer, 20, millisOfDay / 60000 % 60);
+        buffer[22] = ':';
+        put2d(buffer, 23, millisOfDay / 1000 % 60);
+        " GMT".getChars(0, 4, buffer, 25);
+
+        return new String(buffer);
+    }
+
+    private static String formatHttpDateTimeWithCalendar(long millis) {
         final GregorianCalendar cal = new GregorianCalendar(GMT);
         cal.setTimeInMillis(millis);
 
-        final StringBuilder sb = new StringBuilder();
+        final StringBuilder sb = new StringBuilder(29);
         sb.append(WDAYS[cal.get(Calendar.DAY_OF_WEEK) - 1]);
         sb.append(", ");
         add2d(sb, cal.get(Calendar.DAY_OF_MONTH));
@@ -283,6 +492,185 @@ public final class DateTimeHelper {
         return formatHttpDateTime(cal.getTimeInMillis());
     }
 
+    // ---- time zones ----
+
+    /**
+     * Returns the time zone of a xsd:dateTime offset.
+     */
+    private static TimeZone getOffsetTimeZone(boolean negative, int hours, int minutes) {
+        // "+00:00" and "-00:00" are different time zone IDs
+        Integer key = (hours * 60 + minutes) * 2 + (negative ? 1 : 0);
+
+        TimeZone tz = OFFSET_TIME_ZONES.get(key);
+        if (tz == null) {
+            StringBuilder id = new StringBuilder(9);
+            id.append("GMT").append(negative ? '-' : '+');
+            add2d(id, hours);
+            id.append(':');
+            add2d(id, minutes);
+            tz = TimeZone.getTimeZone(id.toString());
+            OFFSET_TIME_ZONES.putIfAbsent(key, tz);
+        }
+
+        // time zone objects are mutable, every calendar gets its own copy
+        return (TimeZone) tz.clone();
+    }
+
+    // ---- calendar arithmetic ----
+
+    /**
+     * Converts a date and time in the proleptic Gregorian calendar to
+     * milliseconds since the epoch. Like a lenient {@link GregorianCalendar},
+     * out of range months, days and hours roll over.
+     */
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second) {
+        int m = month - 1;
+        long y = year + floorDiv(m, 12);
+        m = (int) floorMod(m, 12) + 1;
+
+        long days = toEpochDay(y, m, 1) + day - 1;
+
+        return days * MILLIS_PER_DAY + hour * 3600000L + minute * 60000L + second * 1000L;
+    }
+
+    /**
+     * Returns the days since 1970-01-01 of a date in the proleptic Gregorian
+     * calendar.
+     */
+    private static long toEpochDay(long year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Returns the date of the given epoch day as <code>yyyymmdd</code>.
+     */
+    private static long toYearMonthDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long day = doy - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int getYear(long millis) {
+        return (int) (toYearMonthDay(floorDiv(millis, MILLIS_PER_DAY)) / 10000);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long r = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            r--;
+        }
+        return r;
+    }
+
+    private static long floorMod(long x, long y) {
+        return x - floorDiv(x, y) * y;
+    }
+
+    // ---- parsing ----
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Parses two digits. The first digit must not be greater than
+     * <code>maxFirst</code>.
+     * 
+     * @return the value or -1 if the characters are not valid
+     */
+    private static int parse2d(CharSequence s, int pos, char maxFirst) {
+        char c1 = s.charAt(pos);
+        char c2 = s.charAt(pos + 1);
+        if (c1 < '0' || c1 > maxFirst || !isDigit(c2)) {
+            return -1;
+        }
+
+        return (c1 - '0') * 10 + (c2 - '0');
+    }
+
+    private static int parse4d(CharSequence s, int pos) {
+        int result = 0;
+        for (int i = pos; i < pos + 4; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses a three letter month name.
+     * 
+     * @return the month (0-11) or -1 if the name is unknown
+     */
+    private static int parseMonth(CharSequence s, int pos) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            String month = MONTHS[i];
+            if (s.charAt(pos) == month.charAt(0) && s.charAt(pos + 1) == month.charAt(1)
+                    && s.charAt(pos + 2) == month.charAt(2)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    // ---- formatting ----
+
+    private static int putOffset(char[] buffer, int pos, int offset) {
+        if (offset == 0) {
+            buffer[pos++] = 'Z';
+        } else {
+            int tz = offset;
+            if (tz > 0) {
+                buffer[pos++] = '+';
+            } else {
+                buffer[pos++] = '-';
+                tz *= -1;
+            }
+            pos = put2d(buffer, pos, tz / 3600000);
+            buffer[pos++] = ':';
+            pos = put2d(buffer, pos, tz % 3600000 / 60000);
+        }
+
+        return pos;
+    }
+
+    private static int put2d(char[] buffer, int pos, int value) {
+        buffer[pos] = (char) ('0' + value / 10);
+        buffer[pos + 1] = (char) ('0' + value % 10);
+        return pos + 2;
+    }
+
+    private static int put4d(char[] buffer, int pos, int value) {
+        buffer[pos] = (char) ('0' + value / 1000);
+        buffer[pos + 1] = (char) ('0' + value / 100 % 10);
+        buffer[pos + 2] = (char) ('0' + value / 10 % 10);
+        buffer[pos + 3] = (char) ('0' + value % 10);
+        return pos + 4;
+    }
+
     private static void add2d(final StringBuilder sb, int value) {
         assert sb != null;
         assert value >= 0;
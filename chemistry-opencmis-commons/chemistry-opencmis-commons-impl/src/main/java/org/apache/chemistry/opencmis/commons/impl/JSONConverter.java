@@ -34,7 +34,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
 
 import org.apache.chemistry.opencmis.commons.ExtensionFeatures;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
@@ -2082,35 +2081,35 @@ public final class JSONConverter {
                 switch (propertyType) {
                 case STRING:
                     property = new PropertyStringImpl();
-                    ((PropertyStringImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyStringImpl) property, copyStringValues(values));
                     break;
                 case ID:
                     property = new PropertyIdImpl();
-                    ((PropertyIdImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyIdImpl) property, copyStringValues(values));
                     break;
                 case BOOLEAN:
                     property = new PropertyBooleanImpl();
-                    ((PropertyBooleanImpl) property).setValues(copyBooleanValues(values));
+                    setPropertyValues((PropertyBooleanImpl) property, copyBooleanValues(values));
                     break;
                 case INTEGER:
                     property = new PropertyIntegerImpl();
-                    ((PropertyIntegerImpl) property).setValues(copyIntegerValues(values));
+                    setPropertyValues((PropertyIntegerImpl) property, copyIntegerValues(values));
                     break;
                 case DECIMAL:
                     property = new PropertyDecimalImpl();
-                    ((PropertyDecimalImpl) property).setValues(copyDecimalValues(values));
+                    setPropertyValues((PropertyDecimalImpl) property, copyDecimalValues(values));
                     break;
                 case DATETIME:
                     property = new PropertyDateTimeImpl();
-                    ((PropertyDateTimeImpl) property).setValues(copyDateTimeValues(values));
+                    setPropertyValues((PropertyDateTimeImpl) property, copyDateTimeValues(values));
                     break;
                 case HTML:
                     property = new PropertyHtmlImpl();
-                    ((PropertyHtmlImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyHtmlImpl) property, copyStringValues(values));
                     break;
                 case URI:
                     property = new PropertyUriImpl();
-                    ((PropertyUriImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyUriImpl) property, copyStringValues(values));
                     break;
                 default:
                     throw new CmisRuntimeException("Unknown property data type!");
@@ -2222,35 +2221,35 @@ public final class JSONConverter {
                 switch (propDef.getPropertyType()) {
                 case STRING:
                     property = new PropertyStringImpl();
-                    ((PropertyStringImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyStringImpl) property, copyStringValues(values));
                     break;
                 case ID:
                     property = new PropertyIdImpl();
-                    ((PropertyIdImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyIdImpl) property, copyStringValues(values));
                     break;
                 case BOOLEAN:
                     property = new PropertyBooleanImpl();
-                    ((PropertyBooleanImpl) property).setValues(copyBooleanValues(values));
+                    setPropertyValues((PropertyBooleanImpl) property, copyBooleanValues(values));
                     break;
                 case INTEGER:
                     property = new PropertyIntegerImpl();
-                    ((PropertyIntegerImpl) property).setValues(copyIntegerValues(values));
+                    setPropertyValues((PropertyIntegerImpl) property, copyIntegerValues(values));
                     break;
                 case DECIMAL:
                     property = new PropertyDecimalImpl();
-                    ((PropertyDecimalImpl) property).setValues(copyDecimalValues(values));
+                    setPropertyValues((PropertyDecimalImpl) property, copyDecimalValues(values));
                     break;
                 case DATETIME:
                     property = new PropertyDateTimeImpl();
-                    ((PropertyDateTimeImpl) property).setValues(copyDateTimeValues(values));
+                    setPropertyValues((PropertyDateTimeImpl) property, copyDateTimeValues(values));
                     break;
                 case HTML:
                     property = new PropertyHtmlImpl();
-                    ((PropertyHtmlImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyHtmlImpl) property, copyStringValues(values));
                     break;
                 case URI:
                     property = new PropertyUriImpl();
-                    ((PropertyUriImpl) property).setValues(copyStringValues(values));
+                    setPropertyValues((PropertyUriImpl) property, copyStringValues(values));
                     break;
                 default:
                     throw new CmisRuntimeException("Unknown property type!");
@@ -2271,16 +2270,16 @@ public final class JSONConverter {
                     Object firstValue = values.get(0);
                     if (firstValue instanceof Boolean) {
                         property = new PropertyBooleanImpl();
-                        ((PropertyBooleanImpl) property).setValues(copyBooleanValues(values));
+                        setPropertyValues((PropertyBooleanImpl) property, copyBooleanValues(values));
                     } else if (firstValue instanceof BigInteger) {
                         property = new PropertyIntegerImpl();
-                        ((PropertyIntegerImpl) property).setValues(copyIntegerValues(values));
+                        setPropertyValues((PropertyIntegerImpl) property, copyIntegerValues(values));
                     } else if (firstValue instanceof BigDecimal) {
                         property = new PropertyDecimalImpl();
-                        ((PropertyDecimalImpl) property).setValues(copyDecimalValues(values));
+                        setPropertyValues((PropertyDecimalImpl) property, copyDecimalValues(values));
                     } else {
                         property = new PropertyStringImpl();
-                        ((PropertyStringImpl) property).setValues(copyStringValues(values));
+                        setPropertyValues((PropertyStringImpl) property, copyStringValues(values));
                     }
                 }
 
@@ -2300,6 +2299,18 @@ public final class JSONConverter {
         return result;
     }
 
+    /**
+     * Sets the values of a property. Single values are stored in a compact
+     * form.
+     */
+    private static <T> void setPropertyValues(AbstractPropertyData<T> property, List<T> values) {
+        if (values != null && values.size() == 1 && values.get(0) != null) {
+            property.setValue(values.get(0));
+        } else {
+            property.setValues(values);
+        }
+    }
+
     private static List<String> copyStringValues(List<Object> source) {
         List<String> result = null;
         if (source != null) {
@@ -2372,8 +2383,7 @@ public final class JSONConverter {
             result = new ArrayList<GregorianCalendar>(source.size());
             for (Object obj : source) {
                 if (obj instanceof Number) {
-                    GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-                    cal.setTimeInMillis(((Number) obj).longValue());
+                    GregorianCalendar cal = DateTimeHelper.createGMTCalendar(((Number) obj).longValue());
                     result.add(cal);
                 } else if (obj instanceof String) {
                     GregorianCalendar cal = DateTimeHelper.parseXmlDateTime((String) obj);
@@ -2919,8 +2929,7 @@ public final class JSONConverter {
             throw new CmisRuntimeException("Invalid Decimal value!");
         case DATETIME:
             if (value instanceof Number) {
-                GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-                cal.setTimeInMillis(((Number) value).longValue());
+                GregorianCalendar cal = DateTimeHelper.createGMTCalendar(((Number) value).longValue());
                 return cal;
             } else if (value instanceof String) {
                 GregorianCalendar cal = DateTimeHelper.parseXmlDateTime((String) value);
@@ -3046,8 +3055,7 @@ public final class JSONConverter {
         Object obj = json.get(key);
 
         if (obj instanceof Number) {
-            GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
-            cal.setTimeInMillis(((Number) obj).longValue());
+            GregorianCalendar cal = DateTimeHelper.createGMTCalendar(((Number) obj).longValue());
             return cal;
         } else if (obj instanceof String) {
             return DateTimeHelper.parseXmlDateTime((String) obj);
@@ -1640,6 +1640,18 @@ public final class WSConverter {
         return result;
     }
 
+    /**
+     * Sets the values of a property. Single values are stored in a compact
+     * form.
+     */
+    private static <T> void setPropertyValues(AbstractPropertyData<T> property, List<T> values) {
+        if (values != null && values.size() == 1 && values.get(0) != null) {
+            property.setValue(values.get(0));
+        } else {
+            property.setValues(values);
+        }
+    }
+
     /**
      * Converts a properties object.
      */
@@ -1671,30 +1683,42 @@ public final class WSConverter {
         PropertyData<?> result = null;
 
         if (property instanceof CmisPropertyString) {
-            result = new PropertyStringImpl(property.getPropertyDefinitionId(),
-                    ((CmisPropertyString) property).getValue());
+            PropertyStringImpl stringProperty = new PropertyStringImpl();
+            setPropertyValues(stringProperty, ((CmisPropertyString) property).getValue());
+            result = stringProperty;
         } else if (property instanceof CmisPropertyId) {
-            result = new PropertyIdImpl(property.getPropertyDefinitionId(), ((CmisPropertyId) property).getValue());
+            PropertyIdImpl idProperty = new PropertyIdImpl();
+            setPropertyValues(idProperty, ((CmisPropertyId) property).getValue());
+            result = idProperty;
         } else if (property instanceof CmisPropertyInteger) {
-            result = new PropertyIntegerImpl(property.getPropertyDefinitionId(),
-                    ((CmisPropertyInteger) property).getValue());
+            PropertyIntegerImpl integerProperty = new PropertyIntegerImpl();
+            setPropertyValues(integerProperty, ((CmisPropertyInteger) property).getValue());
+            result = integerProperty;
         } else if (property instanceof CmisPropertyDecimal) {
-            result = new PropertyDecimalImpl(property.getPropertyDefinitionId(),
-                    ((CmisPropertyDecimal) property).getValue());
+            PropertyDecimalImpl decimalProperty = new PropertyDecimalImpl();
+            setPropertyValues(decimalProperty, ((CmisPropertyDecimal) property).getValue());
+            result = decimalProperty;
         } else if (property instanceof CmisPropertyBoolean) {
-            result = new PropertyBooleanImpl(property.getPropertyDefinitionId(),
-                    ((CmisPropertyBoolean) property).getValue());
+            PropertyBooleanImpl booleanProperty = new PropertyBooleanImpl();
+            setPropertyValues(booleanProperty, ((CmisPropertyBoolean) property).getValue());
+            result = booleanProperty;
         } else if (property instanceof CmisPropertyDateTime) {
-            result = new PropertyDateTimeImpl(property.getPropertyDefinitionId(),
-                    convertXMLCalendar(((CmisPropertyDateTime) property).getValue()));
+            PropertyDateTimeImpl dateTimeProperty = new PropertyDateTimeImpl();
+            setPropertyValues(dateTimeProperty, convertXMLCalendar(((CmisPropertyDateTime) property).getValue()));
+            result = dateTimeProperty;
         } else if (property instanceof CmisPropertyHtml) {
-            result = new PropertyHtmlImpl(property.getPropertyDefinitionId(), ((CmisPropertyHtml) property).getValue());
+            PropertyHtmlImpl htmlProperty = new PropertyHtmlImpl();
+            setPropertyValues(htmlProperty, ((CmisPropertyHtml) property).getValue());
+            result = htmlProperty;
         } else if (property instanceof CmisPropertyUri) {
-            result = new PropertyUriImpl(property.getPropertyDefinitionId(), ((CmisPropertyUri) property).getValue());
+            PropertyUriImpl uriProperty = new PropertyUriImpl();
+            setPropertyValues(uriProperty, ((CmisPropertyUri) property).getValue());
+            result = uriProperty;
         } else {
             return null;
         }
 
+        ((AbstractPropertyData<?>) result).setId(property.getPropertyDefinitionId());
         ((AbstractPropertyData<?>) result).setLocalName(property.getLocalName());
         ((AbstractPropertyData<?>) result).setQueryName(property.getQueryName());
         ((AbstractPropertyData<?>) result).setDisplayName(property.getDisplayName());
@@ -152,6 +152,9 @@ public final class XMLConverter {
 
     private static final Logger LOG = LoggerFactory.getLogger(XMLConverter.class);
 
+    /** All actions in the order they are written. */
+    private static final Action[] ACTIONS = Action.values();
+
     private XMLConverter() {
     }
 
@@ -867,7 +870,7 @@ public final class XMLConverter {
         }
 
         if (source.getAllowableActions() != null) {
-            for (Action action : Action.values()) {
+            for (Action action : ACTIONS) {
                 if (source.getAllowableActions().contains(action)) {
                     if (action == Action.CAN_CREATE_ITEM && cmisVersion == CmisVersion.CMIS_1_0) {
                         LOG.warn("Receiver only understands CMIS 1.0 but the Allowable Actions contain the canCreateItem action. "
@@ -1019,9 +1022,9 @@ public final class XMLConverter {
             return;
         }
 
-        List<String> ns = new ArrayList<String>();
+        if (source.getExtensions() != null && !source.getExtensions().isEmpty()) {
+            List<String> ns = new ArrayList<String>();
 
-        if (source.getExtensions() != null) {
             for (CmisExtensionElement element : source.getExtensions()) {
                 if (element == null) {
                     continue;
@@ -2526,7 +2529,7 @@ public final class XMLConverter {
 
         @Override
         protected void addValue(XMLStreamReader parser, PropertyBooleanImpl target) throws XMLStreamException {
-            target.setValues(addToList(target.getValues(), readBoolean(parser)));
+            addPropertyValue(target, readBoolean(parser));
         }
     };
 
@@ -2538,7 +2541,7 @@ public final class XMLConverter {
 
         @Override
         protected void addValue(XMLStreamReader parser, PropertyIntegerImpl target) throws XMLStreamException {
-            target.setValues(addToList(target.getValues(), readInteger(parser)));
+            addPropertyValue(target, readInteger(parser));
         }
     };
 
@@ -2550,7 +2553,7 @@ public final class XMLConverter {
 
         @Override
         protected void addValue(XMLStreamReader parser, PropertyDecimalImpl target) throws XMLStreamException {
-            target.setValues(addToList(target.getValues(), readDecimal(parser)));
+            addPropertyValue(target, readDecimal(parser));
         }
     };
 
@@ -2562,7 +2565,7 @@ public final class XMLConverter {
 
         @Override
         protected void addValue(XMLStreamReader parser, PropertyDateTimeImpl target) throws XMLStreamException {
-            target.setValues(addToList(target.getValues(), readDateTime(parser)));
+            addPropertyValue(target, readDateTime(parser));
         }
     };
 
@@ -2594,6 +2597,19 @@ public final class XMLConverter {
 
         protected abstract void addValue(XMLStreamReader parser, T target) throws XMLStreamException;
 
+        /**
+         * Adds a value to a property. The first value is stored in a compact
+         * form.
+         */
+        protected <V> void addPropertyValue(AbstractPropertyData<V> target, V value) {
+            List<V> values = target.getValues();
+            if (values.isEmpty() && value != null) {
+                target.setValue(value);
+            } else {
+                target.setValues(addToList(values, value));
+            }
+        }
+
         @Override
         protected boolean read(XMLStreamReader parser, QName name, T target) throws XMLStreamException {
             if (isCmisNamespace(name)) {
@@ -2624,7 +2640,7 @@ public final class XMLConverter {
             PropertyXMLWalker<T> {
         @Override
         protected void addValue(XMLStreamReader parser, T target) throws XMLStreamException {
-            target.setValues(addToList(target.getValues(), readText(parser)));
+            addPropertyValue(target, readText(parser));
         }
     }
 
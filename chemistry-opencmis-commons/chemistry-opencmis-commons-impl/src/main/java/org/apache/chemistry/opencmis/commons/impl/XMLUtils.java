@@ -214,7 +214,16 @@ public final class XMLUtils {
             return;
         }
 
-        write(writer, prefix, namespace, tag, DateTimeHelper.formatXmlDateTime(value));
+        char[] buffer = new char[DateTimeHelper.XML_DATETIME_MAX_LENGTH];
+        int length = DateTimeHelper.formatXmlDateTime(value, buffer);
+
+        if (namespace == null) {
+            writer.writeStartElement(tag);
+        } else {
+            writer.writeStartElement(prefix, tag, namespace);
+        }
+        writer.writeCharacters(buffer, 0, length);
+        writer.writeEndElement();
     }
 
     /**
@@ -330,10 +339,54 @@ public final class XMLUtils {
         assert parser != null;
         assert maxLength >= 0;
 
+        next(parser);
+
+        // most values arrive in one piece and don't need a StringBuilder
+        int event = parser.getEventType();
+        if (event == XMLStreamReader.CHARACTERS || event == XMLStreamReader.CDATA) {
+            if (parser.getTextLength() > maxLength) {
+                throw new CmisInvalidArgumentException("String limit exceeded!");
+            }
+
+            String text = parser.getText();
+
+            if (!next(parser) || parser.getEventType() == XMLStreamReader.END_ELEMENT) {
+                next(parser);
+                return text;
+            }
+
+            StringBuilder sb = new StringBuilder(text);
+            readRemainingText(parser, maxLength, sb);
+
+            return sb.toString();
+        }
+
         StringBuilder sb = new StringBuilder();
+        readRemainingText(parser, maxLength, sb);
+
+        return sb.toString();
+    }
+
+    /**
+     * Parses a tag that contains text and appends the text to the given
+     * {@link StringBuilder}.
+     */
+    public static void readText(XMLStreamReader parser, int maxLength, StringBuilder sb) throws XMLStreamException {
+        assert parser != null;
+        assert maxLength >= 0;
+        assert sb != null;
 
         next(parser);
 
+        readRemainingText(parser, maxLength, sb);
+    }
+
+    /**
+     * Reads the text up to the end tag. The parser must be positioned behind
+     * the start tag.
+     */
+    private static void readRemainingText(XMLStreamReader parser, int maxLength, StringBuilder sb)
+            throws XMLStreamException {
         while (true) {
             int event = parser.getEventType();
             if (event == XMLStreamReader.END_ELEMENT) {
@@ -360,8 +413,6 @@ public final class XMLUtils {
         }
 
         next(parser);
-
-        return sb.toString();
     }
 
     // ------------------
@@ -231,7 +231,8 @@ public abstract class XMLWalker<T> {
     protected GregorianCalendar readDateTime(final XMLStreamReader parser) throws XMLStreamException {
         assert parser != null;
 
-        String value = readText(parser);
+        StringBuilder value = new StringBuilder(DateTimeHelper.XML_DATETIME_MAX_LENGTH);
+        XMLUtils.readText(parser, XMLConstraints.MAX_STRING_LENGTH, value);
 
         GregorianCalendar result = DateTimeHelper.parseXmlDateTime(value);
         if (result == null) {
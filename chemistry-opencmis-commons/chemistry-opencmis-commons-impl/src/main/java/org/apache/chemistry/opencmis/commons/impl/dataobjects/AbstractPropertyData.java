@@ -18,7 +18,6 @@
  */
 package org.apache.chemistry.opencmis.commons.impl.dataobjects;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -43,7 +42,7 @@ public abstract class AbstractPropertyData<T> extends AbstractExtensionData impl
     }
 
     public void setId(String id) {
-        this.id = id;
+        this.id = PropertyNameTable.intern(id);
     }
 
     public String getDisplayName() {
@@ -51,7 +50,7 @@ public abstract class AbstractPropertyData<T> extends AbstractExtensionData impl
     }
 
     public void setDisplayName(String displayName) {
-        this.displayName = displayName;
+        this.displayName = PropertyNameTable.intern(displayName);
     }
 
     public String getLocalName() {
@@ -59,7 +58,7 @@ public abstract class AbstractPropertyData<T> extends AbstractExtensionData impl
     }
 
     public void setLocalName(String localName) {
-        this.localName = localName;
+        this.localName = PropertyNameTable.intern(localName);
     }
 
     public String getQueryName() {
@@ -67,7 +66,7 @@ public abstract class AbstractPropertyData<T> extends AbstractExtensionData impl
     }
 
     public void setQueryName(String queryName) {
-        this.queryName = queryName;
+        this.queryName = PropertyNameTable.intern(queryName);
     }
 
     public List<T> getValues() {
@@ -86,11 +85,19 @@ public abstract class AbstractPropertyData<T> extends AbstractExtensionData impl
         if (value == null) {
             values = Collections.emptyList();
         } else {
-            values = new ArrayList<T>(1);
-            values.add(value);
+            values = createSingleValueList(value);
         }
     }
 
+    /**
+     * Creates the list that holds a single value. Subclasses may return a list
+     * that stores the value in a more compact form. The list must be
+     * modifiable.
+     */
+    protected List<T> createSingleValueList(T value) {
+        return new AbstractSingleValueList.ObjectValueList<T>(value);
+    }
+
     public T getFirstValue() {
         if (values != null && !values.isEmpty()) {
             return values.get(0);
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.dataobjects;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Base class for compact lists that hold exactly one property value.
+ * <p>
+ * Subclasses store the value in the form that is cheapest for the data type.
+ * The list can be modified. The first modification copies the value into a
+ * regular list.
+ */
+abstract class AbstractSingleValueList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Set as soon as the list has been modified. */
+    private List<T> values;
+
+    /**
+     * Returns the value.
+     */
+    protected abstract T getValue();
+
+    @Override
+    public T get(int index) {
+        if (values != null) {
+            return values.get(index);
+        }
+
+        if (index != 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: 1");
+        }
+
+        return getValue();
+    }
+
+    @Override
+    public int size() {
+        return values == null ? 1 : values.size();
+    }
+
+    @Override
+    public T set(int index, T element) {
+        return getModifiableList().set(index, element);
+    }
+
+    @Override
+    public void add(int index, T element) {
+        modCount++;
+        getModifiableList().add(index, element);
+    }
+
+    @Override
+    public T remove(int index) {
+        modCount++;
+        return getModifiableList().remove(index);
+    }
+
+    private List<T> getModifiableList() {
+        if (values == null) {
+            List<T> list = new ArrayList<T>(2);
+            list.add(getValue());
+            values = list;
+        }
+
+        return values;
+    }
+
+    /**
+     * Single value list that holds a reference to the value.
+     */
+    static class ObjectValueList<T> extends AbstractSingleValueList<T> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final T value;
+
+        ObjectValueList(T value) {
+            this.value = value;
+        }
+
+        @Override
+        protected T getValue() {
+            return value;
+        }
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.chemistry.opencmis.commons.impl.dataobjects;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +27,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.chemistry.opencmis.commons.data.MutableProperties;
 import org.apache.chemistry.opencmis.commons.data.Properties;
@@ -38,7 +41,10 @@ public class PropertiesImpl extends AbstractExtensionData implements MutableProp
     private static final long serialVersionUID = 1L;
 
     private final List<PropertyData<?>> propertyList = new ArrayList<PropertyData<?>>();
-    private final Map<String, PropertyData<?>> properties = new LinkedHashMap<String, PropertyData<?>>();
+
+    /** Index by property id. Built when it is needed the first time. */
+    private transient volatile Map<String, PropertyData<?>> propertyIndex;
+    private transient Map<String, PropertyData<?>> propertyMap;
 
     /**
      * Constructor.
@@ -72,7 +78,13 @@ public class PropertiesImpl extends AbstractExtensionData implements MutableProp
     }
 
     public Map<String, PropertyData<?>> getProperties() {
-        return Collections.unmodifiableMap(properties);
+        Map<String, PropertyData<?>> map = propertyMap;
+        if (map == null) {
+            map = new PropertyMap();
+            propertyMap = map;
+        }
+
+        return map;
     }
 
     public List<PropertyData<?>> getPropertyList() {
@@ -93,7 +105,7 @@ public class PropertiesImpl extends AbstractExtensionData implements MutableProp
         }
 
         propertyList.add(property);
-        properties.put(property.getId(), property);
+        propertyIndex = null;
     }
 
     public void replaceProperty(PropertyData<?> property) {
@@ -104,7 +116,7 @@ public class PropertiesImpl extends AbstractExtensionData implements MutableProp
         removeProperty(property.getId());
 
         propertyList.add(property);
-        properties.put(property.getId(), property);
+        propertyIndex = null;
     }
 
     public void removeProperty(String id) {
@@ -121,7 +133,62 @@ public class PropertiesImpl extends AbstractExtensionData implements MutableProp
             }
         }
 
-        properties.remove(id);
+        propertyIndex = null;
+    }
+
+    /**
+     * Returns the index by property id. If a property id occurs more than once,
+     * the index contains the last property with this id at the position of the
+     * first one.
+     */
+    private Map<String, PropertyData<?>> getPropertyIndex() {
+        Map<String, PropertyData<?>> index = propertyIndex;
+        if (index == null) {
+            index = new LinkedHashMap<String, PropertyData<?>>((propertyList.size() * 4) / 3 + 1);
+            for (PropertyData<?> property : propertyList) {
+                index.put(property.getId(), property);
+            }
+            index = Collections.unmodifiableMap(index);
+            propertyIndex = index;
+        }
+
+        return index;
+    }
+
+    /**
+     * Read-only map view of the properties.
+     */
+    private class PropertyMap extends AbstractMap<String, PropertyData<?>> {
+
+        @Override
+        public PropertyData<?> get(Object key) {
+            return getPropertyIndex().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return getPropertyIndex().containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return getPropertyIndex().size();
+        }
+
+        @Override
+        public Set<Map.Entry<String, PropertyData<?>>> entrySet() {
+            return new AbstractSet<Map.Entry<String, PropertyData<?>>>() {
+                @Override
+                public Iterator<Map.Entry<String, PropertyData<?>>> iterator() {
+                    return getPropertyIndex().entrySet().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return getPropertyIndex().size();
+                }
+            };
+        }
     }
 
     @Override
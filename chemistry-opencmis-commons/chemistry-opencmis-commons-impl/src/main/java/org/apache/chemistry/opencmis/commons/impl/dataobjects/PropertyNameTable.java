@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.dataobjects;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+
+/**
+ * JVM wide table of property ids and names.
+ * <p>
+ * Property ids, query names, local names and display names are repeated for
+ * every object that is parsed or created. The table makes all properties share
+ * one string instance per name. The table is bounded. If it is full, strings
+ * are returned as they are. The ids of the CMIS properties are always in the
+ * table.
+ */
+final class PropertyNameTable {
+
+    private static final int MAX_SIZE = 16 * 1024;
+
+    private static final ConcurrentHashMap<String, String> NAMES = new ConcurrentHashMap<String, String>();
+
+    static {
+        for (Field field : PropertyIds.class.getFields()) {
+            if (field.getType() == String.class && Modifier.isStatic(field.getModifiers())) {
+                try {
+                    String id = (String) field.get(null);
+                    NAMES.put(id, id);
+                } catch (IllegalAccessException e) {
+                    // public constants are accessible
+                }
+            }
+        }
+    }
+
+    private PropertyNameTable() {
+    }
+
+    /**
+     * Returns the shared instance of the given string.
+     */
+    static String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        String shared = NAMES.get(name);
+        if (shared != null) {
+            return shared;
+        }
+
+        if (NAMES.size() >= MAX_SIZE) {
+            return name;
+        }
+
+        shared = NAMES.putIfAbsent(name, name);
+        return shared == null ? name : shared;
+    }
+}
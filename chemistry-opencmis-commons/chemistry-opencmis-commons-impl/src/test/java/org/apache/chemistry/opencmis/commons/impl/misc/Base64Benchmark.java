@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
+
+/**
+ * Compares the throughput of {@link Base64Codec} and the legacy
+ * {@link Base64} streams. This is not a unit test, run it manually:
+ * 
+ * <pre>
+ * Base64Benchmark [payload size in MB]
+ * </pre>
+ * 
+ * The default payload size is 256 MB.
+ */
+public final class Base64Benchmark {
+
+    private static final int RUNS = 3;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private Base64Benchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+
+        byte[] data = new byte[megabytes * 1024 * 1024];
+        new Random(42).nextBytes(data);
+        byte[] encoded = Base64Codec.encodeToBytes(data, 0, data.length);
+
+        System.out.println("Payload: " + megabytes + " MB");
+
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            drain(new Base64.InputStream(new ByteArrayInputStream(data), Base64.ENCODE));
+            report("legacy encode", encoded.length, start);
+
+            start = System.nanoTime();
+            drain(new Base64Codec.EncodingInputStream(new ByteArrayInputStream(data)));
+            report("codec encode ", encoded.length, start);
+
+            start = System.nanoTime();
+            drain(new Base64.InputStream(new ByteArrayInputStream(encoded)));
+            report("legacy decode", encoded.length, start);
+
+            start = System.nanoTime();
+            drain(new Base64Codec.DecodingInputStream(new ByteArrayInputStream(encoded)));
+            report("codec decode ", encoded.length, start);
+
+            start = System.nanoTime();
+            write(new Base64.OutputStream(new NullOutputStream(), Base64.DECODE), encoded);
+            report("legacy decode (output stream)", encoded.length, start);
+
+            start = System.nanoTime();
+            write(new Base64Codec.DecodingOutputStream(new NullOutputStream()), encoded);
+            report("codec decode (output stream) ", encoded.length, start);
+        }
+    }
+
+    private static void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        while (stream.read(buffer) > -1) {
+            // just read
+        }
+        stream.close();
+    }
+
+    private static void write(OutputStream stream, byte[] data) throws IOException {
+        for (int off = 0; off < data.length; off += CHUNK_SIZE) {
+            stream.write(data, off, Math.min(CHUNK_SIZE, data.length - off));
+        }
+        stream.close();
+    }
+
+    private static void report(String name, long encodedLength, long start) {
+        long time = System.nanoTime() - start;
+        long micros = Math.max(time / 1000, 1);
+        System.out.println(name + ": " + (time / 1000000) + " ms, "
+                + ((encodedLength * 1000000L / micros) / (1024 * 1024)) + " MB/s (encoded)");
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
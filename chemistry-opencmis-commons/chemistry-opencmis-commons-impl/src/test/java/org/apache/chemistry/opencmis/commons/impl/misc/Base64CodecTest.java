@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.junit.Test;
+
+public class Base64CodecTest {
+
+    private static final int[] SIZES = { 0, 1, 2, 3, 4, 5, 57, 100, Base64Codec.BUFFER_SIZE - 1,
+            Base64Codec.BUFFER_SIZE, Base64Codec.BUFFER_SIZE + 1, 3 * Base64Codec.BUFFER_SIZE + 2 };
+
+    @Test
+    public void testSimpleBase64() throws Exception {
+        byte[] input = IOUtils.toUTF8Bytes("test");
+
+        assertEquals("dGVzdA==", Base64Codec.encodeBytes(input));
+        assertArrayEquals(input, Base64Codec.decode("dGVzdA=="));
+        assertArrayEquals(input, Base64Codec.decode("dGVzdA"));
+        assertArrayEquals(input, Base64Codec.decode(" dGVz\r\ndA==\n"));
+        assertArrayEquals(new byte[0], Base64Codec.decode(""));
+    }
+
+    @Test
+    public void testInvalidBase64() throws Exception {
+        try {
+            Base64Codec.decode("dGV*dA==");
+            fail("Invalid character not detected!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            Base64Codec.decode("dGVzd");
+            fail("Incomplete data not detected!");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            Base64Codec.decode("dGVz\u00e4A==");
+            fail("Non-ASCII character not detected!");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompatibility() throws Exception {
+        Random random = new Random(42);
+
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            String encoded = Base64Codec.encodeBytes(data);
+            assertEquals(Base64.encodeBytes(data), encoded);
+            assertArrayEquals(data, Base64Codec.decode(encoded));
+            assertArrayEquals(data, Base64Codec.decode(encoded.getBytes("US-ASCII")));
+        }
+    }
+
+    @Test
+    public void testEncodingInputStream() throws Exception {
+        Random random = new Random(23);
+
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            // bytes
+            InputStream stream = new Base64Codec.EncodingInputStream(new ByteArrayInputStream(data));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            IOUtils.copy(stream, output);
+            stream.close();
+
+            assertEquals(Base64.encodeBytes(data), new String(output.toByteArray(), "US-ASCII"));
+
+            // chars
+            Base64Codec.EncodingInputStream charStream = new Base64Codec.EncodingInputStream(
+                    new ByteArrayInputStream(data));
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[1000];
+            int len;
+            while ((len = charStream.read(buffer, 0, buffer.length)) > -1) {
+                sb.append(buffer, 0, len);
+            }
+            charStream.close();
+
+            assertEquals(Base64.encodeBytes(data), sb.toString());
+        }
+    }
+
+    @Test
+    public void testDecodingInputStream() throws Exception {
+        Random random = new Random(7);
+
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            InputStream stream = new Base64Codec.DecodingInputStream(new ByteArrayInputStream(Base64.encodeBytes(
+                    data).getBytes("US-ASCII")));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            IOUtils.copy(stream, output);
+            stream.close();
+
+            assertArrayEquals(data, output.toByteArray());
+        }
+    }
+
+    @Test
+    public void testDecodingOutputStream() throws Exception {
+        Random random = new Random(11);
+
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            // write the encoded data in odd chunks to split blocks
+            char[] encoded = Base64.encodeBytes(data).toCharArray();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Base64Codec.DecodingOutputStream stream = new Base64Codec.DecodingOutputStream(output);
+            for (int off = 0; off < encoded.length; off += 7) {
+                stream.write(encoded, off, Math.min(7, encoded.length - off));
+            }
+            stream.close();
+
+            assertArrayEquals(data, output.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.junit.Test;
+
+public class CompactPropertiesTest {
+
+    @Test
+    public void testIntegerValues() {
+        BigInteger small = BigInteger.valueOf(-42);
+        BigInteger large = BigInteger.ONE.shiftLeft(100);
+
+        assertEquals(small, new PropertyIntegerImpl("p", small).getFirstValue());
+        assertEquals(large, new PropertyIntegerImpl("p", large).getFirstValue());
+        assertEquals(BigInteger.valueOf(Long.MIN_VALUE),
+                new PropertyIntegerImpl("p", BigInteger.valueOf(Long.MIN_VALUE)).getFirstValue());
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE),
+                new PropertyIntegerImpl("p", BigInteger.valueOf(Long.MAX_VALUE)).getFirstValue());
+        assertTrue(new PropertyIntegerImpl("p", (BigInteger) null).getValues().isEmpty());
+    }
+
+    @Test
+    public void testDateTimeValues() {
+        GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT+05:30"));
+        cal.setTimeInMillis(1234567890123L);
+
+        // calendars are kept as they are
+        PropertyDateTimeImpl property = new PropertyDateTimeImpl("p", cal);
+        assertSame(cal, property.getFirstValue());
+        assertSame(property.getFirstValue(), property.getValues().get(0));
+
+        // modifications of the value are visible
+        property.getFirstValue().add(GregorianCalendar.DAY_OF_MONTH, 1);
+        assertEquals(1234567890123L + 24 * 60 * 60 * 1000, property.getFirstValue().getTimeInMillis());
+
+        GregorianCalendar special = new GregorianCalendar(TimeZone.getTimeZone("GMT"), Locale.US);
+        special.setMinimalDaysInFirstWeek(7);
+        special.setLenient(false);
+        assertSame(special, new PropertyDateTimeImpl("p", special).getFirstValue());
+    }
+
+    @Test
+    public void testModifySingleValue() {
+        PropertyIntegerImpl property = new PropertyIntegerImpl("p", BigInteger.ONE);
+
+        List<BigInteger> values = property.getValues();
+        values.add(BigInteger.TEN);
+        assertEquals(2, property.getValues().size());
+        assertEquals(BigInteger.ONE, property.getValues().get(0));
+        assertEquals(BigInteger.TEN, property.getValues().get(1));
+
+        values.set(0, BigInteger.ZERO);
+        values.remove(1);
+        assertEquals(1, property.getValues().size());
+        assertEquals(BigInteger.ZERO, property.getFirstValue());
+
+        List<BigInteger> expected = new ArrayList<BigInteger>();
+        expected.add(BigInteger.ZERO);
+        assertEquals(expected, property.getValues());
+        assertEquals(expected.hashCode(), property.getValues().hashCode());
+    }
+
+    @Test
+    public void testPropertyNames() {
+        PropertyStringImpl p1 = new PropertyStringImpl(new String(PropertyIds.NAME), "a");
+        PropertyStringImpl p2 = new PropertyStringImpl(new String(PropertyIds.NAME), "b");
+
+        assertEquals(PropertyIds.NAME, p1.getId());
+        assertSame(p1.getId(), p2.getId());
+    }
+
+    @Test
+    public void testPropertiesMap() {
+        PropertiesImpl properties = new PropertiesImpl();
+        Map<String, PropertyData<?>> map = properties.getProperties();
+        assertTrue(map.isEmpty());
+
+        PropertyStringImpl name = new PropertyStringImpl(PropertyIds.NAME, "name");
+        PropertyIntegerImpl length = new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger.TEN);
+        properties.addProperty(name);
+        properties.addProperty(length);
+
+        // the map is a live view
+        assertEquals(2, map.size());
+        assertSame(name, map.get(PropertyIds.NAME));
+        assertSame(length, map.get(PropertyIds.CONTENT_STREAM_LENGTH));
+        assertEquals(PropertyIds.NAME, map.keySet().iterator().next());
+
+        PropertyStringImpl newName = new PropertyStringImpl(PropertyIds.NAME, "new name");
+        properties.replaceProperty(newName);
+        assertSame(newName, map.get(PropertyIds.NAME));
+        assertEquals(2, properties.getPropertyList().size());
+
+        properties.removeProperty(PropertyIds.CONTENT_STREAM_LENGTH);
+        assertFalse(map.containsKey(PropertyIds.CONTENT_STREAM_LENGTH));
+        assertNull(map.get(PropertyIds.CONTENT_STREAM_LENGTH));
+        assertEquals(1, map.size());
+
+        try {
+            map.put(PropertyIds.NAME, name);
+            fail("Map is modifiable!");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
+
+/**
+ * Measures the throughput of the {@link DateTimeHelper} parsers and
+ * formatters. This is not a unit test, run it manually:
+ * 
+ * <pre>
+ * DateTimeBenchmark [number of values]
+ * </pre>
+ * 
+ * The default number of values is 1,000,000.
+ */
+public final class DateTimeBenchmark {
+
+    private static final int RUNS = 3;
+
+    private static final String[] ZONES = new String[] { "GMT", "GMT+05:30", "GMT-08:00", "Europe/Berlin" };
+
+    private DateTimeBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        Random random = new Random(42);
+        GregorianCalendar[] calendars = new GregorianCalendar[count];
+        String[] xmlValues = new String[count];
+        long[] millis = new long[count];
+        String[] httpValues = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            // between 1970 and 2100
+            millis[i] = (long) (random.nextDouble() * 4102444800000L);
+            calendars[i] = new GregorianCalendar(TimeZone.getTimeZone(ZONES[i % ZONES.length]));
+            calendars[i].setTimeInMillis(millis[i]);
+            xmlValues[i] = DateTimeHelper.formatXmlDateTime(calendars[i]);
+            httpValues[i] = DateTimeHelper.formatHttpDateTime(millis[i]);
+        }
+
+        System.out.println("Values: " + count);
+
+        long check = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                GregorianCalendar cal = DateTimeHelper.parseXmlDateTime(xmlValues[i]);
+                check += cal.getTimeInMillis();
+            }
+            report("parse xsd:dateTime ", count, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                check += DateTimeHelper.formatXmlDateTime(calendars[i]).length();
+            }
+            report("format xsd:dateTime", count, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                Date date = DateTimeHelper.parseHttpDateTime(httpValues[i]);
+                check += date.getTime();
+            }
+            report("parse HTTP date    ", count, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                check += DateTimeHelper.formatHttpDateTime(millis[i]).length();
+            }
+            report("format HTTP date   ", count, start);
+        }
+
+        System.out.println("(" + check + ")");
+    }
+
+    private static void report(String name, int count, long start) {
+        long time = System.nanoTime() - start;
+        long micros = Math.max(time / 1000, 1);
+        System.out.println(name + ": " + (time / 1000000) + " ms, " + (count * 1000000L / micros) + " values/s");
+    }
+}
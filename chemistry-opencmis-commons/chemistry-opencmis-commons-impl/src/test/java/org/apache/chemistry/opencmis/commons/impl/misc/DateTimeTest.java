@@ -19,11 +19,13 @@
 package org.apache.chemistry.opencmis.commons.impl.misc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
@@ -128,6 +130,175 @@ public class DateTimeTest {
         assertEquals(cal3, cal4);
     }
 
+    @Test
+    public void testXmlDateTimeFractions() {
+        assertEquals(100, DateTimeHelper.parseXmlDateTime("2013-02-04T23:45:55.1Z").get(Calendar.MILLISECOND));
+        assertEquals(10, DateTimeHelper.parseXmlDateTime("2013-02-04T23:45:55.01Z").get(Calendar.MILLISECOND));
+        assertEquals(1, DateTimeHelper.parseXmlDateTime("2013-02-04T23:45:55.001Z").get(Calendar.MILLISECOND));
+        assertEquals(999, DateTimeHelper.parseXmlDateTime("2013-02-04T23:45:55.99999999Z").get(Calendar.MILLISECOND));
+        assertEquals(0, DateTimeHelper.parseXmlDateTime("2013-02-04T23:45:55.0000Z").get(Calendar.MILLISECOND));
+
+        GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        cal.clear();
+        cal.set(2013, 1, 4, 23, 45, 55);
+
+        cal.set(Calendar.MILLISECOND, 100);
+        assertEquals("2013-02-04T23:45:55.1Z", DateTimeHelper.formatXmlDateTime(cal));
+        cal.set(Calendar.MILLISECOND, 1);
+        assertEquals("2013-02-04T23:45:55.001Z", DateTimeHelper.formatXmlDateTime(cal));
+        cal.set(Calendar.MILLISECOND, 120);
+        assertEquals("2013-02-04T23:45:55.12Z", DateTimeHelper.formatXmlDateTime(cal));
+    }
+
+    @Test
+    public void testXmlDateTimeOffsets() {
+        GregorianCalendar cal1 = DateTimeHelper.parseXmlDateTime("2013-01-02T03:04:05-12:30");
+        assertEquals(-(12 * 60 + 30) * 60 * 1000, cal1.getTimeZone().getRawOffset());
+        assertEquals(3, cal1.get(Calendar.HOUR_OF_DAY));
+        assertEquals("2013-01-02T03:04:05-12:30", DateTimeHelper.formatXmlDateTime(cal1));
+
+        GregorianCalendar cal2 = DateTimeHelper.parseXmlDateTime("2013-01-02T03:04:05+14:00");
+        assertEquals(14 * 60 * 60 * 1000, cal2.getTimeZone().getRawOffset());
+        assertEquals("2013-01-01T13:04:05Z", DateTimeHelper.formatXmlDateTime(cal2.getTimeInMillis()));
+
+        GregorianCalendar cal3 = DateTimeHelper.parseXmlDateTime("2013-01-02T03:04:05-00:00");
+        assertEquals(0, cal3.getTimeZone().getRawOffset());
+        assertEquals("2013-01-02T03:04:05Z", DateTimeHelper.formatXmlDateTime(cal3));
+
+        // the same offset in different calendars must not share a time zone
+        // object
+        GregorianCalendar cal4 = DateTimeHelper.parseXmlDateTime("2013-01-02T03:04:05+05:30");
+        GregorianCalendar cal5 = DateTimeHelper.parseXmlDateTime("2014-01-02T03:04:05+05:30");
+        assertFalse(cal4.getTimeZone() == cal5.getTimeZone());
+        cal4.getTimeZone().setRawOffset(0);
+        assertEquals((5 * 60 + 30) * 60 * 1000, cal5.getTimeZone().getRawOffset());
+        assertEquals((5 * 60 + 30) * 60 * 1000,
+                DateTimeHelper.parseXmlDateTime("2015-01-02T03:04:05+05:30").getTimeZone().getRawOffset());
+    }
+
+    @Test
+    public void testXmlDateTimeLeapYears() {
+        assertXmlDateTime(2000, 1, 29, DateTimeHelper.parseXmlDateTime("2000-02-29T12:00:00Z"));
+        assertXmlDateTime(2012, 1, 29, DateTimeHelper.parseXmlDateTime("2012-02-29T12:00:00Z"));
+        assertXmlDateTime(2400, 1, 29, DateTimeHelper.parseXmlDateTime("2400-02-29T12:00:00Z"));
+
+        // not leap years, the parser is lenient and rolls over
+        assertXmlDateTime(1900, 2, 1, DateTimeHelper.parseXmlDateTime("1900-02-29T12:00:00Z"));
+        assertXmlDateTime(2013, 2, 1, DateTimeHelper.parseXmlDateTime("2013-02-29T12:00:00Z"));
+        assertXmlDateTime(2100, 2, 1, DateTimeHelper.parseXmlDateTime("2100-02-29T12:00:00Z"));
+
+        GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        cal.clear();
+        cal.set(2000, 1, 29, 23, 59, 59);
+        assertEquals("2000-02-29T23:59:59Z", DateTimeHelper.formatXmlDateTime(cal));
+        cal.add(Calendar.SECOND, 1);
+        assertEquals("2000-03-01T00:00:00Z", DateTimeHelper.formatXmlDateTime(cal));
+    }
+
+    @Test
+    public void testXmlDateTimeRollover() {
+        // out of range values are accepted like a lenient calendar does
+        assertXmlDateTime(2012, 11, 31, DateTimeHelper.parseXmlDateTime("2013-01-00T00:00:00Z"));
+        assertXmlDateTime(2011, 11, 1, DateTimeHelper.parseXmlDateTime("2012-00-01T00:00:00Z"));
+        assertXmlDateTime(2013, 6, 1, DateTimeHelper.parseXmlDateTime("2012-19-01T00:00:00Z"));
+        assertXmlDateTime(2013, 1, 8, DateTimeHelper.parseXmlDateTime("2013-01-39T00:00:00Z"));
+
+        GregorianCalendar cal = DateTimeHelper.parseXmlDateTime("2013-01-01T29:00:00Z");
+        assertXmlDateTime(2013, 0, 2, cal);
+        assertEquals(5, cal.get(Calendar.HOUR_OF_DAY));
+    }
+
+    @Test
+    public void testXmlDateTimeOutsideFastRange() {
+        // Julian calendar
+        GregorianCalendar cal1 = DateTimeHelper.parseXmlDateTime("1000-03-04T05:06:07.8Z");
+        assertXmlDateTime(1000, 2, 4, cal1);
+        assertEquals("1000-03-04T05:06:07.8Z", DateTimeHelper.formatXmlDateTime(cal1));
+
+        // years with more than four digits
+        GregorianCalendar cal2 = DateTimeHelper.parseXmlDateTime("123456-07-08T09:10:11+01:00");
+        assertXmlDateTime(123456, 6, 8, cal2);
+        assertEquals("123456-07-08T09:10:11+01:00", DateTimeHelper.formatXmlDateTime(cal2));
+
+        char[] buffer = new char[DateTimeHelper.XML_DATETIME_MAX_LENGTH];
+        int length = DateTimeHelper.formatXmlDateTime(cal2, buffer);
+        assertEquals("123456-07-08T09:10:11+01:00", new String(buffer, 0, length));
+    }
+
+    @Test
+    public void testXmlDateTimeCharSequence() {
+        StringBuilder sb = new StringBuilder("2012-12-24T09:15:06.123+01:00");
+        assertEquals(DateTimeHelper.parseXmlDateTime(sb.toString()), DateTimeHelper.parseXmlDateTime(sb));
+
+        GregorianCalendar cal = DateTimeHelper.parseXmlDateTime(sb);
+        char[] buffer = new char[DateTimeHelper.XML_DATETIME_MAX_LENGTH];
+        int length = DateTimeHelper.formatXmlDateTime(cal, buffer);
+        assertEquals(sb.toString(), new String(buffer, 0, length));
+    }
+
+    @Test
+    public void testXmlDateTimeAgainstCalendar() {
+        String[] zones = new String[] { "GMT", "GMT+05:30", "GMT-08:00", "Europe/Berlin", "America/New_York",
+                "Australia/Lord_Howe" };
+        Random random = new Random(1234);
+
+        for (int i = 0; i < 20000; i++) {
+            // between 1600 and 8600
+            long millis = -11676096000000L + (long) (random.nextDouble() * 220000000000000L);
+            if (i % 2 == 0) {
+                millis = millis / 1000 * 1000;
+            }
+
+            GregorianCalendar cal = new GregorianCalendar(TimeZone.getTimeZone(zones[i % zones.length]));
+            cal.setTimeInMillis(millis);
+
+            String s = DateTimeHelper.formatXmlDateTime(cal);
+            assertEquals(formatWithCalendar(cal), s);
+
+            GregorianCalendar parsed = DateTimeHelper.parseXmlDateTime(s);
+            assertEquals(s, millis, parsed.getTimeInMillis());
+            assertEquals(cal.get(Calendar.YEAR), parsed.get(Calendar.YEAR));
+            assertEquals(cal.get(Calendar.DAY_OF_YEAR), parsed.get(Calendar.DAY_OF_YEAR));
+            assertEquals(cal.get(Calendar.HOUR_OF_DAY), parsed.get(Calendar.HOUR_OF_DAY));
+
+            long seconds = millis / 1000 * 1000;
+            assertEquals(new Date(seconds), DateTimeHelper.parseHttpDateTime(DateTimeHelper.formatHttpDateTime(seconds)));
+        }
+    }
+
+    private static void assertXmlDateTime(int year, int month, int day, GregorianCalendar cal) {
+        assertEquals(year, cal.get(Calendar.YEAR));
+        assertEquals(month, cal.get(Calendar.MONTH));
+        assertEquals(day, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    private static String formatWithCalendar(GregorianCalendar cal) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%04d-%02d-%02dT%02d:%02d:%02d", cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1,
+                cal.get(Calendar.DAY_OF_MONTH), cal.get(Calendar.HOUR_OF_DAY), cal.get(Calendar.MINUTE),
+                cal.get(Calendar.SECOND)));
+
+        int ms = cal.get(Calendar.MILLISECOND);
+        if (ms > 0) {
+            String fraction = String.format(".%03d", ms);
+            while (fraction.endsWith("0")) {
+                fraction = fraction.substring(0, fraction.length() - 1);
+            }
+            sb.append(fraction);
+        }
+
+        int offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
+        if (offset == 0) {
+            sb.append('Z');
+        } else {
+            sb.append(offset > 0 ? '+' : '-');
+            offset = Math.abs(offset);
+            sb.append(String.format("%02d:%02d", offset / 3600000, offset % 3600000 / 60000));
+        }
+
+        return sb.toString();
+    }
+
     @Test
     public void testInvalidXmlDateTime() {
         // null is not a date
@@ -147,6 +318,17 @@ public class DateTimeTest {
 
         // invalid day
         assertNull(DateTimeHelper.parseXmlDateTime("1111-11-51T11:11:11.111Z"));
+
+        // missing fraction
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06.Z"));
+
+        // invalid time zone
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06+0100"));
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06+01:60"));
+        assertNull(DateTimeHelper.parseXmlDateTime("2012-12-24T09:15:06ZZ"));
+
+        // too many year digits
+        assertNull(DateTimeHelper.parseXmlDateTime("1234567890-12-24T09:15:06Z"));
     }
 
     @Test
@@ -203,6 +385,22 @@ public class DateTimeTest {
         String dateStr6 = "Sun Nov 16 08:49:37 1994";
 
         assertEquals(cal6.getTime(), DateTimeHelper.parseHttpDateTime(dateStr6));
+
+        GregorianCalendar cal7 = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        cal7.clear();
+        cal7.set(2012, 1, 29, 23, 59, 59);
+
+        String dateStr7 = DateTimeHelper.formatHttpDateTime(cal7);
+        assertEquals("Wed, 29 Feb 2012 23:59:59 GMT", dateStr7);
+        assertEquals(cal7.getTime(), DateTimeHelper.parseHttpDateTime(dateStr7));
+
+        GregorianCalendar cal8 = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+        cal8.clear();
+        cal8.set(1000, 0, 1, 0, 0, 0);
+
+        String dateStr8 = DateTimeHelper.formatHttpDateTime(cal8);
+        assertEquals("Mon, 01 Jan 1000 00:00:00 GMT", dateStr8);
+        assertEquals(cal8.getTime(), DateTimeHelper.parseHttpDateTime(dateStr8));
     }
 
     @Test
@@ -224,5 +422,11 @@ public class DateTimeTest {
 
         // invalid day
         assertNull(DateTimeHelper.parseHttpDateTime("Mon, xy Dec 2012 09:10:11 GMT"));
+
+        // invalid time
+        assertNull(DateTimeHelper.parseHttpDateTime("Mon, 24 Dec 2012 09:70:11 GMT"));
+
+        // wrong time zone
+        assertNull(DateTimeHelper.parseHttpDateTime("Mon, 24 Dec 2012 09:10:11 CET"));
     }
 }
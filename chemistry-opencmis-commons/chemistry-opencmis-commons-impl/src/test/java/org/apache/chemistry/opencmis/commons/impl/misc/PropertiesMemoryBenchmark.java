@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+
+/**
+ * Measures the heap that the properties of a query result occupy. The rows
+ * are parsed from Browser binding JSON, one row at a time, as the client does
+ * it. This is not a unit test, run it manually:
+ * 
+ * <pre>
+ * PropertiesMemoryBenchmark [number of rows]
+ * </pre>
+ * 
+ * The default is 10000 rows.
+ */
+public final class PropertiesMemoryBenchmark {
+
+    private static final String[][] PROPERTIES = { { "cmis:objectId", "id", "\"%s\"" },
+            { "cmis:name", "string", "\"Document %s.pdf\"" }, { "cmis:objectTypeId", "id", "\"cmis:document\"" },
+            { "cmis:baseTypeId", "id", "\"cmis:document\"" }, { "cmis:createdBy", "string", "\"admin\"" },
+            { "cmis:creationDate", "datetime", "1400000000000" }, { "cmis:lastModifiedBy", "string", "\"admin\"" },
+            { "cmis:lastModificationDate", "datetime", "1400000%s" },
+            { "cmis:contentStreamLength", "integer", "1%s" },
+            { "cmis:contentStreamMimeType", "string", "\"application/pdf\"" },
+            { "cmis:versionSeriesId", "id", "\"vs-%s\"" }, { "cmis:isLatestVersion", "boolean", "true" },
+            { "cmis:changeToken", "string", "\"%s\"" } };
+
+    private PropertiesMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws JSONParseException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        List<String> json = new ArrayList<String>(rows);
+        for (int i = 0; i < rows; i++) {
+            json.add(createRow(String.valueOf(100000 + i)));
+        }
+
+        long before = usedMemory();
+
+        List<Properties> result = new ArrayList<Properties>(rows);
+        for (String row : json) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) new JSONParser().parse(row);
+            result.add(JSONConverter.convertProperties(map, null));
+        }
+
+        long after = usedMemory();
+
+        System.out.println(rows + " rows, " + PROPERTIES.length + " properties per row");
+        System.out.println("Bytes per object: " + ((after - before) / rows));
+
+        // keep the result reachable until here
+        if (result.size() != rows) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static String createRow(String id) {
+        StringBuilder sb = new StringBuilder("{");
+        for (String[] property : PROPERTIES) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append('"').append(property[0]).append("\":{\"id\":\"").append(property[0]);
+            sb.append("\",\"localName\":\"").append(property[0].substring(5));
+            sb.append("\",\"displayName\":\"").append(property[0].substring(5));
+            sb.append("\",\"queryName\":\"").append(property[0]);
+            sb.append("\",\"type\":\"").append(property[1]);
+            sb.append("\",\"cardinality\":\"single\",\"value\":");
+            sb.append(String.format(property[2], id)).append('}');
+        }
+        sb.append('}');
+
+        return sb.toString();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
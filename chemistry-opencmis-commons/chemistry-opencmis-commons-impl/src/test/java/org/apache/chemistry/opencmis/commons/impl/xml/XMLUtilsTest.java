@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.XMLConstants;
+import org.apache.chemistry.opencmis.commons.impl.XMLUtils;
+import org.junit.Test;
+
+public class XMLUtilsTest {
+
+    @Test
+    public void testSequentialDocuments() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            String value = "value " + i;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeDocument(out, value);
+
+            assertEquals(value, readDocument(out.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testInterleavedDocuments() throws Exception {
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+
+        XMLStreamWriter writer1 = XMLUtils.createWriter(out1);
+        XMLStreamWriter writer2 = XMLUtils.createWriter(out2);
+
+        XMLUtils.startXmlDocument(writer1);
+        XMLUtils.startXmlDocument(writer2);
+        writer1.writeStartElement(XMLConstants.PREFIX_CMIS, "value", XMLConstants.NAMESPACE_CMIS);
+        writer1.writeNamespace(XMLConstants.PREFIX_CMIS, XMLConstants.NAMESPACE_CMIS);
+        writer2.writeStartElement(XMLConstants.PREFIX_CMIS, "value", XMLConstants.NAMESPACE_CMIS);
+        writer2.writeNamespace(XMLConstants.PREFIX_CMIS, XMLConstants.NAMESPACE_CMIS);
+        writer1.writeCharacters("one");
+        writer2.writeCharacters("two");
+        writer1.writeEndElement();
+        XMLUtils.endXmlDocument(writer1);
+        writer2.writeEndElement();
+        XMLUtils.endXmlDocument(writer2);
+
+        assertEquals("one", readDocument(out1.toByteArray()));
+        assertEquals("two", readDocument(out2.toByteArray()));
+    }
+
+    @Test
+    public void testLargeDocument() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 100 * 1024; i++) {
+            sb.append(i).append(" äöü € & <> ");
+        }
+        String value = sb.toString();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeDocument(out, value);
+
+        assertEquals(value, readDocument(out.toByteArray()));
+    }
+
+    @Test
+    public void testReadTextInPieces() throws Exception {
+        String xml = "<root><a>one<![CDATA[ two ]]>three<!-- four -->five</a><b>six</b></root>";
+
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(IOUtils.toUTF8Bytes(xml)));
+        XMLUtils.findNextStartElemenet(parser);
+        XMLUtils.next(parser);
+
+        assertEquals("one two threefive", XMLUtils.readText(parser, 100));
+        assertTrue(XMLUtils.findNextStartElemenet(parser));
+        assertEquals("b", parser.getLocalName());
+        assertEquals("six", XMLUtils.readText(parser, 100));
+
+        parser.close();
+    }
+
+    @Test
+    public void testReadTextLimit() throws Exception {
+        String xml = "<root><a>0123456789</a></root>";
+
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(IOUtils.toUTF8Bytes(xml)));
+        XMLUtils.findNextStartElemenet(parser);
+        XMLUtils.next(parser);
+
+        try {
+            XMLUtils.readText(parser, 9);
+            fail("CmisInvalidArgumentException expected!");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+
+        parser.close();
+    }
+
+    private static void writeDocument(ByteArrayOutputStream out, String value) throws XMLStreamException {
+        XMLStreamWriter writer = XMLUtils.createWriter(out);
+        XMLUtils.startXmlDocument(writer);
+        XMLUtils.write(writer, null, null, "value", value);
+        XMLUtils.endXmlDocument(writer);
+    }
+
+    private static String readDocument(byte[] xml) throws XMLStreamException {
+        XMLStreamReader parser = XMLUtils.createParser(new ByteArrayInputStream(xml));
+        try {
+            XMLUtils.findNextStartElemenet(parser);
+            return XMLUtils.readText(parser, Integer.MAX_VALUE);
+        } finally {
+            parser.close();
+        }
+    }
+}
@@ -76,6 +76,7 @@ import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.server.impl.ServerVersion;
 import org.apache.chemistry.opencmis.server.shared.AbstractCmisHttpServlet;
+import org.apache.chemistry.opencmis.server.shared.CompressionHttpServletResponseWrapper;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
 import org.apache.chemistry.opencmis.server.shared.HEADHttpServletRequestWrapper;
@@ -168,12 +169,18 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
             IOException {
 
         CallContext context = null;
+        CompressionHttpServletResponseWrapper compressedResponse = null;
         try {
             if (METHOD_HEAD.equals(request.getMethod())) {
                 request = new HEADHttpServletRequestWrapper(request);
                 response = new NoBodyHttpServletResponseWrapper(response);
             } else {
-                request = new QueryStringHttpServletRequestWrapper(request);
+                request = new QueryStringHttpServletRequestWrapper(getHttpCompression().wrapRequest(request));
+
+                compressedResponse = getHttpCompression().wrapResponse(request, response);
+                if (compressedResponse != null) {
+                    response = compressedResponse;
+                }
             }
 
             // set default headers
@@ -197,8 +204,13 @@ public class CmisAtomPubServlet extends AbstractCmisHttpServlet {
                 printError(e, response);
             }
         } finally {
-            // we are done.
-            response.flushBuffer();
+            // we are done, unless the content is still streamed asynchronously
+            if (!isAsyncStarted(request)) {
+                if (compressedResponse != null) {
+                    compressedResponse.finish();
+                }
+                response.flushBuffer();
+            }
         }
     }
 
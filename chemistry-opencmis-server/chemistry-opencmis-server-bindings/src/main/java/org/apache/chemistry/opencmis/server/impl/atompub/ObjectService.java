@@ -20,8 +20,6 @@ package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import static org.apache.chemistry.opencmis.commons.impl.CollectionsHelper.isNotEmpty;
 
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.math.BigInteger;
 import java.util.GregorianCalendar;
@@ -48,7 +46,6 @@ import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
-import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
@@ -71,8 +68,6 @@ import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStreamFactory;
  */
 public class ObjectService {
 
-    private static final int BUFFER_SIZE = 64 * 1024;
-
     /**
      * Create.
      */
@@ -305,9 +300,12 @@ public class ObjectService {
             Boolean overwriteFlag = getBooleanParameter(request, Constants.PARAM_OVERWRITE_FLAG);
             Boolean isLastChunk = getBooleanParameter(request, Constants.PARAM_IS_LAST_CHUNK);
 
+            // the request body is handed over to the service as it is, it is
+            // neither parsed nor buffered
             ContentStreamImpl contentStream = new ContentStreamImpl();
             contentStream.setStream(request.getInputStream());
-            contentStream.setMimeType(request.getHeader("Content-Type"));
+            String contentType = request.getHeader("Content-Type");
+            contentStream.setMimeType(contentType == null ? Constants.MEDIATYPE_OCTETSTREAM : contentType);
             String lengthStr = request.getHeader("Content-Length");
             if (lengthStr != null) {
                 try {
@@ -658,14 +656,7 @@ public class ObjectService {
             }
 
             // send content
-            InputStream in = content.getStream();
-            OutputStream out = response.getOutputStream();
-            try {
-                IOUtils.copy(in, out, BUFFER_SIZE);
-                out.flush();
-            } finally {
-                in.close();
-            }
+            sendContentStream(context, content.getStream(), request, response);
         }
     }
 
@@ -106,6 +106,7 @@ import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.server.impl.ServerVersion;
 import org.apache.chemistry.opencmis.server.impl.browser.token.TokenHandler;
 import org.apache.chemistry.opencmis.server.shared.AbstractCmisHttpServlet;
+import org.apache.chemistry.opencmis.server.shared.CompressionHttpServletResponseWrapper;
 import org.apache.chemistry.opencmis.server.shared.Dispatcher;
 import org.apache.chemistry.opencmis.server.shared.ExceptionHelper;
 import org.apache.chemistry.opencmis.server.shared.HEADHttpServletRequestWrapper;
@@ -211,6 +212,7 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
     protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
             IOException {
         CallContext context = null;
+        CompressionHttpServletResponseWrapper compressedResponse = null;
 
         try {
             // set default headers
@@ -222,7 +224,8 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
             if (METHOD_GET.equals(method)) {
                 request = new QueryStringHttpServletRequestWrapper(request);
             } else if (METHOD_POST.equals(method)) {
-                request = new POSTHttpServletRequestWrapper(request, getThresholdOutputStreamFactory());
+                request = new POSTHttpServletRequestWrapper(getHttpCompression().wrapRequest(request),
+                        getThresholdOutputStreamFactory());
             } else if (METHOD_HEAD.equals(method)) {
                 request = new HEADHttpServletRequestWrapper(request);
                 response = new NoBodyHttpServletResponseWrapper(response);
@@ -230,6 +233,13 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
                 throw new CmisNotSupportedException("Unsupported method");
             }
 
+            if (!METHOD_HEAD.equals(method)) {
+                compressedResponse = getHttpCompression().wrapResponse(request, response);
+                if (compressedResponse != null) {
+                    response = compressedResponse;
+                }
+            }
+
             // invoke token handler, if necessary
             if (request.getParameter("login") != null && getCallContextHandler() instanceof TokenHandler) {
                 ((TokenHandler) getCallContextHandler()).service(getServletContext(), request, response);
@@ -253,8 +263,13 @@ public class CmisBrowserBindingServlet extends AbstractCmisHttpServlet {
                 printError(context, e, request, response);
             }
         } finally {
-            // we are done.
-            response.flushBuffer();
+            // we are done, unless the content is still streamed asynchronously
+            if (!isAsyncStarted(request)) {
+                if (compressedResponse != null) {
+                    compressedResponse.finish();
+                }
+                response.flushBuffer();
+            }
         }
     }
 
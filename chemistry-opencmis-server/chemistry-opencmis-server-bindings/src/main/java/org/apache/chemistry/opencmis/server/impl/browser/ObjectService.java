@@ -36,8 +36,6 @@ import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_TARGET_
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_TOKEN;
 import static org.apache.chemistry.opencmis.commons.impl.Constants.PARAM_VERSIONIG_STATE;
 
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -63,7 +61,6 @@ import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
-import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.MimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
@@ -80,8 +77,6 @@ import org.apache.chemistry.opencmis.commons.spi.Holder;
  */
 public class ObjectService {
 
-    private static final int BUFFER_SIZE = 64 * 1024;
-
     /**
      * Create document.
      */
@@ -801,14 +796,7 @@ public class ObjectService {
             }
 
             // send content
-            InputStream in = content.getStream();
-            OutputStream out = response.getOutputStream();
-            try {
-                IOUtils.copy(in, out, BUFFER_SIZE);
-                out.flush();
-            } finally {
-                in.close();
-            }
+            sendContentStream(context, content.getStream(), request, response);
         }
     }
 
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Locale;
 
+import javax.servlet.ReadListener;
 import javax.servlet.ServletException;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -83,6 +84,7 @@ public class ProtectionRequestWrapper extends HttpServletRequestWrapper {
         private int pos;
         private int count;
         private int boundariesFound;
+        private boolean finished;
 
         public CheckServletInputStream() {
             streamMax = messageMax + 2 * (boundary.length + 6);
@@ -113,6 +115,9 @@ public class ProtectionRequestWrapper extends HttpServletRequestWrapper {
         @Override
         public int read() throws IOException {
             int b = orgStream.read();
+            if (b == -1) {
+                finished = true;
+            }
 
             if (boundariesFound == 2) {
                 return b;
@@ -135,6 +140,9 @@ public class ProtectionRequestWrapper extends HttpServletRequestWrapper {
             }
 
             int r = orgStream.read(b, off, len);
+            if (r == -1) {
+                finished = true;
+            }
 
             if (boundariesFound == 2) {
                 return r;
@@ -159,6 +167,21 @@ public class ProtectionRequestWrapper extends HttpServletRequestWrapper {
             orgStream.close();
         }
 
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Non-blocking input is not supported!");
+        }
+
         private void checkBoundary(int startPos) {
             int lastStartPos = 0;
             for (int i = startPos; i < pos; i++) {
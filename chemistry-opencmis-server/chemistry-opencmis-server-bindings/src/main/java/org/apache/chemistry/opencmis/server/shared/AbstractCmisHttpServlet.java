@@ -40,6 +40,12 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
 
     public static final String PARAM_CALL_CONTEXT_HANDLER = "callContextHandler";
     public static final String PARAM_CMIS_VERSION = "cmisVersion";
+    public static final String PARAM_COMPRESSION = "compression";
+    public static final String PARAM_COMPRESSION_THRESHOLD = "compressionThreshold";
+    public static final String PARAM_COMPRESSION_MIME_TYPES = "compressionMimeTypes";
+    public static final String PARAM_REQUEST_DECOMPRESSION = "requestDecompression";
+    public static final String PARAM_ASYNC_CONTENT_STREAMS = "asyncContentStreams";
+    public static final String PARAM_ASYNC_WRITE_TIMEOUT = "asyncWriteTimeout";
 
     private static final long serialVersionUID = 1L;
 
@@ -48,6 +54,8 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
     private CmisVersion cmisVersion;
     private CallContextHandler callContextHandler;
     private ThresholdOutputStreamFactory streamFactory;
+    private HttpCompression compression;
+    private AsyncContentStreamer asyncStreamer;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
@@ -76,6 +84,61 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
         // set up stream factory
         streamFactory = ThresholdOutputStreamFactory.newInstance(factory.getTempDirectory(),
                 factory.getMemoryThreshold(), factory.getMaxContentSize(), factory.encryptTempFiles());
+
+        // set up compression, both directions are off by default
+        String compressionStr = config.getInitParameter(PARAM_COMPRESSION);
+        String decompressionStr = config.getInitParameter(PARAM_REQUEST_DECOMPRESSION);
+        int compressionThreshold = HttpCompression.DEFAULT_THRESHOLD;
+        String compressionThresholdStr = config.getInitParameter(PARAM_COMPRESSION_THRESHOLD);
+        if (compressionThresholdStr != null) {
+            try {
+                compressionThreshold = Integer.parseInt(compressionThresholdStr.trim());
+            } catch (NumberFormatException e) {
+                throw new ServletException("Invalid compression threshold: " + compressionThresholdStr, e);
+            }
+        }
+
+        compression = new HttpCompression(compressionStr != null && Boolean.parseBoolean(compressionStr.trim()),
+                decompressionStr != null && Boolean.parseBoolean(decompressionStr.trim()), compressionThreshold,
+                config.getInitParameter(PARAM_COMPRESSION_MIME_TYPES));
+
+        // set up asynchronous content streams
+        asyncStreamer = null;
+        String asyncStr = config.getInitParameter(PARAM_ASYNC_CONTENT_STREAMS);
+        if (asyncStr != null && Boolean.parseBoolean(asyncStr.trim())) {
+            long writeTimeout = AsyncContentStreamer.DEFAULT_WRITE_TIMEOUT;
+            String writeTimeoutStr = config.getInitParameter(PARAM_ASYNC_WRITE_TIMEOUT);
+            if (writeTimeoutStr != null) {
+                try {
+                    writeTimeout = Long.parseLong(writeTimeoutStr.trim());
+                } catch (NumberFormatException e) {
+                    throw new ServletException("Invalid async write timeout: " + writeTimeoutStr, e);
+                }
+            }
+
+            if (AsyncContentStreamer.isSupported(config.getServletContext())) {
+                asyncStreamer = new AsyncContentStreamer(writeTimeout);
+            } else {
+                log("Asynchronous content streams require a Servlet 3.1 container. Falling back to blocking I/O.");
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (compression != null
+                && (compression.getCompressedResponses() > 0 || compression.getCompressedRequests() > 0)) {
+            log(compression.toString());
+        }
+
+        if (asyncStreamer != null) {
+            asyncStreamer.shutdown();
+            if (asyncStreamer.getStartedTransfers() > 0) {
+                log(asyncStreamer.toString());
+            }
+        }
+
+        super.destroy();
     }
 
     /**
@@ -117,6 +180,29 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
         return streamFactory;
     }
 
+    /**
+     * Returns the {@link HttpCompression} settings.
+     */
+    protected HttpCompression getHttpCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the {@link AsyncContentStreamer} or <code>null</code> if
+     * asynchronous content streams are not enabled.
+     */
+    protected AsyncContentStreamer getAsyncContentStreamer() {
+        return asyncStreamer;
+    }
+
+    /**
+     * Returns whether the request has been put into asynchronous mode and the
+     * response must not be finished by the servlet.
+     */
+    protected boolean isAsyncStarted(HttpServletRequest request) {
+        return asyncStreamer != null && request.isAsyncStarted();
+    }
+
     /**
      * Creates a {@link CallContext} object from a servlet request.
      */
@@ -151,6 +237,11 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
         // get locale
         context.setAcceptLanguage(request.getHeader("Accept-Language"));
 
+        // add async content streamer
+        if (asyncStreamer != null) {
+            context.put(AsyncContentStreamer.CONTEXT_KEY, asyncStreamer);
+        }
+
         // call call context handler
         if (callContextHandler != null) {
             Map<String, String> callContextMap = callContextHandler.getCallContextMap(request);
@@ -19,6 +19,8 @@
 package org.apache.chemistry.opencmis.server.shared;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -38,12 +40,15 @@ import org.apache.chemistry.opencmis.commons.impl.CmisEnumHelper;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.DateTimeHelper;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ProgressControlCmisService;
 import org.apache.chemistry.opencmis.commons.server.ProgressControlCmisService.Progress;
 
 public abstract class AbstractServiceCall implements ServiceCall {
 
+    private static final int CONTENT_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Extracts a string parameter.
      */
@@ -235,6 +240,37 @@ public abstract class AbstractServiceCall implements ServiceCall {
         return false;
     }
 
+    /**
+     * Sends the content of a content stream and closes the stream.
+     * <p>
+     * If the servlet has been configured for asynchronous content streams, the
+     * transfer may continue after this method returned.
+     */
+    public void sendContentStream(CallContext context, InputStream stream, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        assert context != null;
+        assert stream != null;
+
+        AsyncContentStreamer streamer = (AsyncContentStreamer) context.get(AsyncContentStreamer.CONTEXT_KEY);
+
+        boolean async = false;
+        try {
+            if (streamer != null) {
+                async = streamer.start(request, response, stream);
+            }
+
+            if (!async) {
+                OutputStream out = response.getOutputStream();
+                IOUtils.copy(stream, out, CONTENT_BUFFER_SIZE);
+                out.flush();
+            }
+        } finally {
+            if (!async) {
+                stream.close();
+            }
+        }
+    }
+
     /**
      * Determines if the processing should be stopped before the service method
      * is called.
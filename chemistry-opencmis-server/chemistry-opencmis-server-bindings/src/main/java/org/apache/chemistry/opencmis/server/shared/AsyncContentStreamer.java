@@ -0,0 +1,399 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends content streams with the asynchronous, non-blocking I/O of Servlet
+ * 3.1.
+ * <p>
+ * The container thread returns as soon as the transfer has been started. The
+ * content is written whenever the client connection can take more data.
+ * Transfers that make no progress within the write timeout are aborted.
+ * <p>
+ * The content stream is closed when the transfer ends, which is after the
+ * {@link org.apache.chemistry.opencmis.commons.server.CmisService} object has
+ * been closed. Server implementations that enable this mode must return
+ * content streams that don't depend on the service object.
+ * <p>
+ * Instances must only be created if {@link #isSupported(ServletContext)}
+ * returns <code>true</code>.
+ */
+public class AsyncContentStreamer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncContentStreamer.class);
+
+    /**
+     * Call context key of the {@link AsyncContentStreamer} object.
+     */
+    public static final String CONTEXT_KEY = "org.apache.chemistry.opencmis.asyncContentStreamer";
+
+    public static final long DEFAULT_WRITE_TIMEOUT = 60 * 1000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long writeTimeout;
+    private final Set<Transfer> transfers;
+    private final ScheduledExecutorService watchdog;
+
+    private final AtomicLong startedTransfers = new AtomicLong();
+    private final AtomicLong completedTransfers = new AtomicLong();
+    private final AtomicLong failedTransfers = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * Constructor.
+     * 
+     * @param writeTimeout
+     *            time in milliseconds a transfer may wait for the client
+     *            before it is aborted
+     */
+    public AsyncContentStreamer(long writeTimeout) {
+        this.writeTimeout = (writeTimeout > 0 ? writeTimeout : DEFAULT_WRITE_TIMEOUT);
+
+        transfers = Collections.newSetFromMap(new ConcurrentHashMap<Transfer, Boolean>());
+
+        long interval = Math.max(1000, Math.min(this.writeTimeout / 4, 10 * 1000));
+        watchdog = Executors.newSingleThreadScheduledExecutor(new WatchdogThreadFactory());
+        watchdog.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                checkTimeouts();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns whether the servlet container supports non-blocking output.
+     */
+    public static boolean isSupported(ServletContext servletContext) {
+        int major = servletContext.getMajorVersion();
+        int minor = servletContext.getMinorVersion();
+        if (major < 3 || (major == 3 && minor < 1)) {
+            return false;
+        }
+
+        try {
+            Class.forName("javax.servlet.WriteListener", false, AsyncContentStreamer.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts an asynchronous transfer of a content stream.
+     * <p>
+     * If this method returns <code>true</code>, the caller must not touch the
+     * response or the stream anymore. If it returns <code>false</code>, the
+     * caller has to send the content itself.
+     * 
+     * @return <code>true</code> if the transfer has been started,
+     *         <code>false</code> if the request doesn't allow asynchronous
+     *         processing
+     */
+    public boolean start(HttpServletRequest request, HttpServletResponse response, InputStream stream)
+            throws IOException {
+        if ("HEAD".equals(request.getMethod()) || !request.isAsyncSupported() || request.isAsyncStarted()) {
+            return false;
+        }
+
+        // the body bypasses the compression wrapper
+        if (response instanceof CompressionHttpServletResponseWrapper
+                && !((CompressionHttpServletResponseWrapper) response).disableCompression()) {
+            return false;
+        }
+
+        AsyncContext asyncContext = request.startAsync();
+        // the container timeout would also end slow but healthy transfers
+        asyncContext.setTimeout(0);
+
+        Transfer transfer = new Transfer(asyncContext, stream, asyncContext.getResponse().getOutputStream());
+        transfers.add(transfer);
+        startedTransfers.incrementAndGet();
+
+        asyncContext.addListener(transfer);
+        transfer.out.setWriteListener(transfer);
+
+        return true;
+    }
+
+    /**
+     * Aborts all transfers and stops the timeout check.
+     */
+    public void shutdown() {
+        watchdog.shutdownNow();
+
+        for (Transfer transfer : transfers) {
+            transfer.end(new IOException("Server is shutting down."), true);
+        }
+    }
+
+    private void checkTimeouts() {
+        long now = System.currentTimeMillis();
+        for (Transfer transfer : transfers) {
+            transfer.checkTimeout(now);
+        }
+    }
+
+    /**
+     * Returns the write timeout in milliseconds.
+     */
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    /**
+     * Returns the number of transfers in flight.
+     */
+    public int getActiveTransfers() {
+        return transfers.size();
+    }
+
+    /**
+     * Returns the number of transfers that have been started.
+     */
+    public long getStartedTransfers() {
+        return startedTransfers.get();
+    }
+
+    /**
+     * Returns the number of transfers that have been completed successfully.
+     */
+    public long getCompletedTransfers() {
+        return completedTransfers.get();
+    }
+
+    /**
+     * Returns the number of transfers that failed or timed out.
+     */
+    public long getFailedTransfers() {
+        return failedTransfers.get();
+    }
+
+    /**
+     * Returns the number of bytes sent by finished transfers.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public String toString() {
+        return "Async content streams: " + getActiveTransfers() + " active, " + completedTransfers.get()
+                + " completed, " + failedTransfers.get() + " failed, " + bytesSent.get() + " bytes sent";
+    }
+
+    /**
+     * A single transfer.
+     * <p>
+     * The container calls the listener methods, the watchdog calls
+     * {@link #checkTimeout(long)}. A lock serializes both, so the watchdog
+     * never closes the content stream while a container thread reads from it
+     * or writes to the response. The watchdog skips transfers that are busy
+     * instead of waiting for them.
+     */
+    private class Transfer implements WriteListener, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final InputStream in;
+        private final ServletOutputStream out;
+        private final byte[] buffer;
+        private final Lock lock = new ReentrantLock();
+        private boolean done;
+        private long lastActivity;
+        private long bytes;
+
+        public Transfer(AsyncContext asyncContext, InputStream in, ServletOutputStream out) {
+            this.asyncContext = asyncContext;
+            this.in = in;
+            this.out = out;
+            this.buffer = new byte[BUFFER_SIZE];
+            this.lastActivity = System.currentTimeMillis();
+        }
+
+        // --- WriteListener ---
+
+        public void onWritePossible() throws IOException {
+            boolean sent = false;
+            lock.lock();
+            try {
+                while (!done && out.isReady()) {
+                    int n = in.read(buffer);
+                    if (n == -1) {
+                        sent = finish(null);
+                        break;
+                    }
+
+                    out.write(buffer, 0, n);
+                    bytes += n;
+                    lastActivity = System.currentTimeMillis();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (sent) {
+                complete();
+            }
+        }
+
+        public void onError(Throwable t) {
+            end(t, true);
+        }
+
+        // --- AsyncListener ---
+
+        public void onComplete(AsyncEvent event) throws IOException {
+            // completed by the container, for example because the client
+            // went away
+            end(event.getThrowable() == null ? new IOException("Transfer ended prematurely.") : event
+                    .getThrowable(), false);
+        }
+
+        public void onTimeout(AsyncEvent event) throws IOException {
+            end(new IOException("Async timeout."), true);
+        }
+
+        public void onError(AsyncEvent event) throws IOException {
+            end(event.getThrowable(), true);
+        }
+
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+
+        /**
+         * Aborts the transfer if it hasn't made any progress within the write
+         * timeout.
+         */
+        void checkTimeout(long now) {
+            if (!lock.tryLock()) {
+                // a container thread is working on it
+                return;
+            }
+
+            boolean timedOut = false;
+            try {
+                if (now - lastActivity > writeTimeout) {
+                    timedOut = finish(new IOException("Write timeout after " + writeTimeout + " ms."));
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (timedOut) {
+                complete();
+            }
+        }
+
+        /**
+         * Ends the transfer. Only the first call has an effect.
+         * 
+         * @param error
+         *            the reason of a failure
+         * @param complete
+         *            whether the async context must be completed
+         */
+        void end(Throwable error, boolean complete) {
+            boolean ended;
+            lock.lock();
+            try {
+                ended = finish(error);
+            } finally {
+                lock.unlock();
+            }
+
+            if (ended && complete) {
+                complete();
+            }
+        }
+
+        /**
+         * Marks the transfer as done, closes the content stream and updates
+         * the statistics. Must be called while holding the lock.
+         * 
+         * @param error
+         *            the reason of a failure, <code>null</code> if the
+         *            content has been sent completely
+         * @return <code>true</code> if this call ended the transfer
+         */
+        private boolean finish(Throwable error) {
+            if (done) {
+                return false;
+            }
+            done = true;
+
+            transfers.remove(this);
+            IOUtils.closeQuietly(in);
+            bytesSent.addAndGet(bytes);
+
+            if (error == null) {
+                completedTransfers.incrementAndGet();
+            } else {
+                failedTransfers.incrementAndGet();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Async content transfer failed after " + bytes + " bytes: " + error, error);
+                }
+            }
+
+            return true;
+        }
+
+        private void complete() {
+            // outside of the lock, the container may call back
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                // already completed
+            }
+        }
+    }
+
+    private static class WatchdogThreadFactory implements ThreadFactory {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "OpenCMIS Async Content Watchdog");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
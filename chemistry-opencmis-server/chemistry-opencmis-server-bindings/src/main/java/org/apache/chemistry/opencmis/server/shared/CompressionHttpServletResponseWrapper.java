@@ -0,0 +1,516 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that compresses the response body.
+ * <p>
+ * The first bytes of the body are buffered until the threshold of the
+ * {@link HttpCompression} settings is reached. Only then the wrapper decides
+ * whether the body is compressed, based on the content type, the status code
+ * and the headers set so far. Smaller bodies are sent uncompressed. A
+ * <code>Content-Length</code> header set by the servlet is held back and
+ * dropped if the body is compressed.
+ * <p>
+ * {@link #finish()} must be called when the response is complete.
+ */
+public class CompressionHttpServletResponseWrapper extends HttpServletResponseWrapper {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final String encoding;
+    private final HttpCompression compression;
+
+    private int status = SC_OK;
+    private long contentLength = -1;
+    private boolean noCompression = false;
+    private boolean sent = false;
+
+    private CompressionOutputStream stream;
+    private PrintWriter writer;
+
+    public CompressionHttpServletResponseWrapper(HttpServletResponse response, String encoding,
+            HttpCompression compression) {
+        super(response);
+        this.encoding = encoding;
+        this.compression = compression;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called!");
+        }
+
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws UnsupportedEncodingException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called!");
+            }
+
+            writer = new PrintWriter(new OutputStreamWriter(getStream(), getCharacterEncoding()));
+        }
+
+        return writer;
+    }
+
+    private CompressionOutputStream getStream() {
+        if (stream == null) {
+            stream = new CompressionOutputStream(compression.getThreshold());
+        }
+
+        return stream;
+    }
+
+    private boolean isDecided() {
+        return stream != null && stream.isDecided();
+    }
+
+    // --- headers ---
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthHeader(len);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (handleHeader(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (handleHeader(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (handleHeader(name, String.valueOf(value))) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (handleHeader(name, String.valueOf(value))) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    /**
+     * Inspects a header.
+     * 
+     * @return <code>true</code> if the header should be passed on
+     */
+    private boolean handleHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            try {
+                setContentLengthHeader(Long.parseLong(value.trim()));
+            } catch (NumberFormatException e) {
+                return true;
+            }
+            return false;
+        }
+
+        if ("Content-Encoding".equalsIgnoreCase(name) || "Content-Range".equalsIgnoreCase(name)) {
+            // already encoded or partial content -> don't touch it
+            noCompression = true;
+        }
+
+        return true;
+    }
+
+    private void setContentLengthHeader(long length) {
+        if (!isDecided()) {
+            contentLength = length;
+        } else if (!stream.isCompressing()) {
+            super.setHeader("Content-Length", String.valueOf(length));
+        }
+    }
+
+    // --- status ---
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+        super.setStatus(sc);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void setStatus(int sc, String sm) {
+        status = sc;
+        super.setStatus(sc, sm);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        status = sc;
+        noCompression = true;
+        sent = true;
+        discardBuffer();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        status = sc;
+        noCompression = true;
+        sent = true;
+        discardBuffer();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        noCompression = true;
+        sent = true;
+        discardBuffer();
+        super.sendRedirect(location);
+    }
+
+    // --- buffer ---
+
+    @Override
+    public boolean isCommitted() {
+        return isDecided() || super.isCommitted();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (isDecided()) {
+            throw new IllegalStateException("Response has already been committed!");
+        }
+
+        discardBuffer();
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (isDecided()) {
+            throw new IllegalStateException("Response has already been committed!");
+        }
+
+        discardBuffer();
+        status = SC_OK;
+        contentLength = -1;
+        noCompression = false;
+        sent = false;
+        super.reset();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (sent) {
+            // the container has written the response
+            super.flushBuffer();
+            return;
+        }
+
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.decide(false);
+            stream.flush();
+        } else {
+            // the headers are sent now, a body written later can't be
+            // compressed anymore
+            noCompression = true;
+            passContentLength();
+        }
+
+        super.flushBuffer();
+    }
+
+    private void passContentLength() {
+        if (contentLength >= 0) {
+            super.setHeader("Content-Length", String.valueOf(contentLength));
+            contentLength = -1;
+        }
+    }
+
+    private void discardBuffer() {
+        if (stream != null && !stream.isDecided()) {
+            stream.discard();
+        }
+    }
+
+    /**
+     * Writes the buffered data and completes the compressed body. If no body
+     * has been written, a held back <code>Content-Length</code> header is
+     * passed on.
+     */
+    public void finish() throws IOException {
+        if (sent) {
+            return;
+        }
+
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        } else {
+            passContentLength();
+        }
+    }
+
+    /**
+     * Turns compression off for this response if no body has been written
+     * yet. A held back <code>Content-Length</code> header is passed on.
+     * 
+     * @return <code>true</code> if the body can be written directly to the
+     *         wrapped response, <code>false</code> if the wrapper has already
+     *         buffered or written parts of the body
+     */
+    public boolean disableCompression() {
+        if (writer != null || (stream != null && (stream.isDecided() || stream.count > 0))) {
+            return false;
+        }
+
+        noCompression = true;
+        passContentLength();
+
+        return true;
+    }
+
+    private boolean shouldCompress() {
+        if (noCompression) {
+            return false;
+        }
+
+        if (status < 200 || status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT || status == SC_NOT_MODIFIED) {
+            return false;
+        }
+
+        return compression.isCompressible(getContentType());
+    }
+
+    /**
+     * Buffers the beginning of the body and then either compresses or passes
+     * through the data.
+     */
+    private class CompressionOutputStream extends ServletOutputStream {
+
+        private byte[] buffer;
+        private int count;
+        private OutputStream out;
+        private CountingOutputStream counter;
+        private Deflater deflater;
+        private DeflaterOutputStream compressor;
+        private long uncompressedBytes;
+        private boolean finished;
+
+        public CompressionOutputStream(int threshold) {
+            buffer = new byte[threshold];
+        }
+
+        public boolean isDecided() {
+            return out != null;
+        }
+
+        public boolean isCompressing() {
+            return compressor != null;
+        }
+
+        public void discard() {
+            count = 0;
+        }
+
+        /**
+         * Decides whether the body is compressed and writes the buffered
+         * bytes.
+         * 
+         * @param large
+         *            <code>true</code> if the body exceeds the threshold
+         */
+        public void decide(boolean large) throws IOException {
+            if (out != null) {
+                return;
+            }
+
+            boolean compress = large && shouldCompress();
+
+            if (compress) {
+                CompressionHttpServletResponseWrapper.super.setHeader("Content-Encoding", encoding);
+                CompressionHttpServletResponseWrapper.super.addHeader("Vary", "Accept-Encoding");
+
+                counter = new CountingOutputStream(CompressionHttpServletResponseWrapper.super.getOutputStream());
+                if (HttpCompression.ENCODING_GZIP.equals(encoding)) {
+                    compressor = new GZIPOutputStream(counter, BUFFER_SIZE);
+                } else {
+                    deflater = new Deflater();
+                    compressor = new DeflaterOutputStream(counter, deflater, BUFFER_SIZE);
+                }
+                out = compressor;
+            } else {
+                if (contentLength >= 0) {
+                    CompressionHttpServletResponseWrapper.super.setHeader("Content-Length",
+                            String.valueOf(contentLength));
+                } else if (!large && finished) {
+                    CompressionHttpServletResponseWrapper.super.setHeader("Content-Length", String.valueOf(count));
+                }
+                out = CompressionHttpServletResponseWrapper.super.getOutputStream();
+            }
+
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                uncompressedBytes += count;
+            }
+            buffer = null;
+            count = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (out == null) {
+                if (count < buffer.length) {
+                    buffer[count++] = (byte) b;
+                    return;
+                }
+                decide(true);
+            }
+
+            out.write(b);
+            uncompressedBytes++;
+        }
+
+        @Override
+        public void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null) {
+                if (count + len <= buffer.length) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                decide(true);
+            }
+
+            out.write(b, off, len);
+            uncompressedBytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // nothing is flushed before the decision has been made
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+
+            decide(false);
+
+            if (compressor != null) {
+                // closing the compressor doesn't close the servlet stream
+                compressor.close();
+                if (deflater != null) {
+                    deflater.end();
+                }
+                compression.responseCompressed(uncompressedBytes, counter.getCount());
+            } else {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking output is not supported for compressed responses!");
+        }
+    }
+
+    /**
+     * Counts the compressed bytes. Closing it doesn't close the servlet
+     * output stream.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
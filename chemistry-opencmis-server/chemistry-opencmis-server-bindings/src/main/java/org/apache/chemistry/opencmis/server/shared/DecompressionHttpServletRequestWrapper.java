@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Request wrapper that decompresses a gzip or deflate encoded request body.
+ * <p>
+ * The <code>Content-Encoding</code> and <code>Content-Length</code> headers
+ * are hidden because they describe the compressed body.
+ */
+public class DecompressionHttpServletRequestWrapper extends HttpServletRequestWrapper {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final DecompressionInputStream stream;
+    private BufferedReader reader;
+
+    public DecompressionHttpServletRequestWrapper(HttpServletRequest request, String encoding,
+            HttpCompression compression) throws IOException {
+        super(request);
+        stream = new DecompressionInputStream(request.getInputStream(), encoding, compression);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called!");
+        }
+
+        return stream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            String charset = getCharacterEncoding();
+            reader = new BufferedReader(new InputStreamReader(stream, charset == null ? IOUtils.ISO_8859_1 : charset));
+        }
+
+        return reader;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (isHiddenHeader(name)) {
+            return null;
+        }
+
+        return super.getHeader(name);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        if (isHiddenHeader(name)) {
+            return -1;
+        }
+
+        return super.getIntHeader(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Enumeration getHeaders(String name) {
+        if (isHiddenHeader(name)) {
+            return Collections.enumeration(Collections.emptyList());
+        }
+
+        return super.getHeaders(name);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Enumeration getHeaderNames() {
+        List<String> names = new ArrayList<String>();
+
+        Enumeration e = super.getHeaderNames();
+        if (e != null) {
+            while (e.hasMoreElements()) {
+                String name = (String) e.nextElement();
+                if (!isHiddenHeader(name)) {
+                    names.add(name);
+                }
+            }
+        }
+
+        return Collections.enumeration(names);
+    }
+
+    private static boolean isHiddenHeader(String name) {
+        return "Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name);
+    }
+
+    /**
+     * Decompresses the body and reports the sizes when the end has been
+     * reached.
+     */
+    private static class DecompressionInputStream extends ServletInputStream {
+
+        private final CountingInputStream counter;
+        private final InputStream in;
+        private final HttpCompression compression;
+        private long uncompressedBytes;
+        private boolean reported;
+
+        public DecompressionInputStream(InputStream stream, String encoding, HttpCompression compression)
+                throws IOException {
+            this.counter = new CountingInputStream(stream);
+            if (HttpCompression.ENCODING_GZIP.equals(encoding)) {
+                this.in = new GZIPInputStream(counter, BUFFER_SIZE);
+            } else {
+                this.in = new InflaterInputStream(counter);
+            }
+            this.compression = compression;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                report();
+            } else {
+                uncompressedBytes++;
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b) throws IOException {
+            return read(b, 0, b.length);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                report();
+            } else {
+                uncompressedBytes += n;
+            }
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            uncompressedBytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return reported;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("Non-blocking input is not supported for compressed requests!");
+        }
+
+        private void report() {
+            if (!reported) {
+                reported = true;
+                compression.requestDecompressed(counter.getCount(), uncompressedBytes);
+            }
+        }
+    }
+
+    /**
+     * Counts the compressed bytes.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP compression settings and statistics of a CMIS servlet.
+ * <p>
+ * Responses are compressed with gzip or deflate if the client accepts it, the
+ * response body is larger than a threshold and its MIME type matches one of
+ * the configured rules. A rule ending with "/" matches a MIME type prefix
+ * (e.g. "text/"), a rule starting with "+" matches a structured syntax suffix
+ * (e.g. "+xml"), any other rule must match exactly.
+ * <p>
+ * Request bodies with a <code>Content-Encoding</code> header are decompressed
+ * if request decompression is enabled. Otherwise they are passed on as they
+ * are.
+ * <p>
+ * Both directions are disabled unless they are switched on explicitly.
+ */
+public class HttpCompression {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpCompression.class);
+
+    public static final String ENCODING_GZIP = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+    public static final String DEFAULT_MIME_TYPES = "text/,+xml,+json,application/xml,application/json,application/javascript";
+
+    private final boolean enabled;
+    private final boolean requestDecompression;
+    private final int threshold;
+    private final List<String> mimeTypeRules;
+
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong compressedResponseBytes = new AtomicLong();
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong compressedRequestBytes = new AtomicLong();
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            whether responses should be compressed
+     * @param requestDecompression
+     *            whether compressed request bodies should be decompressed
+     * @param threshold
+     *            minimum size of a response body in bytes that is compressed
+     * @param mimeTypes
+     *            comma separated list of MIME type rules, <code>null</code>
+     *            for the default rules
+     */
+    public HttpCompression(boolean enabled, boolean requestDecompression, int threshold, String mimeTypes) {
+        this.enabled = enabled;
+        this.requestDecompression = requestDecompression;
+        this.threshold = Math.max(threshold, 0);
+
+        mimeTypeRules = new ArrayList<String>();
+        for (String rule : (mimeTypes == null ? DEFAULT_MIME_TYPES : mimeTypes).split(",")) {
+            rule = rule.trim().toLowerCase(Locale.ENGLISH);
+            if (rule.length() > 0) {
+                mimeTypeRules.add(rule);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRequestDecompressionEnabled() {
+        return requestDecompression;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns whether a response with the given content type should be
+     * compressed.
+     */
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        String mimeType = contentType;
+        int x = mimeType.indexOf(';');
+        if (x > -1) {
+            mimeType = mimeType.substring(0, x);
+        }
+        mimeType = mimeType.trim().toLowerCase(Locale.ENGLISH);
+
+        for (String rule : mimeTypeRules) {
+            if (rule.endsWith("/")) {
+                if (mimeType.startsWith(rule)) {
+                    return true;
+                }
+            } else if (rule.startsWith("+")) {
+                if (mimeType.endsWith(rule)) {
+                    return true;
+                }
+            } else if (mimeType.equals(rule)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Picks the response encoding from an <code>Accept-Encoding</code> header.
+     * 
+     * @return {@link #ENCODING_GZIP}, {@link #ENCODING_DEFLATE} or
+     *         <code>null</code> if the client accepts neither
+     */
+    public static String getAcceptedEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        boolean gzip = false;
+        boolean deflate = false;
+
+        for (String part : acceptEncoding.split(",")) {
+            String coding = part;
+            float q = 1;
+
+            int x = part.indexOf(';');
+            if (x > -1) {
+                coding = part.substring(0, x);
+                String param = part.substring(x + 1).trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+
+            coding = coding.trim().toLowerCase(Locale.ENGLISH);
+            if (q <= 0) {
+                continue;
+            }
+
+            if (ENCODING_GZIP.equals(coding) || "x-gzip".equals(coding) || "*".equals(coding)) {
+                gzip = true;
+            } else if (ENCODING_DEFLATE.equals(coding)) {
+                deflate = true;
+            }
+        }
+
+        if (gzip) {
+            return ENCODING_GZIP;
+        } else if (deflate) {
+            return ENCODING_DEFLATE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Wraps the request if request decompression is enabled and its body is
+     * compressed.
+     * 
+     * @throws CmisInvalidArgumentException
+     *             if the content encoding is not supported
+     */
+    public HttpServletRequest wrapRequest(HttpServletRequest request) throws IOException {
+        if (!requestDecompression) {
+            return request;
+        }
+
+        String contentEncoding = request.getHeader("Content-Encoding");
+        if (contentEncoding == null) {
+            return request;
+        }
+
+        contentEncoding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+        if (contentEncoding.length() == 0 || "identity".equals(contentEncoding)) {
+            return request;
+        } else if (ENCODING_GZIP.equals(contentEncoding) || "x-gzip".equals(contentEncoding)) {
+            return new DecompressionHttpServletRequestWrapper(request, ENCODING_GZIP, this);
+        } else if (ENCODING_DEFLATE.equals(contentEncoding)) {
+            return new DecompressionHttpServletRequestWrapper(request, ENCODING_DEFLATE, this);
+        }
+
+        throw new CmisInvalidArgumentException("Unsupported content encoding: " + contentEncoding);
+    }
+
+    /**
+     * Wraps the response if compression is enabled and the client accepts a
+     * compressed response.
+     * 
+     * @return the wrapper or <code>null</code> if the response should not be
+     *         compressed
+     */
+    public CompressionHttpServletResponseWrapper wrapResponse(HttpServletRequest request,
+            HttpServletResponse response) {
+        if (!enabled) {
+            return null;
+        }
+
+        String encoding = getAcceptedEncoding(request.getHeader("Accept-Encoding"));
+        if (encoding == null) {
+            return null;
+        }
+
+        return new CompressionHttpServletResponseWrapper(response, encoding, this);
+    }
+
+    void responseCompressed(long uncompressed, long compressed) {
+        compressedResponses.incrementAndGet();
+        responseBytes.addAndGet(uncompressed);
+        compressedResponseBytes.addAndGet(compressed);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Compressed response from " + uncompressed + " to " + compressed + " bytes.");
+        }
+    }
+
+    void requestDecompressed(long compressed, long uncompressed) {
+        compressedRequests.incrementAndGet();
+        requestBytes.addAndGet(uncompressed);
+        compressedRequestBytes.addAndGet(compressed);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Decompressed request from " + compressed + " to " + uncompressed + " bytes.");
+        }
+    }
+
+    /**
+     * Returns the number of compressed responses.
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * Returns the number of bytes saved by compressing responses.
+     */
+    public long getResponseBytesSaved() {
+        return responseBytes.get() - compressedResponseBytes.get();
+    }
+
+    /**
+     * Returns the number of compressed requests.
+     */
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    /**
+     * Returns the number of bytes saved by clients that sent compressed
+     * requests.
+     */
+    public long getRequestBytesSaved() {
+        return requestBytes.get() - compressedRequestBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HTTP compression: " + compressedResponses.get() + " responses compressed from " + responseBytes.get()
+                + " to " + compressedResponseBytes.get() + " bytes, " + compressedRequests.get()
+                + " requests decompressed from " + compressedRequestBytes.get() + " to " + requestBytes.get()
+                + " bytes";
+    }
+}
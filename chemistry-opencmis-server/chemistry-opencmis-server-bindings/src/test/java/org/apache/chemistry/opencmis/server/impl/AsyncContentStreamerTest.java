@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.server.shared.AsyncContentStreamer;
+import org.apache.chemistry.opencmis.server.shared.CompressionHttpServletResponseWrapper;
+import org.apache.chemistry.opencmis.server.shared.HttpCompression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class AsyncContentStreamerTest {
+
+    private static final int CONTENT_SIZE = 200 * 1024;
+
+    private AsyncContentStreamer streamer;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private AsyncContext asyncContext;
+    private FakeOutputStream out;
+
+    @Before
+    public void setUp() throws Exception {
+        out = new FakeOutputStream();
+
+        response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(out);
+
+        asyncContext = mock(AsyncContext.class);
+        when(asyncContext.getResponse()).thenReturn(response);
+
+        request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync()).thenReturn(asyncContext);
+    }
+
+    @After
+    public void tearDown() {
+        if (streamer != null) {
+            streamer.shutdown();
+        }
+    }
+
+    @Test
+    public void testIsSupported() {
+        assertFalse(AsyncContentStreamer.isSupported(createServletContext(2, 5)));
+        assertFalse(AsyncContentStreamer.isSupported(createServletContext(3, 0)));
+        assertTrue(AsyncContentStreamer.isSupported(createServletContext(3, 1)));
+        assertTrue(AsyncContentStreamer.isSupported(createServletContext(4, 0)));
+    }
+
+    @Test
+    public void testNotStarted() throws Exception {
+        streamer = new AsyncContentStreamer(0);
+        assertEquals(AsyncContentStreamer.DEFAULT_WRITE_TIMEOUT, streamer.getWriteTimeout());
+
+        when(request.getMethod()).thenReturn("HEAD");
+        assertFalse(streamer.start(request, response, new ByteArrayInputStream(new byte[1])));
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.isAsyncSupported()).thenReturn(false);
+        assertFalse(streamer.start(request, response, new ByteArrayInputStream(new byte[1])));
+
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.isAsyncStarted()).thenReturn(true);
+        assertFalse(streamer.start(request, response, new ByteArrayInputStream(new byte[1])));
+
+        verify(request, never()).startAsync();
+        assertEquals(0, streamer.getStartedTransfers());
+    }
+
+    @Test
+    public void testCompressedResponse() throws Exception {
+        streamer = new AsyncContentStreamer(0);
+        HttpCompression compression = new HttpCompression(true, false, 100, null);
+        HttpServletRequest compressionRequest = mock(HttpServletRequest.class);
+        when(compressionRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+        // body bytes have been buffered -> no async transfer
+        CompressionHttpServletResponseWrapper wrapper = compression.wrapResponse(compressionRequest, response);
+        wrapper.getOutputStream().write('x');
+        assertFalse(streamer.start(request, wrapper, new ByteArrayInputStream(new byte[1])));
+
+        // nothing written yet -> compression is turned off
+        wrapper = compression.wrapResponse(compressionRequest, response);
+        assertTrue(streamer.start(request, wrapper, new ByteArrayInputStream(new byte[1])));
+    }
+
+    @Test
+    public void testTransfer() throws Exception {
+        streamer = new AsyncContentStreamer(0);
+        byte[] content = createContent(CONTENT_SIZE);
+        CloseTrackingInputStream in = new CloseTrackingInputStream(content, null);
+
+        assertTrue(streamer.start(request, response, in));
+        verify(asyncContext).setTimeout(0);
+        assertEquals(1, streamer.getActiveTransfers());
+        assertNotNull(out.listener);
+
+        // the client takes one buffer at a time
+        out.ready = 1;
+        out.listener.onWritePossible();
+        assertEquals(64 * 1024, out.body.size());
+        assertEquals(1, streamer.getActiveTransfers());
+
+        while (streamer.getActiveTransfers() > 0) {
+            out.ready = 1;
+            out.listener.onWritePossible();
+        }
+
+        assertArrayEquals(content, out.body.toByteArray());
+        assertTrue(in.closed);
+        verify(asyncContext, times(1)).complete();
+        assertEquals(1, streamer.getCompletedTransfers());
+        assertEquals(0, streamer.getFailedTransfers());
+        assertEquals(content.length, streamer.getBytesSent());
+
+        // late callbacks have no effect
+        out.ready = Integer.MAX_VALUE;
+        out.listener.onWritePossible();
+        out.listener.onError(new IOException());
+        verify(asyncContext, times(1)).complete();
+        assertEquals(1, streamer.getCompletedTransfers());
+    }
+
+    @Test
+    public void testClientGone() throws Exception {
+        streamer = new AsyncContentStreamer(0);
+        CloseTrackingInputStream in = new CloseTrackingInputStream(createContent(CONTENT_SIZE), null);
+
+        assertTrue(streamer.start(request, response, in));
+        out.ready = 1;
+        out.listener.onWritePossible();
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onComplete(new AsyncEvent(asyncContext));
+
+        assertTrue(in.closed);
+        assertEquals(0, streamer.getActiveTransfers());
+        assertEquals(1, streamer.getFailedTransfers());
+        assertEquals(64 * 1024, streamer.getBytesSent());
+        // the container has already completed the request
+        verify(asyncContext, never()).complete();
+    }
+
+    @Test
+    public void testWriteError() throws Exception {
+        streamer = new AsyncContentStreamer(0);
+        CloseTrackingInputStream in = new CloseTrackingInputStream(createContent(10), null);
+
+        assertTrue(streamer.start(request, response, in));
+        out.listener.onError(new IOException("broken pipe"));
+
+        assertTrue(in.closed);
+        assertEquals(1, streamer.getFailedTransfers());
+        verify(asyncContext).complete();
+    }
+
+    @Test(timeout = 30000)
+    public void testWriteTimeout() throws Exception {
+        streamer = new AsyncContentStreamer(100);
+        CloseTrackingInputStream in = new CloseTrackingInputStream(createContent(CONTENT_SIZE), null);
+
+        // the client never takes any data
+        assertTrue(streamer.start(request, response, in));
+        out.listener.onWritePossible();
+
+        while (streamer.getFailedTransfers() == 0) {
+            Thread.sleep(100);
+        }
+
+        assertTrue(in.closed);
+        assertEquals(0, streamer.getActiveTransfers());
+        verify(asyncContext).complete();
+    }
+
+    @Test(timeout = 30000)
+    public void testTimeoutWaitsForWriter() throws Exception {
+        streamer = new AsyncContentStreamer(100);
+
+        // the first read takes longer than the timeout and the watchdog
+        // interval
+        final CountDownLatch readLatch = new CountDownLatch(1);
+        final CloseTrackingInputStream in = new CloseTrackingInputStream(createContent(10), readLatch);
+
+        assertTrue(streamer.start(request, response, in));
+        out.ready = Integer.MAX_VALUE;
+
+        final Throwable[] failure = new Throwable[1];
+        Thread containerThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    out.listener.onWritePossible();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            }
+        };
+        containerThread.start();
+
+        assertTrue(in.readStarted.await(10, TimeUnit.SECONDS));
+        Thread.sleep(2500);
+        readLatch.countDown();
+        containerThread.join();
+
+        assertNull(failure[0]);
+        assertFalse(in.closedDuringRead);
+        assertEquals(1, streamer.getCompletedTransfers());
+        assertEquals(0, streamer.getFailedTransfers());
+        assertEquals(10, out.body.size());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        streamer = new AsyncContentStreamer(0);
+        CloseTrackingInputStream in = new CloseTrackingInputStream(createContent(CONTENT_SIZE), null);
+
+        assertTrue(streamer.start(request, response, in));
+        streamer.shutdown();
+
+        assertTrue(in.closed);
+        assertEquals(1, streamer.getFailedTransfers());
+        assertEquals(0, streamer.getActiveTransfers());
+        verify(asyncContext).complete();
+    }
+
+    private static ServletContext createServletContext(int major, int minor) {
+        ServletContext context = mock(ServletContext.class);
+        when(context.getMajorVersion()).thenReturn(major);
+        when(context.getMinorVersion()).thenReturn(minor);
+        return context;
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    /**
+     * Output stream that accepts a given number of writes before it reports
+     * that it isn't ready anymore.
+     */
+    private static class FakeOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private volatile WriteListener listener;
+        private volatile int ready;
+
+        @Override
+        public void write(int b) throws IOException {
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            body.write(b, off, len);
+            ready--;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready > 0;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+        }
+    }
+
+    /**
+     * Input stream that records whether it has been closed while a read was
+     * in progress. The first read optionally waits for a latch.
+     */
+    private static class CloseTrackingInputStream extends InputStream {
+        private final InputStream content;
+        private final CountDownLatch firstRead;
+        private final CountDownLatch readStarted = new CountDownLatch(1);
+        private volatile boolean reading;
+        private volatile boolean closed;
+        private volatile boolean closedDuringRead;
+
+        public CloseTrackingInputStream(byte[] content, CountDownLatch firstRead) {
+            this.content = new ByteArrayInputStream(content);
+            this.firstRead = firstRead;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            reading = true;
+            try {
+                if (firstRead != null && readStarted.getCount() > 0) {
+                    readStarted.countDown();
+                    try {
+                        firstRead.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                if (closed) {
+                    throw new IOException("Stream closed!");
+                }
+                return content.read(b, off, len);
+            } finally {
+                reading = false;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (reading) {
+                closedDuringRead = true;
+            }
+            closed = true;
+        }
+    }
+}
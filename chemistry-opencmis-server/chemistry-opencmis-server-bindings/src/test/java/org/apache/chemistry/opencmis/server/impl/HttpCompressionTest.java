@@ -0,0 +1,388 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.server.shared.CompressionHttpServletResponseWrapper;
+import org.apache.chemistry.opencmis.server.shared.HttpCompression;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpCompressionTest {
+
+    private static final int THRESHOLD = 100;
+
+    private HttpCompression compression;
+    private ByteArrayOutputStream body;
+    private Map<String, String> headers;
+
+    @Before
+    public void setUp() {
+        compression = new HttpCompression(true, true, THRESHOLD, null);
+        body = new ByteArrayOutputStream();
+        headers = new HashMap<String, String>();
+    }
+
+    @Test
+    public void testAcceptedEncoding() {
+        assertNull(HttpCompression.getAcceptedEncoding(null));
+        assertNull(HttpCompression.getAcceptedEncoding(""));
+        assertNull(HttpCompression.getAcceptedEncoding("identity"));
+        assertNull(HttpCompression.getAcceptedEncoding("br, compress"));
+
+        assertEquals("gzip", HttpCompression.getAcceptedEncoding("gzip"));
+        assertEquals("gzip", HttpCompression.getAcceptedEncoding("x-gzip"));
+        assertEquals("gzip", HttpCompression.getAcceptedEncoding("*"));
+        assertEquals("gzip", HttpCompression.getAcceptedEncoding(" GZIP ; q=1.0"));
+        assertEquals("deflate", HttpCompression.getAcceptedEncoding("deflate"));
+
+        // gzip is preferred
+        assertEquals("gzip", HttpCompression.getAcceptedEncoding("deflate, gzip;q=0.5"));
+
+        // q=0 means "not acceptable"
+        assertEquals("deflate", HttpCompression.getAcceptedEncoding("gzip;q=0, deflate"));
+        assertEquals("deflate", HttpCompression.getAcceptedEncoding("gzip; q=0.0, deflate;q=0.1"));
+        assertNull(HttpCompression.getAcceptedEncoding("gzip;q=0,deflate;q=0"));
+        assertNull(HttpCompression.getAcceptedEncoding("gzip;q=abc"));
+    }
+
+    @Test
+    public void testMimeTypeRules() {
+        assertTrue(compression.isCompressible("text/plain"));
+        assertTrue(compression.isCompressible("Text/HTML; charset=UTF-8"));
+        assertTrue(compression.isCompressible("application/atom+xml;type=entry"));
+        assertTrue(compression.isCompressible("application/json; charset=UTF-8"));
+        assertTrue(compression.isCompressible("application/vnd.example+json"));
+        assertFalse(compression.isCompressible("image/png"));
+        assertFalse(compression.isCompressible("application/octet-stream"));
+        assertFalse(compression.isCompressible("application/xml-dtd"));
+        assertFalse(compression.isCompressible(null));
+
+        HttpCompression custom = new HttpCompression(true, false, THRESHOLD, " image/ , application/pdf,,");
+        assertTrue(custom.isCompressible("image/png"));
+        assertTrue(custom.isCompressible("application/pdf"));
+        assertFalse(custom.isCompressible("text/plain"));
+        assertFalse(custom.isCompressible("application/pdfx"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        HttpCompression off = new HttpCompression(false, false, THRESHOLD, null);
+        assertFalse(off.isEnabled());
+        assertFalse(off.isRequestDecompressionEnabled());
+        assertNull(off.wrapResponse(createRequest("gzip"), createResponse("text/plain")));
+
+        // compressed requests are passed on untouched
+        HttpServletRequest request = HttpRequestMockHelper.createCompressedRequest("gzip", gzip(createContent(10)));
+        assertSame(request, off.wrapRequest(request));
+
+        // the client doesn't accept compressed responses
+        assertNull(compression.wrapResponse(createRequest(null), createResponse("text/plain")));
+        assertNull(compression.wrapResponse(createRequest("identity"), createResponse("text/plain")));
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws Exception {
+        byte[] content = createContent(10000);
+
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        wrapper.setContentLength(content.length);
+        wrapper.getOutputStream().write(content);
+        wrapper.finish();
+
+        assertEquals("gzip", headers.get("Content-Encoding"));
+        assertEquals("Accept-Encoding", headers.get("Vary"));
+        assertNull(headers.get("Content-Length"));
+        assertTrue(body.size() < content.length);
+        assertArrayEquals(content, read(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+
+        assertEquals(1, compression.getCompressedResponses());
+        assertEquals(content.length - body.size(), compression.getResponseBytesSaved());
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws Exception {
+        byte[] content = createContent(10000);
+
+        CompressionHttpServletResponseWrapper wrapper = wrap("deflate", "application/atom+xml;type=feed");
+        PrintWriter writer = wrapper.getWriter();
+        writer.write(new String(content, IOUtils.UTF8));
+        wrapper.finish();
+
+        assertEquals("deflate", headers.get("Content-Encoding"));
+        assertArrayEquals(content, read(new InflaterInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    public void testSmallBody() throws Exception {
+        byte[] content = createContent(THRESHOLD);
+
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        OutputStream out = wrapper.getOutputStream();
+        for (byte b : content) {
+            out.write(b);
+        }
+        assertFalse(wrapper.isCommitted());
+        wrapper.finish();
+
+        assertNull(headers.get("Content-Encoding"));
+        assertEquals(String.valueOf(content.length), headers.get("Content-Length"));
+        assertArrayEquals(content, body.toByteArray());
+        assertEquals(0, compression.getCompressedResponses());
+    }
+
+    @Test
+    public void testThreshold() throws Exception {
+        // one byte more than the threshold is compressed
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        wrapper.getOutputStream().write(createContent(THRESHOLD));
+        wrapper.getOutputStream().write('x');
+        assertTrue(wrapper.isCommitted());
+        wrapper.finish();
+
+        assertEquals("gzip", headers.get("Content-Encoding"));
+    }
+
+    @Test
+    public void testNotCompressibleType() throws Exception {
+        byte[] content = createContent(10000);
+
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "image/png");
+        wrapper.setHeader("Content-Length", String.valueOf(content.length));
+
+        // the Content-Length header is held back until the decision is made
+        assertNull(headers.get("Content-Length"));
+
+        wrapper.getOutputStream().write(content);
+        assertEquals(String.valueOf(content.length), headers.get("Content-Length"));
+        wrapper.finish();
+
+        assertNull(headers.get("Content-Encoding"));
+        assertArrayEquals(content, body.toByteArray());
+    }
+
+    @Test
+    public void testContentLengthWithoutBody() throws Exception {
+        HttpServletResponse response = createResponse("text/plain");
+        CompressionHttpServletResponseWrapper wrapper = compression.wrapResponse(createRequest("gzip"), response);
+        wrapper.setStatus(HttpServletResponse.SC_CREATED);
+        wrapper.setContentLength(0);
+        assertNull(headers.get("Content-Length"));
+
+        wrapper.finish();
+        assertEquals("0", headers.get("Content-Length"));
+        verify(response, never()).getOutputStream();
+    }
+
+    @Test
+    public void testContentLengthAfterFlush() throws Exception {
+        HttpServletResponse response = createResponse("text/plain");
+        CompressionHttpServletResponseWrapper wrapper = compression.wrapResponse(createRequest("gzip"), response);
+        wrapper.setContentLength(10000);
+        wrapper.flushBuffer();
+        assertEquals("10000", headers.get("Content-Length"));
+
+        // the headers have been sent, the body can't be compressed anymore
+        byte[] content = createContent(10000);
+        wrapper.getOutputStream().write(content);
+        wrapper.finish();
+
+        assertNull(headers.get("Content-Encoding"));
+        assertArrayEquals(content, body.toByteArray());
+    }
+
+    @Test
+    public void testContentRange() throws Exception {
+        byte[] content = createContent(10000);
+
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        wrapper.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        wrapper.setHeader("Content-Range", "bytes 0-9999/20000");
+        wrapper.getOutputStream().write(content);
+        wrapper.finish();
+
+        assertEquals("bytes 0-9999/20000", headers.get("Content-Range"));
+        assertNull(headers.get("Content-Encoding"));
+        assertArrayEquals(content, body.toByteArray());
+    }
+
+    @Test
+    public void testAlreadyEncoded() throws Exception {
+        byte[] content = gzip(createContent(10000));
+
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        wrapper.addHeader("Content-Encoding", "gzip");
+        wrapper.getOutputStream().write(content);
+        wrapper.finish();
+
+        assertArrayEquals(content, body.toByteArray());
+        assertEquals(0, compression.getCompressedResponses());
+    }
+
+    @Test
+    public void testSendError() throws Exception {
+        HttpServletResponse response = createResponse("text/plain");
+        CompressionHttpServletResponseWrapper wrapper = compression.wrapResponse(createRequest("gzip"), response);
+
+        // buffered bytes are dropped, the container writes the error page
+        wrapper.getOutputStream().write(createContent(10));
+        wrapper.sendError(HttpServletResponse.SC_NOT_FOUND, "not found");
+        wrapper.finish();
+        wrapper.flushBuffer();
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND, "not found");
+        verify(response, never()).getOutputStream();
+        assertEquals(0, body.size());
+        assertNull(headers.get("Content-Encoding"));
+    }
+
+    @Test
+    public void testNoContentStatus() throws Exception {
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        wrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        wrapper.getOutputStream().write(createContent(1000));
+        wrapper.finish();
+
+        assertNull(headers.get("Content-Encoding"));
+    }
+
+    @Test
+    public void testDisableCompression() throws Exception {
+        CompressionHttpServletResponseWrapper wrapper = wrap("gzip", "text/plain");
+        wrapper.setContentLength(5000);
+        assertTrue(wrapper.disableCompression());
+        assertEquals("5000", headers.get("Content-Length"));
+
+        wrapper = wrap("gzip", "text/plain");
+        wrapper.getOutputStream().write('x');
+        assertFalse(wrapper.disableCompression());
+    }
+
+    @Test
+    public void testRequestDecompression() throws Exception {
+        byte[] content = createContent(10000);
+
+        HttpServletRequest request = compression.wrapRequest(HttpRequestMockHelper.createCompressedRequest("gzip",
+                gzip(content)));
+        assertNull(request.getHeader("Content-Encoding"));
+        assertNull(request.getHeader("Content-Length"));
+        assertEquals(-1, request.getContentLength());
+        assertEquals("application/xml", request.getContentType());
+        assertArrayEquals(content, read(request.getInputStream()));
+        assertEquals(1, compression.getCompressedRequests());
+        assertTrue(compression.getRequestBytesSaved() > 0);
+
+        request = compression.wrapRequest(HttpRequestMockHelper.createCompressedRequest("Deflate", deflate(content)));
+        assertArrayEquals(content, read(request.getInputStream()));
+        assertEquals(2, compression.getCompressedRequests());
+
+        // uncompressed requests are not wrapped
+        HttpServletRequest plain = HttpRequestMockHelper.createCompressedRequest("identity", content);
+        assertSame(plain, compression.wrapRequest(plain));
+        plain = HttpRequestMockHelper.createCompressedRequest(null, content);
+        assertSame(plain, compression.wrapRequest(plain));
+    }
+
+    @Test
+    public void testUnsupportedRequestEncoding() throws Exception {
+        try {
+            compression.wrapRequest(HttpRequestMockHelper.createCompressedRequest("br", createContent(10)));
+            fail("Exception expected!");
+        } catch (CmisInvalidArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    private CompressionHttpServletResponseWrapper wrap(String acceptEncoding, String contentType) throws IOException {
+        CompressionHttpServletResponseWrapper wrapper = compression.wrapResponse(createRequest(acceptEncoding),
+                createResponse(contentType));
+        assertNotNull(wrapper);
+        return wrapper;
+    }
+
+    private HttpServletResponse createResponse(String contentType) throws IOException {
+        return HttpRequestMockHelper.createResponse(contentType, body, headers);
+    }
+
+    private static HttpServletRequest createRequest(String acceptEncoding) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        return request;
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + (i % 26));
+        }
+        return content;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(content);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeflaterOutputStream deflate = new DeflaterOutputStream(out);
+        deflate.write(content);
+        deflate.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copy(stream, out);
+        return out.toByteArray();
+    }
+}
@@ -21,11 +21,19 @@ package org.apache.chemistry.opencmis.server.impl;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
 
+import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class HttpRequestMockHelper {
 
@@ -61,6 +69,80 @@ public class HttpRequestMockHelper {
         return request;
     }
 
+    public static HttpServletRequest createCompressedRequest(String contentEncoding, byte[] content)
+            throws IOException {
+        FakeServletInputStream stream = new FakeServletInputStream(content);
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getContentType()).thenReturn("application/xml");
+        Mockito.when(request.getHeader("Content-Encoding")).thenReturn(contentEncoding);
+        Mockito.when(request.getHeader("Content-Length")).thenReturn(String.valueOf(content.length));
+        Mockito.when(request.getContentLength()).thenReturn(content.length);
+        Mockito.when(request.getInputStream()).thenReturn(stream);
+
+        return request;
+    }
+
+    /**
+     * Creates a response that writes its body to the given stream and records
+     * the headers in the given map.
+     */
+    public static HttpServletResponse createResponse(String contentType, OutputStream body,
+            final Map<String, String> headers) throws IOException {
+        FakeServletOutputStream stream = new FakeServletOutputStream(body);
+
+        Answer<Void> recordHeader = new Answer<Void>() {
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Object[] args = invocation.getArguments();
+                headers.put((String) args[0], String.valueOf(args[1]));
+                return null;
+            }
+        };
+
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getContentType()).thenReturn(contentType);
+        Mockito.when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        Mockito.when(response.getOutputStream()).thenReturn(stream);
+        Mockito.doAnswer(recordHeader).when(response).setHeader(Mockito.anyString(), Mockito.anyString());
+        Mockito.doAnswer(recordHeader).when(response).addHeader(Mockito.anyString(), Mockito.anyString());
+
+        return response;
+    }
+
+    private static class FakeServletOutputStream extends ServletOutputStream {
+
+        private OutputStream stream;
+
+        public FakeServletOutputStream(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            stream.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     private static class FakeServletInputStream extends ServletInputStream {
 
         private InputStream stream;
@@ -87,5 +169,24 @@ public class HttpRequestMockHelper {
         public int read(byte[] b) throws IOException {
             return stream.read(b);
         }
+
+        @Override
+        public boolean isFinished() {
+            try {
+                return stream.available() == 0;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException();
+        }
     }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.chemistry.opencmis.fileshare;
 
+import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -45,6 +46,11 @@ public class FileShareCmisServiceFactory extends AbstractServiceFactory {
     private static final String PREFIX_TYPE = "type.";
     private static final String SUFFIX_READWRITE = ".readwrite";
     private static final String SUFFIX_READONLY = ".readonly";
+    private static final String SUFFIX_INDEX = ".index";
+    private static final String SUFFIX_INDEX_CACHE_SIZE = ".indexcachesize";
+
+    /** Default number of cached shadow files if the index is enabled. */
+    private static final int DEFAULT_INDEX_CACHE_SIZE = 10000;
 
     /** Default maxItems value for getTypeChildren()}. */
     private static final BigInteger DEFAULT_MAX_ITEMS_TYPES = BigInteger.valueOf(50);
@@ -98,6 +104,12 @@ public class FileShareCmisServiceFactory extends AbstractServiceFactory {
     @Override
     public void destroy() {
         threadLocalService = null;
+
+        if (repositoryManager != null) {
+            for (FileShareRepository fsr : repositoryManager.getRepositories()) {
+                fsr.close();
+            }
+        }
     }
 
     @Override
@@ -204,6 +216,30 @@ public class FileShareCmisServiceFactory extends AbstractServiceFactory {
                     for (String user : split(parameters.get(key))) {
                         fsr.setUserReadOnly(replaceSystemProperties(user));
                     }
+                } else if (key.endsWith(SUFFIX_INDEX)) {
+                    // persistent index
+                    String indexDirectory = replaceSystemProperties(parameters.get(key)).trim();
+                    if (indexDirectory.length() == 0) {
+                        continue;
+                    }
+
+                    int cacheSize = DEFAULT_INDEX_CACHE_SIZE;
+                    String cacheSizeStr = parameters.get(PREFIX_REPOSITORY + repositoryId + SUFFIX_INDEX_CACHE_SIZE);
+                    if (cacheSizeStr != null && cacheSizeStr.trim().length() > 0) {
+                        try {
+                            cacheSize = Integer.parseInt(cacheSizeStr.trim());
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid index cache size: " + cacheSizeStr, e);
+                        }
+                    }
+
+                    LOG.info("Enabling index of repository '{}': {}", repositoryId, indexDirectory);
+
+                    FileShareRepository fsr = repositoryManager.getRepository(repositoryId);
+                    fsr.enableIndex(new File(indexDirectory), cacheSize);
+                } else if (key.endsWith(SUFFIX_INDEX_CACHE_SIZE)) {
+                    // handled with the index
+                    continue;
                 } else {
                     // new repository
                     String root = replaceSystemProperties(parameters.get(key));
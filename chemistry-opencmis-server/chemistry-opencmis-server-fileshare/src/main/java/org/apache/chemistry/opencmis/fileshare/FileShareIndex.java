@@ -0,0 +1,720 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent index of a FileShare repository.
+ * <p>
+ * The index assigns short, stable ids to files and folders. It keeps the
+ * repository tree in memory as (id, parent, name) nodes, so renaming or moving
+ * a folder through CMIS changes one node and keeps the ids of all
+ * descendants. Every change is appended to a journal file in the index
+ * directory, which is replayed and compacted when the index is opened.
+ * Files and folders that are not in the index yet get a new id when they are
+ * first seen.
+ * <p>
+ * The index also caches the parsed content of shadow files. A cache entry is
+ * only used while the last modification date and the size of the shadow file
+ * are unchanged.
+ * <p>
+ * Lookups of indexed files and folders run concurrently. Changes of the index
+ * are serialized.
+ */
+public class FileShareIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileShareIndex.class);
+
+    private static final String JOURNAL_FILE = "index.journal";
+    private static final String TEMP_FILE = "index.journal.tmp";
+    private static final String BACKUP_FILE = "index.journal.bak";
+
+    private static final int MAGIC = 0x46534958; // "FSIX"
+    private static final int VERSION = 1;
+
+    private static final byte OP_PUT = 'P';
+    private static final byte OP_REMOVE = 'R';
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The journal is compacted if it has more records than this. */
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    /** Root directory. */
+    private final File root;
+    /** Absolute path of the root directory. */
+    private final String rootPath;
+    /** Journal file. */
+    private final File journalFile;
+    /** Previous journal file while a snapshot replaces it. */
+    private final File backupFile;
+
+    /** Guards the tree and the journal. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** All nodes by id. */
+    private final Map<String, Node> nodes;
+    /** The root node. */
+    private final Node rootNode;
+    /** Next id number. */
+    private long nextId;
+    /** Journal. */
+    private DataOutputStream journal;
+    /** Number of records in the journal. */
+    private int journalRecords;
+
+    /** Parsed shadow files, guarded by itself. */
+    private final Map<String, ShadowData> shadowCache;
+
+    /**
+     * Opens or creates an index.
+     *
+     * @param root
+     *            the root directory of the repository
+     * @param indexDirectory
+     *            the directory that holds the index files
+     * @param cacheSize
+     *            the maximum number of cached shadow files, 0 to disable the
+     *            cache
+     */
+    public FileShareIndex(File root, File indexDirectory, final int cacheSize) {
+        if (root == null || !root.isDirectory()) {
+            throw new IllegalArgumentException("Root is not a directory!");
+        }
+
+        if (indexDirectory == null) {
+            throw new IllegalArgumentException("Invalid index directory!");
+        }
+
+        if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create index directory: "
+                    + indexDirectory.getAbsolutePath());
+        }
+
+        this.root = root;
+        this.rootPath = root.getAbsolutePath();
+        this.journalFile = new File(indexDirectory, JOURNAL_FILE);
+        this.backupFile = new File(indexDirectory, BACKUP_FILE);
+
+        nodes = new HashMap<String, Node>();
+        rootNode = new Node("", null, "");
+        nextId = 1;
+
+        shadowCache = new LinkedHashMap<String, ShadowData>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ShadowData> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        lock.writeLock().lock();
+        try {
+            readJournal();
+            writeSnapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the id of a file or folder and assigns a new id if the file or
+     * folder is not in the index yet.
+     *
+     * @return the id or <code>null</code> if the file is the root directory
+     */
+    public String getId(File file) {
+        lock.readLock().lock();
+        try {
+            Node node = getNode(file, false);
+            if (node != null) {
+                return node == rootNode ? null : node.id;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            Node node = getNode(file, true);
+            flushJournal();
+            return node == rootNode ? null : node.id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the file or folder for an id.
+     *
+     * @return the file or <code>null</code> if the id is unknown
+     */
+    public File getFile(String id) {
+        lock.readLock().lock();
+        try {
+            Node node = nodes.get(id);
+            if (node == null) {
+                return null;
+            }
+
+            return toFile(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a file or folder has been renamed or moved. The object
+     * keeps its id.
+     */
+    public void move(File source, File target) {
+        lock.writeLock().lock();
+        try {
+            Node node = getNode(source, false);
+            if (node == rootNode) {
+                throw new IllegalArgumentException("The root folder cannot be moved!");
+            }
+
+            Node parent = getNode(target.getParentFile(), true);
+            if (node == null) {
+                // not known yet, just give the target an id
+                getNode(target, true);
+            } else {
+                node.parent.removeChild(node.name);
+                attach(parent, target.getName(), node);
+                append(OP_PUT, node);
+            }
+
+            flushJournal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a file or folder and all its descendants from the index.
+     */
+    public void remove(File file) {
+        lock.writeLock().lock();
+        try {
+            Node node = getNode(file, false);
+            if (node == null || node == rootNode) {
+                return;
+            }
+
+            node.parent.removeChild(node.name);
+            forget(node);
+            append(OP_REMOVE, node);
+            flushJournal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all entries whose files or folders don't exist anymore, for
+     * example because they have been deleted or renamed outside of CMIS.
+     *
+     * @return the number of removed entries
+     */
+    public int check() {
+        return check(root);
+    }
+
+    /**
+     * Removes all entries below the given folder whose files or folders don't
+     * exist anymore.
+     *
+     * @return the number of removed entries
+     */
+    public int check(File folder) {
+        int removed;
+
+        lock.writeLock().lock();
+        try {
+            Node node = getNode(folder, false);
+            if (node == null) {
+                return 0;
+            }
+
+            int before = nodes.size();
+
+            List<Node> missing = new ArrayList<Node>();
+            collectMissing(node, toFile(node), missing);
+
+            for (Node m : missing) {
+                m.parent.removeChild(m.name);
+                forget(m);
+                append(OP_REMOVE, m);
+            }
+            flushJournal();
+
+            removed = before - nodes.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        synchronized (shadowCache) {
+            shadowCache.clear();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Returns the number of indexed files and folders.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the parsed shadow file or <code>null</code> if the shadow file
+     * is not cached or has been changed since it was cached.
+     */
+    public ObjectData getShadowData(File shadowFile, long lastModified, long length) {
+        synchronized (shadowCache) {
+            ShadowData data = shadowCache.get(shadowFile.getPath());
+            if (data == null || data.lastModified != lastModified || data.length != length) {
+                return null;
+            }
+
+            return data.object;
+        }
+    }
+
+    /**
+     * Caches a parsed shadow file. The last modification date and the size
+     * must have been read before the file was parsed.
+     */
+    public void putShadowData(File shadowFile, long lastModified, long length, ObjectData object) {
+        synchronized (shadowCache) {
+            shadowCache.put(shadowFile.getPath(), new ShadowData(lastModified, length, object));
+        }
+    }
+
+    /**
+     * Removes a shadow file from the cache.
+     */
+    public void invalidateShadowData(File shadowFile) {
+        synchronized (shadowCache) {
+            shadowCache.remove(shadowFile.getPath());
+        }
+    }
+
+    /**
+     * Closes the journal.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            IOUtils.closeQuietly(journal);
+            journal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- tree ---
+
+    /**
+     * Finds the node of a file or folder. The caller must hold the write lock
+     * if nodes may be created and at least the read lock otherwise.
+     */
+    private Node getNode(File file, boolean create) {
+        String path = file.getAbsolutePath();
+        if (!path.startsWith(rootPath)
+                || (path.length() > rootPath.length() && path.charAt(rootPath.length()) != File.separatorChar
+                        && !rootPath.endsWith(File.separator))) {
+            throw new IllegalArgumentException("File is not in the repository!");
+        }
+
+        Node node = rootNode;
+        int start = rootPath.length();
+        int length = path.length();
+        while (start < length) {
+            if (path.charAt(start) == File.separatorChar) {
+                start++;
+                continue;
+            }
+
+            int end = path.indexOf(File.separatorChar, start);
+            if (end == -1) {
+                end = length;
+            }
+
+            String name = path.substring(start, end);
+            Node child = node.getChild(name);
+            if (child == null) {
+                if (!create) {
+                    return null;
+                }
+
+                child = new Node(Long.toString(nextId++, Character.MAX_RADIX), node, name);
+                attach(node, name, child);
+                append(OP_PUT, child);
+            }
+
+            node = child;
+            start = end + 1;
+        }
+
+        return node;
+    }
+
+    private File toFile(Node node) {
+        if (node == rootNode) {
+            return root;
+        }
+
+        StringBuilder sb = new StringBuilder(128);
+        appendPath(sb, node);
+
+        return new File(root, sb.toString());
+    }
+
+    private void appendPath(StringBuilder sb, Node node) {
+        if (node.parent != rootNode) {
+            appendPath(sb, node.parent);
+            sb.append(File.separatorChar);
+        }
+        sb.append(node.name);
+    }
+
+    /**
+     * Adds a node to a parent and replaces a node with the same name.
+     */
+    private void attach(Node parent, String name, Node node) {
+        Node previous = parent.getChild(name);
+        if (previous != null && previous != node) {
+            parent.removeChild(name);
+            forget(previous);
+        }
+
+        node.parent = parent;
+        node.name = name;
+        parent.addChild(node);
+        nodes.put(node.id, node);
+    }
+
+    /**
+     * Removes a node and its descendants from the id map.
+     */
+    private void forget(Node node) {
+        nodes.remove(node.id);
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                forget(child);
+            }
+        }
+    }
+
+    private void collectMissing(Node node, File file, List<Node> missing) {
+        if (node.children == null) {
+            return;
+        }
+
+        for (Node child : node.children.values()) {
+            File childFile = new File(file, child.name);
+            if (!childFile.exists()) {
+                missing.add(child);
+            } else if (child.children != null) {
+                collectMissing(child, childFile, missing);
+            }
+        }
+    }
+
+    // --- journal ---
+
+    /**
+     * Replays the journal. A damaged journal is dropped and rebuilt.
+     */
+    private void readJournal() {
+        if (backupFile.isFile()) {
+            if (journalFile.isFile()) {
+                // the new snapshot is complete
+                backupFile.delete();
+            } else if (!backupFile.renameTo(journalFile)) {
+                // the last snapshot has been interrupted
+                LOG.warn("Could not restore index journal: {}", backupFile.getAbsolutePath());
+                return;
+            }
+        }
+
+        if (!journalFile.isFile()) {
+            return;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), BUFFER_SIZE));
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOG.warn("Unknown index format, rebuilding index: {}", journalFile.getAbsolutePath());
+                return;
+            }
+
+            // ids of removed objects are never reused
+            nextId = in.readLong();
+
+            while (true) {
+                int op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                String id = in.readUTF();
+                if (op == OP_PUT) {
+                    String parentId = in.readUTF();
+                    String name = in.readUTF();
+                    replayPut(id, parentId, name);
+                } else if (op == OP_REMOVE) {
+                    Node node = nodes.get(id);
+                    if (node != null) {
+                        node.parent.removeChild(node.name);
+                        forget(node);
+                    }
+                } else {
+                    throw new IOException("Invalid journal record!");
+                }
+
+                long number = parseId(id);
+                if (number >= nextId) {
+                    nextId = number + 1;
+                }
+            }
+        } catch (EOFException e) {
+            // the last record is incomplete, the snapshot will drop it
+            LOG.warn("Index journal is truncated: {}", journalFile.getAbsolutePath());
+        } catch (IOException e) {
+            LOG.warn("Could not read index journal, some ids might change: {}", journalFile.getAbsolutePath(), e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private void replayPut(String id, String parentId, String name) {
+        Node parent = (parentId.length() == 0 ? rootNode : nodes.get(parentId));
+        if (parent == null) {
+            // the parent has been removed
+            return;
+        }
+
+        Node node = nodes.get(id);
+        if (node == null) {
+            node = new Node(id, parent, name);
+        } else {
+            node.parent.removeChild(node.name);
+        }
+
+        attach(parent, name, node);
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id, Character.MAX_RADIX);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Replaces the journal with the current state of the index.
+     */
+    private void writeSnapshot() {
+        IOUtils.closeQuietly(journal);
+        journal = null;
+
+        File tempFile = new File(journalFile.getParentFile(), TEMP_FILE);
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(nextId);
+
+            journalRecords = 0;
+            writeChildren(out, rootNode);
+            out.close();
+            out = null;
+
+            if (!tempFile.renameTo(journalFile)) {
+                // some platforms can't rename over an existing file, keep the
+                // old journal until the new one is in place
+                backupFile.delete();
+                if (journalFile.exists() && !journalFile.renameTo(backupFile)) {
+                    throw new IOException("Could not replace " + journalFile.getAbsolutePath());
+                }
+                if (!tempFile.renameTo(journalFile)) {
+                    backupFile.renameTo(journalFile);
+                    throw new IOException("Could not replace " + journalFile.getAbsolutePath());
+                }
+                backupFile.delete();
+            }
+
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+        } catch (IOException e) {
+            throw new CmisStorageException("Could not write index: " + e.getMessage(), e);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private void writeChildren(DataOutputStream out, Node node) throws IOException {
+        if (node.children == null) {
+            return;
+        }
+
+        // parents are written before their children
+        for (Node child : node.children.values()) {
+            writeRecord(out, OP_PUT, child);
+        }
+
+        for (Node child : node.children.values()) {
+            writeChildren(out, child);
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, byte op, Node node) throws IOException {
+        out.writeByte(op);
+        out.writeUTF(node.id);
+        if (op == OP_PUT) {
+            out.writeUTF(node.parent.id);
+            out.writeUTF(node.name);
+        }
+
+        journalRecords++;
+    }
+
+    /**
+     * Appends a record to the journal and compacts the journal if it contains
+     * too many outdated records. The record is written with the next
+     * {@link #flushJournal()}.
+     */
+    private void append(byte op, Node node) {
+        if (journal == null) {
+            throw new CmisStorageException("Index is closed!");
+        }
+
+        try {
+            writeRecord(journal, op, node);
+        } catch (IOException e) {
+            throw new CmisStorageException("Could not write index: " + e.getMessage(), e);
+        }
+
+        if (journalRecords > MIN_COMPACT_RECORDS && journalRecords > 2 * nodes.size()) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Writes all appended records to the journal file. Called once per change
+     * of the index.
+     */
+    private void flushJournal() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            throw new CmisStorageException("Could not write index: " + e.getMessage(), e);
+        }
+    }
+
+    // --- data ---
+
+    /**
+     * A file or folder in the index.
+     */
+    private static class Node {
+        private final String id;
+        private Node parent;
+        private String name;
+        private Map<String, Node> children;
+
+        public Node(String id, Node parent, String name) {
+            this.id = id;
+            this.parent = parent;
+            this.name = name;
+        }
+
+        public Node getChild(String childName) {
+            return children == null ? null : children.get(childName);
+        }
+
+        public void addChild(Node child) {
+            if (children == null) {
+                children = new HashMap<String, Node>();
+            }
+            children.put(child.name, child);
+        }
+
+        public void removeChild(String childName) {
+            if (children != null) {
+                children.remove(childName);
+            }
+        }
+    }
+
+    /**
+     * A parsed shadow file.
+     */
+    private static class ShadowData {
+        private final long lastModified;
+        private final long length;
+        private final ObjectData object;
+
+        public ShadowData(long lastModified, long length, ObjectData object) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.object = object;
+        }
+    }
+}
@@ -92,7 +92,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStreamNotSupportedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisUpdateConflictException;
-import org.apache.chemistry.opencmis.commons.impl.Base64;
+import org.apache.chemistry.opencmis.commons.impl.Base64Codec;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.MimeTypes;
 import org.apache.chemistry.opencmis.commons.impl.XMLConstants;
@@ -164,6 +164,9 @@ public class FileShareRepository {
     /** CMIS 1.1 repository info. */
     private final RepositoryInfo repositoryInfo11;
 
+    /** Optional id and shadow file index. */
+    private FileShareIndex index;
+
     public FileShareRepository(final String repositoryId, final String rootPath, final FileShareTypeManager typeManager) {
         // check repository id
         if (repositoryId == null || repositoryId.trim().length() == 0) {
@@ -327,6 +330,55 @@ public class FileShareRepository {
         return root;
     }
 
+    /**
+     * Enables the persistent index. Ids of objects are then short and stay
+     * the same when objects are renamed or moved through CMIS. Parsed shadow
+     * files are cached.
+     * 
+     * Index entries of objects that have been removed outside of CMIS are
+     * dropped when the index is opened.
+     * 
+     * @param indexDirectory
+     *            the directory that holds the index files, must not be within
+     *            the repository
+     * @param cacheSize
+     *            the maximum number of cached shadow files
+     */
+    public void enableIndex(File indexDirectory, int cacheSize) {
+        if (index != null) {
+            index.close();
+        }
+
+        index = new FileShareIndex(root, indexDirectory, cacheSize);
+
+        int removed = index.check();
+        LOG.info("Opened index of repository '{}' with {} entries, removed {} stale entries.", repositoryId,
+                index.size(), removed);
+    }
+
+    /**
+     * Removes index entries of objects that have been deleted, renamed, or
+     * moved outside of CMIS.
+     * 
+     * @return the number of removed entries, 0 if the index is not enabled
+     */
+    public int checkIndex() {
+        if (index == null) {
+            return 0;
+        }
+
+        return index.check();
+    }
+
+    /**
+     * Closes the index, if enabled.
+     */
+    public void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
     /**
      * Sets read-only flag for the given user.
      */
@@ -715,6 +767,10 @@ public class FileShareRepository {
         if (!file.renameTo(newFile)) {
             throw new CmisStorageException("Move failed!");
         } else {
+            if (index != null) {
+                index.move(file, newFile);
+            }
+
             // set new id
             objectId.setValue(getId(newFile));
 
@@ -723,6 +779,7 @@ public class FileShareRepository {
                 File propFile = getPropertiesFile(file);
                 if (propFile.exists()) {
                     File newPropFile = new File(parent, propFile.getName());
+                    invalidateShadowData(newPropFile);
                     propFile.renameTo(newPropFile);
                 }
             }
@@ -795,10 +852,16 @@ public class FileShareRepository {
         }
 
         // delete properties and actual file
-        getPropertiesFile(file).delete();
+        File propFile = getPropertiesFile(file);
+        invalidateShadowData(propFile);
+        propFile.delete();
         if (!file.delete()) {
             throw new CmisStorageException("Deletion failed!");
         }
+
+        if (index != null) {
+            index.remove(file);
+        }
     }
 
     /**
@@ -819,6 +882,14 @@ public class FileShareRepository {
         // if it is a folder, remove it recursively
         if (file.isDirectory()) {
             deleteFolder(file, cof, result);
+
+            if (index != null) {
+                if (file.exists()) {
+                    index.check(file);
+                } else {
+                    index.remove(file);
+                }
+            }
         } else {
             throw new CmisConstraintException("Object is not a folder!");
         }
@@ -920,6 +991,10 @@ public class FileShareRepository {
                 // if something went wrong, throw an exception
                 throw new CmisUpdateConflictException("Could not rename object!");
             } else {
+                if (index != null) {
+                    index.move(file, newFile);
+                }
+
                 // set new id
                 objectId.setValue(getId(newFile));
 
@@ -927,6 +1002,7 @@ public class FileShareRepository {
                 if (newFile.isFile()) {
                     if (propFile.exists()) {
                         File newPropFile = new File(parent, newName + SHADOW_EXT);
+                        invalidateShadowData(newPropFile);
                         propFile.renameTo(newPropFile);
                     }
                 }
@@ -1605,24 +1681,41 @@ public class FileShareRepository {
             ObjectInfoImpl objectInfo) {
         File propFile = getPropertiesFile(file);
 
-        // if it doesn't exists, ignore it
-        if (!propFile.exists()) {
+        // if it doesn't exists, ignore it, otherwise check the cache
+        ObjectData obj = null;
+        long lastModified = 0;
+        long length = 0;
+        if (index != null) {
+            lastModified = propFile.lastModified();
+            if (lastModified == 0 && !propFile.exists()) {
+                return;
+            }
+
+            length = propFile.length();
+            obj = index.getShadowData(propFile, lastModified, length);
+        } else if (!propFile.exists()) {
             return;
         }
 
         // parse it
-        ObjectData obj = null;
-        InputStream stream = null;
-        try {
-            stream = new BufferedInputStream(new FileInputStream(propFile), 64 * 1024);
-            XMLStreamReader parser = XMLUtils.createParser(stream);
-            XMLUtils.findNextStartElemenet(parser);
-            obj = XMLConverter.convertObject(parser);
-            parser.close();
-        } catch (Exception e) {
-            LOG.warn("Unvalid CMIS properties: {}", propFile.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(stream);
+        if (obj == null) {
+            InputStream stream = null;
+            try {
+                stream = new BufferedInputStream(new FileInputStream(propFile), 64 * 1024);
+                XMLStreamReader parser = XMLUtils.createParser(stream);
+                XMLUtils.findNextStartElemenet(parser);
+                obj = XMLConverter.convertObject(parser);
+                parser.close();
+            } catch (Exception e) {
+                LOG.warn("Unvalid CMIS properties: {}", propFile.getAbsolutePath(), e);
+            } finally {
+                IOUtils.closeQuietly(stream);
+            }
+
+            // the cached properties are shared and must not be modified
+            if (index != null && obj != null) {
+                index.putShadowData(propFile, lastModified, length, obj);
+            }
         }
 
         if (obj == null || obj.getProperties() == null) {
@@ -1649,6 +1742,9 @@ public class FileShareRepository {
 
             if (prop instanceof PropertyDateTime) {
                 GregorianCalendar firstValueCal = ((PropertyDateTime) prop).getFirstValue();
+                if (firstValueCal != null) {
+                    firstValueCal = (GregorianCalendar) firstValueCal.clone();
+                }
                 if (PropertyIds.CREATION_DATE.equals(prop.getId())) {
                     objectInfo.setCreationDate(firstValueCal);
                 } else if (PropertyIds.LAST_MODIFICATION_DATE.equals(prop.getId())) {
@@ -1675,8 +1771,8 @@ public class FileShareRepository {
                 continue;
             }
 
-            // add it
-            properties.replaceProperty(prop);
+            // add a copy, the parsed shadow file might be cached and shared
+            properties.replaceProperty(FileShareUtils.copyProperty(prop));
         }
     }
 
@@ -1744,6 +1840,7 @@ public class FileShareRepository {
      */
     private void writePropertiesFile(File file, Properties properties) {
         File propFile = getPropertiesFile(file);
+        invalidateShadowData(propFile);
 
         // if no properties set delete the properties file
         if (properties == null || properties.getProperties() == null || properties.getProperties().size() == 0) {
@@ -2086,7 +2183,8 @@ public class FileShareRepository {
 
     /**
      * Converts an id to a File object. A simple and insecure implementation,
-     * but good enough for now.
+     * but good enough for now. If the index is enabled, the id is looked up
+     * in the index.
      */
     private File idToFile(String id) throws IOException {
         if (id == null || id.length() == 0) {
@@ -2097,7 +2195,16 @@ public class FileShareRepository {
             return root;
         }
 
-        return new File(root, (new String(Base64.decode(id.getBytes("US-ASCII")), "UTF-8")).replace('/',
+        if (index != null) {
+            File file = index.getFile(id);
+            if (file == null) {
+                throw new CmisObjectNotFoundException("Unknown object id!");
+            }
+
+            return file;
+        }
+
+        return new File(root, (new String(Base64Codec.decode(id.getBytes("US-ASCII")), "UTF-8")).replace('/',
                 File.separatorChar));
     }
 
@@ -2114,7 +2221,8 @@ public class FileShareRepository {
 
     /**
      * Creates a File object from an id. A simple and insecure implementation,
-     * but good enough for now.
+     * but good enough for now. If the index is enabled, the id is taken from
+     * the index.
      */
     private String fileToId(File file) throws IOException {
         if (file == null) {
@@ -2125,9 +2233,22 @@ public class FileShareRepository {
             return ROOT_ID;
         }
 
+        if (index != null) {
+            return index.getId(file);
+        }
+
         String path = getRepositoryPath(file);
 
-        return Base64.encodeBytes(path.getBytes("UTF-8"));
+        return Base64Codec.encodeBytes(path.getBytes("UTF-8"));
+    }
+
+    /**
+     * Removes a shadow file from the index cache.
+     */
+    private void invalidateShadowData(File propFile) {
+        if (index != null) {
+            index.invalidateShadowData(propFile);
+        }
     }
 
     private String getRepositoryPath(File file) {
@@ -18,18 +18,35 @@
  */
 package org.apache.chemistry.opencmis.fileshare;
 
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.TimeZone;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
 import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.data.PropertyBoolean;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.PropertyDateTime;
+import org.apache.chemistry.opencmis.commons.data.PropertyDecimal;
+import org.apache.chemistry.opencmis.commons.data.PropertyHtml;
 import org.apache.chemistry.opencmis.commons.data.PropertyId;
+import org.apache.chemistry.opencmis.commons.data.PropertyInteger;
 import org.apache.chemistry.opencmis.commons.data.PropertyString;
+import org.apache.chemistry.opencmis.commons.data.PropertyUri;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDateTimeImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyDecimalImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyHtmlImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyUriImpl;
 
 public final class FileShareUtils {
 
@@ -110,6 +127,55 @@ public final class FileShareUtils {
         return typeId;
     }
 
+    /**
+     * Creates a copy of a property that can be modified without affecting the
+     * original. Date/time values are cloned.
+     */
+    public static PropertyData<?> copyProperty(PropertyData<?> property) {
+        AbstractPropertyData<?> result;
+
+        if (property instanceof PropertyId) {
+            result = new PropertyIdImpl(property.getId(), copyList(((PropertyId) property).getValues()));
+        } else if (property instanceof PropertyString) {
+            result = new PropertyStringImpl(property.getId(), copyList(((PropertyString) property).getValues()));
+        } else if (property instanceof PropertyBoolean) {
+            result = new PropertyBooleanImpl(property.getId(), copyList(((PropertyBoolean) property).getValues()));
+        } else if (property instanceof PropertyInteger) {
+            result = new PropertyIntegerImpl(property.getId(), copyList(((PropertyInteger) property).getValues()));
+        } else if (property instanceof PropertyDecimal) {
+            result = new PropertyDecimalImpl(property.getId(), copyList(((PropertyDecimal) property).getValues()));
+        } else if (property instanceof PropertyHtml) {
+            result = new PropertyHtmlImpl(property.getId(), copyList(((PropertyHtml) property).getValues()));
+        } else if (property instanceof PropertyUri) {
+            result = new PropertyUriImpl(property.getId(), copyList(((PropertyUri) property).getValues()));
+        } else if (property instanceof PropertyDateTime) {
+            List<GregorianCalendar> values = ((PropertyDateTime) property).getValues();
+            List<GregorianCalendar> copy = null;
+            if (values != null) {
+                copy = new ArrayList<GregorianCalendar>(values.size());
+                for (GregorianCalendar value : values) {
+                    copy.add(value == null ? null : (GregorianCalendar) value.clone());
+                }
+            }
+            result = new PropertyDateTimeImpl(property.getId(), copy);
+        } else {
+            throw new IllegalArgumentException("Unknown property type: " + property.getClass().getName());
+        }
+
+        result.setLocalName(property.getLocalName());
+        result.setDisplayName(property.getDisplayName());
+        result.setQueryName(property.getQueryName());
+        if (property.getExtensions() != null) {
+            result.setExtensions(new ArrayList<CmisExtensionElement>(property.getExtensions()));
+        }
+
+        return result;
+    }
+
+    private static <T> List<T> copyList(List<T> values) {
+        return values == null ? null : new ArrayList<T>(values);
+    }
+
     /**
      * Returns the first value of an id property.
      */
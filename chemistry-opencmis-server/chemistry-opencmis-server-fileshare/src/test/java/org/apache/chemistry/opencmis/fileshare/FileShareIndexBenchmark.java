@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+
+/**
+ * Compares listing a large folder with and without the FileShare index. This
+ * is not a unit test, run it manually:
+ *
+ * <pre>
+ * FileShareIndexBenchmark [number of documents]
+ * </pre>
+ *
+ * The default number of documents is 50000.
+ */
+public final class FileShareIndexBenchmark {
+
+    private static final String REPOSITORY_ID = "benchmark";
+    private static final String USER = "test";
+    private static final int RUNS = 3;
+    private static final int DEPTH = 20;
+
+    private FileShareIndexBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int documents = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+
+        File root = createTempDirectory("fileshare-root");
+        File indexDirectory = createTempDirectory("fileshare-index");
+
+        try {
+            CallContext context = createContext();
+            FileShareTypeManager typeManager = new FileShareTypeManager();
+
+            FileShareRepository plain = createRepository(root, typeManager);
+
+            long start = System.nanoTime();
+            String folderId = plain.createFolder(context, createProperties("big", BaseTypeId.CMIS_FOLDER), "@root@");
+            for (int i = 0; i < documents; i++) {
+                plain.createDocument(context, createProperties("doc-" + i + ".txt", BaseTypeId.CMIS_DOCUMENT),
+                        folderId, null, null);
+            }
+            report("create " + documents + " documents", System.nanoTime() - start);
+
+            for (int run = 0; run < RUNS; run++) {
+                report("list, no index          ", list(plain, context, folderId, documents));
+            }
+
+            FileShareRepository indexed = createRepository(root, typeManager);
+            start = System.nanoTime();
+            indexed.enableIndex(indexDirectory, documents);
+            report("open empty index        ", System.nanoTime() - start);
+
+            String indexedFolderId = indexed.getObjectByPath(context, "/big", null, false, false, null).getId();
+            report("list, index, cold       ", list(indexed, context, indexedFolderId, documents));
+            for (int run = 0; run < RUNS; run++) {
+                report("list, index, warm       ", list(indexed, context, indexedFolderId, documents));
+            }
+
+            indexed.close();
+            indexed = createRepository(root, typeManager);
+            start = System.nanoTime();
+            indexed.enableIndex(indexDirectory, documents);
+            report("reopen index            ", System.nanoTime() - start);
+
+            if (!indexedFolderId.equals(indexed.getObjectByPath(context, "/big", null, false, false, null).getId())) {
+                throw new IllegalStateException("Id changed after reopening the index!");
+            }
+
+            // rename through CMIS keeps the id
+            PropertiesImpl rename = new PropertiesImpl();
+            rename.addProperty(new PropertyStringImpl(PropertyIds.NAME, "renamed"));
+            Holder<String> holder = new Holder<String>(indexedFolderId);
+            indexed.updateProperties(context, holder, rename, null);
+            if (!indexedFolderId.equals(holder.getValue())) {
+                throw new IllegalStateException("Id changed after rename!");
+            }
+
+            // ids of deep paths
+            String plainId = "@root@";
+            StringBuilder path = new StringBuilder();
+            for (int i = 0; i < DEPTH; i++) {
+                String name = "level-" + i + "-folder";
+                plainId = plain.createFolder(context, createProperties(name, BaseTypeId.CMIS_FOLDER), plainId);
+                path.append('/').append(name);
+            }
+            String indexedId = indexed.getObjectByPath(context, path.toString(), null, false, false, null).getId();
+            System.out.println("id length at depth " + DEPTH + ": " + plainId.length() + " chars without index, "
+                    + indexedId.length() + " chars with index");
+
+            indexed.close();
+        } finally {
+            delete(root);
+            delete(indexDirectory);
+        }
+    }
+
+    private static long list(FileShareRepository repository, CallContext context, String folderId, int documents) {
+        long start = System.nanoTime();
+        ObjectInFolderList list = repository.getChildren(context, folderId, null, false, false,
+                BigInteger.valueOf(documents), null, null);
+        long time = System.nanoTime() - start;
+
+        if (list.getObjects().size() != documents) {
+            throw new IllegalStateException("Expected " + documents + " children but got "
+                    + list.getObjects().size());
+        }
+
+        return time;
+    }
+
+    private static FileShareRepository createRepository(File root, FileShareTypeManager typeManager) {
+        FileShareRepository repository = new FileShareRepository(REPOSITORY_ID, root.getAbsolutePath(), typeManager);
+        repository.setUserReadWrite(USER);
+        return repository;
+    }
+
+    private static CallContext createContext() {
+        CallContextImpl context = new CallContextImpl(CallContext.BINDING_BROWSER, CmisVersion.CMIS_1_1,
+                REPOSITORY_ID, null, null, null, null, null);
+        context.put(CallContext.USERNAME, USER);
+        return context;
+    }
+
+    private static PropertiesImpl createProperties(String name, BaseTypeId baseTypeId) {
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(new PropertyStringImpl(PropertyIds.NAME, name));
+        properties.add(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, baseTypeId.value()));
+        return new PropertiesImpl(properties);
+    }
+
+    private static File createTempDirectory(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Could not create " + dir.getAbsolutePath());
+        }
+        return dir;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static void report(String label, long nanos) {
+        System.out.println(label + ": " + (nanos / 1000000) + " ms");
+    }
+}
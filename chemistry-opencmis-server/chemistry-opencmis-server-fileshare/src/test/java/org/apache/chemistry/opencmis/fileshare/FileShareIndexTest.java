@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.fileshare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.PropertyDateTime;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.server.impl.CallContextImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileShareIndexTest {
+
+    private File root;
+    private File indexDirectory;
+    private FileShareIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        root = createTempDirectory("root");
+        indexDirectory = createTempDirectory("index");
+        index = new FileShareIndex(root, indexDirectory, 10);
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+        delete(root);
+        delete(indexDirectory);
+    }
+
+    @Test
+    public void testIds() throws IOException {
+        File a = createFile("a/1.txt");
+
+        assertNull(index.getId(root));
+
+        String id = index.getId(a);
+        assertNotNull(id);
+        assertEquals(id, index.getId(new File(root, "a" + File.separator + "1.txt")));
+        assertEquals(a, index.getFile(id));
+        assertEquals(a.getParentFile(), index.getFile(index.getId(a.getParentFile())));
+        assertNull(index.getFile("unknown"));
+
+        // the parent folder has got an id, too
+        assertEquals(2, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFileOutsideRepository() throws IOException {
+        index.getId(indexDirectory);
+    }
+
+    @Test
+    public void testJournalReplay() throws IOException {
+        String a = index.getId(createFile("a/1.txt"));
+        String b = index.getId(createFile("b/2.txt"));
+        String c = index.getId(createFile("c.txt"));
+        String folderB = index.getId(new File(root, "b"));
+
+        index.move(new File(root, "b"), new File(root, "a/b"));
+        index.remove(new File(root, "c.txt"));
+
+        index = reopen();
+
+        assertEquals(a, index.getId(new File(root, "a/1.txt")));
+        assertEquals(b, index.getId(new File(root, "a/b/2.txt")));
+        assertEquals(folderB, index.getId(new File(root, "a/b")));
+        assertEquals(new File(root, "a/b/2.txt"), index.getFile(b));
+        assertNull(index.getFile(c));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testTruncatedJournal() throws IOException {
+        String a = index.getId(createFile("a.txt"));
+        String b = index.getId(createFile("b.txt"));
+        index.close();
+
+        // the last record is incomplete
+        File journal = new File(indexDirectory, "index.journal");
+        RandomAccessFile raf = new RandomAccessFile(journal, "rw");
+        try {
+            raf.setLength(raf.length() - 2);
+        } finally {
+            raf.close();
+        }
+
+        index = new FileShareIndex(root, indexDirectory, 10);
+        assertEquals(a, index.getId(new File(root, "a.txt")));
+        assertNull(index.getFile(b));
+
+        // the journal has been repaired, new records can be read again
+        String c = index.getId(new File(root, "c.txt"));
+        index = reopen();
+        assertEquals(a, index.getId(new File(root, "a.txt")));
+        assertEquals(c, index.getId(new File(root, "c.txt")));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testDamagedJournal() throws IOException {
+        String a = index.getId(createFile("a.txt"));
+        index.close();
+
+        writeFile(new File(indexDirectory, "index.journal"), "damaged");
+
+        index = new FileShareIndex(root, indexDirectory, 10);
+        assertEquals(0, index.size());
+        assertNull(index.getFile(a));
+    }
+
+    @Test
+    public void testMoveKeepsIds() throws IOException {
+        String folder = index.getId(createFile("a/b/c/1.txt").getParentFile().getParentFile());
+        String file = index.getId(new File(root, "a/b/c/1.txt"));
+        String c = index.getId(new File(root, "a/b/c"));
+
+        // rename a folder
+        index.move(new File(root, "a/b"), new File(root, "a/x"));
+        assertEquals(folder, index.getId(new File(root, "a/x")));
+        assertEquals(c, index.getId(new File(root, "a/x/c")));
+        assertEquals(file, index.getId(new File(root, "a/x/c/1.txt")));
+        assertEquals(new File(root, "a/x/c/1.txt"), index.getFile(file));
+
+        // move a file
+        index.move(new File(root, "a/x/c/1.txt"), new File(root, "2.txt"));
+        assertEquals(file, index.getId(new File(root, "2.txt")));
+        assertEquals(new File(root, "2.txt"), index.getFile(file));
+
+        // the old paths are free
+        assertFalse(folder.equals(index.getId(new File(root, "a/b"))));
+
+        // an unknown source gets an id at the target
+        index.move(new File(root, "unknown"), new File(root, "known"));
+        assertNotNull(index.getFile(index.getId(new File(root, "known"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMoveRoot() {
+        index.move(root, new File(root, "x"));
+    }
+
+    @Test
+    public void testMoveReplacesTarget() throws IOException {
+        String a = index.getId(createFile("a.txt"));
+        String b = index.getId(createFile("b.txt"));
+
+        index.move(new File(root, "a.txt"), new File(root, "b.txt"));
+
+        assertEquals(a, index.getId(new File(root, "b.txt")));
+        assertNull(index.getFile(b));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testCheck() throws IOException {
+        createFile("a/1.txt");
+        createFile("a/2.txt");
+        createFile("b/3.txt");
+        for (String path : new String[] { "a/1.txt", "a/2.txt", "b/3.txt" }) {
+            index.getId(new File(root, path));
+        }
+        String b = index.getId(new File(root, "b"));
+        String one = index.getId(new File(root, "a/1.txt"));
+        assertEquals(5, index.size());
+
+        // deleted outside of CMIS
+        assertTrue(new File(root, "a/1.txt").delete());
+        delete(new File(root, "b"));
+
+        assertEquals(1, index.check(new File(root, "a")));
+        assertNull(index.getFile(one));
+        assertNotNull(index.getFile(b));
+
+        assertEquals(2, index.check());
+        assertNull(index.getFile(b));
+        assertEquals(2, index.size());
+        assertEquals(0, index.check());
+
+        // unknown folders are ignored
+        assertEquals(0, index.check(new File(root, "unknown")));
+
+        index = reopen();
+        assertEquals(2, index.size());
+        assertNull(index.getFile(one));
+    }
+
+    @Test
+    public void testNoIdReuse() throws IOException {
+        Set<String> ids = new HashSet<String>();
+        for (int i = 0; i < 10; i++) {
+            File file = createFile(i + ".txt");
+            ids.add(index.getId(file));
+            index.remove(file);
+        }
+        assertEquals(10, ids.size());
+
+        // neither after a restart ...
+        index = reopen();
+        assertTrue(ids.add(index.getId(new File(root, "0.txt"))));
+
+        // ... nor after the journal has been compacted
+        for (int i = 0; i < 1500; i++) {
+            File file = new File(root, "x.txt");
+            assertTrue(ids.add(index.getId(file)));
+            index.remove(file);
+        }
+
+        index = reopen();
+        assertTrue(ids.add(index.getId(new File(root, "y.txt"))));
+    }
+
+    @Test
+    public void testInterruptedSnapshot() throws IOException {
+        String a = index.getId(createFile("a.txt"));
+        index.close();
+
+        // the old journal has been moved away, but the new one isn't in place
+        File journal = new File(indexDirectory, "index.journal");
+        File backup = new File(indexDirectory, "index.journal.bak");
+        assertTrue(journal.renameTo(backup));
+
+        index = new FileShareIndex(root, indexDirectory, 10);
+        assertEquals(a, index.getId(new File(root, "a.txt")));
+        assertTrue(journal.isFile());
+        assertFalse(backup.exists());
+
+        // a complete new journal wins over a leftover backup
+        String b = index.getId(new File(root, "b.txt"));
+        index.close();
+        writeFile(backup, "old");
+
+        index = new FileShareIndex(root, indexDirectory, 10);
+        assertEquals(b, index.getId(new File(root, "b.txt")));
+        assertFalse(backup.exists());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final int threads = 4;
+        final int files = 200;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() {
+                        List<String> result = new ArrayList<String>();
+                        for (int i = 0; i < files; i++) {
+                            result.add(index.getId(new File(root, (i % 10) + File.separator + i + ".txt")));
+                        }
+                        return result;
+                    }
+                }));
+            }
+
+            // all threads see the same ids
+            List<String> expected = futures.get(0).get();
+            for (Future<List<String>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+            assertEquals(files, new HashSet<String>(expected).size());
+            assertEquals(files + 10, index.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        index = reopen();
+        assertEquals(files + 10, index.size());
+    }
+
+    @Test
+    public void testClosedIndex() throws IOException {
+        String a = index.getId(createFile("a.txt"));
+        index.close();
+
+        // lookups still work
+        assertEquals(a, index.getId(new File(root, "a.txt")));
+        assertEquals(new File(root, "a.txt"), index.getFile(a));
+    }
+
+    @Test
+    public void testShadowCache() {
+        File shadow = new File(root, "a.txt.cmis.xml");
+
+        assertNull(index.getShadowData(shadow, 1, 2));
+
+        index.putShadowData(shadow, 1, 2, null);
+        assertNull(index.getShadowData(shadow, 1, 3));
+        assertNull(index.getShadowData(shadow, 2, 2));
+
+        index.invalidateShadowData(shadow);
+        assertNull(index.getShadowData(shadow, 1, 2));
+    }
+
+    @Test
+    public void testCachedShadowPropertiesAreCopied() {
+        FileShareRepository repository = new FileShareRepository("test", root.getAbsolutePath(),
+                new FileShareTypeManager());
+        repository.setUserReadWrite("test");
+        repository.enableIndex(createTempDirectory(indexDirectory, "repository"), 10);
+
+        CallContextImpl context = new CallContextImpl(CallContext.BINDING_BROWSER, CmisVersion.CMIS_1_1, "test",
+                null, null, null, null, null);
+        context.put(CallContext.USERNAME, "test");
+
+        try {
+            List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+            properties.add(new PropertyStringImpl(PropertyIds.NAME, "doc.txt"));
+            properties.add(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
+            String id = repository.createDocument(context, new PropertiesImpl(properties), "@root@", null, null);
+
+            // the second call reads the cached shadow file
+            repository.getObject(context, id, null, null, false, false, null);
+            ObjectData object = repository.getObject(context, id, null, null, false, false, null);
+
+            PropertyStringImpl createdBy = (PropertyStringImpl) object.getProperties().getProperties()
+                    .get(PropertyIds.CREATED_BY);
+            createdBy.setValue("somebody else");
+            PropertyDateTime creationDate = (PropertyDateTime) object.getProperties().getProperties()
+                    .get(PropertyIds.CREATION_DATE);
+            long creationTime = creationDate.getFirstValue().getTimeInMillis();
+            creationDate.getFirstValue().add(Calendar.YEAR, 1);
+
+            object = repository.getObject(context, id, null, null, false, false, null);
+            assertEquals("test", object.getProperties().getProperties().get(PropertyIds.CREATED_BY).getFirstValue());
+            assertEquals(creationTime, ((PropertyDateTime) object.getProperties().getProperties()
+                    .get(PropertyIds.CREATION_DATE)).getFirstValue().getTimeInMillis());
+        } finally {
+            repository.close();
+        }
+    }
+
+    private FileShareIndex reopen() {
+        index.close();
+        return new FileShareIndex(root, indexDirectory, 10);
+    }
+
+    private File createFile(String path) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        writeFile(file, path);
+        return file;
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(IOUtils.toUTF8Bytes(content));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File createTempDirectory(File parent, String name) {
+        File dir = new File(parent, name);
+        dir.mkdir();
+        return dir;
+    }
+
+    private static File createTempDirectory(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
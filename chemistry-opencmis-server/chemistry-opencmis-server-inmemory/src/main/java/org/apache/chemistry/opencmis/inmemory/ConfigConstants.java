@@ -47,6 +47,8 @@ public final class ConfigConstants {
     public static final String MAX_CONTENT_SIZE_KB = "InMemoryServer.MaxContentSizeKB";
     public static final String CLEAN_REPOSITORY_INTERVAL = "InMemoryServer.CleanIntervalMinutes";
     public static final String DEPLOYMENT_TIME = "InMemoryServer.DeploymentTime";
+    public static final String CHANGE_LOG_SIZE = "InMemoryServer.ChangeLogSize";
+    public static final String SCAN_PARALLELISM = "InMemoryServer.ScanParallelism";
 
     private ConfigConstants() {
     }
@@ -22,15 +22,17 @@
  */
 package org.apache.chemistry.opencmis.inmemory.query;
 
-import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.antlr.runtime.tree.Tree;
@@ -43,28 +45,32 @@ import org.apache.chemistry.opencmis.commons.enums.Cardinality;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.PropertyType;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
-import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.inmemory.server.ParallelScanExecutor;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.FullTextIndex;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
-import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
 import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
 import org.apache.chemistry.opencmis.server.support.query.CmisQueryWalker;
 import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
 import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.FunctionReference;
+import org.apache.chemistry.opencmis.server.support.query.FunctionReference.CmisQlFunction;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject.JoinSpec;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject.SortSpec;
 import org.apache.chemistry.opencmis.server.support.query.QueryUtilStrict;
 import org.apache.chemistry.opencmis.server.support.query.StringUtil;
+import org.apache.chemistry.opencmis.server.support.query.TextSearchLexer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,9 +90,19 @@ public class InMemoryQueryProcessor {
     private Tree whereTree;
     private ObjectStoreImpl objStore;
     private List<TypeDefinition> secondaryTypeIds;
+    private final ParallelScanExecutor scanExecutor;
+    private final FullTextIndex fullTextIndex;
+    private List<String> searchWords;
+    private Map<String, Double> searchScores;
 
     public InMemoryQueryProcessor(ObjectStoreImpl objStore) {
+        this(objStore, ParallelScanExecutor.getDefault());
+    }
+
+    public InMemoryQueryProcessor(ObjectStoreImpl objStore, ParallelScanExecutor scanExecutor) {
         this.objStore = objStore;
+        this.scanExecutor = scanExecutor;
+        this.fullTextIndex = objStore.getFullTextIndex();
     }
 
     /**
@@ -123,11 +139,25 @@ public class InMemoryQueryProcessor {
 
         processQueryAndCatchExc(statement, tm); // calls query processor
 
-        // iterate over all the objects and check for each if the query matches
-        for (String objectId : ((ObjectStoreImpl) objectStore).getIds()) {
-            StoredObject so = objectStore.getObjectById(objectId);
-            match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
-        }
+        // iterate over all the objects and check for each if the query
+        // matches, large repositories are scanned in parallel partitions;
+        // a CONTAINS() clause restricts the scan to the objects found in the
+        // full text index
+        final ObjectStore store = objectStore;
+        final String queryUser = user;
+        final boolean allVersions = searchAllVersions == null ? true : searchAllVersions.booleanValue();
+        Set<String> candidates = null == searchWords || null == whereTree ? null : getCandidates(whereTree);
+        List<String> objectIds = new ArrayList<String>(null == candidates ? ((ObjectStoreImpl) objectStore).getIds()
+                : candidates);
+        matches = scanExecutor.scan(objectIds, ParallelScanExecutor.DEFAULT_MIN_PARTITION_SIZE,
+                new ParallelScanExecutor.Processor<String, StoredObject>() {
+                    public void process(String objectId, List<StoredObject> results) {
+                        StoredObject so = store.getObjectById(objectId);
+                        if (null != so && match(so, queryUser, allVersions)) {
+                            results.add(so);
+                        }
+                    }
+                });
 
         ObjectList objList = buildResultList(tm, user, includeAllowableActions, includeRelationships, renditionFilter,
                 maxItems, skipCount);
@@ -150,6 +180,11 @@ public class InMemoryQueryProcessor {
         whereTree = walker.getWherePredicateTree();
         secondaryTypeIds = queryObj.getJoinedSecondaryTypes();
         doAdditionalChecks(walker);
+        if (walker.getNumberOfContainsClauses() > 0 && null != whereTree) {
+            SearchWordCollector collector = new SearchWordCollector();
+            collector.walkPredicate(whereTree);
+            searchWords = collector.words;
+        }
     }
 
     /**
@@ -175,6 +210,7 @@ public class InMemoryQueryProcessor {
             IncludeRelationships includeRelationships, String renditionFilter, BigInteger maxItems, 
             BigInteger skipCount) {
 
+        computeSearchScores();
         sortMatches();
 
         ObjectListImpl res = new ObjectListImpl();
@@ -210,7 +246,8 @@ public class InMemoryQueryProcessor {
             TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
 
             ObjectData od = PropertyCreationHelper.getObjectDataQueryResult(tm, objStore, td, so, user, props, funcs,
-                    secondaryTypeIds, includeAllowableActions, includeRelationships, renditionFilter);
+                    secondaryTypeIds, includeAllowableActions, includeRelationships, renditionFilter,
+                    getSearchScore(so));
             objDataList.add(od);
         }
         res.setObjects(objDataList);
@@ -251,9 +288,11 @@ public class InMemoryQueryProcessor {
                 CmisSelector sel = s.getSelector();
                 int result;
 
-                if (queryObj.isPredfinedQueryName(sel.getName())) {
-                    // must be SEARCH_SCORE which is currently ignored
-                    result = 0;
+                if (queryObj.isPredfinedQueryName(sel.getName())
+                        || (sel instanceof FunctionReference
+                                && ((FunctionReference) sel).getFunction() == CmisQlFunction.SCORE)) {
+                    // must be SEARCH_SCORE
+                    result = Double.compare(getSearchScore(so1), getSearchScore(so2));
                 } else if (sel instanceof ColumnReference) {
                     String propId = ((ColumnReference) sel).getPropertyId();
                     PropertyDefinition<?> pd = ((ColumnReference) sel).getPropertyDefinition();
@@ -287,12 +326,156 @@ public class InMemoryQueryProcessor {
 
     }
 
+    /*
+     * Compute the relevance of each match for the words of a CONTAINS()
+     * clause. Scores are normalized so that the best match has a score of 1.
+     */
+    private void computeSearchScores() {
+        if (null == searchWords) {
+            return;
+        }
+        searchScores = new HashMap<String, Double>();
+        double maxScore = 0.0;
+        for (StoredObject so : matches) {
+            double score = fullTextIndex.getScore(so.getId(), searchWords);
+            searchScores.put(so.getId(), score);
+            maxScore = Math.max(maxScore, score);
+        }
+        for (Map.Entry<String, Double> entry : searchScores.entrySet()) {
+            entry.setValue(maxScore > 0.0 ? entry.getValue() / maxScore : 1.0);
+        }
+    }
+
+    private double getSearchScore(StoredObject so) {
+        Double score = null == searchScores ? null : searchScores.get(so.getId());
+        return null == score ? 1.0 : score;
+    }
+
+    private static String unescapeSearchTerm(String nodeText) {
+        String term = StringUtil.unescape(nodeText, "\\'-");
+        if (null == term) {
+            throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + nodeText);
+        }
+        return term;
+    }
+
+    /*
+     * Get the ids of all objects that may match a where clause because of a
+     * CONTAINS() clause, null if the clause does not restrict the objects.
+     * Objects that are not in the result cannot match the where clause.
+     */
+    private Set<String> getCandidates(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.AND:
+            return intersect(getCandidates(node.getChild(0)), getCandidates(node.getChild(1)));
+        case CmisQlStrictLexer.OR:
+            return union(getCandidates(node.getChild(0)), getCandidates(node.getChild(1)));
+        case CmisQlStrictLexer.CONTAINS:
+            return node.getChildCount() == 1 ? getSearchCandidates(node.getChild(0)) : null;
+        default:
+            return null;
+        }
+    }
+
+    private Set<String> getSearchCandidates(Tree node) {
+        Set<String> result;
+        switch (node.getType()) {
+        case TextSearchLexer.TEXT_AND:
+            result = null;
+            for (int i = 0; i < node.getChildCount(); i++) {
+                result = intersect(result, getSearchCandidates(node.getChild(i)));
+            }
+            return result;
+        case TextSearchLexer.TEXT_OR:
+            result = new HashSet<String>();
+            for (int i = 0; i < node.getChildCount(); i++) {
+                result = union(result, getSearchCandidates(node.getChild(i)));
+            }
+            return result;
+        case TextSearchLexer.TEXT_SEARCH_WORD_LIT:
+            return fullTextIndex.findObjects(fullTextIndex.tokenize(unescapeSearchTerm(node.getText())));
+        case TextSearchLexer.TEXT_SEARCH_PHRASE_STRING_LIT:
+            String phrase = node.getText();
+            return fullTextIndex.findObjects(fullTextIndex.tokenize(unescapeSearchTerm(phrase.substring(1,
+                    phrase.length() - 1))));
+        default:
+            // '-' excludes objects, all others may match
+            return null;
+        }
+    }
+
+    private static Set<String> intersect(Set<String> set1, Set<String> set2) {
+        if (null == set1) {
+            return set2;
+        } else if (null == set2) {
+            return set1;
+        }
+        Set<String> smaller = set1.size() <= set2.size() ? set1 : set2;
+        Set<String> larger = smaller == set1 ? set2 : set1;
+        Set<String> result = new HashSet<String>();
+        for (String id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> union(Set<String> set1, Set<String> set2) {
+        if (null == set1 || null == set2) {
+            return null;
+        }
+        Set<String> result = new HashSet<String>(set1);
+        result.addAll(set2);
+        return result;
+    }
+
+    /*
+     * Collect the words of a CONTAINS() clause that contribute to the search
+     * score, these are all words that are not excluded with '-'.
+     */
+    private class SearchWordCollector extends AbstractPredicateWalker {
+
+        private final List<String> words = new ArrayList<String>();
+
+        @Override
+        protected Boolean walkTextAnd(Tree node) {
+            for (int i = 0; i < node.getChildCount(); i++) {
+                walkSearchExpr(node.getChild(i));
+            }
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextOr(Tree node) {
+            return walkTextAnd(node);
+        }
+
+        @Override
+        protected Boolean walkTextMinus(Tree node) {
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextWord(Tree node) {
+            words.addAll(fullTextIndex.tokenize(unescapeSearchTerm(node.getText())));
+            return false;
+        }
+
+        @Override
+        protected Boolean walkTextPhrase(Tree node) {
+            String phrase = node.getText();
+            words.addAll(fullTextIndex.tokenize(unescapeSearchTerm(phrase.substring(1, phrase.length() - 1))));
+            return false;
+        }
+    }
+
     /*
      * Check for each object contained in the in-memory repository if it matches
-     * the current query expression. If yes add it to the list of matched
+     * the current query expression. May be called concurrently for different
      * objects.
      */
-    private void match(StoredObject so, String user, boolean searchAllVersions) {
+    private boolean match(StoredObject so, String user, boolean searchAllVersions) {
         // first check if type is matching...
         // as we don't support joins take first type
         String queryName = queryObj.getTypes().values().iterator().next();
@@ -308,19 +491,15 @@ public class InMemoryQueryProcessor {
             skip = true;
         }
         // ... then check expression...
-        if (typeMatches && !skip) {
-            evalWhereTree(whereTree, user, so);
-        }
+        return typeMatches && !skip && evalWhereTree(whereTree, user, so);
     }
 
-    private void evalWhereTree(Tree node, String user, StoredObject so) {
+    private boolean evalWhereTree(Tree node, String user, StoredObject so) {
         boolean match = true;
         if (null != node) {
             match = evalWhereNode(so, user, node);
         }
-        if (match && objStore.hasReadAccess(user, so)) {
-            matches.add(so); // add to list
-        }
+        return match && objStore.hasReadAccess(user, so);
     }
 
     /*
@@ -660,31 +839,13 @@ public class InMemoryQueryProcessor {
         }
 
         private boolean findText(String nodeText) {
-            Content cont = (Content) so;
-            String pattern = StringUtil.unescape(nodeText, "\\'-");
-            if (null == pattern) {
-                throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + nodeText);
-            }
-
-            if (so instanceof Content && cont.hasContent()) {
-                ContentStreamDataImpl cdi = (ContentStreamDataImpl) cont.getContent();
-                if (cdi.getMimeType().startsWith("text/")) {
-                    byte[] ba = cdi.getBytes();
-                    String text;
-                    try {
-                        text = new String(ba, "UTF-8");
-                    } catch (UnsupportedEncodingException e) {
-                        throw new CmisRuntimeException("Internal error: Unsupported encoding UTF-8", e);
-                    }
-                    int match = text.indexOf(pattern);
-                    return match >= 0;
-                } else {
-                    return false;
-                }
-            }
-            return false;
+            // look up the words in the full text index instead of reading
+            // the content, see FullTextIndex for the matching rules: whole
+            // words ignoring case in the name, the string properties and
+            // text content, not substrings of the content
+            List<String> words = fullTextIndex.tokenize(unescapeSearchTerm(nodeText));
+            return so instanceof Content && fullTextIndex.containsPhrase(so.getId(), words);
         }
-
     }
 
     private boolean hasParent(StoredObject objInFolder, String folderId, String user) {
@@ -21,17 +21,19 @@ package org.apache.chemistry.opencmis.inmemory.server;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
-import org.apache.chemistry.opencmis.commons.data.PolicyIdList;
-import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ChangeEventInfoDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
@@ -42,13 +44,22 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.inmemory.FilterParser;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ChangeLog;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ChangeLog.ChangeEntry;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class InMemoryDiscoveryServiceImpl extends InMemoryAbstractServiceImpl {
 
     private static final Logger LOG = LoggerFactory.getLogger(InMemoryDiscoveryServiceImpl.class);
+    private static final String TOKEN_PREFIX = "token-";
 
     public InMemoryDiscoveryServiceImpl(StoreManager storeManager) {
         super(storeManager);
@@ -57,85 +68,182 @@ public class InMemoryDiscoveryServiceImpl extends InMemoryAbstractServiceImpl {
     public ObjectList getContentChanges(CallContext context, String repositoryId, Holder<String> changeLogToken,
             Boolean includeProperties, String filter, Boolean includePolicyIds, Boolean includeAcl,
             BigInteger maxItems, ExtensionsData extension, ObjectInfoHandler objectInfos) {
-        // dummy implementation using hard coded values
-        final int ITEMS_AVAILABLE = 25;
 
-        int token = 0;
-        if (changeLogToken != null && changeLogToken.getValue() != null) {
-            if (!changeLogToken.getValue().startsWith("token-")) {
-                throw new CmisInvalidArgumentException("Unknown change log token!");
-            }
+        LOG.debug("start getContentChanges()");
+        validator.getContentChanges(context, repositoryId, extension);
 
-            try {
-                token = Integer.parseInt(changeLogToken.getValue().substring(6));
-            } catch (NumberFormatException nfe) {
-                throw new CmisInvalidArgumentException("Unknown change log token!", nfe);
-            }
+        String user = context.getUsername();
+        ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
+        ChangeLog changeLog = objStore.getChangeLog();
+        long latestToken = changeLog.getLatestToken();
 
-            if (token < 0 || token > ITEMS_AVAILABLE) {
+        long token = changeLog.getOldestToken();
+        if (changeLogToken != null && changeLogToken.getValue() != null) {
+            token = parseChangeLogToken(changeLogToken.getValue());
+
+            if (token < 0 || token > latestToken + 1) {
                 throw new CmisInvalidArgumentException("Unknown change log token!");
             }
+            if (token < changeLog.getOldestToken()) {
+                throw new CmisConstraintException("Change log token " + changeLogToken.getValue()
+                        + " is no longer available in the change log.");
+            }
         }
 
-        ObjectListImpl objList = new ObjectListImpl();
-        long timestamp = System.currentTimeMillis() - 60 * 1000;
-        // convert ObjectInFolderContainerList to objectList
+        int max = maxItems == null ? changeLog.getRetention() : (int) Math.min(maxItems.longValue(),
+                changeLog.getRetention());
+
+        TypeManager tm = fStoreManager.getTypeManager(repositoryId);
+        List<String> requestedIds = FilterParser.getRequestedIdsFromFilter(filter);
+        boolean withProperties = includeProperties != null && includeProperties;
+        boolean withPolicyIds = includePolicyIds != null && includePolicyIds;
+        boolean withAcl = includeAcl != null && includeAcl;
+
+        // the log is read in chunks and only until one more visible change
+        // than requested has been found, which sets hasMoreItems
+        int chunkSize = (int) Math.min((long) max + 1, changeLog.getRetention());
+        Map<Integer, Boolean> readableAcls = new HashMap<Integer, Boolean>();
         List<ObjectData> lod = new ArrayList<ObjectData>();
-        if (null == maxItems) {
-            maxItems = BigInteger.valueOf(ITEMS_AVAILABLE);
-        }
-        int last = Math.min(ITEMS_AVAILABLE, token + maxItems.intValue());
+        long lastToken = token;
+        long lastExamined = -1;
+        boolean hasMoreItems = false;
+        long from = token;
+        while (!hasMoreItems) {
+            List<ChangeEntry> entries = changeLog.getEntries(from, chunkSize);
+            if (entries.isEmpty()) {
+                break;
+            }
 
-        for (int i = token; i < last; i++) {
-            // add a dummy delete event
-            ObjectDataImpl odImpl = new ObjectDataImpl();
-            PropertiesImpl props = new PropertiesImpl();
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "cl-" + i));
-            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, BaseTypeId.CMIS_DOCUMENT.value()));
-            odImpl.setProperties(props);
-            ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
-            changeEventInfo.setChangeType(ChangeType.DELETED);
-            GregorianCalendar eventTimestamp = new GregorianCalendar();
-            eventTimestamp.setTimeInMillis(timestamp + i * 1000);
-            changeEventInfo.setChangeTime(eventTimestamp);
-            odImpl.setChangeEventInfo(changeEventInfo);
-            if (includePolicyIds != null && includePolicyIds) {
-                PolicyIdList policies = new PolicyIdListImpl();
-                odImpl.setPolicyIds(policies);
+            for (ChangeEntry entry : entries) {
+                lastExamined = entry.getToken();
+
+                StoredObject so = objStore.getObjectById(entry.getObjectId());
+                // the change of a deleted object is checked against the ACL
+                // the object had when the change was recorded
+                int aclId = null == so ? entry.getAclId() : so.getAclId();
+                Boolean readable = readableAcls.get(aclId);
+                if (null == readable) {
+                    readable = objStore.hasReadAccess(user, aclId);
+                    readableAcls.put(aclId, readable);
+                }
+                if (!readable) {
+                    continue;
+                }
+
+                if (lod.size() == max) {
+                    hasMoreItems = true;
+                    break;
+                }
+
+                lod.add(getChangeEventData(tm, objStore, entry, so, requestedIds, withProperties, withPolicyIds,
+                        withAcl));
+                lastToken = entry.getToken();
             }
-            lod.add(odImpl);
+
+            if (lastExamined >= latestToken) {
+                break;
+            }
+            from = lastExamined + 1;
         }
 
+        ObjectListImpl objList = new ObjectListImpl();
         objList.setObjects(lod);
-        objList.setNumItems(BigInteger.valueOf(ITEMS_AVAILABLE - token));
-        objList.setHasMoreItems(false);
+        objList.setHasMoreItems(hasMoreItems);
+        if (!hasMoreItems) {
+            // the end of the log has been reached, so the number of changes
+            // is known
+            objList.setNumItems(BigInteger.valueOf(lod.size()));
 
-        String changeToken = "token-" + (token + lod.size() - 1);
-        changeLogToken.setValue(changeToken);
+            // continue after the changes the user cannot see
+            lastToken = lastExamined < 0 ? latestToken : lastExamined;
+        }
+
+        if (null != changeLogToken) {
+            changeLogToken.setValue(lastToken < 0 ? null : formatChangeLogToken(lastToken));
+        }
 
         // To be able to provide all Atom links in the response we need
         // additional information:
         if (objectInfos != null) {
             fAtomLinkProvider.fillInformationForAtomLinks(repositoryId, null, objectInfos, objList);
         }
+        LOG.debug("stop getContentChanges()");
         return objList;
     }
 
-    private void convertList(List<ObjectData> lod, ObjectInFolderContainer obj) {
-        lod.add(obj.getObject().getObject());
-        // add dummy event info
-        ObjectData oif = obj.getObject().getObject();
-        ObjectDataImpl oifImpl = (ObjectDataImpl) oif;
+    /**
+     * Convert a change log token as used in the CMIS API to the numeric token
+     * of the change log.
+     * 
+     * @param changeLogToken
+     *            token string
+     * @return numeric token
+     */
+    public static long parseChangeLogToken(String changeLogToken) {
+        if (!changeLogToken.startsWith(TOKEN_PREFIX)) {
+            throw new CmisInvalidArgumentException("Unknown change log token!");
+        }
+
+        try {
+            return Long.parseLong(changeLogToken.substring(TOKEN_PREFIX.length()));
+        } catch (NumberFormatException nfe) {
+            throw new CmisInvalidArgumentException("Unknown change log token!", nfe);
+        }
+    }
+
+    /**
+     * Convert a numeric token of the change log to a change log token as used
+     * in the CMIS API.
+     * 
+     * @param token
+     *            numeric token
+     * @return token string
+     */
+    public static String formatChangeLogToken(long token) {
+        return TOKEN_PREFIX + token;
+    }
+
+    private ObjectData getChangeEventData(TypeManager tm, ObjectStore objStore, ChangeEntry entry, StoredObject so,
+            List<String> requestedIds, boolean includeProperties, boolean includePolicyIds, boolean includeAcl) {
+        ObjectDataImpl odImpl = new ObjectDataImpl();
+
+        // properties are only available as long as the object exists
+        boolean exists = null != so && entry.getChangeType() != ChangeType.DELETED;
+        if (includeProperties && exists) {
+            odImpl.setProperties(PropertyCreationHelper.getPropertiesFromObject(so, objStore, tm, requestedIds,
+                    false));
+        } else {
+            PropertiesImpl props = new PropertiesImpl();
+            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, entry.getObjectId()));
+            props.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, entry.getTypeId()));
+            TypeDefinitionContainer tdc = tm.getTypeById(entry.getTypeId());
+            if (null != tdc) {
+                props.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, tdc.getTypeDefinition()
+                        .getBaseTypeId().value()));
+            }
+            odImpl.setProperties(props);
+        }
+
         ChangeEventInfoDataImpl changeEventInfo = new ChangeEventInfoDataImpl();
-        changeEventInfo.setChangeType(ChangeType.UPDATED);
-        changeEventInfo.setChangeTime(new GregorianCalendar());
-        oifImpl.setChangeEventInfo(changeEventInfo);
-        if (null != obj.getChildren()) {
-            for (ObjectInFolderContainer oifc : obj.getChildren()) {
-                convertList(lod, oifc);
+        changeEventInfo.setChangeType(entry.getChangeType());
+        changeEventInfo.setChangeTime(entry.getChangeTime());
+        odImpl.setChangeEventInfo(changeEventInfo);
+
+        if (includePolicyIds) {
+            PolicyIdListImpl policies = new PolicyIdListImpl();
+            if (exists && null != so.getAppliedPolicies()) {
+                policies.setPolicyIds(so.getAppliedPolicies());
             }
+            odImpl.setPolicyIds(policies);
         }
+
+        if (includeAcl && exists) {
+            int aclId = so instanceof DocumentVersion ? ((DocumentVersion) so).getParentDocument().getAclId() : so
+                    .getAclId();
+            odImpl.setAcl(objStore.getAcl(aclId));
+        }
+
+        return odImpl;
     }
 
     public ObjectList query(CallContext context, String repositoryId, String statement, Boolean searchAllVersions,
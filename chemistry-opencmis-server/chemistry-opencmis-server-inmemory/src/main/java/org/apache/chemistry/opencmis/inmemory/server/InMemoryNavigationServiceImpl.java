@@ -45,6 +45,7 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectParentDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.server.ObjectInfoImpl;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.inmemory.DataObjectCreator;
 import org.apache.chemistry.opencmis.inmemory.FilterParser;
@@ -324,10 +325,11 @@ public class InMemoryNavigationServiceImpl extends InMemoryAbstractServiceImpl {
         return result;
     }
 
-    private List<ObjectInFolderContainer> getDescendantsIntern(String repositoryId, String folderId, String filter,
-            Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
-            Boolean includePathSegments, int level, int maxLevels, boolean folderOnly, ObjectInfoHandler objectInfos,
-            String user) {
+    private List<ObjectInFolderContainer> getDescendantsIntern(final String repositoryId, String folderId,
+            final String filter, final Boolean includeAllowableActions,
+            final IncludeRelationships includeRelationships, final String renditionFilter,
+            final Boolean includePathSegments, final int level, final int maxLevels, final boolean folderOnly,
+            final ObjectInfoHandler objectInfos, final String user) {
 
         List<ObjectInFolderContainer> childrenOfFolderId = null;
         if (maxLevels == -1 || level < maxLevels) {
@@ -337,19 +339,46 @@ public class InMemoryNavigationServiceImpl extends InMemoryAbstractServiceImpl {
                     MAX_FOLDERS_IN_GET_DESC, 0, folderOnly, false, objectInfos, user);
             childrenOfFolderId = new ArrayList<ObjectInFolderContainer>();
             if (null != children) {
+                ParallelScanExecutor.Processor<ObjectInFolderData, SubTree> processor =
+                        new ParallelScanExecutor.Processor<ObjectInFolderData, SubTree>() {
+                    public void process(ObjectInFolderData child, List<SubTree> results) {
+                        // the handler is not thread-safe, each sub tree
+                        // collects its object infos separately
+                        ObjectInfoCollector subTreeInfos = null == objectInfos ? null : new ObjectInfoCollector();
+                        ObjectInFolderContainerImpl oifc = new ObjectInFolderContainerImpl();
+                        String childId = child.getObject().getId();
+                        List<ObjectInFolderContainer> subChildren = getDescendantsIntern(repositoryId, childId,
+                                filter, includeAllowableActions, includeRelationships, renditionFilter,
+                                includePathSegments, level + 1, maxLevels, folderOnly, subTreeInfos, user);
+
+                        oifc.setObject(child);
+                        if (null != subChildren) {
+                            oifc.setChildren(subChildren);
+                        }
+                        results.add(new SubTree(oifc, subTreeInfos));
+                    }
+                };
+
+                // sub trees are independent and can be traversed in parallel
+                // unless there are no further levels
+                boolean hasSubLevels = maxLevels == -1 || level + 1 < maxLevels;
+                List<SubTree> subTrees;
+                if (hasSubLevels) {
+                    subTrees = ParallelScanExecutor.getDefault().scan(children.getObjects(), 1, processor);
+                } else {
+                    subTrees = new ArrayList<SubTree>();
+                    for (ObjectInFolderData child : children.getObjects()) {
+                        processor.process(child, subTrees);
+                    }
+                }
 
-                for (ObjectInFolderData child : children.getObjects()) {
-                    ObjectInFolderContainerImpl oifc = new ObjectInFolderContainerImpl();
-                    String childId = child.getObject().getId();
-                    List<ObjectInFolderContainer> subChildren = getDescendantsIntern(repositoryId, childId, filter,
-                            includeAllowableActions, includeRelationships, renditionFilter, includePathSegments,
-                            level + 1, maxLevels, folderOnly, objectInfos, user);
-
-                    oifc.setObject(child);
-                    if (null != subChildren) {
-                        oifc.setChildren(subChildren);
+                // merge in list order, the object infos are added in the same
+                // order as by a sequential traversal
+                for (SubTree subTree : subTrees) {
+                    childrenOfFolderId.add(subTree.container);
+                    if (null != subTree.objectInfos) {
+                        subTree.objectInfos.addAllTo(objectInfos);
                     }
-                    childrenOfFolderId.add(oifc);
                 }
             }
         }
@@ -430,4 +459,43 @@ public class InMemoryNavigationServiceImpl extends InMemoryAbstractServiceImpl {
         objData.setProperties(props);
     }
 
+    /**
+     * Result of the traversal of a single sub tree.
+     */
+    private static class SubTree {
+        private final ObjectInFolderContainer container;
+        private final ObjectInfoCollector objectInfos;
+
+        public SubTree(ObjectInFolderContainer container, ObjectInfoCollector objectInfos) {
+            this.container = container;
+            this.objectInfos = objectInfos;
+        }
+    }
+
+    /**
+     * Collects the object infos of a sub tree until they are added to the
+     * handler of the request.
+     */
+    private static class ObjectInfoCollector implements ObjectInfoHandler {
+        private final List<ObjectInfo> fObjectInfos = new ArrayList<ObjectInfo>();
+
+        public ObjectInfo getObjectInfo(String repositoryId, String objectId) {
+            for (ObjectInfo objectInfo : fObjectInfos) {
+                if (objectInfo.getId().equals(objectId)) {
+                    return objectInfo;
+                }
+            }
+            return null;
+        }
+
+        public void addObjectInfo(ObjectInfo objectInfo) {
+            fObjectInfos.add(objectInfo);
+        }
+
+        public void addAllTo(ObjectInfoHandler handler) {
+            for (ObjectInfo objectInfo : fObjectInfos) {
+                handler.addObjectInfo(objectInfo);
+            }
+        }
+    }
 }
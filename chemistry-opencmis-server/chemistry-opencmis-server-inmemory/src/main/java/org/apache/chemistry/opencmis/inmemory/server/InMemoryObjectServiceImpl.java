@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -255,19 +256,25 @@ public class InMemoryObjectServiceImpl extends InMemoryAbstractServiceImpl {
             throw new CmisObjectNotFoundException(UNKNOWN_OBJECT_ID + objectId);
         }
 
-        if (so.getChangeToken() != null && (changeToken == null
-                || !so.getChangeToken().equals(changeToken.getValue()))) {
-            throw new CmisUpdateConflictException("deleteContentStream failed, ChangeToken does not match.");
-        }
+        Lock lock = fStoreManager.getObjectStore(repositoryId).getObjectLock(so.getId());
+        lock.lock();
+        try {
+            if (so.getChangeToken() != null && (changeToken == null
+                    || !so.getChangeToken().equals(changeToken.getValue()))) {
+                throw new CmisUpdateConflictException("deleteContentStream failed, ChangeToken does not match.");
+            }
 
-        if (!(so instanceof Content)) {
-            throw new CmisObjectNotFoundException("Id" + objectId
-                    + " does not refer to a document, but only documents can have content");
-        }
+            if (!(so instanceof Content)) {
+                throw new CmisObjectNotFoundException("Id" + objectId
+                        + " does not refer to a document, but only documents can have content");
+            }
 
-        ObjectStore objectStore = fStoreManager.getObjectStore(repositoryId);
-        objectStore.setContent(so, null);
-        LOG.debug("stop deleteContentStream()");
+            ObjectStore objectStore = fStoreManager.getObjectStore(repositoryId);
+            objectStore.setContent(so, null);
+            LOG.debug("stop deleteContentStream()");
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void deleteObject(CallContext context, String repositoryId, String objectId, Boolean allVersions,
@@ -562,44 +569,50 @@ public class InMemoryObjectServiceImpl extends InMemoryAbstractServiceImpl {
 
         StoredObject so = validator.setContentStream(context, repositoryId, objectId, overwriteFlag, extension);
 
-        if (changeToken != null && changeToken.getValue() != null
-                && Long.valueOf(so.getChangeToken()) > Long.valueOf(changeToken.getValue())) {
-            throw new CmisUpdateConflictException("setContentStream failed: changeToken does not match");
-        }
+        Lock lock = fStoreManager.getObjectStore(repositoryId).getObjectLock(so.getId());
+        lock.lock();
+        try {
+            if (changeToken != null && changeToken.getValue() != null
+                    && Long.valueOf(so.getChangeToken()) > Long.valueOf(changeToken.getValue())) {
+                throw new CmisUpdateConflictException("setContentStream failed: changeToken does not match");
+            }
 
-        if (!(so instanceof Document || so instanceof VersionedDocument || so instanceof DocumentVersion)) {
-            throw new CmisObjectNotFoundException("Id" + objectId
-                    + " does not refer to a document, but only documents can have content");
-        }
+            if (!(so instanceof Document || so instanceof VersionedDocument || so instanceof DocumentVersion)) {
+                throw new CmisObjectNotFoundException("Id" + objectId
+                        + " does not refer to a document, but only documents can have content");
+            }
 
-        // validate content allowed
-        TypeDefinition typeDef = getTypeDefinition(repositoryId, so);
-        if (!(typeDef instanceof DocumentTypeDefinition)) {
-            throw new CmisInvalidArgumentException("Object does not refer to a document, can't set content");
-        }
-        TypeValidator.validateContentAllowed((DocumentTypeDefinition) typeDef, null != contentStream);
+            // validate content allowed
+            TypeDefinition typeDef = getTypeDefinition(repositoryId, so);
+            if (!(typeDef instanceof DocumentTypeDefinition)) {
+                throw new CmisInvalidArgumentException("Object does not refer to a document, can't set content");
+            }
+            TypeValidator.validateContentAllowed((DocumentTypeDefinition) typeDef, null != contentStream);
+
+            if (so instanceof Document) {
+                content = ((Document) so);
+            } else if (so instanceof DocumentVersion) {
+                // something that is versionable check the proper status of the
+                // object
+                String user = context.getUsername();
+                testHasProperCheckedOutStatus(so, user);
+                content = (DocumentVersion) so;
+            } else {
+                throw new IllegalArgumentException("Content cannot be set on this object (must be document or version)");
+            }
 
-        if (so instanceof Document) {
-            content = ((Document) so);
-        } else if (so instanceof DocumentVersion) {
-            // something that is versionable check the proper status of the
-            // object
-            String user = context.getUsername();
-            testHasProperCheckedOutStatus(so, user);
-            content = (DocumentVersion) so;
-        } else {
-            throw new IllegalArgumentException("Content cannot be set on this object (must be document or version)");
-        }
+            if (!overwriteFlag && content.hasContent()) {
+                throw new CmisContentAlreadyExistsException(
+                        "cannot overwrite existing content if overwrite flag is not set");
+            }
 
-        if (!overwriteFlag && content.hasContent()) {
-            throw new CmisContentAlreadyExistsException(
-                    "cannot overwrite existing content if overwrite flag is not set");
+            ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
+            objStore.setContent(so, contentStream);
+            so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
+            LOG.debug("stop setContentStream()");
+        } finally {
+            lock.unlock();
         }
-
-        ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
-        objStore.setContent(so, contentStream);
-        so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
-        LOG.debug("stop setContentStream()");
     }
 
     public void updateProperties(CallContext context, String repositoryId, Holder<String> objectId,
@@ -627,135 +640,141 @@ public class InMemoryObjectServiceImpl extends InMemoryAbstractServiceImpl {
         boolean cmis11 = context.getCmisVersion() != CmisVersion.CMIS_1_0;
         validateProperties(repositoryId, so, properties, false, cmis11);
 
-        if (changeToken != null && changeToken.getValue() != null
-                && Long.valueOf(so.getChangeToken()) > Long.valueOf(changeToken.getValue())) {
-            throw new CmisUpdateConflictException("updateProperties failed: changeToken does not match");
-        }
-
-        // update properties
-        boolean hasUpdatedProp = false;
-
-        // Find secondary type definitions to consider for update
-        List<String> existingSecondaryTypeIds = so.getSecondaryTypeIds();
-        @SuppressWarnings("unchecked")
-        PropertyData<String> pdSec = (PropertyData<String>) properties.getProperties().get(
-                PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
-        List<String> newSecondaryTypeIds = pdSec == null ? null : pdSec.getValues();
-        Set<String> secondaryTypeIds = new HashSet<String>();
-        if (null != existingSecondaryTypeIds) {
-            secondaryTypeIds.addAll(existingSecondaryTypeIds);
-        }
-        if (null != newSecondaryTypeIds) {
-            secondaryTypeIds.addAll(newSecondaryTypeIds);
-        }
-
-        // Find secondary type definitions to delete (null means not set --> do
-        // not change, empty --> remove all secondary types)
-        if (null != newSecondaryTypeIds) {
-            List<String> propertiesIdToDelete = getListOfPropertiesToDeleteFromRemovedSecondaryTypes(repositoryId, so,
-                    newSecondaryTypeIds);
-            for (String propIdToRemove : propertiesIdToDelete) {
-                oldProperties.put(propIdToRemove, null);
+        Lock lock = objStore.getObjectLock(so.getId());
+        lock.lock();
+        try {
+            if (changeToken != null && changeToken.getValue() != null
+                    && Long.valueOf(so.getChangeToken()) > Long.valueOf(changeToken.getValue())) {
+                throw new CmisUpdateConflictException("updateProperties failed: changeToken does not match");
             }
-        }
 
-        // update properties:
-        for (String key : properties.getProperties().keySet()) {
-            if (key.equals(PropertyIds.NAME)) {
-                continue; // ignore here
+            // update properties
+            boolean hasUpdatedProp = false;
+
+            // Find secondary type definitions to consider for update
+            List<String> existingSecondaryTypeIds = so.getSecondaryTypeIds();
+            @SuppressWarnings("unchecked")
+            PropertyData<String> pdSec = (PropertyData<String>) properties.getProperties().get(
+                    PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+            List<String> newSecondaryTypeIds = pdSec == null ? null : pdSec.getValues();
+            Set<String> secondaryTypeIds = new HashSet<String>();
+            if (null != existingSecondaryTypeIds) {
+                secondaryTypeIds.addAll(existingSecondaryTypeIds);
+            }
+            if (null != newSecondaryTypeIds) {
+                secondaryTypeIds.addAll(newSecondaryTypeIds);
             }
 
-            PropertyData<?> value = properties.getProperties().get(key);
-            PropertyDefinition<?> propDef = typeDef.getPropertyDefinitions().get(key);
-            if (cmis11 && null == propDef) {
-                TypeDefinition typeDefSecondary = getSecondaryTypeDefinition(repositoryId, secondaryTypeIds, key);
-                if (null == typeDefSecondary) {
-                    throw new CmisInvalidArgumentException("Cannot update property " + key + ": not contained in type");
+            // Find secondary type definitions to delete (null means not set --> do
+            // not change, empty --> remove all secondary types)
+            if (null != newSecondaryTypeIds) {
+                List<String> propertiesIdToDelete = getListOfPropertiesToDeleteFromRemovedSecondaryTypes(repositoryId, so,
+                        newSecondaryTypeIds);
+                for (String propIdToRemove : propertiesIdToDelete) {
+                    oldProperties.put(propIdToRemove, null);
                 }
-                propDef = typeDefSecondary.getPropertyDefinitions().get(key);
             }
 
-            if (null == propDef) {
-                throw new CmisInvalidArgumentException("Unknown property " + key
-                        + ": not contained in type (or any secondary type)");
-            }
+            // update properties:
+            for (String key : properties.getProperties().keySet()) {
+                if (key.equals(PropertyIds.NAME)) {
+                    continue; // ignore here
+                }
 
-            if (value.getValues() == null || value.getFirstValue() == null) {
-                // delete property
-                // check if a required a property
-                if (propDef.isRequired()) {
-                    throw new CmisConstraintException(
-                            "updateProperties failed, following property can't be deleted, because it is required: "
-                                    + key);
+                PropertyData<?> value = properties.getProperties().get(key);
+                PropertyDefinition<?> propDef = typeDef.getPropertyDefinitions().get(key);
+                if (cmis11 && null == propDef) {
+                    TypeDefinition typeDefSecondary = getSecondaryTypeDefinition(repositoryId, secondaryTypeIds, key);
+                    if (null == typeDefSecondary) {
+                        throw new CmisInvalidArgumentException("Cannot update property " + key + ": not contained in type");
+                    }
+                    propDef = typeDefSecondary.getPropertyDefinitions().get(key);
                 }
-                oldProperties.put(key, null);
-                hasUpdatedProp = true;
-            } else {
-                if (propDef.getUpdatability() == Updatability.WHENCHECKEDOUT) {
-                    if (!isCheckedOut) {
-                        throw new CmisUpdateConflictException(
-                                "updateProperties failed, following property can't be updated, because it is not "
-                                + "checked-out: " + key);
+
+                if (null == propDef) {
+                    throw new CmisInvalidArgumentException("Unknown property " + key
+                            + ": not contained in type (or any secondary type)");
+                }
+
+                if (value.getValues() == null || value.getFirstValue() == null) {
+                    // delete property
+                    // check if a required a property
+                    if (propDef.isRequired()) {
+                        throw new CmisConstraintException(
+                                "updateProperties failed, following property can't be deleted, because it is required: "
+                                        + key);
+                    }
+                    oldProperties.put(key, null);
+                    hasUpdatedProp = true;
+                } else {
+                    if (propDef.getUpdatability() == Updatability.WHENCHECKEDOUT) {
+                        if (!isCheckedOut) {
+                            throw new CmisUpdateConflictException(
+                                    "updateProperties failed, following property can't be updated, because it is not "
+                                    + "checked-out: " + key);
+                        }
+                    } else if (propDef.getUpdatability() != Updatability.READWRITE) {
+                        throw new CmisConstraintException(
+                                "updateProperties failed, following property can't be updated, because it is not writable: "
+                                        + key);
                     }
-                } else if (propDef.getUpdatability() != Updatability.READWRITE) {
-                    throw new CmisConstraintException(
-                            "updateProperties failed, following property can't be updated, because it is not writable: "
-                                    + key);
+                    oldProperties.put(key, value);
+                    hasUpdatedProp = true;
                 }
-                oldProperties.put(key, value);
-                hasUpdatedProp = true;
             }
-        }
         
-        // get name from properties and perform special rename to check if
-        // path already exists
-        PropertyData<?> pd = properties.getProperties().get(PropertyIds.NAME);
-        if (pd != null && so instanceof Filing) {
-            String newName = (String) pd.getFirstValue();
-            boolean hasParent = ((Filing) so).hasParent();
-            if (so instanceof Folder && !hasParent) {
-                throw new CmisConstraintException("updateProperties failed, you cannot rename the root folder");
-            }
-            if (newName == null || newName.equals("")) {
-                throw new CmisConstraintException("updateProperties failed, name must not be empty.");
-            }
-            if (!NameValidator.isValidName(newName)) {
-                throw new CmisInvalidArgumentException(NameValidator.ERROR_ILLEGAL_NAME);
+            // get name from properties and perform special rename to check if
+            // path already exists
+            PropertyData<?> pd = properties.getProperties().get(PropertyIds.NAME);
+            if (pd != null && so instanceof Filing) {
+                String newName = (String) pd.getFirstValue();
+                boolean hasParent = ((Filing) so).hasParent();
+                if (so instanceof Folder && !hasParent) {
+                    throw new CmisConstraintException("updateProperties failed, you cannot rename the root folder");
+                }
+                if (newName == null || newName.equals("")) {
+                    throw new CmisConstraintException("updateProperties failed, name must not be empty.");
+                }
+                if (!NameValidator.isValidName(newName)) {
+                    throw new CmisInvalidArgumentException(NameValidator.ERROR_ILLEGAL_NAME);
+                }
+                // Note: the test for duplicated name in folder is left to the
+                // object store
+                objStore.rename((Fileable) so, (String) pd.getFirstValue(), user);
+                hasUpdatedProp = true;
             }
-            // Note: the test for duplicated name in folder is left to the
-            // object store
-            objStore.rename((Fileable) so, (String) pd.getFirstValue(), user);
-            hasUpdatedProp = true;
-        }
 
-        objStore.updateObject(so, oldProperties, user);
+            objStore.updateObject(so, oldProperties, user);
 
-        if (hasUpdatedProp) {
-            objectId.setValue(so.getId()); // might have a new id
-            if (null != changeToken) {
-                String changeTokenVal = so.getChangeToken();
-                LOG.debug("updateProperties(), new change token is: " + changeTokenVal);
-                changeToken.setValue(changeTokenVal);
+            if (hasUpdatedProp) {
+                objectId.setValue(so.getId()); // might have a new id
+                if (null != changeToken) {
+                    String changeTokenVal = so.getChangeToken();
+                    LOG.debug("updateProperties(), new change token is: " + changeTokenVal);
+                    changeToken.setValue(changeTokenVal);
+                }
             }
-        }
 
-        if (null != acl) {
-            objStore.applyAcl(so, acl, AclPropagation.OBJECTONLY, user);
-        }
+            if (null != acl) {
+                objStore.applyAcl(so, acl, AclPropagation.OBJECTONLY, user);
+            }
 
-        TypeManager tm = fStoreManager.getTypeManager(repositoryId);
-        ObjectData od = PropertyCreationHelper.getObjectData(tm, objStore, so, null, user, false,
-                IncludeRelationships.NONE, null, false, false, extension);
+            TypeManager tm = fStoreManager.getTypeManager(repositoryId);
+            ObjectData od = PropertyCreationHelper.getObjectData(tm, objStore, so, null, user, false,
+                    IncludeRelationships.NONE, null, false, false, extension);
 
-        // To be able to provide all Atom links in the response we need
-        // additional information:
-        if (context.isObjectInfoRequired()) {
-            ObjectInfoImpl objectInfo = new ObjectInfoImpl();
-            fAtomLinkProvider.fillInformationForAtomLinks(repositoryId, so, od, objectInfo);
-            objectInfos.addObjectInfo(objectInfo);
-        }
+            // To be able to provide all Atom links in the response we need
+            // additional information:
+            if (context.isObjectInfoRequired()) {
+                ObjectInfoImpl objectInfo = new ObjectInfoImpl();
+                fAtomLinkProvider.fillInformationForAtomLinks(repositoryId, so, od, objectInfo);
+                objectInfos.addObjectInfo(objectInfo);
+            }
 
-        LOG.debug("stop updateProperties()");
+            LOG.debug("stop updateProperties()");
+        } finally {
+            lock.unlock();
+        }
     }
 
     // CMIS 1.1
@@ -767,38 +786,44 @@ public class InMemoryObjectServiceImpl extends InMemoryAbstractServiceImpl {
         LOG.debug("start appendContentStream()");
         StoredObject so = validator.appendContentStream(context, repositoryId, objectId, extension);
 
-        if (changeToken != null && changeToken.getValue() != null
-                && Long.valueOf(so.getChangeToken()) > Long.valueOf(changeToken.getValue())) {
-            throw new CmisUpdateConflictException("updateProperties failed: changeToken does not match");
-        }
+        Lock lock = fStoreManager.getObjectStore(repositoryId).getObjectLock(so.getId());
+        lock.lock();
+        try {
+            if (changeToken != null && changeToken.getValue() != null
+                    && Long.valueOf(so.getChangeToken()) > Long.valueOf(changeToken.getValue())) {
+                throw new CmisUpdateConflictException("updateProperties failed: changeToken does not match");
+            }
 
-        if (!(so instanceof Document || so instanceof VersionedDocument || so instanceof DocumentVersion)) {
-            throw new CmisObjectNotFoundException("Id" + objectId
-                    + " does not refer to a document, but only documents can have content");
-        }
+            if (!(so instanceof Document || so instanceof VersionedDocument || so instanceof DocumentVersion)) {
+                throw new CmisObjectNotFoundException("Id" + objectId
+                        + " does not refer to a document, but only documents can have content");
+            }
 
-        // validate content allowed
-        TypeDefinition typeDef = getTypeDefinition(repositoryId, so);
-        if (!(typeDef instanceof DocumentTypeDefinition)) {
-            throw new CmisInvalidArgumentException("Object does not refer to a document, can't set content");
-        }
-        TypeValidator.validateContentAllowed((DocumentTypeDefinition) typeDef, null != contentStream);
+            // validate content allowed
+            TypeDefinition typeDef = getTypeDefinition(repositoryId, so);
+            if (!(typeDef instanceof DocumentTypeDefinition)) {
+                throw new CmisInvalidArgumentException("Object does not refer to a document, can't set content");
+            }
+            TypeValidator.validateContentAllowed((DocumentTypeDefinition) typeDef, null != contentStream);
+
+            if (so instanceof Document) {
+                content = ((Document) so);
+            } else if (so instanceof DocumentVersion) {
+                // something that is versionable check the proper status of the
+                // object
+                String user = context.getUsername();
+                testHasProperCheckedOutStatus(so, user);
+                content = (DocumentVersion) so;
+            } else {
+                throw new IllegalArgumentException("Content cannot be set on this object (must be document or version)");
+            }
 
-        if (so instanceof Document) {
-            content = ((Document) so);
-        } else if (so instanceof DocumentVersion) {
-            // something that is versionable check the proper status of the
-            // object
-            String user = context.getUsername();
-            testHasProperCheckedOutStatus(so, user);
-            content = (DocumentVersion) so;
-        } else {
-            throw new IllegalArgumentException("Content cannot be set on this object (must be document or version)");
+            ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
+            objStore.appendContent(so, contentStream);
+            so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
+        } finally {
+            lock.unlock();
         }
-
-        ObjectStore objStore = fStoreManager.getObjectStore(repositoryId);
-        objStore.appendContent(so, contentStream);
-        so.updateSystemBasePropertiesWhenModified(null, context.getUsername());
     }
 
     public List<BulkUpdateObjectIdAndChangeToken> bulkUpdateProperties(CallContext context, String repositoryId,
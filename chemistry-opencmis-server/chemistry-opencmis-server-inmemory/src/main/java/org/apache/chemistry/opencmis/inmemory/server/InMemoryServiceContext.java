@@ -18,6 +18,8 @@
  */
 package org.apache.chemistry.opencmis.inmemory.server;
 
+import java.util.concurrent.Callable;
+
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
 
@@ -85,4 +87,32 @@ public final class InMemoryServiceContext {
         return null == holder ? null : holder.getCallContext();
     }
 
+    /**
+     * Wrap a task so that it runs with the context of the calling thread. This
+     * is required for tasks that are executed by a different thread on behalf
+     * of the current call.
+     * 
+     * @param task
+     *            task to run
+     * @return task attaching the context of the current thread while running
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task) {
+        final ContextHolder holder = threadLocalService.get();
+        return new Callable<T>() {
+            public T call() throws Exception {
+                ContextHolder previous = threadLocalService.get();
+                threadLocalService.set(holder);
+                try {
+                    return task.call();
+                } finally {
+                    if (null == previous) {
+                        threadLocalService.remove();
+                    } else {
+                        threadLocalService.set(previous);
+                    }
+                }
+            }
+        };
+    }
+
 }
@@ -54,7 +54,6 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFact
 import org.apache.chemistry.opencmis.commons.impl.server.AbstractServiceFactory;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
-import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
 import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
 import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
@@ -197,6 +196,7 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
         if (null != cleanManager) {
             cleanManager.stopCleanRepositoryJob();
         }
+        ParallelScanExecutor.shutdownDefault();
         InMemoryServiceContext.setWrapperService(null);
     }
 
@@ -405,13 +405,6 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
 
         if (doFillRepository) {
 
-            // create an initial temporary service instance to fill the
-            // repository
-
-            InMemoryService svc = new InMemoryService(storeManager);
-
-            BindingsObjectFactory objectFactory = new BindingsObjectFactoryImpl();
-
             String levelsStr = parameters.get(ConfigConstants.FILLER_DEPTH);
             int levels = 1;
             if (null != levelsStr) {
@@ -463,18 +456,20 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
                 }
             }
             // Create a hierarchy of folders and fill it with some documents
-            ObjectGenerator gen = new ObjectGenerator(objectFactory, svc, svc, svc, repositoryId, contentKind);
-
-            gen.setNumberOfDocumentsToCreatePerFolder(docsPerLevel);
+            RepositoryFiller filler = new RepositoryFiller(storeManager, repositoryId, "unknown");
+            filler.setLevels(levels);
+            filler.setFoldersPerFolder(childrenPerLevel);
+            filler.setDocumentsPerFolder(docsPerLevel);
 
             // Set the type id for all created documents:
-            gen.setDocumentTypeId(documentTypeId);
+            filler.setDocumentTypeId(documentTypeId);
 
             // Set the type id for all created folders:
-            gen.setFolderTypeId(folderTypeId);
+            filler.setFolderTypeId(folderTypeId);
 
             // Set contentSize
-            gen.setContentSizeInKB(contentSizeKB);
+            filler.setContentSizeInKB(contentSizeKB);
+            filler.setContentKind(contentKind);
 
             // set properties that need to be filled
             // set the properties the generator should fill with values for
@@ -485,12 +480,12 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
             List<String> propsToSet = readPropertiesToSetFromConfig(parameters,
                     ConfigConstants.FILLER_DOCUMENT_PROPERTY);
             if (null != propsToSet) {
-                gen.setDocumentPropertiesToGenerate(propsToSet);
+                filler.setDocumentPropertiesToGenerate(propsToSet);
             }
 
             propsToSet = readPropertiesToSetFromConfig(parameters, ConfigConstants.FILLER_FOLDER_PROPERTY);
             if (null != propsToSet) {
-                gen.setFolderPropertiesToGenerate(propsToSet);
+                filler.setFolderPropertiesToGenerate(propsToSet);
             }
 
             // Simulate a runtime context with configuration parameters
@@ -500,14 +495,16 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
             // create thread local storage and attach call context
             getService(ctx);
 
-            // Build the tree
-            RepositoryInfo rep = svc.getRepositoryInfo(repositoryId, null);
-            String rootFolderId = rep.getRootFolderId();
-
             try {
-                gen.createFolderHierachy(levels, childrenPerLevel, rootFolderId);
-                // Dump the tree
-                gen.dumpFolder(rootFolderId, "*");
+                filler.fill();
+                if (LOG.isDebugEnabled()) {
+                    // Dump the tree
+                    InMemoryService svc = new InMemoryService(storeManager);
+                    RepositoryInfo rep = svc.getRepositoryInfo(repositoryId, null);
+                    ObjectGenerator gen = new ObjectGenerator(new BindingsObjectFactoryImpl(), svc, svc, svc,
+                            repositoryId, contentKind);
+                    gen.dumpFolder(rep.getRootFolderId(), "*");
+                }
             } catch (Exception e) {
                 LOG.error("Could not create folder hierarchy with documents. ", e);
             }
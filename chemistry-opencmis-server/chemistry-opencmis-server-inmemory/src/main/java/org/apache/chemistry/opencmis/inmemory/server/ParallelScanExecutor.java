@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes scans over large lists (all objects of a repository, all children
+ * of a folder) in partitions on a shared pool of threads. Each partition
+ * collects its own results; the results are concatenated in the order of the
+ * partitions, so a scan returns the same list as a sequential loop would.
+ * <p>
+ * The number of threads is limited by the configuration parameter
+ * {@link ConfigConstants#SCAN_PARALLELISM}, so that a single expensive request
+ * cannot occupy more than this number of processors. The calling thread always
+ * processes one partition itself. Scans started from within a partition run
+ * sequentially so that tasks never wait for other tasks in the pool.
+ */
+public class ParallelScanExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelScanExecutor.class);
+
+    /**
+     * Lists with fewer elements than this per partition are not split.
+     */
+    public static final int DEFAULT_MIN_PARTITION_SIZE = 4096;
+
+    private static final ThreadLocal<Boolean> IN_PARTITION = new ThreadLocal<Boolean>();
+
+    private static ParallelScanExecutor defaultExecutor;
+
+    private final int fParallelism;
+    private final ExecutorService fPool;
+
+    /**
+     * Processes a single element of a scan.
+     */
+    public interface Processor<T, R> {
+        /**
+         * Process an element and add the results (if any) to the given list.
+         * 
+         * @param item
+         *            element to process
+         * @param results
+         *            result list of the current partition
+         */
+        void process(T item, List<R> results);
+    }
+
+    /**
+     * Create an executor.
+     * 
+     * @param parallelism
+     *            maximum number of threads working on a single scan including
+     *            the calling thread, a value of 1 or less disables parallel
+     *            execution
+     */
+    public ParallelScanExecutor(int parallelism) {
+        fParallelism = Math.max(1, parallelism);
+        if (fParallelism > 1) {
+            fPool = Executors.newFixedThreadPool(fParallelism - 1, new ScanThreadFactory());
+        } else {
+            fPool = null;
+        }
+    }
+
+    /**
+     * Get the executor shared by all repositories of this server.
+     * 
+     * @return shared executor
+     */
+    public static synchronized ParallelScanExecutor getDefault() {
+        if (null == defaultExecutor) {
+            Long parallelism = ConfigurationSettings.getConfigurationValueAsLong(ConfigConstants.SCAN_PARALLELISM);
+            defaultExecutor = new ParallelScanExecutor(parallelism == null ? Runtime.getRuntime()
+                    .availableProcessors() : parallelism.intValue());
+            LOG.info("Using up to " + defaultExecutor.getParallelism() + " threads for scans.");
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Stop the threads of the shared executor. A new executor is created on
+     * the next call of {@link #getDefault()}.
+     */
+    public static synchronized void shutdownDefault() {
+        if (null != defaultExecutor) {
+            defaultExecutor.shutdown();
+            defaultExecutor = null;
+        }
+    }
+
+    public int getParallelism() {
+        return fParallelism;
+    }
+
+    /**
+     * Process all elements of a list.
+     * 
+     * @param items
+     *            elements to process, the list must not be modified during the
+     *            scan
+     * @param minPartitionSize
+     *            minimum number of elements processed by a single thread
+     * @param processor
+     *            processor called for each element, must be thread-safe
+     * @return the results of all elements in list order
+     */
+    public <T, R> List<R> scan(List<T> items, int minPartitionSize, final Processor<T, R> processor) {
+        int partitions = Math.min(fParallelism, items.size() / Math.max(1, minPartitionSize));
+        if (partitions <= 1 || null == fPool || Boolean.TRUE.equals(IN_PARTITION.get())) {
+            return processPartition(items, processor);
+        }
+
+        int size = (items.size() + partitions - 1) / partitions;
+        List<Future<List<R>>> futures = new ArrayList<Future<List<R>>>(partitions - 1);
+        try {
+            for (int from = size; from < items.size(); from += size) {
+                final List<T> partition = items.subList(from, Math.min(from + size, items.size()));
+                futures.add(fPool.submit(InMemoryServiceContext.wrap(new Callable<List<R>>() {
+                    public List<R> call() {
+                        IN_PARTITION.set(Boolean.TRUE);
+                        try {
+                            return processPartition(partition, processor);
+                        } finally {
+                            IN_PARTITION.remove();
+                        }
+                    }
+                })));
+            }
+
+            List<R> results = new ArrayList<R>();
+            IN_PARTITION.set(Boolean.TRUE);
+            try {
+                results.addAll(processPartition(items.subList(0, size), processor));
+            } finally {
+                IN_PARTITION.remove();
+            }
+            for (Future<List<R>> future : futures) {
+                results.addAll(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmisRuntimeException("Scan has been interrupted.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CmisRuntimeException("Scan failed: " + cause, cause);
+        } finally {
+            for (Future<List<R>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Stop all threads of this executor.
+     */
+    public void shutdown() {
+        if (null != fPool) {
+            fPool.shutdownNow();
+        }
+    }
+
+    private static <T, R> List<R> processPartition(List<T> partition, Processor<T, R> processor) {
+        List<R> results = new ArrayList<R>();
+        for (T item : partition) {
+            processor.process(item, results);
+        }
+        return results;
+    }
+
+    private static class ScanThreadFactory implements ThreadFactory {
+        private final AtomicInteger fCount = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "InMemory-Scan-" + fCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
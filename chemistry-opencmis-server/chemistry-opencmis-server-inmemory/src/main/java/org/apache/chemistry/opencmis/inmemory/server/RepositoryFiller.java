@@ -0,0 +1,354 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.definitions.DocumentTypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
+import org.apache.chemistry.opencmis.server.support.TypeValidator;
+import org.apache.chemistry.opencmis.util.repository.ObjectGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills a repository with a hierarchy of folders and documents as configured
+ * with the RepositoryFiller.* parameters. The generated tree (names and
+ * property values) is the same as the one created by {@link ObjectGenerator},
+ * but the objects are not created one by one through the CMIS services. The
+ * types and properties are validated only once, the children of each folder
+ * are created as one batch directly in the object store and the sub trees of
+ * the top level folders are generated in parallel.
+ * <p>
+ * The sizes of all sub trees are known in advance. The ids of the whole tree
+ * are reserved as one block before the sub trees are generated and each sub
+ * tree gets the range of ids, folder and document numbers a sequential run
+ * would assign to it. The generated repository therefore does not depend on
+ * the scheduling of the threads.
+ */
+public class RepositoryFiller {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryFiller.class);
+
+    private static final String NAMEPROPVALPREFIXDOC = "My_Document-";
+    private static final String NAMEPROPVALPREFIXFOLDER = "My_Folder-";
+    private static final String STRINGPROPVALPREFIXDOC = "My Doc StringProperty ";
+    private static final String STRINGPROPVALPREFIXFOLDER = "My Folder StringProperty ";
+
+    private final StoreManager fStoreManager;
+    private final String fRepositoryId;
+    private final String fUser;
+    private final BindingsObjectFactory fFactory;
+
+    private int fLevels = 1;
+    private int fFoldersPerFolder = 2;
+    private int fDocumentsPerFolder = 1;
+    private String fFolderTypeId = BaseTypeId.CMIS_FOLDER.value();
+    private String fDocTypeId = BaseTypeId.CMIS_DOCUMENT.value();
+    private List<String> fStringPropertyIdsToSetForFolder = Collections.emptyList();
+    private List<String> fStringPropertyIdsToSetForDocument = Collections.emptyList();
+    private int fContentSizeInK;
+    private ObjectGenerator.ContentKind fContentKind = ObjectGenerator.ContentKind.LOREM_IPSUM_TEXT;
+
+    private final AtomicInteger fFoldersInTotalCount = new AtomicInteger();
+    private final AtomicInteger fDocumentsInTotalCount = new AtomicInteger();
+
+    // state of a running fill operation
+    private ObjectStore fObjStore;
+    private Map<String, PropertyData<?>> fFolderTemplate;
+    private Map<String, PropertyData<?>> fDocTemplate;
+    private boolean fDocTypeIsVersionable;
+    // ids, folders and documents of the sub tree below a folder of a level
+    private int[] fIdsPerSubTree;
+    private int[] fFoldersPerSubTree;
+    private int[] fDocumentsPerSubTree;
+    private ThreadLocal<ObjectGenerator> fContentGenerator;
+
+    public RepositoryFiller(StoreManager storeManager, String repositoryId, String user) {
+        fStoreManager = storeManager;
+        fRepositoryId = repositoryId;
+        fUser = user;
+        fFactory = storeManager.getObjectFactory();
+    }
+
+    public void setLevels(int levels) {
+        fLevels = levels;
+    }
+
+    public void setFoldersPerFolder(int foldersPerFolder) {
+        fFoldersPerFolder = foldersPerFolder;
+    }
+
+    public void setDocumentsPerFolder(int documentsPerFolder) {
+        fDocumentsPerFolder = documentsPerFolder;
+    }
+
+    public void setFolderTypeId(String folderTypeId) {
+        fFolderTypeId = folderTypeId;
+    }
+
+    public void setDocumentTypeId(String docTypeId) {
+        fDocTypeId = docTypeId;
+    }
+
+    public void setFolderPropertiesToGenerate(List<String> propertyIds) {
+        fStringPropertyIdsToSetForFolder = propertyIds;
+    }
+
+    public void setDocumentPropertiesToGenerate(List<String> propertyIds) {
+        fStringPropertyIdsToSetForDocument = propertyIds;
+    }
+
+    public void setContentSizeInKB(int sizeInK) {
+        fContentSizeInK = sizeInK;
+    }
+
+    public void setContentKind(ObjectGenerator.ContentKind contentKind) {
+        fContentKind = contentKind;
+    }
+
+    public int getFoldersInTotal() {
+        return fFoldersInTotalCount.get();
+    }
+
+    public int getDocumentsInTotal() {
+        return fDocumentsInTotalCount.get();
+    }
+
+    /**
+     * Create the configured hierarchy below the root folder of the
+     * repository.
+     */
+    public void fill() {
+        long start = System.currentTimeMillis();
+        fObjStore = fStoreManager.getObjectStore(fRepositoryId);
+        if (null == fObjStore) {
+            throw new CmisInvalidArgumentException("Unknown repository id: " + fRepositoryId);
+        }
+
+        TypeDefinition folderTypeDef = getTypeDefinition(fFolderTypeId, BaseTypeId.CMIS_FOLDER);
+        TypeDefinition docTypeDef = getTypeDefinition(fDocTypeId, BaseTypeId.CMIS_DOCUMENT);
+        fFolderTemplate = createTemplate(folderTypeDef, fStringPropertyIdsToSetForFolder, NAMEPROPVALPREFIXFOLDER,
+                STRINGPROPVALPREFIXFOLDER);
+        fDocTemplate = createTemplate(docTypeDef, fStringPropertyIdsToSetForDocument, NAMEPROPVALPREFIXDOC,
+                STRINGPROPVALPREFIXDOC);
+        fDocTypeIsVersionable = Boolean.TRUE.equals(((DocumentTypeDefinition) docTypeDef).isVersionable());
+        if (fContentSizeInK > 0 && fDocumentsPerFolder > 0) {
+            TypeValidator.validateContentAllowed((DocumentTypeDefinition) docTypeDef, true);
+        }
+        fContentGenerator = new ThreadLocal<ObjectGenerator>();
+        computeSubTreeSizes();
+
+        int firstId = fObjStore.reserveIds(fIdsPerSubTree[0]);
+        createFolderHierarchy(fObjStore.getRootFolder(), 0, firstId, 0, 0);
+
+        LOG.info("Created " + getFoldersInTotal() + " folders and " + getDocumentsInTotal() + " documents in "
+                + (System.currentTimeMillis() - start) + "ms.");
+        fContentGenerator = null;
+    }
+
+    private void computeSubTreeSizes() {
+        int idsPerDocument = fDocTypeIsVersionable ? 2 : 1;
+        fIdsPerSubTree = new int[fLevels + 1];
+        fFoldersPerSubTree = new int[fLevels + 1];
+        fDocumentsPerSubTree = new int[fLevels + 1];
+        for (int level = fLevels - 1; level >= 0; level--) {
+            fFoldersPerSubTree[level] = fFoldersPerFolder * (1 + fFoldersPerSubTree[level + 1]);
+            fDocumentsPerSubTree[level] = fFoldersPerFolder * fDocumentsPerSubTree[level + 1] + fDocumentsPerFolder;
+            fIdsPerSubTree[level] = fFoldersPerFolder * (1 + fIdsPerSubTree[level + 1]) + fDocumentsPerFolder
+                    * idsPerDocument;
+        }
+    }
+
+    /**
+     * Create the sub tree below a folder. A sequential run creates the
+     * folders of a level first, then the sub trees of these folders and then
+     * the documents. The given numbers are the first id, folder number and
+     * document number of this sub tree in that order.
+     */
+    private void createFolderHierarchy(Folder parent, final int level, int firstId, int firstFolder, int firstDoc) {
+        if (level >= fLevels) {
+            return;
+        }
+
+        List<Folder> folders = createFolders(parent, level, firstId, firstFolder);
+        List<SubTree> subTrees = new ArrayList<SubTree>(folders.size());
+        for (int i = 0; i < folders.size(); i++) {
+            subTrees.add(new SubTree(folders.get(i), firstId + folders.size() + i * fIdsPerSubTree[level + 1],
+                    firstFolder + folders.size() + i * fFoldersPerSubTree[level + 1], firstDoc + i
+                            * fDocumentsPerSubTree[level + 1]));
+        }
+        // sub trees are independent of each other, nested scans within a
+        // partition run sequentially
+        ParallelScanExecutor.getDefault().scan(subTrees, 1, new ParallelScanExecutor.Processor<SubTree, Void>() {
+            @Override
+            public void process(SubTree subTree, List<Void> results) {
+                createFolderHierarchy(subTree.fFolder, level + 1, subTree.fFirstId, subTree.fFirstFolder,
+                        subTree.fFirstDoc);
+            }
+        });
+        createDocuments(parent, level, firstId + folders.size() * (1 + fIdsPerSubTree[level + 1]), firstDoc
+                + folders.size() * fDocumentsPerSubTree[level + 1]);
+    }
+
+    private List<Folder> createFolders(Folder parent, int level, int firstId, int firstFolder) {
+        List<Map<String, PropertyData<?>>> propMaps = new ArrayList<Map<String, PropertyData<?>>>(fFoldersPerFolder);
+        for (int i = 0; i < fFoldersPerFolder; i++) {
+            propMaps.add(createProperties(fFolderTemplate, NAMEPROPVALPREFIXFOLDER + level + "-" + i,
+                    fStringPropertyIdsToSetForFolder, STRINGPROPVALPREFIXFOLDER, (firstFolder + i)
+                            * fStringPropertyIdsToSetForFolder.size()));
+        }
+        List<Folder> folders = fObjStore.createFolders(parent, propMaps, fUser, firstId);
+        fFoldersInTotalCount.addAndGet(folders.size());
+        return folders;
+    }
+
+    private void createDocuments(Folder parent, int level, int firstId, int firstDoc) {
+        List<Map<String, PropertyData<?>>> propMaps = new ArrayList<Map<String, PropertyData<?>>>(
+                fDocumentsPerFolder);
+        List<ContentStream> contentStreams = new ArrayList<ContentStream>(fDocumentsPerFolder);
+        for (int i = 0; i < fDocumentsPerFolder; i++) {
+            propMaps.add(createProperties(fDocTemplate, NAMEPROPVALPREFIXDOC + level + "-" + i,
+                    fStringPropertyIdsToSetForDocument, STRINGPROPVALPREFIXDOC, (firstDoc + i)
+                            * fStringPropertyIdsToSetForDocument.size()));
+            contentStreams.add(createContent());
+        }
+
+        if (propMaps.isEmpty()) {
+            return;
+        } else if (fDocTypeIsVersionable) {
+            fObjStore.createVersionedDocuments(parent, propMaps, contentStreams, fUser, VersioningState.MAJOR,
+                    firstId);
+        } else {
+            fObjStore.createDocuments(parent, propMaps, contentStreams, fUser, firstId);
+        }
+        fDocumentsInTotalCount.addAndGet(propMaps.size());
+    }
+
+    private Map<String, PropertyData<?>> createProperties(Map<String, PropertyData<?>> template, String name,
+            List<String> stringPropIds, String stringPropValPrefix, int firstCounter) {
+        Map<String, PropertyData<?>> propMap = new HashMap<String, PropertyData<?>>(template);
+        propMap.put(PropertyIds.NAME, fFactory.createPropertyStringData(PropertyIds.NAME, name));
+        int counter = firstCounter;
+        for (String stringPropId : stringPropIds) {
+            propMap.put(stringPropId,
+                    fFactory.createPropertyStringData(stringPropId, stringPropValPrefix + counter++));
+        }
+        return propMap;
+    }
+
+    private ContentStream createContent() {
+        if (fContentSizeInK <= 0) {
+            return null;
+        }
+
+        // the content generators keep state and are not thread-safe
+        ObjectGenerator gen = fContentGenerator.get();
+        if (null == gen) {
+            gen = new ObjectGenerator(fFactory, null, null, null, fRepositoryId, fContentKind);
+            gen.setContentSizeInKB(fContentSizeInK);
+            fContentGenerator.set(gen);
+        }
+
+        switch (fContentKind) {
+        case STATIC_TEXT:
+            return gen.createContentStaticText();
+        case LOREM_IPSUM_HTML:
+            return gen.createContentLoremIpsumHtml();
+        case IMAGE_FRACTAL_JPEG:
+            return gen.createContentFractalimageJpeg();
+        default:
+            return gen.createContentLoremIpsumText();
+        }
+    }
+
+    private TypeDefinition getTypeDefinition(String typeId, BaseTypeId baseTypeId) {
+        TypeDefinitionContainer typeDefC = fStoreManager.getTypeById(fRepositoryId, typeId);
+        if (null == typeDefC) {
+            throw new CmisInvalidArgumentException("Cannot fill repository, a type with id " + typeId
+                    + " is unknown");
+        }
+        TypeDefinition typeDef = typeDefC.getTypeDefinition();
+        if (typeDef.getBaseTypeId() != baseTypeId) {
+            throw new CmisInvalidArgumentException("Cannot fill repository, type " + typeId + " is not a "
+                    + baseTypeId.value() + " type");
+        }
+        return typeDef;
+    }
+
+    /**
+     * Create the properties shared by all objects of a type (type id and
+     * default values) and validate them once together with sample values for
+     * the generated properties.
+     */
+    private Map<String, PropertyData<?>> createTemplate(TypeDefinition typeDef, List<String> stringPropIds,
+            String namePrefix, String stringPropValPrefix) {
+        Map<String, PropertyData<?>> template = new HashMap<String, PropertyData<?>>();
+        for (PropertyDefinition<?> propDef : typeDef.getPropertyDefinitions().values()) {
+            List<?> defaultVal = propDef.getDefaultValue();
+            if (defaultVal != null && !defaultVal.isEmpty()) {
+                Object value = propDef.getCardinality() == Cardinality.SINGLE ? defaultVal.get(0) : defaultVal;
+                template.put(propDef.getId(), fFactory.createPropertyData(propDef, value));
+            }
+        }
+        template.put(PropertyIds.OBJECT_TYPE_ID,
+                fFactory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, typeDef.getId()));
+
+        Map<String, PropertyData<?>> sample = createProperties(template, namePrefix, stringPropIds,
+                stringPropValPrefix, 0);
+        TypeValidator.validateProperties(typeDef, new PropertiesImpl(sample.values()), true);
+        return template;
+    }
+
+    /**
+     * A folder and the numbers of the objects below it.
+     */
+    private static class SubTree {
+        private final Folder fFolder;
+        private final int fFirstId;
+        private final int fFirstFolder;
+        private final int fFirstDoc;
+
+        public SubTree(Folder folder, int firstId, int firstFolder, int firstDoc) {
+            fFolder = folder;
+            fFirstId = firstId;
+            fFirstFolder = firstFolder;
+            fFirstDoc = firstDoc;
+        }
+    }
+}
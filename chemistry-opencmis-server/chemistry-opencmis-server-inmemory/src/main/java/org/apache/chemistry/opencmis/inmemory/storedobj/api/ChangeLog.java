@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.api;
+
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+
+/**
+ * The change log records all modifications of the objects in an object store.
+ * Each change gets a monotonically increasing token. The log is bounded, if
+ * more changes are recorded than the log can retain the oldest entries are
+ * discarded.
+ */
+public interface ChangeLog {
+
+    /**
+     * A single immutable entry in the change log.
+     */
+    public interface ChangeEntry {
+
+        /**
+         * Get the token of this change.
+         * 
+         * @return token of this change
+         */
+        long getToken();
+
+        /**
+         * Get the id of the object that was changed.
+         * 
+         * @return object id
+         */
+        String getObjectId();
+
+        /**
+         * Get the type id of the object that was changed.
+         * 
+         * @return type id
+         */
+        String getTypeId();
+
+        /**
+         * Get the kind of change.
+         * 
+         * @return change type
+         */
+        ChangeType getChangeType();
+
+        /**
+         * Get the time when the change occurred.
+         * 
+         * @return time of change
+         */
+        GregorianCalendar getChangeTime();
+
+        /**
+         * Get the id of the ACL the object had when the change was recorded.
+         * It is used to check the read access to changes of objects that
+         * have been deleted in the meantime.
+         * 
+         * @return ACL id
+         */
+        int getAclId();
+    }
+
+    /**
+     * Record a change of an object.
+     * 
+     * @param so
+     *            object that was changed
+     * @param changeType
+     *            kind of change
+     * @return token of the new entry
+     */
+    long addEntry(StoredObject so, ChangeType changeType);
+
+    /**
+     * Get a page of changes starting with a given token.
+     * 
+     * @param fromToken
+     *            token of the first entry to return, if this token is no
+     *            longer retained the result starts with the oldest retained
+     *            entry
+     * @param maxItems
+     *            max. number of entries to return
+     * @return list of changes in ascending token order
+     */
+    List<ChangeEntry> getEntries(long fromToken, int maxItems);
+
+    /**
+     * Get the token of the most recent change.
+     * 
+     * @return latest token or -1 if no change was recorded yet
+     */
+    long getLatestToken();
+
+    /**
+     * Get the token of the oldest change still retained in the log.
+     * 
+     * @return oldest retained token
+     */
+    long getOldestToken();
+
+    /**
+     * Get the max. number of entries the log retains.
+     * 
+     * @return retention size of the log
+     */
+    int getRetention();
+
+    /**
+     * Get the number of entries that were discarded because the retention size
+     * was exceeded.
+     * 
+     * @return number of discarded entries
+     */
+    long getDiscardedCount();
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.api;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An inverted index over the text content and the string properties of the
+ * objects in an object store. It is used to evaluate CONTAINS() in queries
+ * without reading the content of each object. Text is split into words at all
+ * characters that are neither letters nor digits, words are compared case
+ * insensitive.
+ * <p>
+ * The indexed text of an object is its name, the values of all its string
+ * properties and its content if the MIME type of the content starts with
+ * <code>text/</code>. A search term therefore matches whole words in any of
+ * these and not parts of a word: <code>CONTAINS('cat')</code> finds
+ * "I have a Cat." but not "catalog".
+ */
+public interface FullTextIndex {
+
+    /**
+     * Add an object to the index or replace the indexed text of an object.
+     * 
+     * @param so
+     *            object to index
+     */
+    void index(StoredObject so);
+
+    /**
+     * Remove an object from the index.
+     * 
+     * @param objectId
+     *            id of object to remove
+     */
+    void remove(String objectId);
+
+    /**
+     * Remove all objects from the index.
+     */
+    void clear();
+
+    /**
+     * Split a search term or a text into the words of the index.
+     * 
+     * @param text
+     *            text to split
+     * @return list of normalized words in order of occurrence
+     */
+    List<String> tokenize(String text);
+
+    /**
+     * Check if an object contains a sequence of words.
+     * 
+     * @param objectId
+     *            id of object
+     * @param words
+     *            normalized words (see {@link #tokenize(String)}) that must
+     *            occur in this order without other words in between
+     * @return true if the object contains the words, false if not or if the
+     *         list is empty
+     */
+    boolean containsPhrase(String objectId, List<String> words);
+
+    /**
+     * Get the objects containing all of the given words at any position. The
+     * result is a superset of the objects containing the words as a phrase
+     * and is used to restrict the objects a query has to look at.
+     * 
+     * @param words
+     *            normalized words
+     * @return ids of the objects containing all words, an empty set if the
+     *         list is empty
+     */
+    Set<String> findObjects(List<String> words);
+
+    /**
+     * Compute a relevance score of an object for a set of words. The score is
+     * the sum of term frequency multiplied with inverse document frequency of
+     * each word.
+     * 
+     * @param objectId
+     *            id of object
+     * @param words
+     *            normalized words
+     * @return score, 0 if the object contains none of the words
+     */
+    double getScore(String objectId, List<String> words);
+
+    /**
+     * Get the number of objects in the index.
+     * 
+     * @return number of indexed objects
+     */
+    int getDocumentCount();
+}
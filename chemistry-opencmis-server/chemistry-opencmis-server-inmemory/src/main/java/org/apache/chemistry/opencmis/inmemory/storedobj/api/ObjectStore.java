@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.inmemory.storedobj.api;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.chemistry.opencmis.commons.data.Acl;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
@@ -197,6 +198,89 @@ public interface ObjectStore {
             Folder folder, List<String> policies, Acl addACEs, Acl removeACEs, ContentStream contentStream,
             VersioningState versioningState);
 
+    /**
+     * Reserve a block of consecutive ids for objects that are created later
+     * with one of the batch methods. The ids are never assigned to other
+     * objects, so callers can create objects in parallel and still get the
+     * same ids as a sequential run.
+     *
+     * @param count
+     *            number of ids to reserve
+     * @return the first id of the block
+     */
+    int reserveIds(int count);
+
+    /**
+     * Create and persist a batch of folders in one parent folder. The types
+     * and properties must already have been validated by the caller. Ids are
+     * assigned as one block and the name constraint is checked against the
+     * children of the parent only once for the whole batch. All folders
+     * inherit the ACL of the parent folder.
+     *
+     * @param parent
+     *            the parent folder
+     * @param propMaps
+     *            list of property maps, one per folder to create
+     * @param user
+     *            the user who creates the folders
+     * @param firstId
+     *            first id of a block reserved with {@link #reserveIds(int)}
+     *            with one id per folder, null to assign new ids
+     * @return list of created folders in the order of the property maps
+     */
+    List<Folder> createFolders(Folder parent, List<Map<String, PropertyData<?>>> propMaps, String user,
+            Integer firstId);
+
+    /**
+     * Create and persist a batch of non versionable documents in one parent
+     * folder. The types and properties must already have been validated by
+     * the caller. Ids are assigned as one block and the name constraint is
+     * checked against the children of the parent only once for the whole
+     * batch. All documents inherit the ACL of the parent folder.
+     *
+     * @param parent
+     *            the parent folder
+     * @param propMaps
+     *            list of property maps, one per document to create
+     * @param contentStreams
+     *            list of content streams in the order of the property maps,
+     *            may be null or contain null entries
+     * @param user
+     *            the user who creates the documents
+     * @param firstId
+     *            first id of a block reserved with {@link #reserveIds(int)}
+     *            with one id per document, null to assign new ids
+     * @return list of created documents in the order of the property maps
+     */
+    List<Document> createDocuments(Folder parent, List<Map<String, PropertyData<?>>> propMaps,
+            List<ContentStream> contentStreams, String user, Integer firstId);
+
+    /**
+     * Create and persist a batch of versionable documents with one version
+     * each in one parent folder, see
+     * {@link #createDocuments(Folder, List, List, String, Integer)}. Each
+     * document takes two ids, the first for the version series and the
+     * second for the version.
+     *
+     * @param parent
+     *            the parent folder
+     * @param propMaps
+     *            list of property maps, one per document to create
+     * @param contentStreams
+     *            list of content streams in the order of the property maps,
+     *            may be null or contain null entries
+     * @param user
+     *            the user who creates the documents
+     * @param versioningState
+     *            version state of the documents
+     * @param firstId
+     *            first id of a block reserved with {@link #reserveIds(int)}
+     *            with two ids per document, null to assign new ids
+     * @return list of created versions in the order of the property maps
+     */
+    List<DocumentVersion> createVersionedDocuments(Folder parent, List<Map<String, PropertyData<?>>> propMaps,
+            List<ContentStream> contentStreams, String user, VersioningState versioningState, Integer firstId);
+
     /**
      * Create an item as initial step. The item is created but still temporary.
      * It is not yet persisted and does not have an id yet. After this call
@@ -355,6 +439,33 @@ public interface ObjectStore {
      */
     long getObjectCount();
 
+    /**
+     * Get the change log recording all modifications in this store.
+     * 
+     * @return change log of this store
+     */
+    ChangeLog getChangeLog();
+
+    /**
+     * Get the full text index of the objects in this store.
+     * 
+     * @return full text index of this store
+     */
+    FullTextIndex getFullTextIndex();
+
+    /**
+     * Get the lock guarding modifications of a single object. The lock must be
+     * held while checking the change token and modifying the object so that
+     * concurrent updates of the same object are detected. Locks may be shared
+     * between multiple objects. The caller must release the lock in a finally
+     * block.
+     * 
+     * @param objectId
+     *            id of the object to lock
+     * @return lock for this object
+     */
+    Lock getObjectLock(String objectId);
+
     /**
      * Create a relationship. The relationship is created but still temporary.
      * It is not yet persisted and does not have an id yet. After this call
@@ -460,6 +571,17 @@ public interface ObjectStore {
      */
     Acl getAcl(int aclId);
 
+    /**
+     * check if a user has read access to objects with a given ACL.
+     * 
+     * @param principalId
+     *            user
+     * @param aclId
+     *            id of ACL
+     * @return true if the ACL grants read access to the user
+     */
+    boolean hasReadAccess(String principalId, int aclId);
+
     // Multifiling methods:
     /**
      * get all parent ids of this object visible for a user.
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ChangeLog;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+
+/**
+ * Change log implementation based on a lock-free ring buffer. A writer reserves
+ * a token with an atomic increment and publishes its entry in the slot derived
+ * from the token. Readers never block writers: a slot that has not yet been
+ * published ends a page, a slot that was already overwritten by a newer entry
+ * is beyond the retention and is skipped.
+ */
+public class ChangeLogImpl implements ChangeLog {
+
+    public static final int DEFAULT_RETENTION = 10000;
+
+    private final AtomicReferenceArray<ChangeEntry> fRing;
+    private final int fMask;
+    private final AtomicLong fNextToken = new AtomicLong(0);
+
+    public ChangeLogImpl() {
+        this(DEFAULT_RETENTION);
+    }
+
+    public ChangeLogImpl(int retention) {
+        if (retention <= 0) {
+            throw new IllegalArgumentException("Change log retention must be positive: " + retention);
+        }
+        int size = Integer.highestOneBit(retention);
+        if (size < retention) {
+            size <<= 1;
+        }
+        fRing = new AtomicReferenceArray<ChangeEntry>(size);
+        fMask = size - 1;
+    }
+
+    @Override
+    public long addEntry(StoredObject so, ChangeType changeType) {
+        long token = fNextToken.getAndIncrement();
+        fRing.set(slot(token),
+                new ChangeEntryImpl(token, so.getId(), so.getTypeId(), changeType, so.getAclId()));
+        return token;
+    }
+
+    @Override
+    public List<ChangeEntry> getEntries(long fromToken, int maxItems) {
+        long next = fNextToken.get();
+        long token = Math.max(fromToken, oldest(next));
+        List<ChangeEntry> result = new ArrayList<ChangeEntry>(Math.max(0, (int) Math.min(maxItems, next - token)));
+
+        while (token < next && result.size() < maxItems) {
+            ChangeEntry entry = fRing.get(slot(token));
+            if (null == entry || entry.getToken() < token) {
+                // reserved but not yet published, keep the order
+                break;
+            }
+            if (entry.getToken() == token) {
+                result.add(entry);
+            }
+            // otherwise the slot was overwritten in the meantime and the
+            // requested entry is no longer retained
+            token++;
+        }
+        return result;
+    }
+
+    @Override
+    public long getLatestToken() {
+        return fNextToken.get() - 1;
+    }
+
+    @Override
+    public long getOldestToken() {
+        return oldest(fNextToken.get());
+    }
+
+    @Override
+    public int getRetention() {
+        return fRing.length();
+    }
+
+    @Override
+    public long getDiscardedCount() {
+        return oldest(fNextToken.get());
+    }
+
+    private long oldest(long next) {
+        return Math.max(0, next - fRing.length());
+    }
+
+    private int slot(long token) {
+        return (int) (token & fMask);
+    }
+
+    private static class ChangeEntryImpl implements ChangeEntry {
+        private final long token;
+        private final String objectId;
+        private final String typeId;
+        private final ChangeType changeType;
+        private final GregorianCalendar changeTime;
+        private final int aclId;
+
+        ChangeEntryImpl(long token, String objectId, String typeId, ChangeType changeType, int aclId) {
+            this.token = token;
+            this.objectId = objectId;
+            this.typeId = typeId;
+            this.changeType = changeType;
+            this.changeTime = new GregorianCalendar();
+            this.aclId = aclId;
+        }
+
+        @Override
+        public long getToken() {
+            return token;
+        }
+
+        @Override
+        public String getObjectId() {
+            return objectId;
+        }
+
+        @Override
+        public String getTypeId() {
+            return typeId;
+        }
+
+        @Override
+        public ChangeType getChangeType() {
+            return changeType;
+        }
+
+        @Override
+        public GregorianCalendar getChangeTime() {
+            return (GregorianCalendar) changeTime.clone();
+        }
+
+        @Override
+        public int getAclId() {
+            return aclId;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.FullTextIndex;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+
+/**
+ * Inverted index mapping each word to the objects containing it and the
+ * positions of the word in the text of each object. Readers do not lock,
+ * updates of an object replace all entries of this object. The words of the
+ * content are kept per object and only computed again if the content has
+ * been replaced, so that updating properties does not read the content.
+ * <p>
+ * Updates of the same object are serialized by a striped object lock that is
+ * held while the object is read and its entries are replaced. Otherwise an
+ * update that has read an older version of the object could replace the
+ * entries of a newer version.
+ */
+public class FullTextIndexImpl implements FullTextIndex {
+
+    /**
+     * Number of locks shared by all objects.
+     */
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] fObjectLocks = createLocks(LOCK_STRIPES);
+
+    /**
+     * word -> (object id -> sorted positions of word in object)
+     */
+    private final Map<String, Map<String, int[]>> fPostings = new ConcurrentHashMap<String, Map<String, int[]>>();
+
+    /**
+     * object id -> words of object, required to remove an object
+     */
+    private final Map<String, Set<String>> fWordsByObject = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * object id -> words of the content of the object
+     */
+    private final Map<String, IndexedContent> fContentByObject = new ConcurrentHashMap<String, IndexedContent>();
+
+    /**
+     * The words of a content. Content streams are replaced by a new byte
+     * array on each change, so the array identifies the indexed version.
+     */
+    private static class IndexedContent {
+        private final byte[] fBytes;
+        private final String fMimeType;
+        private final List<String> fWords;
+
+        IndexedContent(byte[] bytes, String mimeType, List<String> words) {
+            fBytes = bytes;
+            fMimeType = mimeType;
+            fWords = words;
+        }
+
+        boolean isSame(byte[] bytes, String mimeType) {
+            return fBytes == bytes && (null == fMimeType ? null == mimeType : fMimeType.equals(mimeType));
+        }
+    }
+
+    @Override
+    public void index(StoredObject so) {
+        String objectId = so.getId();
+        if (null == objectId) {
+            return;
+        }
+
+        Lock lock = getObjectLock(objectId);
+        lock.lock();
+        try {
+            IndexedContent content = getContent(so);
+            List<String> words = tokenize(getPropertyText(so));
+            if (null != content) {
+                words.addAll(content.fWords);
+            }
+            Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+            for (int i = 0; i < words.size(); i++) {
+                List<Integer> wordPositions = positions.get(words.get(i));
+                if (null == wordPositions) {
+                    wordPositions = new ArrayList<Integer>();
+                    positions.put(words.get(i), wordPositions);
+                }
+                wordPositions.add(i);
+            }
+
+            // the postings are shared with other objects
+            synchronized (this) {
+                removeIntern(objectId);
+                if (null != content) {
+                    fContentByObject.put(objectId, content);
+                }
+                for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+                    Map<String, int[]> posting = fPostings.get(entry.getKey());
+                    if (null == posting) {
+                        posting = new ConcurrentHashMap<String, int[]>();
+                        fPostings.put(entry.getKey(), posting);
+                    }
+                    List<Integer> list = entry.getValue();
+                    int[] pos = new int[list.size()];
+                    for (int i = 0; i < pos.length; i++) {
+                        pos[i] = list.get(i);
+                    }
+                    posting.put(objectId, pos);
+                }
+                fWordsByObject.put(objectId, Collections.unmodifiableSet(positions.keySet()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String objectId) {
+        Lock lock = getObjectLock(objectId);
+        lock.lock();
+        try {
+            synchronized (this) {
+                removeIntern(objectId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        fPostings.clear();
+        fWordsByObject.clear();
+        fContentByObject.clear();
+    }
+
+    @Override
+    public List<String> tokenize(String text) {
+        List<String> words = new ArrayList<String>();
+        if (null == text) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    @Override
+    public boolean containsPhrase(String objectId, List<String> words) {
+        if (words.isEmpty()) {
+            return false;
+        }
+        int[] first = getPositions(words.get(0), objectId);
+        if (null == first) {
+            return false;
+        }
+        if (words.size() == 1) {
+            return true;
+        }
+
+        int[][] following = new int[words.size() - 1][];
+        for (int i = 1; i < words.size(); i++) {
+            following[i - 1] = getPositions(words.get(i), objectId);
+            if (null == following[i - 1]) {
+                return false;
+            }
+        }
+        for (int start : first) {
+            boolean match = true;
+            for (int i = 0; i < following.length && match; i++) {
+                match = Arrays.binarySearch(following[i], start + i + 1) >= 0;
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<String> findObjects(List<String> words) {
+        Set<String> result = new HashSet<String>();
+        if (words.isEmpty()) {
+            return result;
+        }
+
+        // start with the rarest word and check the others for its objects
+        List<Map<String, int[]>> postings = new ArrayList<Map<String, int[]>>(words.size());
+        Map<String, int[]> smallest = null;
+        for (String word : words) {
+            Map<String, int[]> posting = fPostings.get(word);
+            if (null == posting) {
+                return result;
+            }
+            postings.add(posting);
+            if (null == smallest || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        for (String objectId : smallest.keySet()) {
+            boolean containsAll = true;
+            for (int i = 0; i < postings.size() && containsAll; i++) {
+                containsAll = postings.get(i).containsKey(objectId);
+            }
+            if (containsAll) {
+                result.add(objectId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public double getScore(String objectId, List<String> words) {
+        double score = 0.0;
+        int documentCount = getDocumentCount();
+        for (String word : words) {
+            Map<String, int[]> posting = fPostings.get(word);
+            int[] positions = null == posting ? null : posting.get(objectId);
+            if (null != positions) {
+                double idf = Math.log(1.0 + (double) documentCount / posting.size());
+                score += positions.length * idf;
+            }
+        }
+        return score;
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return fWordsByObject.size();
+    }
+
+    private static Lock[] createLocks(int size) {
+        Lock[] locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private Lock getObjectLock(String objectId) {
+        int h = objectId.hashCode();
+        h ^= (h >>> 16);
+        return fObjectLocks[(h & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private int[] getPositions(String word, String objectId) {
+        Map<String, int[]> posting = fPostings.get(word);
+        return null == posting ? null : posting.get(objectId);
+    }
+
+    private void removeIntern(String objectId) {
+        fContentByObject.remove(objectId);
+        Set<String> words = fWordsByObject.remove(objectId);
+        if (null != words) {
+            for (String word : words) {
+                Map<String, int[]> posting = fPostings.get(word);
+                if (null != posting) {
+                    posting.remove(objectId);
+                    if (posting.isEmpty()) {
+                        fPostings.remove(word);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Collect the text of the name and the string properties.
+     */
+    private static String getPropertyText(StoredObject so) {
+        StringBuilder sb = new StringBuilder();
+        if (null != so.getName()) {
+            sb.append(so.getName()).append(' ');
+        }
+        Map<String, PropertyData<?>> properties = so.getProperties();
+        if (null != properties) {
+            for (PropertyData<?> pd : properties.values()) {
+                if (null == pd.getValues()) {
+                    continue;
+                }
+                for (Object value : pd.getValues()) {
+                    if (value instanceof String) {
+                        sb.append((String) value).append(' ');
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Get the words of content with a text mime type, the content is only
+     * decoded if it has changed since the object has been indexed.
+     */
+    private IndexedContent getContent(StoredObject so) {
+        if (!(so instanceof Content) || !((Content) so).hasContent()) {
+            return null;
+        }
+        ContentStreamDataImpl cdi = (ContentStreamDataImpl) ((Content) so).getContent();
+        byte[] bytes = cdi.getBytes();
+        String mimeType = cdi.getMimeType();
+
+        IndexedContent indexed = fContentByObject.get(so.getId());
+        if (null != indexed && indexed.isSame(bytes, mimeType)) {
+            return indexed;
+        }
+
+        List<String> words;
+        if (null != bytes && null != mimeType && mimeType.startsWith("text/")) {
+            try {
+                words = Collections.unmodifiableList(tokenize(new String(bytes, "UTF-8")));
+            } catch (UnsupportedEncodingException e) {
+                throw new CmisRuntimeException("Internal error: Unsupported encoding UTF-8", e);
+            }
+        } else {
+            words = Collections.emptyList();
+        }
+        return new IndexedContent(bytes, mimeType, words);
+    }
+}
@@ -20,13 +20,19 @@ package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -38,6 +44,7 @@ import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.data.RenditionData;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
@@ -48,14 +55,17 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundExcept
 import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisStorageException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisUpdateConflictException;
 import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
 import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ChangeLog;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Document;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.FullTextIndex;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.MultiFiling;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Relationship;
@@ -74,26 +84,29 @@ import org.slf4j.LoggerFactory;
  * Certain methods in the in-memory repository must guarantee constraints. For
  * example a folder enforces that each child has a unique name. Therefore
  * certain operations must occur in an atomic manner. In the example it must be
- * guaranteed that no write access occurs to the map between acquiring the
- * iterator to find the children and finishing the add operation when no name
- * conflicts can occur. For this purpose this class has methods to lock an
- * unlock the state of the repository. It is very important that the caller
- * acquiring the lock enforces an unlock under all circumstances. Typical code
- * is:
+ * guaranteed that no other thread adds a child with the same name to the
+ * folder between checking the children and finishing the add operation. For
+ * this purpose operations on the children of a folder lock the folder. Locks
+ * are striped: a fixed number of locks is shared by all folders based on the
+ * hash code of the folder id. Operations affecting multiple folders acquire
+ * the stripes in ascending order to avoid dead locks.
+ * <p>
+ * Modifications of a single object (properties, content) are guarded by a
+ * separate set of striped object locks, see {@link #getObjectLock(String)}.
+ * A caller holding an object lock may acquire folder locks but not vice versa.
+ * It is very important that the caller acquiring the lock enforces an unlock
+ * under all circumstances. Typical code is:
  * <p>
  * 
  * <pre>
- * ObjectStoreImpl os = ... ;
+ * Lock lock = objectStore.getObjectLock(objectId);
+ * lock.lock();
  * try {
- *     os.lock();
+ *     ...
  * } finally {
- *     os.unlock();
+ *     lock.unlock();
  * }
  * </pre>
- * 
- * The locking is very coarse-grained. Productive implementations would probably
- * implement finer grained locks on a folder or document rather than the
- * complete repository.
  */
 public class ObjectStoreImpl implements ObjectStore {
 
@@ -101,16 +114,23 @@ public class ObjectStoreImpl implements ObjectStore {
     private static final int FIRST_ID = 100;
     private static final Long MAX_CONTENT_SIZE_KB = ConfigurationSettings
             .getConfigurationValueAsLong(ConfigConstants.MAX_CONTENT_SIZE_KB);
+    private static final Long CHANGE_LOG_SIZE = ConfigurationSettings
+            .getConfigurationValueAsLong(ConfigConstants.CHANGE_LOG_SIZE);
 
     /**
      * User id for administrator always having all rights.
      */
     public static final String ADMIN_PRINCIPAL_ID = "Admin";
 
+    /**
+     * Number of locks shared by all folders and by all objects.
+     */
+    private static final int LOCK_STRIPES = 64;
+
     /**
      * Simple id generator that uses just an integer.
      */
-    private static int nextUnusedId = FIRST_ID;
+    private final AtomicInteger fNextUnusedId = new AtomicInteger(FIRST_ID);
 
     /**
      * A concurrent HashMap as core element to hold all objects in the
@@ -118,14 +138,33 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     private final Map<String, StoredObject> fStoredObjectMap = new ConcurrentHashMap<String, StoredObject>();
 
+    private final AtomicInteger fNextUnusedAclId = new AtomicInteger(0);
+
+    /**
+     * A copy-on-write list to hold all Acls in the repository. Acls are
+     * rarely added but read for each permission check.
+     */
+    private final List<InMemoryAcl> fAcls = new CopyOnWriteArrayList<InMemoryAcl>();
+
     /**
-     * A concurrent HashMap to hold all Acls in the repository.
+     * Lock to guard the registration of new Acls.
      */
-    private int nextUnusedAclId = 0;
+    private final Lock fAclLock = new ReentrantLock();
 
-    private final List<InMemoryAcl> fAcls = new ArrayList<InMemoryAcl>();
+    private final Lock[] fFolderLocks = createLocks(LOCK_STRIPES);
 
-    private final Lock fLock = new ReentrantLock();
+    private final Lock[] fObjectLocks = createLocks(LOCK_STRIPES);
+
+    /**
+     * Log of all changes applied to objects in this store.
+     */
+    private final ChangeLog fChangeLog = CHANGE_LOG_SIZE == null ? new ChangeLogImpl() : new ChangeLogImpl(
+            CHANGE_LOG_SIZE.intValue());
+
+    /**
+     * Full text index, maintained together with the change log.
+     */
+    private final FullTextIndex fFullTextIndex = new FullTextIndexImpl();
 
     private final String fRepositoryId;
     private FolderImpl fRootFolder = null;
@@ -135,20 +174,90 @@ public class ObjectStoreImpl implements ObjectStore {
         createRootFolder();
     }
 
-    private static synchronized Integer getNextId() {
-        return nextUnusedId++;
+    private Integer getNextId() {
+        return fNextUnusedId.getAndIncrement();
+    }
+
+    private Integer getNextAclId() {
+        return fNextUnusedAclId.getAndIncrement();
+    }
+
+    private static Lock[] createLocks(int size) {
+        Lock[] locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
     }
 
-    private synchronized Integer getNextAclId() {
-        return nextUnusedAclId++;
+    private static int stripe(String id) {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % LOCK_STRIPES;
+    }
+
+    private int[] lockFolder(Folder folder) {
+        if (null == folder) {
+            return new int[0];
+        }
+        return lockFolders(Collections.singletonList(folder.getId()));
+    }
+
+    /**
+     * Lock all given folders. The stripes are acquired in ascending order.
+     * 
+     * @param folderIds
+     *            ids of folders to lock
+     * @return the acquired stripes, to be passed to
+     *         {@link #unlockFolders(int[])}
+     */
+    private int[] lockFolders(Collection<String> folderIds) {
+        int[] stripes = new int[folderIds.size()];
+        int i = 0;
+        for (String folderId : folderIds) {
+            stripes[i++] = stripe(folderId);
+        }
+        Arrays.sort(stripes);
+        for (i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                fFolderLocks[stripes[i]].lock();
+            }
+        }
+        return stripes;
     }
 
-    private void lock() {
-        fLock.lock();
+    private int[] lockAllFolders() {
+        int[] stripes = new int[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = i;
+            fFolderLocks[i].lock();
+        }
+        return stripes;
     }
 
-    private void unlock() {
-        fLock.unlock();
+    private void unlockFolders(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                fFolderLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Check that a folder has not been deleted in the meantime. Must be called
+     * while holding the lock of the folder, so that the folder cannot be
+     * deleted before the new child has been stored.
+     */
+    private void checkFolderExists(Folder folder) {
+        if (fStoredObjectMap.get(folder.getId()) != folder) {
+            throw new CmisObjectNotFoundException("Folder " + folder.getName() + " with id " + folder.getId()
+                    + " has been deleted.");
+        }
+    }
+
+    @Override
+    public Lock getObjectLock(String objectId) {
+        return fObjectLocks[stripe(objectId)];
     }
 
     @Override
@@ -210,10 +319,12 @@ public class ObjectStoreImpl implements ObjectStore {
                 List<DocumentVersion> allVers = parentDoc.getAllVersions();
                 for (DocumentVersion ver : allVers) {
                     fStoredObjectMap.remove(ver.getId());
+                    logChange(ver, ChangeType.DELETED);
                 }
             } else {
                 fStoredObjectMap.remove(objectId);
                 otherVersionsExists = parentDoc.deleteVersion(vers);
+                logChange(vers, ChangeType.DELETED);
             }
 
             if (!otherVersionsExists) {
@@ -221,6 +332,7 @@ public class ObjectStoreImpl implements ObjectStore {
             }
         } else {
             fStoredObjectMap.remove(objectId);
+            logChange(obj, ChangeType.DELETED);
         }
     }
 
@@ -229,11 +341,35 @@ public class ObjectStoreImpl implements ObjectStore {
         // check if update or create
         if (null == id) {
             id = getNextId().toString();
+            // assign the id before the object becomes visible to other threads
+            so.setId(id);
         }
         fStoredObjectMap.put(id, so);
         return id;
     }
 
+    /**
+     * Store a new fileable object in a folder. Checking the name constraint and
+     * adding the object happens atomically with respect to all other
+     * operations on the children of this folder.
+     */
+    private void storeFiledObject(FilingImpl so, Folder folder, String name) {
+        int[] stripes = lockFolder(folder);
+        try {
+            if (null != folder) {
+                checkFolderExists(folder);
+                if (hasChild(folder, name)) {
+                    throw new CmisNameConstraintViolationException("Cannot create document an object with name "
+                            + name + " already exists in folder " + getFolderPath(folder.getId()));
+                }
+                so.addParentId(folder.getId());
+            }
+            storeObject(so);
+        } finally {
+            unlockFolders(stripes);
+        }
+    }
+
     StoredObject getObject(String id) {
         return fStoredObjectMap.get(id);
     }
@@ -252,10 +388,14 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     @Override
     public void clear() {
-        lock();
-        fStoredObjectMap.clear();
-        storeObject(fRootFolder);
-        unlock();
+        int[] stripes = lockAllFolders();
+        try {
+            fStoredObjectMap.clear();
+            fFullTextIndex.clear();
+            storeObject(fRootFolder);
+        } finally {
+            unlockFolders(stripes);
+        }
     }
 
     @Override
@@ -263,6 +403,25 @@ public class ObjectStoreImpl implements ObjectStore {
         return fStoredObjectMap.size();
     }
 
+    @Override
+    public ChangeLog getChangeLog() {
+        return fChangeLog;
+    }
+
+    @Override
+    public FullTextIndex getFullTextIndex() {
+        return fFullTextIndex;
+    }
+
+    private void logChange(StoredObject so, ChangeType changeType) {
+        fChangeLog.addEntry(so, changeType);
+        if (changeType == ChangeType.DELETED) {
+            fFullTextIndex.remove(so.getId());
+        } else if (changeType != ChangeType.SECURITY) {
+            fFullTextIndex.index(so);
+        }
+    }
+
     // /////////////////////////////////////////
     // private helper methods
 
@@ -290,13 +449,6 @@ public class ObjectStoreImpl implements ObjectStore {
         doc.setCustomProperties(propMap);
         doc.setRepositoryId(fRepositoryId);
         doc.setName(name);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
-            }
-            doc.addParentId(folder.getId());
-        }
         ContentStream content = setContent(doc, contentStream);
         doc.setContent(content);
         int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
@@ -304,9 +456,9 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null != policies) {
             doc.setAppliedPolicies(policies);
         }
-        String id = storeObject(doc);
-        doc.setId(id);
+        storeFiledObject(doc, folder, name);
         applyAcl(doc, addACEs, removeACEs);
+        logChange(doc, ChangeType.CREATED);
         return doc;
     }
 
@@ -318,21 +470,14 @@ public class ObjectStoreImpl implements ObjectStore {
         item.setCustomProperties(propMap);
         item.setRepositoryId(fRepositoryId);
         item.setName(name);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
-            }
-            item.addParentId(folder.getId());
-        }
         if (null != policies) {
             item.setAppliedPolicies(policies);
         }
         int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
         item.setAclId(aclId);
-        String id = storeObject(item);
-        item.setId(id);
+        storeFiledObject(item, folder, name);
         applyAcl(item, addACEs, removeACEs);
+        logChange(item, ChangeType.CREATED);
         return item;
     }
 
@@ -345,27 +490,26 @@ public class ObjectStoreImpl implements ObjectStore {
         doc.setCustomProperties(propMap);
         doc.setRepositoryId(fRepositoryId);
         doc.setName(name);
-        String id = storeObject(doc);
-        doc.setId(id);
+        // the version series id is needed before the first version is added
+        doc.setId(getNextId().toString());
         DocumentVersion version = doc.addVersion(versioningState, user);
         setContent(version, contentStream);
         version.createSystemBasePropertiesWhenCreated(propMap, user);
         version.setCustomProperties(propMap);
-        if (null != folder) {
-            if (hasChild(folder, name)) {
-                throw new CmisNameConstraintViolationException("Cannot create document an object with name " + name
-                        + " already exists in folder " + getFolderPath(folder.getId()));
-            }
-            doc.addParentId(folder.getId());
-        }
         int aclId = getAclId(((FolderImpl) folder), addACEs, removeACEs);
         doc.setAclId(aclId);
         if (null != policies) {
             doc.setAppliedPolicies(policies);
         }
-        id = storeObject(version);
-        version.setId(id);
+        int[] stripes = lockFolder(folder);
+        try {
+            storeFiledObject(doc, folder, name);
+            storeObject(version);
+        } finally {
+            unlockFolders(stripes);
+        }
         applyAcl(doc, addACEs, removeACEs);
+        logChange(version, ChangeType.CREATED);
         return version;
     }
 
@@ -375,9 +519,6 @@ public class ObjectStoreImpl implements ObjectStore {
 
         if (null == parent) {
             throw new CmisInvalidArgumentException("Cannot create root folder.");
-        } else if (hasChild(parent, name)) {
-            throw new CmisNameConstraintViolationException(
-                    "Cannot create folder, this name already exists in parent folder.");
         }
         FolderImpl folder = new FolderImpl(name, parent.getId());
         if (null != propMap) {
@@ -392,12 +533,159 @@ public class ObjectStoreImpl implements ObjectStore {
             folder.setAppliedPolicies(policies);
         }
 
-        String id = storeObject(folder);
-        folder.setId(id);
+        int[] stripes = lockFolder(parent);
+        try {
+            checkFolderExists(parent);
+            if (hasChild(parent, name)) {
+                throw new CmisNameConstraintViolationException(
+                        "Cannot create folder, this name already exists in parent folder.");
+            }
+            storeObject(folder);
+        } finally {
+            unlockFolders(stripes);
+        }
         applyAcl(folder, addACEs, removeACEs);
+        logChange(folder, ChangeType.CREATED);
         return folder;
     }
 
+    @Override
+    public int reserveIds(int count) {
+        return fNextUnusedId.getAndAdd(count);
+    }
+
+    @Override
+    public List<Folder> createFolders(Folder parent, List<Map<String, PropertyData<?>>> propMaps, String user,
+            Integer firstId) {
+        if (null == parent) {
+            throw new CmisInvalidArgumentException("Cannot create root folder.");
+        }
+        int aclId = getAclId(((FolderImpl) parent), null, null);
+        int nextId = null == firstId ? reserveIds(propMaps.size()) : firstId;
+        List<FolderImpl> folders = new ArrayList<FolderImpl>(propMaps.size());
+        for (Map<String, PropertyData<?>> propMap : propMaps) {
+            String name = (String) propMap.get(PropertyIds.NAME).getFirstValue();
+            FolderImpl folder = new FolderImpl(name, parent.getId());
+            folder.createSystemBasePropertiesWhenCreated(propMap, user);
+            folder.setCustomProperties(propMap);
+            folder.setRepositoryId(fRepositoryId);
+            folder.setAclId(aclId);
+            folder.setId(Integer.toString(nextId++));
+            folders.add(folder);
+        }
+        storeBatch(parent, folders, null);
+        return new ArrayList<Folder>(folders);
+    }
+
+    @Override
+    public List<Document> createDocuments(Folder parent, List<Map<String, PropertyData<?>>> propMaps,
+            List<ContentStream> contentStreams, String user, Integer firstId) {
+        if (null == parent) {
+            throw new CmisInvalidArgumentException("Cannot create documents without a parent folder.");
+        }
+        int aclId = getAclId(((FolderImpl) parent), null, null);
+        int nextId = null == firstId ? reserveIds(propMaps.size()) : firstId;
+        List<DocumentImpl> docs = new ArrayList<DocumentImpl>(propMaps.size());
+        for (int i = 0; i < propMaps.size(); i++) {
+            Map<String, PropertyData<?>> propMap = propMaps.get(i);
+            String name = (String) propMap.get(PropertyIds.NAME).getFirstValue();
+            DocumentImpl doc = new DocumentImpl();
+            doc.createSystemBasePropertiesWhenCreated(propMap, user);
+            doc.setCustomProperties(propMap);
+            doc.setRepositoryId(fRepositoryId);
+            doc.setName(name);
+            if (null != contentStreams && null != contentStreams.get(i)) {
+                doc.setContent(setContent(doc, contentStreams.get(i)));
+            }
+            doc.setAclId(aclId);
+            doc.addParentId(parent.getId());
+            doc.setId(Integer.toString(nextId++));
+            docs.add(doc);
+        }
+        storeBatch(parent, docs, null);
+        return new ArrayList<Document>(docs);
+    }
+
+    @Override
+    public List<DocumentVersion> createVersionedDocuments(Folder parent, List<Map<String, PropertyData<?>>> propMaps,
+            List<ContentStream> contentStreams, String user, VersioningState versioningState, Integer firstId) {
+        if (null == parent) {
+            throw new CmisInvalidArgumentException("Cannot create documents without a parent folder.");
+        }
+        int aclId = getAclId(((FolderImpl) parent), null, null);
+        int nextId = null == firstId ? reserveIds(2 * propMaps.size()) : firstId;
+        List<VersionedDocumentImpl> docs = new ArrayList<VersionedDocumentImpl>(propMaps.size());
+        List<DocumentVersion> versions = new ArrayList<DocumentVersion>(propMaps.size());
+        for (int i = 0; i < propMaps.size(); i++) {
+            Map<String, PropertyData<?>> propMap = propMaps.get(i);
+            String name = (String) propMap.get(PropertyIds.NAME).getFirstValue();
+            VersionedDocumentImpl doc = new VersionedDocumentImpl();
+            doc.createSystemBasePropertiesWhenCreated(propMap, user);
+            doc.setCustomProperties(propMap);
+            doc.setRepositoryId(fRepositoryId);
+            doc.setName(name);
+            doc.setId(Integer.toString(nextId++));
+            DocumentVersion version = doc.addVersion(versioningState, user);
+            version.setId(Integer.toString(nextId++));
+            if (null != contentStreams) {
+                setContent(version, contentStreams.get(i));
+            }
+            version.createSystemBasePropertiesWhenCreated(propMap, user);
+            version.setCustomProperties(propMap);
+            doc.setAclId(aclId);
+            doc.addParentId(parent.getId());
+            docs.add(doc);
+            versions.add(version);
+        }
+        storeBatch(parent, docs, versions);
+        return versions;
+    }
+
+    /**
+     * Store a batch of new objects with assigned ids in a folder. The
+     * existing children of the folder are scanned only once. Change log and
+     * full text index are updated after the folder lock has been released.
+     *
+     * @param parent
+     *            the parent folder
+     * @param objects
+     *            the new children of the folder
+     * @param versions
+     *            the versions if the children are version series, their
+     *            creation is logged instead of the creation of the children,
+     *            null otherwise
+     */
+    private void storeBatch(Folder parent, List<? extends StoredObject> objects,
+            List<? extends StoredObject> versions) {
+        int[] stripes = lockFolder(parent);
+        try {
+            checkFolderExists(parent);
+            Set<String> names = new HashSet<String>();
+            for (Fileable child : getChildren(parent)) {
+                names.add(child.getName());
+            }
+            for (StoredObject so : objects) {
+                if (!names.add(so.getName())) {
+                    throw new CmisNameConstraintViolationException("Cannot create object, an object with name "
+                            + so.getName() + " already exists in folder " + getFolderPath(parent.getId()));
+                }
+            }
+            for (StoredObject so : objects) {
+                fStoredObjectMap.put(so.getId(), so);
+            }
+            if (null != versions) {
+                for (StoredObject so : versions) {
+                    fStoredObjectMap.put(so.getId(), so);
+                }
+            }
+        } finally {
+            unlockFolders(stripes);
+        }
+        for (StoredObject so : null == versions ? objects : versions) {
+            logChange(so, ChangeType.CREATED);
+        }
+    }
+
     public Folder createFolder(String name) {
         Folder folder = new FolderImpl(name, null);
         folder.setRepositoryId(fRepositoryId);
@@ -413,9 +701,9 @@ public class ObjectStoreImpl implements ObjectStore {
         policy.setRepositoryId(fRepositoryId);
         policy.setName(name);
         policy.setPolicyText(policyText);
-        String id = storeObject(policy);
-        policy.setId(id);
+        storeObject(policy);
         applyAcl(policy, addACEs, removeACEs);
+        logChange(policy, ChangeType.CREATED);
         return policy;
     }
 
@@ -434,16 +722,16 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null != targetObject) {
             rel.setTarget(targetObject.getId());
         }
-        String id = storeObject(rel);
-        rel.setId(id);
+        storeObject(rel);
         applyAcl(rel, addACEs, removeACEs);
+        logChange(rel, ChangeType.CREATED);
         return rel;
     }
 
     @Override
     public void storeVersion(DocumentVersion version) {
-        String id = storeObject(version);
-        version.setId(id);
+        storeObject(version);
+        logChange(version, ChangeType.CREATED);
     }
 
     @Override
@@ -454,12 +742,14 @@ public class ObjectStoreImpl implements ObjectStore {
             throw new CmisInvalidArgumentException("Cannot delete object with id  " + version.getId()
                     + ". Object does not exist.");
         }
+        logChange(found, ChangeType.DELETED);
     }
 
     @Override
     public void updateObject(StoredObject so, Map<String, PropertyData<?>> newProperties, String user) {
-        // nothing to do
-        Map<String, PropertyData<?>> properties = so.getProperties();
+        // modify a copy so that concurrent readers never see a partial update
+        Map<String, PropertyData<?>> properties = null == so.getProperties() ? new HashMap<String, PropertyData<?>>()
+                : new HashMap<String, PropertyData<?>>(so.getProperties());
         for (String key : newProperties.keySet()) {
             PropertyData<?> value = newProperties.get(key);
 
@@ -475,6 +765,8 @@ public class ObjectStoreImpl implements ObjectStore {
         // update system properties and secondary object type ids
         so.updateSystemBasePropertiesWhenModified(properties, user);
         properties.remove(PropertyIds.SECONDARY_OBJECT_TYPE_IDS);
+        so.setProperties(properties);
+        logChange(so, ChangeType.UPDATED);
     }
 
     @Override
@@ -545,20 +837,26 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public Acl applyAcl(StoredObject so, Acl addAces, Acl removeAces, AclPropagation aclPropagation, 
             String principalId) {
+        Acl result;
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, addAces, removeAces);
+            result = applyAcl(so, addAces, removeAces);
+            logChange(so, ChangeType.SECURITY);
         } else {
-            return applyAclRecursive(((Folder) so), addAces, removeAces, principalId);
+            result = applyAclRecursive(((Folder) so), addAces, removeAces, principalId);
         }
+        return result;
     }
 
     @Override
     public Acl applyAcl(StoredObject so, Acl acl, AclPropagation aclPropagation, String principalId) {
+        Acl result;
         if (aclPropagation == AclPropagation.OBJECTONLY || !(so instanceof Folder)) {
-            return applyAcl(so, acl);
+            result = applyAcl(so, acl);
+            logChange(so, ChangeType.SECURITY);
         } else {
-            return applyAclRecursive(((Folder) so), acl, principalId);
+            result = applyAclRecursive(((Folder) so), acl, principalId);
         }
+        return result;
     }
 
     public List<Integer> getAllAclsForUser(String principalId, Permission permission) {
@@ -652,13 +950,23 @@ public class ObjectStoreImpl implements ObjectStore {
                     + ". Object exists but is not a folder.");
         }
 
-        // check if children exist
-        List<Fileable> children = getChildren((Folder) folder, -1, -1, user, true).getChildren();
-        if (children != null && !children.isEmpty()) {
-            throw new CmisConstraintException("Cannot delete folder with id:  " + folderId + ". Folder is not empty.");
-        }
+        // check if children exist and remove the folder while no child can be
+        // added
+        int[] stripes = lockFolder((Folder) folder);
+        try {
+            List<Fileable> children = getChildren((Folder) folder, -1, -1, user, true).getChildren();
+            if (children != null && !children.isEmpty()) {
+                throw new CmisConstraintException("Cannot delete folder with id:  " + folderId
+                        + ". Folder is not empty.");
+            }
 
-        fStoredObjectMap.remove(folderId);
+            if (fStoredObjectMap.remove(folderId) == null) {
+                throw new CmisObjectNotFoundException("Folder with id " + folderId + " has already been deleted.");
+            }
+        } finally {
+            unlockFolders(stripes);
+        }
+        logChange(folder, ChangeType.DELETED);
     }
 
     @Override
@@ -735,12 +1043,17 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void move(StoredObject so, Folder oldParent, Folder newParent, String user) {
+        int[] stripes = lockFolders(Arrays.asList(oldParent.getId(), newParent.getId()));
         try {
+            checkFolderExists(newParent);
+            if (!(so instanceof Fileable) || !((Fileable) so).getParentIds().contains(oldParent.getId())) {
+                throw new CmisUpdateConflictException("Cannot move object " + so.getName()
+                        + ". It has been moved or removed from folder " + oldParent.getName() + " in the meantime.");
+            }
             if (hasChild(newParent, so.getName())) {
                 throw new CmisInvalidArgumentException("Cannot move object " + so.getName() + " to folder "
                         + getFolderPath(newParent.getId()) + ". A child with this name already exists.");
             }
-            lock();
             if (so instanceof MultiFiling) {
                 MultiFiling fi = (MultiFiling) so;
                 addParentIntern(fi, newParent);
@@ -749,33 +1062,50 @@ public class ObjectStoreImpl implements ObjectStore {
                 ((FolderImpl) so).setParentId(newParent.getId());
             }
         } finally {
-            unlock();
+            unlockFolders(stripes);
         }
+        logChange(so, ChangeType.UPDATED);
     }
 
     @Override
     public void rename(StoredObject so, String newName, String user) {
-        try {
-            lock();
-            if (so.getId().equals(fRootFolder.getId())) {
-                throw new CmisInvalidArgumentException("Root folder cannot be renamed.");
-            }
-            if (so.getName().equals(newName)) {
-            	return;
-            }
-            if (so instanceof Fileable) {
-                for (String folderId : ((Fileable)so).getParentIds()) {
+        if (so.getId().equals(fRootFolder.getId())) {
+            throw new CmisInvalidArgumentException("Root folder cannot be renamed.");
+        }
+
+        while (true) {
+            List<String> parentIds = getParentIdsForLock(so);
+            int[] stripes = lockFolders(parentIds);
+            try {
+                // the object may have been moved before the locks were
+                // acquired, then lock the new parents
+                if (!parentIds.equals(getParentIdsForLock(so))) {
+                    continue;
+                }
+                if (so.getName().equals(newName)) {
+                    return;
+                }
+                for (String folderId : parentIds) {
                     Folder folder = (Folder) getObjectById(folderId);
                     if (hasChild(folder, newName)) {
                         throw new CmisNameConstraintViolationException("Cannot rename object to " + newName
                                 + ". This path already exists in parent " + getFolderPath(folder.getId()) + ".");
                     }
                 }
+                so.setName(newName);
+                break;
+            } finally {
+                unlockFolders(stripes);
             }
-            so.setName(newName);
-        } finally {
-            unlock();
         }
+        logChange(so, ChangeType.UPDATED);
+    }
+
+    private static List<String> getParentIdsForLock(StoredObject so) {
+        if (so instanceof Fileable) {
+            return new ArrayList<String>(((Fileable) so).getParentIds());
+        }
+        return Collections.<String> emptyList();
     }
 
     private boolean hasChild(Folder folder, String name) {
@@ -809,6 +1139,11 @@ public class ObjectStoreImpl implements ObjectStore {
         return hasAccess(principalId, so, Permission.READ);
     }
 
+    @Override
+    public boolean hasReadAccess(String principalId, int aclId) {
+        return hasAccess(principalId, aclId, Permission.READ);
+    }
+
     public boolean hasWriteAccess(String principalId, StoredObject so) {
         return hasAccess(principalId, so, Permission.WRITE);
     }
@@ -837,11 +1172,15 @@ public class ObjectStoreImpl implements ObjectStore {
     }
 
     private boolean hasAccess(String principalId, StoredObject so, Permission permission) {
+        return hasAccess(principalId, ((StoredObjectImpl) so).getAclId(), permission);
+    }
+
+    private boolean hasAccess(String principalId, int aclId, Permission permission) {
         if (null != principalId && principalId.equals(ADMIN_PRINCIPAL_ID)) {
             return true;
         }
         List<Integer> aclIds = getAllAclsForUser(principalId, permission);
-        return aclIds.contains(((StoredObjectImpl) so).getAclId());
+        return aclIds.contains(aclId);
     }
 
     private InMemoryAcl getInMemoryAcl(int aclId) {
@@ -888,7 +1227,7 @@ public class ObjectStoreImpl implements ObjectStore {
             return 0;
         }
 
-        lock();
+        fAclLock.lock();
         try {
             aclId = hasAcl(acl);
             if (aclId < 0) {
@@ -897,7 +1236,7 @@ public class ObjectStoreImpl implements ObjectStore {
                 fAcls.add(acl);
             }
         } finally {
-            unlock();
+            fAclLock.unlock();
         }
         return aclId;
     }
@@ -916,6 +1255,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl addAces, Acl removeAces, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, addAces, removeAces);
+        logChange(folder, ChangeType.SECURITY);
 
         if (null == children) {
             return result;
@@ -927,6 +1267,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, addAces, removeAces, principalId);
                 } else {
                     applyAcl(child, addAces, removeAces);
+                    logChange(child, ChangeType.SECURITY);
                 }
             }
         }
@@ -937,6 +1278,7 @@ public class ObjectStoreImpl implements ObjectStore {
     private Acl applyAclRecursive(Folder folder, Acl acl, String principalId) {
         List<Fileable> children = getChildren(folder, -1, -1, ADMIN_PRINCIPAL_ID, false).getChildren();
         Acl result = applyAcl(folder, acl);
+        logChange(folder, ChangeType.SECURITY);
 
         if (null == children) {
             return result;
@@ -948,6 +1290,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     applyAclRecursive((Folder) child, acl, principalId);
                 } else {
                     applyAcl(child, acl);
+                    logChange(child, ChangeType.SECURITY);
                 }
             }
         }
@@ -988,8 +1331,9 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public void addParent(StoredObject so, Folder parent) {
+        int[] stripes = lockFolder(parent);
         try {
-            lock();
+            checkFolderExists(parent);
             if (hasChild(parent, so.getName())) {
                 throw new IllegalArgumentException(
                         "Cannot assign new parent folder, this name already exists in target folder.");
@@ -1003,14 +1347,15 @@ public class ObjectStoreImpl implements ObjectStore {
 
             addParentIntern(mfi, parent);
         } finally {
-            unlock();
+            unlockFolders(stripes);
         }
+        logChange(so, ChangeType.UPDATED);
     }
 
     @Override
     public void removeParent(StoredObject so, Folder parent) {
+        int[] stripes = lockFolder(parent);
         try {
-            lock();
             MultiFiling mfi;
             if (so instanceof MultiFiling) {
                 mfi = (MultiFiling) so;
@@ -1020,8 +1365,9 @@ public class ObjectStoreImpl implements ObjectStore {
 
             removeParentIntern(mfi, parent);
         } finally {
-            unlock();
+            unlockFolders(stripes);
         }
+        logChange(so, ChangeType.UPDATED);
     }
 
     private void addParentIntern(MultiFiling so, Folder parent) {
@@ -1094,6 +1440,10 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             content.setContent(newContent);
+            if (null != so.getId()) {
+                // objects under construction are logged when created
+                logChange(so, ChangeType.UPDATED);
+            }
             return newContent;
 
         } else {
@@ -1116,6 +1466,7 @@ public class ObjectStoreImpl implements ObjectStore {
                     throw new CmisStorageException("Failed to append content: IO Exception", e);
                 }
             }
+            logChange(so, ChangeType.UPDATED);
         } else {
             throw new CmisInvalidArgumentException("Cannot set content, object does not implement interface Content.");
         }
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.PermissionMapping;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
@@ -54,6 +55,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundExcept
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AclCapabilitiesDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.CreatablePropertyTypesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.NewTypeSettableAttributesImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.PermissionDefinitionDataImpl;
@@ -65,7 +67,9 @@ import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
 import org.apache.chemistry.opencmis.inmemory.TypeCreator;
 import org.apache.chemistry.opencmis.inmemory.TypeManagerImpl;
 import org.apache.chemistry.opencmis.inmemory.query.InMemoryQueryProcessor;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryDiscoveryServiceImpl;
 import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceContext;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ChangeLog;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.CmisServiceValidator;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
@@ -362,8 +366,11 @@ public class StoreManagerImpl implements StoreManager {
         repoInfo.setPrincipalAnonymous(InMemoryAce.getAnonymousUser());
         repoInfo.setPrincipalAnyone(InMemoryAce.getAnyoneUser());
         repoInfo.setThinClientUri("");
-        repoInfo.setChangesIncomplete(Boolean.TRUE);
-        repoInfo.setLatestChangeLogToken("token-24");
+        ChangeLog changeLog = objStore.getChangeLog();
+        long latestToken = changeLog.getLatestToken();
+        repoInfo.setChangesIncomplete(changeLog.getDiscardedCount() > 0);
+        repoInfo.setLatestChangeLogToken(latestToken < 0 ? null : InMemoryDiscoveryServiceImpl
+                .formatChangeLogToken(latestToken));
         repoInfo.setVendorName("Apache Chemistry");
         repoInfo.setProductName(OPENCMIS_SERVER);
         repoInfo.setProductVersion(OPENCMIS_VERSION);
@@ -372,7 +379,7 @@ public class StoreManagerImpl implements StoreManager {
         RepositoryCapabilitiesImpl caps = new RepositoryCapabilitiesImpl();
         caps.setAllVersionsSearchable(false);
         caps.setCapabilityAcl(CapabilityAcl.MANAGE);
-        caps.setCapabilityChanges(CapabilityChanges.OBJECTIDSONLY);
+        caps.setCapabilityChanges(CapabilityChanges.PROPERTIES);
         caps.setCapabilityContentStreamUpdates(CapabilityContentStreamUpdates.ANYTIME);
         caps.setCapabilityJoin(CapabilityJoin.NONE);
         caps.setCapabilityQuery(CapabilityQuery.BOTHCOMBINED);
@@ -502,9 +509,24 @@ public class StoreManagerImpl implements StoreManager {
 
         repoInfo.setCapabilities(caps);
 
+        repoInfo.setExtensions(createChangeLogExtensions(changeLog));
+
         return repoInfo;
     }
 
+    private static List<CmisExtensionElement> createChangeLogExtensions(ChangeLog changeLog) {
+        String ns = "http://apache.org/opencmis/inmemory";
+        List<CmisExtensionElement> extElements = new ArrayList<CmisExtensionElement>();
+        extElements.add(new CmisExtensionElementImpl(ns, "retention", null, String.valueOf(changeLog
+                .getRetention())));
+        extElements.add(new CmisExtensionElementImpl(ns, "oldestToken", null, InMemoryDiscoveryServiceImpl
+                .formatChangeLogToken(changeLog.getOldestToken())));
+        extElements.add(new CmisExtensionElementImpl(ns, "discardedEntries", null, String.valueOf(changeLog
+                .getDiscardedCount())));
+        return Collections.singletonList((CmisExtensionElement) new CmisExtensionElementImpl(ns, "changeLog", null,
+                extElements));
+    }
+
     private static PermissionDefinition createPermission(String permission, String description) {
         PermissionDefinitionDataImpl pd = new PermissionDefinitionDataImpl();
         pd.setId(permission);
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.AllowableActions;
@@ -53,14 +54,16 @@ public class StoredObjectImpl implements StoredObject {
     private static final String UNKNOWN_USER = "unknown";
 
     protected String fId;
-    protected String fName;
+    protected volatile String fName;
     protected String fTypeId;
     protected String fCreatedBy;
-    protected String fModifiedBy;
+    protected volatile String fModifiedBy;
     protected GregorianCalendar fCreatedAt;
-    protected GregorianCalendar fModifiedAt;
+    protected volatile GregorianCalendar fModifiedAt;
+    /** Change token, strictly increasing even if the clock doesn't move. */
+    private final AtomicLong fChangeToken = new AtomicLong();
     protected String fRepositoryId;
-    protected Map<String, PropertyData<?>> fProperties;
+    protected volatile Map<String, PropertyData<?>> fProperties;
     protected int fAclId;
     protected String description; // CMIS 1.1
     protected List<String> secondaryTypeIds; // CMIS 1.1
@@ -71,6 +74,7 @@ public class StoredObjectImpl implements StoredObject {
         now.setTime(new Date());
         fCreatedAt = now;
         fModifiedAt = now;
+        fChangeToken.set(now.getTimeInMillis());
         secondaryTypeIds = new ArrayList<String>();
         policyIds = null;
     }
@@ -142,21 +146,28 @@ public class StoredObjectImpl implements StoredObject {
 
     @Override
     public void setModifiedAtNow() {
-    	GregorianCalendar now = getNow();
-    	// ensure a larger time for modification date and change token:
-    	while (now.getTimeInMillis() == fModifiedAt.getTimeInMillis()) {
-    		try {
-    			Thread.sleep(1);
-    		} catch (InterruptedException ex) {    			
-    		}
-    		now = getNow();
-    	}
-        this.fModifiedAt = now;
+        setModifiedAt(getNow());
     }
 
     @Override
     public void setModifiedAt(GregorianCalendar cal) {
         this.fModifiedAt = cal;
+        advanceChangeToken(cal.getTimeInMillis());
+    }
+
+    /**
+     * Sets the change token to the modification time. If the clock hasn't
+     * moved since the last modification, the token is advanced by one. The
+     * modification date always shows the real time.
+     */
+    private void advanceChangeToken(long time) {
+        while (true) {
+            long last = fChangeToken.get();
+            long next = time > last ? time : last + 1;
+            if (fChangeToken.compareAndSet(last, next)) {
+                return;
+            }
+        }
     }
 
     @Override
@@ -238,9 +249,7 @@ public class StoredObjectImpl implements StoredObject {
 
     @Override
     public String getChangeToken() {
-        GregorianCalendar lastModified = getModifiedAt();
-        String token = Long.valueOf(lastModified.getTimeInMillis()).toString();
-        return token;
+        return Long.toString(fChangeToken.get());
     }
 
     @Override
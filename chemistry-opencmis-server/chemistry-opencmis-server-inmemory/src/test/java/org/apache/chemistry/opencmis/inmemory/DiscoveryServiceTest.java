@@ -19,14 +19,30 @@
 package org.apache.chemistry.opencmis.inmemory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.Acl;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.enums.ChangeType;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumBasicPermissions;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.inmemory.ObjectServiceTest.ObjectTestTypeSystemCreator;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.InMemoryAce;
 import org.apache.chemistry.opencmis.util.repository.ObjectGenerator;
 import org.junit.After;
 import org.junit.Before;
@@ -176,4 +192,155 @@ public class DiscoveryServiceTest extends AbstractServiceTest {
         assertEquals(3, count);
     }
 
+    @Test
+    public void testContentChanges() {
+        log.info("starting testContentChanges() ...");
+
+        String startToken = getLatestChangeLogToken();
+
+        String folderId = createFolder("ChangeFolder", fRootFolderId, TEST_FOLDER_TYPE_ID);
+        String docId1 = createDocument("ChangeDoc1", folderId, TEST_DOCUMENT_TYPE_ID, false);
+        String docId2 = createDocument("ChangeDoc2", folderId, TEST_DOCUMENT_TYPE_ID, false);
+        fObjSvc.deleteObject(fRepositoryId, docId2, true, null);
+
+        String latestToken = getLatestChangeLogToken();
+        assertNotNull(latestToken);
+        assertFalse(latestToken.equals(startToken));
+
+        // read all changes in pages of two entries
+        List<ObjectData> changes = new ArrayList<ObjectData>();
+        Holder<String> token = new Holder<String>(startToken);
+        boolean first = null != startToken;
+        boolean hasMoreItems = true;
+        while (hasMoreItems) {
+            ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, token, Boolean.TRUE, "*", Boolean.FALSE,
+                    Boolean.FALSE, BigInteger.valueOf(2), null);
+            List<ObjectData> page = res.getObjects();
+            // the first event of a page is the one the token points to
+            changes.addAll(first ? page.subList(1, page.size()) : page);
+            first = true;
+            hasMoreItems = res.hasMoreItems();
+        }
+        assertEquals(latestToken, token.getValue());
+        assertEquals(4, changes.size());
+
+        assertEquals(folderId, changes.get(0).getId());
+        assertEquals(ChangeType.CREATED, changes.get(0).getChangeEventInfo().getChangeType());
+        assertEquals(docId1, changes.get(1).getId());
+        assertNotNull(changes.get(1).getProperties().getProperties().get(PropertyIds.NAME));
+        assertEquals(docId2, changes.get(2).getId());
+        assertEquals(ChangeType.CREATED, changes.get(2).getChangeEventInfo().getChangeType());
+        assertEquals(docId2, changes.get(3).getId());
+        assertEquals(ChangeType.DELETED, changes.get(3).getChangeEventInfo().getChangeType());
+        assertTrue(changes.get(3).getProperties().getProperties().containsKey(PropertyIds.OBJECT_ID));
+
+        try {
+            fDiscSvc.getContentChanges(fRepositoryId, new Holder<String>("token-foo"), Boolean.FALSE, null,
+                    Boolean.FALSE, Boolean.FALSE, null, null);
+            fail("getContentChanges() with an illegal token should fail.");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+
+        log.info("... testContentChanges() finished.");
+    }
+
+    @Test
+    public void testContentChangesNumItems() {
+        String startToken = getLatestChangeLogToken();
+
+        createDocument("CountDoc1", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+        createDocument("CountDoc2", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+        createDocument("CountDoc3", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+
+        // the number of changes is unknown as long as there are more
+        Holder<String> token = new Holder<String>(startToken);
+        ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, token, Boolean.FALSE, null, Boolean.FALSE,
+                Boolean.FALSE, BigInteger.valueOf(2), null);
+        assertEquals(2, res.getObjects().size());
+        assertTrue(res.hasMoreItems());
+        assertNull(res.getNumItems());
+
+        // the last page knows it
+        res = fDiscSvc.getContentChanges(fRepositoryId, token, Boolean.FALSE, null, Boolean.FALSE, Boolean.FALSE,
+                BigInteger.TEN, null);
+        assertFalse(res.hasMoreItems());
+        assertEquals(res.getObjects().size(), res.getNumItems().intValue());
+        assertEquals(getLatestChangeLogToken(), token.getValue());
+    }
+
+    @Test
+    public void testContentChangesAcl() {
+        log.info("starting testContentChangesAcl() ...");
+
+        String startToken = getLatestChangeLogToken();
+
+        Acl adminOnly = createAcl("TestAdmin", EnumBasicPermissions.CMIS_ALL);
+        Acl anyone = createAcl(InMemoryAce.getAnyoneUser(), EnumBasicPermissions.CMIS_ALL);
+        String hiddenId1 = createDocumentNoCatch("HiddenDoc1", fRootFolderId, TEST_DOCUMENT_TYPE_ID, null, false,
+                adminOnly, anyone);
+        String visibleId = createDocument("VisibleDoc", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+        String hiddenId2 = createDocumentNoCatch("HiddenDoc2", fRootFolderId, TEST_DOCUMENT_TYPE_ID, null, false,
+                adminOnly, anyone);
+        fObjSvc.deleteObject(fRepositoryId, hiddenId1, true, null);
+
+        // the admin sees all changes
+        ObjectList res = fDiscSvc.getContentChanges(fRepositoryId, new Holder<String>(startToken), Boolean.FALSE,
+                null, Boolean.FALSE, Boolean.FALSE, null, null);
+        List<String> ids = getChangedObjectIds(res, startToken);
+        assertEquals(4, ids.size());
+
+        // another user neither sees the creation nor the deletion of the
+        // objects he can't read
+        switchCallContext("Reader");
+        res = fDiscSvc.getContentChanges(fRepositoryId, new Holder<String>(startToken), Boolean.FALSE, null,
+                Boolean.FALSE, Boolean.FALSE, null, null);
+        ids = getChangedObjectIds(res, startToken);
+        assertEquals(Collections.singletonList(visibleId), ids);
+        assertEquals(res.getObjects().size(), res.getNumItems().intValue());
+        assertFalse(res.hasMoreItems());
+        assertFalse(ids.contains(hiddenId1));
+        assertFalse(ids.contains(hiddenId2));
+
+        // paging skips the changes the user can't see
+        Holder<String> token = new Holder<String>(startToken);
+        res = fDiscSvc.getContentChanges(fRepositoryId, token, Boolean.FALSE, null, Boolean.FALSE, Boolean.FALSE,
+                BigInteger.ONE, null);
+        assertFalse(res.hasMoreItems());
+        assertEquals(getLatestChangeLogToken(), token.getValue());
+
+        log.info("... testContentChangesAcl() finished.");
+    }
+
+    private String getLatestChangeLogToken() {
+        // getRepositoryInfo() is served from the cache of the binding
+        for (RepositoryInfo repInfo : fRepSvc.getRepositoryInfos(null)) {
+            if (fRepositoryId.equals(repInfo.getId())) {
+                return repInfo.getLatestChangeLogToken();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> getChangedObjectIds(ObjectList changes, String startToken) {
+        List<String> ids = new ArrayList<String>();
+        for (ObjectData od : changes.getObjects()) {
+            ids.add(od.getId());
+        }
+        // the first event is the one the start token points to
+        if (null != startToken && !ids.isEmpty()) {
+            ids.remove(0);
+        }
+        return ids;
+    }
+
+    private void switchCallContext(String user) {
+        ((DummyCallContext) fTestCallContext).put(CallContext.USERNAME, user);
+    }
+
+    private Acl createAcl(String principalId, EnumBasicPermissions permission) {
+        return fFactory.createAccessControlList(Collections.singletonList(fFactory.createAccessControlEntry(
+                principalId, Collections.singletonList(permission.value()))));
+    }
+
 }
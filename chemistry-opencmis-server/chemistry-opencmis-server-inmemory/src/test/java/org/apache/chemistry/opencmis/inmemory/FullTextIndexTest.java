@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.FullTextIndex;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.DocumentImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.FullTextIndexImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FullTextIndexTest {
+
+    private FullTextIndex fIndex;
+
+    @Before
+    public void setUp() {
+        fIndex = new FullTextIndexImpl();
+    }
+
+    @Test
+    public void testFindObjects() throws IOException {
+        fIndex.index(createDocument("1", "one", "I have a cat."));
+        fIndex.index(createDocument("2", "two", "I have a cat and a dog."));
+        fIndex.index(createDocument("3", "three", "I have a dog."));
+
+        assertEquals(new HashSet<String>(Arrays.asList("1", "2")), fIndex.findObjects(words("cat")));
+        assertEquals(Collections.singleton("2"), fIndex.findObjects(words("dog CAT")));
+        assertEquals(Collections.singleton("3"), fIndex.findObjects(words("three")));
+        assertTrue(fIndex.findObjects(words("bird")).isEmpty());
+        assertTrue(fIndex.findObjects(words("cat bird")).isEmpty());
+        assertTrue(fIndex.findObjects(words("")).isEmpty());
+
+        // all words, but not as a phrase
+        assertEquals(Collections.singleton("2"), fIndex.findObjects(words("dog cat")));
+        assertFalse(fIndex.containsPhrase("2", words("dog cat")));
+        assertTrue(fIndex.containsPhrase("2", words("cat and a dog")));
+
+        fIndex.remove("2");
+        assertEquals(Collections.singleton("1"), fIndex.findObjects(words("cat")));
+        assertEquals(2, fIndex.getDocumentCount());
+    }
+
+    @Test
+    public void testContentIsOnlyReadWhenReplaced() throws IOException {
+        DocumentImpl doc = createDocument("1", "doc", "I have a cat.");
+        fIndex.index(doc);
+        assertTrue(fIndex.containsPhrase("1", words("cat")));
+
+        // change the bytes behind the back of the index, a property update
+        // must keep the words of the content indexed before
+        byte[] bytes = ((ContentStreamDataImpl) doc.getContent()).getBytes();
+        bytes[bytes.length - 4] = 'o';
+        bytes[bytes.length - 3] = 'w';
+        bytes[bytes.length - 2] = 'l';
+        doc.setName("renamed");
+        fIndex.index(doc);
+        assertTrue(fIndex.containsPhrase("1", words("cat")));
+        assertFalse(fIndex.containsPhrase("1", words("owl")));
+        assertTrue(fIndex.containsPhrase("1", words("renamed")));
+        assertFalse(fIndex.containsPhrase("1", words("doc")));
+
+        // new content is indexed again
+        doc.setContent(createContent("I have a dog."));
+        fIndex.index(doc);
+        assertFalse(fIndex.containsPhrase("1", words("cat")));
+        assertTrue(fIndex.containsPhrase("1", words("have a dog")));
+
+        // no content
+        doc.setContent(null);
+        fIndex.index(doc);
+        assertFalse(fIndex.containsPhrase("1", words("dog")));
+        assertTrue(fIndex.containsPhrase("1", words("renamed")));
+    }
+
+    @Test
+    public void testContentOfOtherMimeTypesIsNotIndexed() throws IOException {
+        DocumentImpl doc = createDocument("1", "doc", "I have a cat.");
+        ((ContentStreamDataImpl) doc.getContent()).setMimeType("application/octet-stream");
+        fIndex.index(doc);
+        assertFalse(fIndex.containsPhrase("1", words("cat")));
+
+        ((ContentStreamDataImpl) doc.getContent()).setMimeType("text/plain");
+        fIndex.index(doc);
+        assertTrue(fIndex.containsPhrase("1", words("cat")));
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        fIndex.index(createDocument("1", "one", "I have a cat."));
+        fIndex.index(createDocument("2", "two", "I have a dog."));
+
+        fIndex.clear();
+        assertEquals(0, fIndex.getDocumentCount());
+        assertTrue(fIndex.findObjects(words("have")).isEmpty());
+        assertFalse(fIndex.containsPhrase("1", words("cat")));
+
+        // the content of a cleared object is read again
+        fIndex.index(createDocument("1", "one", "I have a cat."));
+        assertEquals(Collections.singleton("1"), fIndex.findObjects(words("cat")));
+    }
+
+    @Test
+    public void testClearObjectStore() throws IOException {
+        ObjectStoreImpl store = new ObjectStoreImpl("repo");
+        FullTextIndex index = store.getFullTextIndex();
+        index.index(createDocument("1", "one", "I have a cat."));
+
+        store.clear();
+        assertEquals(0, index.getDocumentCount());
+        assertTrue(index.findObjects(index.tokenize("cat")).isEmpty());
+    }
+
+    @Test
+    public void testConcurrentUpdatesKeepNewestContent() throws Exception {
+        final DocumentImpl doc = createDocument("1", "doc", "initial");
+        fIndex.index(doc);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            synchronized (doc) {
+                                doc.setContent(createContent("word" + thread + "x" + i));
+                            }
+                            fIndex.index(doc);
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        // the last update has read the content of the last change
+        String text = new String(((ContentStreamDataImpl) doc.getContent()).getBytes(), "UTF-8");
+        assertTrue(fIndex.containsPhrase("1", words(text)));
+        assertEquals(1, fIndex.getDocumentCount());
+    }
+
+    private List<String> words(String text) {
+        return fIndex.tokenize(text);
+    }
+
+    private static DocumentImpl createDocument(String id, String name, String text) throws IOException {
+        DocumentImpl doc = new DocumentImpl();
+        doc.setId(id);
+        doc.setName(name);
+        doc.setContent(createContent(text));
+        return doc;
+    }
+
+    private static ContentStreamDataImpl createContent(String text) throws IOException {
+        ContentStreamDataImpl content = new ContentStreamDataImpl(-1);
+        content.setFileName("data.txt");
+        content.setMimeType("text/plain");
+        content.setContent(new ByteArrayInputStream(text.getBytes("UTF-8")));
+        return content;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.chemistry.opencmis.client.bindings.CmisBindingFactory;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.server.ReusableCmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceFactoryImpl;
+
+/**
+ * Compares the local binding throughput of per-call service objects and
+ * reused service objects. This is not a unit test, run it manually:
+ * 
+ * <pre>
+ * LocalBindingBenchmark [number of calls]
+ * </pre>
+ * 
+ * The default number of calls is 200000.
+ */
+public final class LocalBindingBenchmark {
+
+    private static final String REPOSITORY_ID = "BenchmarkRepository";
+    private static final int DOCUMENTS = 100;
+    private static final int RUNS = 3;
+
+    private LocalBindingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int calls = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        // the in-memory server keeps its service objects in thread locals,
+        // so each binding gets its own thread
+        Client perCall = new Client(InMemoryServiceFactoryImpl.class.getName());
+        Client reused = new Client(ThreadReuseServiceFactory.class.getName());
+
+        try {
+            for (int run = 0; run < RUNS; run++) {
+                report("getObject, per call", calls, perCall.getObjects(calls));
+                report("getObject, reused  ", calls, reused.getObjects(calls));
+                report("query, per call    ", calls / 100, perCall.query(calls / 100));
+                report("query, reused      ", calls / 100, reused.query(calls / 100));
+            }
+        } finally {
+            perCall.close();
+            reused.close();
+        }
+    }
+
+    private static CmisBinding createBinding(String factoryClassName) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.USER, "Admin");
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, SessionParameter.LOCAL_FACTORY);
+        parameters.put(SessionParameter.LOCAL_FACTORY, factoryClassName);
+        parameters.put(ConfigConstants.REPOSITORY_ID, REPOSITORY_ID);
+        parameters.put(ConfigConstants.TYPE_CREATOR_CLASS, UnitTestTypeSystemCreator.class.getName());
+
+        return CmisBindingFactory.newInstance().createCmisLocalBinding(parameters);
+    }
+
+    private static List<String> createDocuments(CmisBinding binding) {
+        BindingsObjectFactory factory = binding.getObjectFactory();
+        String rootFolderId = binding.getRepositoryService().getRepositoryInfo(REPOSITORY_ID, null)
+                .getRootFolderId();
+
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+            properties.add(factory.createPropertyIdData(PropertyIds.NAME, "doc-" + i));
+            properties.add(factory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, "cmis:document"));
+
+            ids.add(binding.getObjectService().createDocument(REPOSITORY_ID,
+                    factory.createPropertiesData(properties), rootFolderId, null, VersioningState.NONE, null, null,
+                    null, null));
+        }
+
+        return ids;
+    }
+
+    private static void getObjects(CmisBinding binding, List<String> ids, int calls) {
+        for (int i = 0; i < calls; i++) {
+            binding.getObjectService().getObject(REPOSITORY_ID, ids.get(i % ids.size()), null, false,
+                    IncludeRelationships.NONE, null, false, false, null);
+        }
+    }
+
+    private static void query(CmisBinding binding, int calls) {
+        for (int i = 0; i < calls; i++) {
+            binding.getDiscoveryService().query(REPOSITORY_ID, "SELECT * FROM cmis:document WHERE cmis:name = 'doc-1'",
+                    false, false, IncludeRelationships.NONE, null, BigInteger.TEN, null, null);
+        }
+    }
+
+    private static void report(String name, int calls, long time) {
+        System.out.println(name + ": " + (time / 1000000) + " ms, " + (time / calls) + " ns/call");
+    }
+
+    /**
+     * A local binding that is only used by one thread.
+     */
+    private static class Client {
+
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+        private CmisBinding binding;
+        private List<String> ids;
+
+        public Client(final String factoryClassName) throws Exception {
+            execute(new Runnable() {
+                public void run() {
+                    binding = createBinding(factoryClassName);
+                    ids = createDocuments(binding);
+                }
+            });
+        }
+
+        public long getObjects(final int calls) throws Exception {
+            return execute(new Runnable() {
+                public void run() {
+                    LocalBindingBenchmark.getObjects(binding, ids, calls);
+                }
+            });
+        }
+
+        public long query(final int calls) throws Exception {
+            return execute(new Runnable() {
+                public void run() {
+                    LocalBindingBenchmark.query(binding, calls);
+                }
+            });
+        }
+
+        public void close() throws Exception {
+            try {
+                execute(new Runnable() {
+                    public void run() {
+                        binding.close();
+                    }
+                });
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        private long execute(Runnable task) throws Exception {
+            long start = System.nanoTime();
+            executor.submit(task).get();
+            return System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * In-memory factory that declares per-thread reuse. This is only safe here
+     * because the benchmark uses one user and one repository.
+     */
+    public static class ThreadReuseServiceFactory extends InMemoryServiceFactoryImpl implements
+            ReusableCmisServiceFactory {
+
+        public ServiceReuse getServiceReuse() {
+            return ServiceReuse.PER_THREAD;
+        }
+    }
+}
@@ -34,11 +34,14 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -194,6 +197,251 @@ public class ObjectServiceTest extends AbstractServiceTest {
         }
     }
 
+    @Test
+    public void testCreateFolderConcurrently() throws Exception {
+        final int threadCount = 8;
+        final String parentId = createFolder("ConcurrentParent", fRootFolderId, FOLDER_TYPE_ID);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        createFolderNoCatch("SameName", parentId, FOLDER_TYPE_ID);
+                        created.incrementAndGet();
+                    } catch (CmisNameConstraintViolationException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(1, created.get());
+        assertEquals(threadCount - 1, rejected.get());
+    }
+
+    @Test
+    public void testUpdatePropertiesWithSameChangeTokenConcurrently() throws Exception {
+        final String id = createDocument("ConcurrentUpdate", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+        final String changeToken = getChangeToken(id);
+        final AtomicInteger updated = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+
+        int threadCount = 8;
+        runConcurrently(threadCount, new Runnable() {
+            public void run() {
+                try {
+                    updateStringProperty(id, changeToken, Thread.currentThread().getName());
+                    updated.incrementAndGet();
+                } catch (CmisUpdateConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        // all threads read the same change token, only the first update wins
+        assertEquals(1, updated.get());
+        assertEquals(threadCount - 1, conflicts.get());
+        assertFalse(changeToken.equals(getChangeToken(id)));
+    }
+
+    @Test
+    public void testNoLostPropertyUpdates() throws Exception {
+        final String id = createDocument("CounterDoc", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+        updateStringProperty(id, getChangeToken(id), "0");
+        final int increments = 25;
+        final AtomicInteger conflicts = new AtomicInteger();
+
+        int threadCount = 8;
+        runConcurrently(threadCount, new Runnable() {
+            public void run() {
+                for (int i = 0; i < increments; i++) {
+                    // read-modify-write, retried if another thread was faster
+                    while (true) {
+                        Properties props = fObjSvc.getProperties(fRepositoryId, id, null, null);
+                        String changeToken = (String) props.getProperties().get(PropertyIds.CHANGE_TOKEN)
+                                .getFirstValue();
+                        int value = Integer.parseInt((String) props.getProperties()
+                                .get(TEST_DOCUMENT_STRING_PROP_ID).getFirstValue());
+                        try {
+                            updateStringProperty(id, changeToken, String.valueOf(value + 1));
+                            break;
+                        } catch (CmisUpdateConflictException e) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        });
+
+        Properties props = fObjSvc.getProperties(fRepositoryId, id, null, null);
+        assertEquals(String.valueOf(threadCount * increments),
+                props.getProperties().get(TEST_DOCUMENT_STRING_PROP_ID).getFirstValue());
+        log.info("Concurrent property updates: " + conflicts.get() + " conflicts.");
+    }
+
+    @Test
+    public void testModificationDateFollowsClock() {
+        String id = createDocument("BurstDoc", fRootFolderId, TEST_DOCUMENT_TYPE_ID, false);
+
+        // a burst of updates within a few milliseconds
+        long lastToken = Long.parseLong(getChangeToken(id));
+        for (int i = 0; i < 200; i++) {
+            updateStringProperty(id, getChangeToken(id), String.valueOf(i));
+
+            long token = Long.parseLong(getChangeToken(id));
+            assertTrue(token > lastToken);
+            lastToken = token;
+        }
+
+        // the change tokens break the ties, the modification date is not
+        // ahead of the clock
+        Properties props = fObjSvc.getProperties(fRepositoryId, id, null, null);
+        GregorianCalendar modified = (GregorianCalendar) props.getProperties()
+                .get(PropertyIds.LAST_MODIFICATION_DATE).getFirstValue();
+        assertTrue(modified.getTimeInMillis() <= System.currentTimeMillis());
+    }
+
+    @Test
+    public void testNoLostContentUpdates() throws Exception {
+        final String id = createDocument("CounterContent", fRootFolderId, DOCUMENT_TYPE_ID, false);
+        setContent(id, getChangeToken(id), "0");
+        final int increments = 25;
+
+        int threadCount = 8;
+        runConcurrently(threadCount, new Runnable() {
+            public void run() {
+                for (int i = 0; i < increments; i++) {
+                    while (true) {
+                        String changeToken = getChangeToken(id);
+                        int value = Integer.parseInt(getContentAsString(id));
+                        try {
+                            setContent(id, changeToken, String.valueOf(value + 1));
+                            break;
+                        } catch (CmisUpdateConflictException e) {
+                            // retry
+                        }
+                    }
+                }
+            }
+        });
+
+        assertEquals(String.valueOf(threadCount * increments), getContentAsString(id));
+    }
+
+    @Test
+    public void testDeleteFolderWhileCreatingChildren() throws Exception {
+        for (int run = 0; run < 20; run++) {
+            final String folderId = createFolder("DeleteWhileCreating" + run, fRootFolderId, FOLDER_TYPE_ID);
+            final AtomicInteger created = new AtomicInteger();
+            final AtomicInteger deleted = new AtomicInteger();
+
+            runConcurrently(4, new Runnable() {
+                public void run() {
+                    String name = Thread.currentThread().getName();
+                    try {
+                        if (name.endsWith("-0")) {
+                            fObjSvc.deleteObject(fRepositoryId, folderId, true, null);
+                            deleted.incrementAndGet();
+                        } else {
+                            createDocumentNoCatch(name, folderId, DOCUMENT_TYPE_ID, VersioningState.NONE, false);
+                            created.incrementAndGet();
+                        }
+                    } catch (CmisConstraintException e) {
+                        // folder not empty
+                    } catch (CmisObjectNotFoundException e) {
+                        // folder already deleted
+                    }
+                }
+            });
+
+            // either the folder was deleted while it was empty or it still
+            // exists with all children, no child is orphaned
+            if (deleted.get() == 1) {
+                assertEquals(0, created.get());
+            } else {
+                ObjectInFolderList children = fNavSvc.getChildren(fRepositoryId, folderId, null, null, false,
+                        IncludeRelationships.NONE, null, false, null, null, null);
+                assertEquals(created.get(), children.getObjects().size());
+            }
+        }
+    }
+
+    private String getChangeToken(String id) {
+        Properties props = fObjSvc.getProperties(fRepositoryId, id, PropertyIds.CHANGE_TOKEN, null);
+        return (String) props.getProperties().get(PropertyIds.CHANGE_TOKEN).getFirstValue();
+    }
+
+    private void updateStringProperty(String id, String changeToken, String value) {
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(fFactory.createPropertyStringData(TEST_DOCUMENT_STRING_PROP_ID, value));
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(id), new Holder<String>(changeToken),
+                fFactory.createPropertiesData(properties), null);
+    }
+
+    private void setContent(String id, String changeToken, String text) {
+        ContentStreamDataImpl content = new ContentStreamDataImpl(0);
+        content.setFileName("counter.txt");
+        content.setMimeType("text/plain");
+        try {
+            content.setContent(new ByteArrayInputStream(text.getBytes(ENCODING_UTF8)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        fObjSvc.setContentStream(fRepositoryId, new Holder<String>(id), true, new Holder<String>(changeToken),
+                content, null);
+    }
+
+    private String getContentAsString(String id) {
+        ContentStream sd = fObjSvc.getContentStream(fRepositoryId, id, null, null, null, null);
+        try {
+            return IOUtils.readAllLines(sd.getStream()).trim();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Run a task in several threads that start at the same time and rethrow
+     * the first failure.
+     */
+    private static void runConcurrently(int threadCount, final Runnable task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        task.run();
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }, "concurrent-" + i);
+            threads.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError("Concurrent task failed: " + failures.get(0));
+        }
+    }
+
     @Test
     public void testCreateDocumentInvalidNames() {
         try {
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryNavigationServiceImpl;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryService;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceContext;
+import org.apache.chemistry.opencmis.inmemory.server.ParallelScanExecutor;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
+import org.apache.chemistry.opencmis.util.repository.ObjectGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that getDescendants and getFolderTree return the same trees when
+ * the sub folders are processed in parallel as a sequential walk with
+ * getChildren.
+ */
+public class ParallelNavigationTest extends AbstractServiceTest {
+
+    private static final int PARALLELISM = 4;
+    private static final int LEVELS = 3;
+    private static final int CHILDREN_PER_LEVEL = 5;
+    private static final int DOCUMENTS_PER_FOLDER = 3;
+
+    @Override
+    @Before
+    public void setUp() {
+        // the shared executor has to pick up the parallelism of this test
+        ParallelScanExecutor.shutdownDefault();
+        super.setUp();
+
+        ObjectGenerator gen = new ObjectGenerator(fFactory, fNavSvc, fObjSvc, fRepSvc, fRepositoryId,
+                ObjectGenerator.ContentKind.STATIC_TEXT);
+        gen.setNumberOfDocumentsToCreatePerFolder(DOCUMENTS_PER_FOLDER);
+        gen.createFolderHierachy(LEVELS, CHILDREN_PER_LEVEL, fRootFolderId);
+    }
+
+    @Override
+    @After
+    public void tearDown() {
+        super.tearDown();
+    }
+
+    @Override
+    protected void addParameters(Map<String, String> parameters) {
+        parameters.put(ConfigConstants.SCAN_PARALLELISM, String.valueOf(PARALLELISM));
+    }
+
+    @Test
+    public void testGetDescendantsMatchesGetChildren() {
+        assertEquals(PARALLELISM, ParallelScanExecutor.getDefault().getParallelism());
+
+        List<String> expected = new ArrayList<String>();
+        walkChildren(fRootFolderId, 0, -1, false, expected);
+        assertTrue(expected.size() > CHILDREN_PER_LEVEL * CHILDREN_PER_LEVEL);
+
+        for (int run = 0; run < 5; run++) {
+            List<String> actual = new ArrayList<String>();
+            flatten(fNavSvc.getDescendants(fRepositoryId, fRootFolderId, BigInteger.valueOf(-1), "*", Boolean.FALSE,
+                    IncludeRelationships.NONE, null, Boolean.TRUE, null), 0, actual);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testGetDescendantsWithDepthMatchesGetChildren() {
+        List<String> expected = new ArrayList<String>();
+        walkChildren(fRootFolderId, 0, 2, false, expected);
+
+        List<String> actual = new ArrayList<String>();
+        flatten(fNavSvc.getDescendants(fRepositoryId, fRootFolderId, BigInteger.valueOf(2), "*", Boolean.FALSE,
+                IncludeRelationships.NONE, null, Boolean.TRUE, null), 0, actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGetFolderTreeMatchesGetChildren() {
+        List<String> expected = new ArrayList<String>();
+        walkChildren(fRootFolderId, 0, -1, true, expected);
+
+        List<String> actual = new ArrayList<String>();
+        flatten(fNavSvc.getFolderTree(fRepositoryId, fRootFolderId, BigInteger.valueOf(-1), "*", Boolean.FALSE,
+                IncludeRelationships.NONE, null, Boolean.TRUE, null), 0, actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testGetDescendantsCollectsObjectInfos() {
+        // the local binding does not hand out the service, use a separate
+        // repository that is accessed directly
+        String repositoryId = "ParallelNavigationInfos";
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(repositoryId, UnitTestTypeSystemCreator.class.getName());
+        String rootFolderId = storeManager.getObjectStore(repositoryId).getRootFolder().getId();
+
+        InMemoryService service = new InMemoryService(storeManager);
+        InMemoryServiceContext.setWrapperService(new CmisServiceWrapper<InMemoryService>(service, BigInteger
+                .valueOf(100), BigInteger.valueOf(-1), BigInteger.valueOf(1000), BigInteger.valueOf(2)));
+        try {
+            DummyCallContext context = new DummyCallContext();
+            service.setCallContext(context);
+            ObjectGenerator gen = new ObjectGenerator(new BindingsObjectFactoryImpl(), service, service, service,
+                    repositoryId, ObjectGenerator.ContentKind.STATIC_TEXT);
+            gen.setNumberOfDocumentsToCreatePerFolder(DOCUMENTS_PER_FOLDER);
+            gen.createFolderHierachy(LEVELS, CHILDREN_PER_LEVEL, rootFolderId);
+
+            InMemoryNavigationServiceImpl navSvc = new InMemoryNavigationServiceImpl(storeManager);
+            RecordingObjectInfoHandler objectInfos = new RecordingObjectInfoHandler();
+            List<ObjectInFolderContainer> tree = navSvc.getDescendants(context, repositoryId, rootFolderId,
+                    BigInteger.valueOf(-1), "*", Boolean.FALSE, IncludeRelationships.NONE, null, Boolean.TRUE, null,
+                    objectInfos);
+
+            Set<String> expected = new HashSet<String>();
+            expected.add(rootFolderId);
+            collectIds(tree, expected);
+            assertTrue(expected.size() > CHILDREN_PER_LEVEL * CHILDREN_PER_LEVEL);
+            assertEquals(expected, objectInfos.ids);
+            assertTrue(objectInfos.calledFromRequestThread);
+        } finally {
+            InMemoryServiceContext.setWrapperService(null);
+        }
+    }
+
+    private static void collectIds(List<ObjectInFolderContainer> containers, Set<String> result) {
+        if (null == containers) {
+            return;
+        }
+        for (ObjectInFolderContainer container : containers) {
+            result.add(container.getObject().getObject().getId());
+            collectIds(container.getChildren(), result);
+        }
+    }
+
+    private void walkChildren(String folderId, int level, int depth, boolean foldersOnly, List<String> result) {
+        ObjectInFolderList children = fNavSvc.getChildren(fRepositoryId, folderId, "*", null, Boolean.FALSE,
+                IncludeRelationships.NONE, null, Boolean.TRUE, null, null, null);
+        for (ObjectInFolderData child : children.getObjects()) {
+            boolean isFolder = isFolder(child);
+            if (foldersOnly && !isFolder) {
+                continue;
+            }
+            result.add(describe(child, level));
+            if (isFolder && (depth < 0 || level + 1 < depth)) {
+                walkChildren(child.getObject().getId(), level + 1, depth, foldersOnly, result);
+            }
+        }
+    }
+
+    private static void flatten(List<ObjectInFolderContainer> containers, int level, List<String> result) {
+        if (null == containers) {
+            return;
+        }
+        for (ObjectInFolderContainer container : containers) {
+            result.add(describe(container.getObject(), level));
+            flatten(container.getChildren(), level + 1, result);
+        }
+    }
+
+    private static boolean isFolder(ObjectInFolderData data) {
+        Object baseTypeId = data.getObject().getProperties().getProperties().get(PropertyIds.BASE_TYPE_ID)
+                .getFirstValue();
+        return BaseTypeId.CMIS_FOLDER.value().equals(baseTypeId);
+    }
+
+    private static String describe(ObjectInFolderData data, int level) {
+        return level + ":" + data.getPathSegment() + ":" + data.getObject().getId() + ":"
+                + data.getObject().getProperties().getProperties().size();
+    }
+
+    /**
+     * Records the ids of the object infos and whether all of them have been
+     * added by the thread that created the handler.
+     */
+    private static class RecordingObjectInfoHandler implements ObjectInfoHandler {
+        private final Thread requestThread = Thread.currentThread();
+        private final Set<String> ids = new HashSet<String>();
+        private boolean calledFromRequestThread = true;
+
+        public ObjectInfo getObjectInfo(String repositoryId, String objectId) {
+            return null;
+        }
+
+        public void addObjectInfo(ObjectInfo objectInfo) {
+            calledFromRequestThread &= Thread.currentThread() == requestThread;
+            ids.add(objectInfo.getId());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryService;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceContext;
+import org.apache.chemistry.opencmis.inmemory.server.ParallelScanExecutor;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelScanExecutorTest {
+
+    private ParallelScanExecutor fExecutor;
+    private List<Integer> fItems;
+
+    @Before
+    public void setUp() {
+        fExecutor = new ParallelScanExecutor(4);
+        fItems = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            fItems.add(i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        fExecutor.shutdown();
+    }
+
+    @Test
+    public void testScanKeepsOrder() {
+        List<Integer> even = fExecutor.scan(fItems, 100, new ParallelScanExecutor.Processor<Integer, Integer>() {
+            public void process(Integer item, List<Integer> results) {
+                if (item % 2 == 0) {
+                    results.add(item);
+                }
+            }
+        });
+        assertEquals(5000, even.size());
+        for (int i = 0; i < even.size(); i++) {
+            assertEquals(Integer.valueOf(2 * i), even.get(i));
+        }
+    }
+
+    @Test
+    public void testScanPropagatesExceptions() {
+        try {
+            fExecutor.scan(fItems, 100, new ParallelScanExecutor.Processor<Integer, Integer>() {
+                public void process(Integer item, List<Integer> results) {
+                    if (item == 9999) {
+                        throw new CmisInvalidArgumentException("Invalid item");
+                    }
+                }
+            });
+            fail("Exception of a partition should be thrown by scan()");
+        } catch (CmisInvalidArgumentException e) {
+            assertEquals("Invalid item", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNestedScanRunsSequentially() {
+        final List<Integer> outer = fItems.subList(0, 8);
+        final Set<String> nestedThreads = Collections.synchronizedSet(new HashSet<String>());
+
+        List<Integer> sums = fExecutor.scan(outer, 1, new ParallelScanExecutor.Processor<Integer, Integer>() {
+            public void process(Integer item, List<Integer> results) {
+                final String thread = Thread.currentThread().getName();
+                List<Integer> inner = fExecutor.scan(fItems.subList(0, 1000), 1,
+                        new ParallelScanExecutor.Processor<Integer, Integer>() {
+                            public void process(Integer innerItem, List<Integer> innerResults) {
+                                if (!thread.equals(Thread.currentThread().getName())) {
+                                    nestedThreads.add(Thread.currentThread().getName());
+                                }
+                                innerResults.add(innerItem);
+                            }
+                        });
+                int sum = 0;
+                for (int i = 0; i < inner.size(); i++) {
+                    assertEquals(Integer.valueOf(i), inner.get(i));
+                    sum += inner.get(i);
+                }
+                results.add(item + sum);
+            }
+        });
+
+        assertEquals(outer.size(), sums.size());
+        for (int i = 0; i < outer.size(); i++) {
+            assertEquals(Integer.valueOf(i + 499500), sums.get(i));
+        }
+        assertTrue("Nested scans must run on the thread of the partition: " + nestedThreads, nestedThreads.isEmpty());
+    }
+
+    @Test
+    public void testCallContextPassedToWorkers() {
+        CallContext context = new DummyCallContext("Worker");
+        InMemoryServiceContext.setWrapperService(new CmisServiceWrapper<InMemoryService>(new InMemoryService(
+                new StoreManagerImpl()), BigInteger.TEN, BigInteger.ONE, BigInteger.TEN, BigInteger.ONE));
+        try {
+            InMemoryServiceContext.setCallContext(context);
+
+            final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+            List<CallContext> contexts = fExecutor.scan(fItems, 100,
+                    new ParallelScanExecutor.Processor<Integer, CallContext>() {
+                        public void process(Integer item, List<CallContext> results) {
+                            threads.add(Thread.currentThread().getName());
+                            results.add(InMemoryServiceContext.getCallContext());
+                        }
+                    });
+
+            assertEquals(fItems.size(), contexts.size());
+            for (CallContext workerContext : contexts) {
+                assertSame(context, workerContext);
+            }
+            assertTrue("Scan should use more than one thread: " + threads, threads.size() > 1);
+            assertSame(context, InMemoryServiceContext.getCallContext());
+        } finally {
+            InMemoryServiceContext.setWrapperService(null);
+        }
+
+        // workers must not keep the context of a finished call
+        List<CallContext> contexts = fExecutor.scan(fItems, 100,
+                new ParallelScanExecutor.Processor<Integer, CallContext>() {
+                    public void process(Integer item, List<CallContext> results) {
+                        results.add(InMemoryServiceContext.getCallContext());
+                    }
+                });
+        for (CallContext workerContext : contexts) {
+            assertNull(workerContext);
+        }
+    }
+}
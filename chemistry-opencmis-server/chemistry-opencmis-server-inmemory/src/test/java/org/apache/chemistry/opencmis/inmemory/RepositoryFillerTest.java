@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryService;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceContext;
+import org.apache.chemistry.opencmis.inmemory.server.ParallelScanExecutor;
+import org.apache.chemistry.opencmis.inmemory.server.RepositoryFiller;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RepositoryFillerTest extends AbstractServiceTest {
+
+    @Override
+    @Before
+    public void setUp() {
+        // the shared executor has to pick up the parallelism of this test
+        ParallelScanExecutor.shutdownDefault();
+        super.setUp();
+    }
+
+    @Override
+    @After
+    public void tearDown() {
+        super.tearDown();
+    }
+
+    @Override
+    protected void addParameters(Map<String, String> parameters) {
+        parameters.put(ConfigConstants.USE_REPOSITORY_FILER, "true");
+        parameters.put(ConfigConstants.FILLER_DEPTH, "2");
+        parameters.put(ConfigConstants.FILLER_FOLDERS_PER_FOLDER, "3");
+        parameters.put(ConfigConstants.FILLER_DOCS_PER_FOLDER, "2");
+        parameters.put(ConfigConstants.FILLER_CONTENT_SIZE, "1");
+        parameters.put(ConfigConstants.CONTENT_KIND, "static/text");
+        parameters.put(ConfigConstants.SCAN_PARALLELISM, "4");
+    }
+
+    @Test
+    public void testFillRepository() {
+        List<String> folderIds = new ArrayList<String>();
+        List<String> docIds = new ArrayList<String>();
+        getChildren(fRootFolderId, folderIds, docIds);
+        assertEquals(3, folderIds.size());
+        assertEquals(2, docIds.size());
+        assertNotNull(getObjectByPath("/My_Folder-0-2"));
+        assertNotNull(getObjectByPath("/My_Document-0-1"));
+
+        for (String folderId : folderIds) {
+            List<String> subFolderIds = new ArrayList<String>();
+            List<String> subDocIds = new ArrayList<String>();
+            getChildren(folderId, subFolderIds, subDocIds);
+            assertEquals(3, subFolderIds.size());
+            assertEquals(2, subDocIds.size());
+            for (String subFolderId : subFolderIds) {
+                List<String> leafFolderIds = new ArrayList<String>();
+                List<String> leafDocIds = new ArrayList<String>();
+                getChildren(subFolderId, leafFolderIds, leafDocIds);
+                assertTrue(leafFolderIds.isEmpty());
+                assertTrue(leafDocIds.isEmpty());
+            }
+        }
+        assertNotNull(getObjectByPath("/My_Folder-0-1/My_Folder-1-2"));
+        assertNotNull(getObjectByPath("/My_Folder-0-1/My_Document-1-0"));
+
+        ContentStream content = fObjSvc.getContentStream(fRepositoryId, docIds.get(0), null, null, null, null);
+        assertNotNull(content);
+        assertEquals(1024, content.getLength());
+    }
+
+    @Test
+    public void testIdsFollowSequentialOrder() {
+        // a sequential fill creates the folders of a level, then their sub
+        // trees and then the documents, the parallel fill must assign the
+        // same ids
+        List<String> ids = new ArrayList<String>();
+        collectIdsInCreationOrder("", 0, ids);
+        assertEquals(3 + 3 * (3 + 2) + 2, ids.size());
+        int firstId = Integer.parseInt(ids.get(0));
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(String.valueOf(firstId + i), ids.get(i));
+        }
+    }
+
+    @Test
+    public void testFillVersionedDocuments() {
+        String repositoryId = "VersionedFillerRepository";
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(repositoryId, VersionTestTypeSystemCreator.class.getName());
+        InMemoryService service = new InMemoryService(storeManager);
+        InMemoryServiceContext.setWrapperService(new CmisServiceWrapper<InMemoryService>(service, BigInteger
+                .valueOf(100), BigInteger.valueOf(-1), BigInteger.valueOf(1000), BigInteger.valueOf(2)));
+        try {
+            service.setCallContext(new DummyCallContext());
+            RepositoryFiller filler = new RepositoryFiller(storeManager, repositoryId, "TestUser");
+            filler.setLevels(2);
+            filler.setFoldersPerFolder(3);
+            filler.setDocumentsPerFolder(2);
+            filler.setDocumentTypeId(VersionTestTypeSystemCreator.VERSION_TEST_DOCUMENT_TYPE_ID);
+            filler.fill();
+            assertEquals(3 + 3 * 3, filler.getFoldersInTotal());
+            assertEquals(2 + 3 * 2, filler.getDocumentsInTotal());
+        } finally {
+            InMemoryServiceContext.setWrapperService(null);
+        }
+
+        // version series and version take two consecutive ids, the root
+        // documents are created last
+        ObjectStore objStore = storeManager.getObjectStore(repositoryId);
+        DocumentVersion version = (DocumentVersion) objStore.getObjectByPath("/My_Document-0-1", "TestUser");
+        VersionedDocument doc = version.getParentDocument();
+        List<DocumentVersion> versions = doc.getAllVersions();
+        assertEquals(1, versions.size());
+        assertEquals(version, versions.get(0));
+        assertEquals(String.valueOf(Integer.parseInt(doc.getId()) + 1), version.getId());
+        assertEquals(version, objStore.getObjectById(version.getId()));
+        String lastFolderId = objStore.getObjectByPath("/My_Folder-0-2/My_Folder-1-2", "TestUser").getId();
+        assertTrue(Integer.parseInt(lastFolderId) < Integer.parseInt(doc.getId()));
+    }
+
+    private void collectIdsInCreationOrder(String path, int level, List<String> ids) {
+        if (level >= 2) {
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            ids.add(getObjectByPath(path + "/My_Folder-" + level + "-" + i).getId());
+        }
+        for (int i = 0; i < 3; i++) {
+            collectIdsInCreationOrder(path + "/My_Folder-" + level + "-" + i, level + 1, ids);
+        }
+        for (int i = 0; i < 2; i++) {
+            ids.add(getObjectByPath(path + "/My_Document-" + level + "-" + i).getId());
+        }
+    }
+
+    private ObjectData getObjectByPath(String path) {
+        return fObjSvc.getObjectByPath(fRepositoryId, path, null, false, IncludeRelationships.NONE, null, false,
+                false, null);
+    }
+
+    private void getChildren(String folderId, List<String> folderIds, List<String> docIds) {
+        ObjectInFolderList children = fNavSvc.getChildren(fRepositoryId, folderId, "*", null, false, null, null,
+                false, null, null, null);
+        for (ObjectInFolderData child : children.getObjects()) {
+            ObjectData object = child.getObject();
+            String typeId = (String) object.getProperties().getProperties().get(PropertyIds.BASE_TYPE_ID)
+                    .getFirstValue();
+            if (BaseTypeId.CMIS_FOLDER.value().equals(typeId)) {
+                folderIds.add(object.getId());
+            } else {
+                docIds.add(object.getId());
+            }
+        }
+    }
+}
@@ -31,18 +31,25 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.Properties;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
 import org.apache.chemistry.opencmis.inmemory.AbstractServiceTest;
 import org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -1010,6 +1017,125 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testContainsAndScore.");
     }
 
+    @Test
+    public void testContainsScoreRanking() {
+        log.debug("Start testContainsScoreRanking...");
+        String statement = "SELECT cmis:name,SCORE() FROM " + COMPLEX_TYPE
+                + " WHERE CONTAINS('cat OR dog') ORDER BY SEARCH_SCORE DESC";
+        ObjectList res = doQuery(statement);
+        assertEquals(4, res.getObjects().size());
+        // delta contains both words, dog is less frequent than cat
+        assertTrue(resultContainsAtPos("delta", 0, res));
+        assertTrue(resultContainsAtPos("gamma", 1, res));
+        BigDecimal best = (BigDecimal) res.getObjects().get(0).getProperties().getProperties().get("SEARCH_SCORE")
+                .getFirstValue();
+        BigDecimal last = (BigDecimal) res.getObjects().get(3).getProperties().getProperties().get("SEARCH_SCORE")
+                .getFirstValue();
+        assertEquals(1.0, best.doubleValue(), 0.0);
+        assertTrue(last.doubleValue() < 1.0);
+        log.debug("...Stop testContainsScoreRanking.");
+    }
+
+    @Test
+    public void testContainsMatchesWholeWordsOnly() {
+        log.debug("Start testContainsMatchesWholeWordsOnly...");
+        // parts of words in the content do not match
+        ObjectList res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('pet')");
+        assertEquals(0, res.getObjects().size());
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('att')");
+        assertEquals(0, res.getObjects().size());
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('pets')");
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("epsilon", res));
+
+        // punctuation separates words and is not part of the search term
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('cat.')");
+        assertEquals(3, res.getObjects().size());
+        assertTrue(resultContains("alpha", res));
+        assertTrue(resultContains("beta", res));
+        assertTrue(resultContains("delta", res));
+        log.debug("...Stop testContainsMatchesWholeWordsOnly.");
+    }
+
+    @Test
+    public void testContainsSearchesNameAndProperties() {
+        log.debug("Start testContainsSearchesNameAndProperties...");
+        ObjectList res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('gamma')");
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("gamma", res));
+        log.debug("...Stop testContainsSearchesNameAndProperties.");
+    }
+
+    @Test
+    public void testContainsIgnoresCase() {
+        log.debug("Start testContainsIgnoresCase...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('KITTY')";
+        ObjectList res = doQuery(statement);
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("beta", res));
+        log.debug("...Stop testContainsIgnoresCase.");
+    }
+
+    @Test
+    public void testContainsAndProperty() {
+        log.debug("Start testContainsAndProperty...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('cat') AND " + PROP_ID_INT + " > -75";
+        ObjectList res = doQuery(statement);
+        assertEquals(2, res.getObjects().size());
+        assertTrue(resultContains("beta", res));
+        assertTrue(resultContains("delta", res));
+        log.debug("...Stop testContainsAndProperty.");
+    }
+
+    @Test
+    public void testContainsOrProperty() {
+        log.debug("Start testContainsOrProperty...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('dog') OR cmis:name = 'alpha'";
+        ObjectList res = doQuery(statement);
+        assertEquals(3, res.getObjects().size());
+        assertTrue(resultContains("alpha", res));
+        assertTrue(resultContains("gamma", res));
+        assertTrue(resultContains("delta", res));
+
+        statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE NOT (CONTAINS('cat') AND " + PROP_ID_INT + " < 0)";
+        res = doQuery(statement);
+        assertEquals(3, res.getObjects().size());
+        assertTrue(resultContains("gamma", res));
+        assertTrue(resultContains("delta", res));
+        assertTrue(resultContains("epsilon", res));
+        log.debug("...Stop testContainsOrProperty.");
+    }
+
+    @Test
+    public void testContainsAfterUpdate() throws IOException {
+        log.debug("Start testContainsAfterUpdate...");
+        String id = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE cmis:name = 'alpha'").getObjects().get(0)
+                .getId();
+
+        // property updates keep the content indexed
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(fFactory.createPropertyStringData(PropertyIds.NAME, "parrot"));
+        Properties props = fFactory.createPropertiesData(properties);
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(id), null, props, null);
+        ObjectList res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('cat parrot')");
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("parrot", res));
+
+        // new content replaces the words of the old content
+        ContentStreamDataImpl content = new ContentStreamDataImpl(-1);
+        content.setFileName("data.txt");
+        content.setMimeType("text/plain");
+        content.setContent(new ByteArrayInputStream("I have a bird.".getBytes("UTF-8")));
+        fObjSvc.setContentStream(fRepositoryId, new Holder<String>(id), true, null, content, null);
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('cat')");
+        assertEquals(2, res.getObjects().size());
+        assertFalse(resultContains("parrot", res));
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE CONTAINS('bird')");
+        assertEquals(1, res.getObjects().size());
+        assertTrue(resultContains("parrot", res));
+        log.debug("...Stop testContainsAfterUpdate.");
+    }
+
     @Test
     public void testNotSetProperties() {
         log.debug("Start testNotSetProperties...");
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.COMPLEX_TYPE;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_BOOLEAN;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_INT;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_STRING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
+import org.apache.chemistry.opencmis.inmemory.DummyCallContext;
+import org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryService;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceContext;
+import org.apache.chemistry.opencmis.inmemory.server.ParallelScanExecutor;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that queries return the same results when the repository is scanned
+ * in parallel partitions as with a sequential scan.
+ */
+public class ParallelQueryTest {
+
+    private static final String REPOSITORY_ID = "ParallelQueryRepository";
+    private static final String USER = "Admin";
+    private static final int NUM_DOCUMENTS = 3 * ParallelScanExecutor.DEFAULT_MIN_PARTITION_SIZE + 17;
+
+    private ObjectStoreImpl fObjStore;
+    private TypeManager fTypeManager;
+    private ParallelScanExecutor fSequential;
+    private ParallelScanExecutor fParallel;
+
+    @Before
+    public void setUp() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(ConfigConstants.REPOSITORY_ID, REPOSITORY_ID);
+        parameters.put(ConfigConstants.TYPE_CREATOR_CLASS, UnitTestTypeSystemCreator.class.getName());
+        ConfigurationSettings.init(parameters);
+
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(REPOSITORY_ID, UnitTestTypeSystemCreator.class.getName());
+        fObjStore = storeManager.getStore(REPOSITORY_ID);
+        fTypeManager = storeManager.getTypeManager(REPOSITORY_ID);
+
+        InMemoryService service = new InMemoryService(storeManager);
+        InMemoryServiceContext.setWrapperService(new CmisServiceWrapper<InMemoryService>(service, BigInteger
+                .valueOf(100), BigInteger.valueOf(-1), BigInteger.valueOf(1000), BigInteger.valueOf(2)));
+        service.setCallContext(new DummyCallContext(USER));
+
+        BindingsObjectFactory objFactory = new BindingsObjectFactoryImpl();
+        Folder folder = fObjStore.getRootFolder();
+        List<Map<String, PropertyData<?>>> propMaps = new ArrayList<Map<String, PropertyData<?>>>();
+        for (int i = 0; i < NUM_DOCUMENTS; i++) {
+            Map<String, PropertyData<?>> props = new HashMap<String, PropertyData<?>>();
+            props.put(PropertyIds.NAME, objFactory.createPropertyStringData(PropertyIds.NAME, "doc-" + i));
+            props.put(PropertyIds.OBJECT_TYPE_ID,
+                    objFactory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, COMPLEX_TYPE));
+            props.put(PROP_ID_STRING, objFactory.createPropertyStringData(PROP_ID_STRING, "value-" + (i % 10)));
+            props.put(PROP_ID_INT, objFactory.createPropertyIntegerData(PROP_ID_INT, BigInteger.valueOf(i % 100)));
+            props.put(PROP_ID_BOOLEAN, objFactory.createPropertyBooleanData(PROP_ID_BOOLEAN, i % 2 == 0));
+            propMaps.add(props);
+        }
+        fObjStore.createDocuments(folder, propMaps, null, USER, null);
+
+        fSequential = new ParallelScanExecutor(1);
+        fParallel = new ParallelScanExecutor(4);
+    }
+
+    @After
+    public void tearDown() {
+        fSequential.shutdown();
+        fParallel.shutdown();
+        InMemoryServiceContext.setWrapperService(null);
+    }
+
+    @Test
+    public void testFullScan() {
+        List<String> ids = assertSameResults("SELECT * FROM " + COMPLEX_TYPE, null, null);
+        assertEquals(NUM_DOCUMENTS, ids.size());
+    }
+
+    @Test
+    public void testWhereClause() {
+        List<String> ids = assertSameResults("SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PROP_ID_INT
+                + " < 10 AND " + PROP_ID_BOOLEAN + " = true", null, null);
+        assertTrue(ids.size() > 0);
+    }
+
+    @Test
+    public void testOrderByAndPaging() {
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PROP_ID_STRING + " LIKE 'value-1%' ORDER BY "
+                + PropertyIds.NAME + " DESC";
+        assertSameResults(statement, null, null);
+        List<String> page = assertSameResults(statement, BigInteger.valueOf(50), BigInteger.valueOf(1000));
+        assertEquals(50, page.size());
+    }
+
+    @Test
+    public void testNoMatches() {
+        List<String> ids = assertSameResults("SELECT * FROM " + COMPLEX_TYPE + " WHERE " + PROP_ID_INT + " > 1000",
+                null, null);
+        assertEquals(0, ids.size());
+    }
+
+    private List<String> assertSameResults(String statement, BigInteger maxItems, BigInteger skipCount) {
+        ObjectList expected = query(fSequential, statement, maxItems, skipCount);
+        ObjectList actual = query(fParallel, statement, maxItems, skipCount);
+
+        assertEquals(expected.getNumItems(), actual.getNumItems());
+        assertEquals(expected.hasMoreItems(), actual.hasMoreItems());
+        List<String> expectedIds = getIds(expected);
+        assertEquals(expectedIds, getIds(actual));
+        return expectedIds;
+    }
+
+    private ObjectList query(ParallelScanExecutor executor, String statement, BigInteger maxItems,
+            BigInteger skipCount) {
+        return new InMemoryQueryProcessor(fObjStore, executor).query(fTypeManager, fObjStore, USER, REPOSITORY_ID,
+                statement, false, false, IncludeRelationships.NONE, null, maxItems, skipCount);
+    }
+
+    private static List<String> getIds(ObjectList objList) {
+        List<String> ids = new ArrayList<String>();
+        for (ObjectData od : objList.getObjects()) {
+            ids.add(od.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.BindingsObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.spi.BindingsObjectFactory;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
+import org.apache.chemistry.opencmis.inmemory.DummyCallContext;
+import org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryService;
+import org.apache.chemistry.opencmis.inmemory.server.InMemoryServiceContext;
+import org.apache.chemistry.opencmis.inmemory.server.ParallelScanExecutor;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
+import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
+import org.apache.chemistry.opencmis.server.support.TypeManager;
+
+/**
+ * Measures full scan queries on a large repository with an increasing number
+ * of threads. This is not a unit test, run it manually:
+ * 
+ * <pre>
+ * QueryScanBenchmark [number of objects] [max. number of threads]
+ * </pre>
+ * 
+ * The defaults are 1000000 objects and the number of available processors.
+ */
+public final class QueryScanBenchmark {
+
+    private static final String REPOSITORY_ID = "BenchmarkRepository";
+    private static final String USER = "Admin";
+    private static final int RUNS = 5;
+
+    private QueryScanBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(ConfigConstants.REPOSITORY_ID, REPOSITORY_ID);
+        parameters.put(ConfigConstants.TYPE_CREATOR_CLASS, UnitTestTypeSystemCreator.class.getName());
+        ConfigurationSettings.init(parameters);
+
+        StoreManagerImpl storeManager = new StoreManagerImpl();
+        storeManager.createAndInitRepository(REPOSITORY_ID, UnitTestTypeSystemCreator.class.getName());
+        ObjectStoreImpl objStore = storeManager.getStore(REPOSITORY_ID);
+        TypeManager tm = storeManager.getTypeManager(REPOSITORY_ID);
+
+        InMemoryService service = new InMemoryService(storeManager);
+        InMemoryServiceContext.setWrapperService(new CmisServiceWrapper<InMemoryService>(service, BigInteger
+                .valueOf(100), BigInteger.valueOf(-1), BigInteger.valueOf(1000), BigInteger.valueOf(2)));
+        service.setCallContext(new DummyCallContext(USER));
+
+        System.out.println("Creating " + objectCount + " documents...");
+        BindingsObjectFactory objFactory = new BindingsObjectFactoryImpl();
+        for (int i = 0; i < objectCount; i++) {
+            Map<String, PropertyData<?>> props = new HashMap<String, PropertyData<?>>();
+            props.put(PropertyIds.NAME, objFactory.createPropertyStringData(PropertyIds.NAME, "doc-" + i));
+            props.put(PropertyIds.OBJECT_TYPE_ID,
+                    objFactory.createPropertyIdData(PropertyIds.OBJECT_TYPE_ID, "cmis:document"));
+            // unfiled, to avoid the name check in a single huge folder
+            objStore.createDocument(props, USER, null, null, null, null, null);
+        }
+
+        String statement = "SELECT * FROM cmis:document WHERE cmis:name LIKE 'doc-1%' ORDER BY cmis:name";
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ParallelScanExecutor executor = new ParallelScanExecutor(threads);
+            try {
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    new InMemoryQueryProcessor(objStore, executor).query(tm, objStore, USER, REPOSITORY_ID,
+                            statement, false, false, IncludeRelationships.NONE, null, BigInteger.TEN, null);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.println(threads + " thread(s): " + (best / 1000000) + " ms");
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -36,11 +36,13 @@ import java.util.Scanner;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
 import javax.servlet.ServletException;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
@@ -401,6 +403,21 @@ public class LoggingFilter implements Filter {
             return ch;
         }
 
+        @Override
+        public boolean isFinished() {
+            return is.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return is.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            is.setReadListener(readListener);
+        }
+
         public String getPayload() {
             try {
                 return baous.toString(IOUtils.UTF8);
@@ -617,5 +634,15 @@ public class LoggingFilter implements Filter {
             baous.write(ch);
             os.write(ch);
         }
+
+        @Override
+        public boolean isReady() {
+            return os.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            os.setWriteListener(writeListener);
+        }
     }
 }
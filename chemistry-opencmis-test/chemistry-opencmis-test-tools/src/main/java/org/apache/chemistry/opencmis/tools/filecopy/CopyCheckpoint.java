@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.tools.filecopy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Checkpoint file of a {@link ParallelFileCopier} run.
+ * <p>
+ * Each created folder and document is appended as one line
+ * <code>&lt;F|D&gt; TAB &lt;object id&gt; TAB &lt;local path&gt;</code>. When
+ * a copy is restarted with the same checkpoint file, the recorded entries are
+ * loaded and the copier skips them. A document that has been created but not
+ * yet recorded when the copy was interrupted is created again on resume.
+ */
+public class CopyCheckpoint implements Closeable {
+
+    private static final char FOLDER = 'F';
+    private static final char DOCUMENT = 'D';
+
+    private final Map<String, String> folders = new HashMap<String, String>();
+    private final Set<String> documents = new HashSet<String>();
+    private final Writer writer;
+
+    public CopyCheckpoint(File file) throws IOException {
+        boolean truncated = false;
+        if (file.exists()) {
+            load(file);
+            truncated = !endsWithNewLine(file);
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), IOUtils.UTF8));
+        if (truncated) {
+            // don't append to the incomplete line of an interrupted run
+            writer.write('\n');
+            writer.flush();
+        }
+    }
+
+    private static boolean endsWithNewLine(File file) throws IOException {
+        if (file.length() == 0) {
+            return true;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(file.length() - 1);
+            return raf.read() == '\n';
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    private void load(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), IOUtils.UTF8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int idEnd = line.indexOf('\t', 2);
+                if (line.length() < 2 || line.charAt(1) != '\t' || idEnd < 0) {
+                    // incomplete line of an interrupted run
+                    continue;
+                }
+
+                String id = line.substring(2, idEnd);
+                String path = line.substring(idEnd + 1);
+                if (line.charAt(0) == FOLDER) {
+                    folders.put(path, id);
+                } else if (line.charAt(0) == DOCUMENT) {
+                    documents.add(path);
+                }
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Returns the id of a folder created by a previous run or
+     * <code>null</code> if the directory hasn't been copied yet.
+     */
+    public String getFolderId(String path) {
+        return folders.get(path);
+    }
+
+    /**
+     * Returns whether a file has been copied by a previous run.
+     */
+    public boolean isDocumentCreated(String path) {
+        return documents.contains(path);
+    }
+
+    /**
+     * Returns the number of entries loaded from a previous run.
+     */
+    public int getLoadedEntries() {
+        return folders.size() + documents.size();
+    }
+
+    /**
+     * Records a created folder.
+     */
+    public void folderCreated(String path, String id) throws IOException {
+        append(FOLDER, path, id);
+    }
+
+    /**
+     * Records a created document.
+     */
+    public void documentCreated(String path, String id) throws IOException {
+        append(DOCUMENT, path, id);
+    }
+
+    private synchronized void append(char kind, String path, String id) throws IOException {
+        writer.write(kind);
+        writer.write('\t');
+        writer.write(id);
+        writer.write('\t');
+        writer.write(path);
+        writer.write('\n');
+        writer.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
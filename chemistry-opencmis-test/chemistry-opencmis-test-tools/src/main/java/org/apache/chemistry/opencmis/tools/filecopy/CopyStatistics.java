@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.tools.filecopy;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput, latency and error counters of a {@link ParallelFileCopier} run.
+ * All counters can be updated and read concurrently.
+ */
+public class CopyStatistics {
+
+    private final long startTime = System.nanoTime();
+
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong folders = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong extractions = new AtomicLong();
+    private final AtomicLong extractionTime = new AtomicLong();
+    private final AtomicLong uploadTime = new AtomicLong();
+
+    void documentCreated(long length, long nanos) {
+        documents.incrementAndGet();
+        bytes.addAndGet(length);
+        uploadTime.addAndGet(nanos);
+    }
+
+    void folderCreated() {
+        folders.incrementAndGet();
+    }
+
+    void metadataExtracted(long nanos) {
+        extractions.incrementAndGet();
+        extractionTime.addAndGet(nanos);
+    }
+
+    void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    void failed() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of documents created.
+     */
+    public long getDocumentsCreated() {
+        return documents.get();
+    }
+
+    /**
+     * Returns the number of folders created.
+     */
+    public long getFoldersCreated() {
+        return folders.get();
+    }
+
+    /**
+     * Returns the number of content bytes uploaded.
+     */
+    public long getBytesUploaded() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the number of files and directories skipped because the
+     * checkpoint shows they have been copied by a previous run.
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * Returns the number of files and directories that could not be copied.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the time since the copy started in milliseconds.
+     */
+    public long getElapsedTime() {
+        return (System.nanoTime() - startTime) / 1000000;
+    }
+
+    /**
+     * Returns the average time of a metadata extraction in milliseconds.
+     */
+    public double getAverageExtractionTime() {
+        long count = extractions.get();
+        return count == 0 ? 0 : extractionTime.get() / 1000000.0 / count;
+    }
+
+    /**
+     * Returns the average time of a document upload in milliseconds.
+     */
+    public double getAverageUploadTime() {
+        long count = documents.get();
+        return count == 0 ? 0 : uploadTime.get() / 1000000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        long elapsed = Math.max(1, getElapsedTime());
+        long docs = getDocumentsCreated();
+        double mb = getBytesUploaded() / (1024.0 * 1024.0);
+
+        return String.format("%d documents (%.1f/s), %d folders, %.1f MB (%.2f MB/s), %d skipped, %d errors, "
+                + "avg. extraction %.1f ms, avg. upload %.1f ms, elapsed %d s", docs, docs * 1000.0 / elapsed,
+                getFoldersCreated(), mb, mb * 1000.0 / elapsed, getSkipped(), getErrors(),
+                getAverageExtractionTime(), getAverageUploadTime(), elapsed / 1000);
+    }
+}
@@ -86,10 +86,34 @@ public class FileCopier {
         }
     }
 
+    /**
+     * Copies a local file or directory tree to the repository with separate
+     * pools for metadata extraction and uploads. If a checkpoint file is
+     * given, files and folders recorded in it are skipped, so that an
+     * interrupted copy can be resumed.
+     * 
+     * @param folderName
+     *            local file or directory to copy
+     * @param folderId
+     *            id of the target folder or <code>null</code> for the root
+     *            folder
+     * @param extractorThreads
+     *            number of threads extracting metadata
+     * @param uploadThreads
+     *            number of threads creating objects in the repository
+     * @param checkpointFile
+     *            checkpoint file or <code>null</code>
+     * @return the statistics of the copy
+     */
+    public CopyStatistics copyRecursiveParallel(String folderName, String folderId, int extractorThreads,
+            int uploadThreads, File checkpointFile) throws IOException {
+        ParallelFileCopier copier = new ParallelFileCopier(session, extractorThreads, uploadThreads, checkpointFile);
+        return copier.copyRecursive(folderName, folderId);
+    }
+
     private String copyFileToRepository(String fileName, String folderId) {
         LOG.debug("uploading file " + fileName);
         FileInputStream is = null;
-        Map<String, Object> properties = new HashMap<String, Object>();
         Folder parentFolder;
         String id = null;
 
@@ -101,51 +125,14 @@ public class FileCopier {
 
         try {
             File f = new File(fileName);
-            Tika tika = new Tika();
-            String mimeType = tika.detect(f);
-            LOG.info("Detected MIME type: " + mimeType);
-
-            // extract metadata: first get a parser
-            MetadataParser parser = CFG.getParser(mimeType);
-            if (null == parser) {
-                properties.put(PropertyIds.NAME, f.getName().replaceAll(" ", "_"));
-                properties.put(PropertyIds.OBJECT_TYPE_ID, CFG.getDefaultDocumentType());
-            } else {
-                parser.reset();
-                PropertyMapper mapper = CFG.getPropertyMapper(mimeType);
-                if (null == mapper) {
-                    throw new MapperException("Unknown mime type (no configuration): " + mimeType);
-                }
-                String typeId = mapper.getMappedTypeId();
-                if (null == typeId) {
-                    throw new MapperException("No CMIS type configured for mime type" + mimeType);
-                }
-                TypeDefinition td = session.getTypeDefinition(typeId);
-                if (null == td) {
-                    throw new MapperException("CMIS type " + typeId + " does not exist on server.");
-                }
-
-                LOG.info("Detected MIME type: " + mimeType + " is mapped to CMIS type id: " + td.getId());
-                parser.extractMetadata(f, td, session);
-                properties = parser.getCmisProperties();
-            }
-
-            // check if there is an overridden content type configured
-            int posLastDot = f.getName().indexOf('.');
-            String ext = posLastDot < 0 ? null : f.getName().substring(posLastDot + 1, f.getName().length());
-            String overridden = null;
-            if (null != ext && (overridden = CFG.getContentType(ext)) != null) {
-                mimeType = overridden;
-            }
+            FileMetadata metadata = extractMetadata(f, CFG, new Tika(), session);
+            Map<String, Object> properties = metadata.getProperties();
             long length = f.length();
 
             is = new FileInputStream(fileName);
 
-            ContentStream contentStream = session.getObjectFactory()
-                    .createContentStream(fileName, length, mimeType, is);
-            if (!properties.containsKey(PropertyIds.NAME)) {
-                properties.put(PropertyIds.NAME, f.getName().replaceAll(" ", "_"));
-            }
+            ContentStream contentStream = session.getObjectFactory().createContentStream(fileName, length,
+                    metadata.getMimeType(), is);
             LOG.debug("uploading document with content lenth: " + contentStream.getLength());
             Document doc = parentFolder.createDocument(properties, contentStream, VersioningState.NONE);
             is.close();
@@ -171,6 +158,66 @@ public class FileCopier {
         return id;
     }
 
+    /**
+     * Detects the MIME type of a file and extracts the CMIS properties of the
+     * new document from the file metadata.
+     * 
+     * @param f
+     *            file to parse
+     * @param cfg
+     *            configurator providing parsers and property mappings, must
+     *            not be used by other threads at the same time
+     * @param tika
+     *            Tika instance used to detect the MIME type
+     * @param session
+     *            session used to look up type definitions
+     * @return the MIME type and the CMIS properties of the file
+     */
+    static FileMetadata extractMetadata(File f, Configurator cfg, Tika tika, Session session) throws IOException {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        String mimeType = tika.detect(f);
+        LOG.info("Detected MIME type: " + mimeType);
+
+        // extract metadata: first get a parser
+        MetadataParser parser = cfg.getParser(mimeType);
+        if (null == parser) {
+            properties.put(PropertyIds.NAME, f.getName().replaceAll(" ", "_"));
+            properties.put(PropertyIds.OBJECT_TYPE_ID, cfg.getDefaultDocumentType());
+        } else {
+            parser.reset();
+            PropertyMapper mapper = cfg.getPropertyMapper(mimeType);
+            if (null == mapper) {
+                throw new MapperException("Unknown mime type (no configuration): " + mimeType);
+            }
+            String typeId = mapper.getMappedTypeId();
+            if (null == typeId) {
+                throw new MapperException("No CMIS type configured for mime type" + mimeType);
+            }
+            TypeDefinition td = session.getTypeDefinition(typeId);
+            if (null == td) {
+                throw new MapperException("CMIS type " + typeId + " does not exist on server.");
+            }
+
+            LOG.info("Detected MIME type: " + mimeType + " is mapped to CMIS type id: " + td.getId());
+            parser.extractMetadata(f, td, session);
+            properties.putAll(parser.getCmisProperties());
+        }
+
+        // check if there is an overridden content type configured
+        int posLastDot = f.getName().indexOf('.');
+        String ext = posLastDot < 0 ? null : f.getName().substring(posLastDot + 1, f.getName().length());
+        String overridden = null;
+        if (null != ext && (overridden = cfg.getContentType(ext)) != null) {
+            mimeType = overridden;
+        }
+
+        if (!properties.containsKey(PropertyIds.NAME)) {
+            properties.put(PropertyIds.NAME, f.getName().replaceAll(" ", "_"));
+        }
+
+        return new FileMetadata(mimeType, properties);
+    }
+
     private String createFolderInRepository(String fileName, String parentFolderId) {
         Folder parentFolder;
         String id = null;
@@ -241,6 +288,27 @@ public class FileCopier {
         LOG.debug("Conversion and transfer done.");
     }
 
+    /**
+     * MIME type and CMIS properties of a local file.
+     */
+    static class FileMetadata {
+        private final String mimeType;
+        private final Map<String, Object> properties;
+
+        FileMetadata(String mimeType, Map<String, Object> properties) {
+            this.mimeType = mimeType;
+            this.properties = properties;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public Map<String, Object> getProperties() {
+            return properties;
+        }
+    }
+
     public static void main(String[] args) {
         String fileName = args[0];
         LOG.debug("extracting CMIS properties for file " + fileName);
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.tools.filecopy;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.apache.chemistry.opencmis.tools.filecopy.FileCopier.FileMetadata;
+import org.apache.chemistry.opencmis.tools.mapper.Configurator;
+import org.apache.tika.Tika;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies a local directory tree to a repository in a pipeline.
+ * <p>
+ * The calling thread walks the directory tree. Metadata of the files is
+ * extracted by a pool of extractor threads, and documents and folders are
+ * created by a pool of upload threads. The objects of a folder are created
+ * concurrently, but only after the folder itself exists.
+ * The number of files in flight is bounded, so the walker waits if the pools
+ * fall behind.
+ * <p>
+ * Created objects are recorded in an optional {@link CopyCheckpoint}, and
+ * {@link CopyStatistics} are reported periodically while the copy runs.
+ */
+public class ParallelFileCopier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelFileCopier.class.getName());
+
+    private static final int REPORT_INTERVAL_SECONDS = 10;
+    private static final int PENDING_FILES_PER_THREAD = 16;
+
+    private final Session session;
+    private final int extractorThreads;
+    private final int uploadThreads;
+    private final int maxPendingFiles;
+    private final File checkpointFile;
+
+    private final ThreadLocal<Configurator> configurators = new ThreadLocal<Configurator>() {
+        @Override
+        protected Configurator initialValue() {
+            return Configurator.newInstance();
+        }
+    };
+
+    private final ThreadLocal<Tika> tikas = new ThreadLocal<Tika>() {
+        @Override
+        protected Tika initialValue() {
+            return new Tika();
+        }
+    };
+
+    private CopyStatistics statistics;
+    private CopyCheckpoint checkpoint;
+    private ExecutorService extractors;
+    private ExecutorService uploaders;
+    private Semaphore pendingFiles;
+
+    public ParallelFileCopier(Session session, int extractorThreads, int uploadThreads, File checkpointFile) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (extractorThreads < 1 || uploadThreads < 1) {
+            throw new IllegalArgumentException("At least one extractor and one upload thread required!");
+        }
+
+        this.session = session;
+        this.extractorThreads = extractorThreads;
+        this.uploadThreads = uploadThreads;
+        this.maxPendingFiles = (extractorThreads + uploadThreads) * PENDING_FILES_PER_THREAD;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Copies a local file or directory tree to the repository and waits until
+     * all objects have been created.
+     * 
+     * @param fileOrDirName
+     *            local file or directory
+     * @param folderId
+     *            id of the target folder or <code>null</code> for the root
+     *            folder
+     * @return the statistics of the copy
+     */
+    public synchronized CopyStatistics copyRecursive(String fileOrDirName, String folderId) throws IOException {
+        statistics = new CopyStatistics();
+        checkpoint = checkpointFile == null ? null : new CopyCheckpoint(checkpointFile);
+        if (checkpoint != null && checkpoint.getLoadedEntries() > 0) {
+            System.out.println("Resuming copy, " + checkpoint.getLoadedEntries() + " objects already copied.");
+        }
+
+        extractors = Executors.newFixedThreadPool(extractorThreads);
+        uploaders = Executors.newFixedThreadPool(uploadThreads);
+        pendingFiles = new Semaphore(maxPendingFiles);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                System.out.println(statistics);
+            }
+        }, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            FolderQueue targetQueue = new FolderQueue();
+            targetQueue.open(folderId == null ? session.getRepositoryInfo().getRootFolderId() : folderId);
+
+            File fileOrDir = new File(fileOrDirName).getAbsoluteFile();
+            if (fileOrDir.isDirectory()) {
+                FolderQueue queue = new FolderQueue();
+                submitFolder(fileOrDir, targetQueue, queue);
+                walk(fileOrDir, queue);
+            } else {
+                submitDocument(fileOrDir, targetQueue);
+            }
+
+            // wait for the pipeline to drain
+            pendingFiles.acquireUninterruptibly(maxPendingFiles);
+        } finally {
+            reporter.shutdownNow();
+            extractors.shutdownNow();
+            uploaders.shutdownNow();
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+
+        System.out.println("Copy finished: " + statistics);
+        return statistics;
+    }
+
+    private void walk(File dir, FolderQueue queue) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            LOG.error("Cannot list directory " + dir);
+            statistics.failed();
+            return;
+        }
+
+        // walk in a stable order, independent of the file system
+        Arrays.sort(children);
+
+        for (File child : children) {
+            if (child.isDirectory()) {
+                FolderQueue childQueue = new FolderQueue();
+                submitFolder(child, queue, childQueue);
+                walk(child, childQueue);
+            } else {
+                submitDocument(child, queue);
+            }
+        }
+    }
+
+    private void submitFolder(final File dir, final FolderQueue parentQueue, final FolderQueue queue) {
+        final String path = dir.getPath();
+
+        String folderId = checkpoint == null ? null : checkpoint.getFolderId(path);
+        if (folderId != null) {
+            statistics.skipped();
+            queue.open(folderId);
+            return;
+        }
+
+        pendingFiles.acquireUninterruptibly();
+        parentQueue.execute(new Runnable() {
+            public void run() {
+                String id = null;
+                try {
+                    id = createFolder(dir, parentQueue.getFolderId());
+                } finally {
+                    queue.open(id);
+                    pendingFiles.release();
+                }
+            }
+        });
+    }
+
+    private void submitDocument(final File file, final FolderQueue queue) {
+        final String path = file.getPath();
+
+        if (checkpoint != null && checkpoint.isDocumentCreated(path)) {
+            statistics.skipped();
+            return;
+        }
+
+        pendingFiles.acquireUninterruptibly();
+        final Future<FileMetadata> metadata = extractors.submit(new Callable<FileMetadata>() {
+            public FileMetadata call() throws Exception {
+                long start = System.nanoTime();
+                FileMetadata result = FileCopier.extractMetadata(file, configurators.get(), tikas.get(), session);
+                statistics.metadataExtracted(System.nanoTime() - start);
+                return result;
+            }
+        });
+
+        queue.execute(new Runnable() {
+            public void run() {
+                try {
+                    createDocument(file, metadata, queue.getFolderId());
+                } finally {
+                    pendingFiles.release();
+                }
+            }
+        });
+    }
+
+    private String createFolder(File dir, String parentId) {
+        if (parentId == null) {
+            LOG.error("Skipping directory " + dir + ": parent folder has not been created.");
+            statistics.failed();
+            return null;
+        }
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PropertyIds.NAME, dir.getName().replaceAll(" ", "_"));
+        properties.put(PropertyIds.OBJECT_TYPE_ID, configurators.get().getDefaultFolderType());
+
+        try {
+            ObjectId id = session.createFolder(properties, session.createObjectId(parentId));
+            statistics.folderCreated();
+            LOG.debug("New folder created with id: " + id.getId() + ", name: " + properties.get(PropertyIds.NAME)
+                    + " in parent folder: " + parentId);
+            record(dir, id, true);
+            return id.getId();
+        } catch (Exception e) {
+            LOG.error("Failed to create CMIS folder for " + dir, e);
+            statistics.failed();
+            return null;
+        }
+    }
+
+    private void createDocument(File file, Future<FileMetadata> metadataFuture, String folderId) {
+        if (folderId == null) {
+            LOG.error("Skipping file " + file + ": parent folder has not been created.");
+            statistics.failed();
+            return;
+        }
+
+        InputStream is = null;
+        try {
+            FileMetadata metadata = metadataFuture.get();
+
+            long start = System.nanoTime();
+            long length = file.length();
+            is = new BufferedInputStream(new FileInputStream(file));
+            ContentStream contentStream = session.getObjectFactory().createContentStream(file.getName(), length,
+                    metadata.getMimeType(), is);
+            ObjectId id = session.createDocument(metadata.getProperties(), session.createObjectId(folderId),
+                    contentStream, VersioningState.NONE);
+            statistics.documentCreated(length, System.nanoTime() - start);
+            LOG.debug("New document created with id: " + id.getId() + ", name: "
+                    + metadata.getProperties().get(PropertyIds.NAME) + " in folder: " + folderId);
+            record(file, id, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            statistics.failed();
+        } catch (ExecutionException e) {
+            LOG.error("Failed to extract metadata of " + file, e.getCause());
+            statistics.failed();
+        } catch (Exception e) {
+            LOG.error("Failed to create CMIS document for " + file, e);
+            statistics.failed();
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    private void record(File file, ObjectId id, boolean isFolder) {
+        if (checkpoint == null) {
+            return;
+        }
+
+        try {
+            if (isFolder) {
+                checkpoint.folderCreated(file.getPath(), id.getId());
+            } else {
+                checkpoint.documentCreated(file.getPath(), id.getId());
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to update checkpoint file for " + file, e);
+        }
+    }
+
+    /**
+     * Holds back the tasks of one folder until the folder has been opened,
+     * i.e. until it exists in the repository. From then on the tasks run
+     * concurrently in the upload pool.
+     */
+    private class FolderQueue {
+        private final List<Runnable> pending = new ArrayList<Runnable>();
+        private volatile String folderId;
+        private boolean open;
+
+        /**
+         * Returns the repository id of the folder or <code>null</code> if it
+         * couldn't be created.
+         */
+        public String getFolderId() {
+            return folderId;
+        }
+
+        public void open(String folderId) {
+            List<Runnable> tasks;
+            synchronized (this) {
+                this.folderId = folderId;
+                open = true;
+                tasks = new ArrayList<Runnable>(pending);
+                pending.clear();
+            }
+
+            for (Runnable task : tasks) {
+                uploaders.execute(task);
+            }
+        }
+
+        public void execute(Runnable task) {
+            synchronized (this) {
+                if (!open) {
+                    pending.add(task);
+                    return;
+                }
+            }
+
+            uploaders.execute(task);
+        }
+    }
+}
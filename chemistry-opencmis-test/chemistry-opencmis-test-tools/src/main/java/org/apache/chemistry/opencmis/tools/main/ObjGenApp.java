@@ -18,6 +18,7 @@
  */
 package org.apache.chemistry.opencmis.tools.main;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -76,6 +77,7 @@ public class ObjGenApp {
     private static final String FILE_NAME_PATTERN = "FileName";
     private static final String LOCAL_FILE = "File";
     private static final String LOCAL_DIR = "Dir";
+    private static final String CHECKPOINT_FILE = "Checkpoint";
     private static final String BINDING_ATOM = "atompub";
     private static final String BINDING_WS = "webservices";
     private static final String BINDING_BROWSER = "browser";
@@ -100,6 +102,7 @@ public class ObjGenApp {
     private String fileNamePattern;
     private String localDir;
     private String localFile;   
+    private String checkpointFile;
 
     public static void main(String[] args) {
 
@@ -134,6 +137,7 @@ public class ObjGenApp {
         OptionSpec<String> optFileNamePattern;
         OptionSpec<String> optLocalDir;
         OptionSpec<String> optLocalFile;
+        OptionSpec<String> optCheckpointFile;
 
         OptionParser parser = new OptionParser();
         optCmd = parser.accepts(CMD).withRequiredArg().describedAs("Command to perform (see below)");
@@ -166,6 +170,8 @@ public class ObjGenApp {
                 .describedAs("name of a directory to be recursively copied to the repository");
         optLocalFile = parser.accepts(LOCAL_FILE).withOptionalArg().ofType(String.class)
                 .describedAs("file name of a file to be copied to the repository");
+        optCheckpointFile = parser.accepts(CHECKPOINT_FILE).withOptionalArg().ofType(String.class)
+                .describedAs("checkpoint file used to resume an interrupted CopyFiles command");
         OptionSet options = parser.parse(args);
 
         if (cmd == null || options.has("?")) {
@@ -223,6 +229,7 @@ public class ObjGenApp {
         fileNamePattern = options.valueOf(optFileNamePattern);
         localDir = options.valueOf(optLocalDir);
         localFile = options.valueOf(optLocalFile);
+        checkpointFile = options.valueOf(optCheckpointFile);
 
         initClientBindings();
 
@@ -549,7 +556,18 @@ public class ObjGenApp {
         Map<String, String> parameters = getConnectionParameters(getBindingProperty(), repositoryId);
         FileCopier fc = new FileCopier();
         fc.connect(parameters);
-        fc.copyRecursive(name, folderId);
+        if (threads > 1 || checkpointFile != null) {
+            System.out.println("Number of threads: " + threads);
+            System.out.println("Checkpoint file: " + checkpointFile);
+            try {
+                fc.copyRecursiveParallel(name, folderId, threads, threads, checkpointFile == null ? null : new File(
+                        checkpointFile));
+            } catch (IOException e) {
+                System.out.println("Error: Could not access checkpoint file " + checkpointFile + ": " + e);
+            }
+        } else {
+            fc.copyRecursive(name, folderId);
+        }
     }
 
     private void transferFilesTest(OptionSet options) {
@@ -44,6 +44,15 @@ public class Configurator {
         return instance;
     }
 
+    /**
+     * Creates a new configurator with its own parsers and property mappers.
+     * Parsers and mappers keep state while extracting metadata, threads that
+     * extract metadata concurrently each need their own configurator.
+     */
+    public static Configurator newInstance() {
+        return new Configurator();
+    }
+
     private Properties properties;
     private Map<String, PropertyMapper> contentTypeMapperMap = new HashMap<String, PropertyMapper>();
     private Map<String, MetadataParser> parserMap = new HashMap<String, MetadataParser>();
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.tools.filecopy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CopyCheckpointTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("checkpoint", ".txt");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testNewCheckpoint() throws Exception {
+        CopyCheckpoint checkpoint = new CopyCheckpoint(file);
+        try {
+            assertEquals(0, checkpoint.getLoadedEntries());
+            assertNull(checkpoint.getFolderId("/a"));
+            assertFalse(checkpoint.isDocumentCreated("/a/1.txt"));
+        } finally {
+            checkpoint.close();
+        }
+
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        CopyCheckpoint checkpoint = new CopyCheckpoint(file);
+        try {
+            checkpoint.folderCreated("/a", "f1");
+            checkpoint.documentCreated("/a/1.txt", "d1");
+            checkpoint.folderCreated("/a/with\ttab", "f2");
+
+            // recorded entries only show up on the next run
+            assertNull(checkpoint.getFolderId("/a"));
+        } finally {
+            checkpoint.close();
+        }
+
+        checkpoint = new CopyCheckpoint(file);
+        try {
+            assertEquals(3, checkpoint.getLoadedEntries());
+            assertEquals("f1", checkpoint.getFolderId("/a"));
+            assertEquals("f2", checkpoint.getFolderId("/a/with\ttab"));
+            assertTrue(checkpoint.isDocumentCreated("/a/1.txt"));
+            assertFalse(checkpoint.isDocumentCreated("/a/2.txt"));
+            assertNull(checkpoint.getFolderId("/a/1.txt"));
+
+            // appended, not overwritten
+            checkpoint.documentCreated("/a/2.txt", "d2");
+        } finally {
+            checkpoint.close();
+        }
+
+        checkpoint = new CopyCheckpoint(file);
+        try {
+            assertEquals(4, checkpoint.getLoadedEntries());
+            assertTrue(checkpoint.isDocumentCreated("/a/2.txt"));
+        } finally {
+            checkpoint.close();
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception {
+        FileUtils.writeStringToFile(file, "F\tf1\t/a\nD\td1\t/a/1.txt\nX\nD\td2\nD\t", "UTF-8");
+
+        CopyCheckpoint checkpoint = new CopyCheckpoint(file);
+        try {
+            assertEquals(2, checkpoint.getLoadedEntries());
+            assertEquals("f1", checkpoint.getFolderId("/a"));
+            assertTrue(checkpoint.isDocumentCreated("/a/1.txt"));
+
+            checkpoint.documentCreated("/a/2.txt", "d2");
+        } finally {
+            checkpoint.close();
+        }
+
+        // the incomplete line doesn't spoil the entries appended after it
+        checkpoint = new CopyCheckpoint(file);
+        try {
+            assertEquals(3, checkpoint.getLoadedEntries());
+            assertTrue(checkpoint.isDocumentCreated("/a/2.txt"));
+        } finally {
+            checkpoint.close();
+        }
+    }
+}
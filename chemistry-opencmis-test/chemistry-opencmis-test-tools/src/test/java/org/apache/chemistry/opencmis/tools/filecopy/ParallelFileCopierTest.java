@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.tools.filecopy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.ObjectIdImpl;
+import org.apache.chemistry.opencmis.client.runtime.repository.ObjectFactoryImpl;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelFileCopierTest {
+
+    private static final String ROOT_ID = "root";
+
+    private File dir;
+    private File checkpointFile;
+    private SessionMock repository;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("copy", "");
+        dir.delete();
+        dir.mkdir();
+        checkpointFile = File.createTempFile("checkpoint", ".txt");
+        checkpointFile.delete();
+
+        // dir: 0.txt, a/1.txt, a/2.txt, a/3.txt, a/b/4.txt, c/
+        createFile("0.txt");
+        createFile("a/1.txt");
+        createFile("a/2.txt");
+        createFile("a/3.txt");
+        createFile("a/b/4.txt");
+        new File(dir, "c").mkdir();
+
+        repository = new SessionMock();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(dir);
+        checkpointFile.delete();
+    }
+
+    @Test(timeout = 60000)
+    public void testCopy() throws Exception {
+        CopyStatistics statistics = copy(null);
+
+        assertEquals(4, statistics.getFoldersCreated());
+        assertEquals(5, statistics.getDocumentsCreated());
+        assertEquals(0, statistics.getErrors());
+        assertEquals(0, statistics.getSkipped());
+
+        // every object has been created in the right folder
+        String top = repository.getParent(dir.getName());
+        assertEquals(ROOT_ID, top);
+        String topId = repository.getId(dir.getName());
+        assertEquals(topId, repository.getParent("0.txt"));
+        assertEquals(topId, repository.getParent("a"));
+        assertEquals(topId, repository.getParent("c"));
+        assertEquals(repository.getId("a"), repository.getParent("1.txt"));
+        assertEquals(repository.getId("a"), repository.getParent("3.txt"));
+        assertEquals(repository.getId("a"), repository.getParent("b"));
+        assertEquals(repository.getId("b"), repository.getParent("4.txt"));
+    }
+
+    @Test(timeout = 60000)
+    public void testDocumentsOfAFolderAreCreatedConcurrently() throws Exception {
+        // the documents of "a" wait for each other, which only works if they
+        // run at the same time
+        repository.blockDocuments(3);
+
+        CopyStatistics statistics = copy(null);
+        assertEquals(5, statistics.getDocumentsCreated());
+        assertEquals(0, statistics.getErrors());
+    }
+
+    @Test(timeout = 60000)
+    public void testResume() throws Exception {
+        copy(checkpointFile);
+        assertEquals(9, repository.getCreated());
+
+        repository = new SessionMock();
+        CopyStatistics statistics = copy(checkpointFile);
+
+        assertEquals(0, repository.getCreated());
+        assertEquals(0, statistics.getFoldersCreated());
+        assertEquals(0, statistics.getDocumentsCreated());
+        assertEquals(9, statistics.getSkipped());
+    }
+
+    @Test(timeout = 60000)
+    public void testResumeAfterInterruption() throws Exception {
+        // the first run only recorded the top folder, folder "a" and a partial
+        // line of 1.txt
+        String top = dir.getAbsolutePath();
+        String a = new File(top, "a").getPath();
+        FileUtils.writeStringToFile(checkpointFile, "F\ttop\t" + top + "\nF\tfa\t" + a + "\nD\td1", "UTF-8");
+
+        CopyStatistics statistics = copy(checkpointFile);
+
+        assertEquals(2, statistics.getSkipped());
+        assertEquals(2, statistics.getFoldersCreated());
+        assertEquals(5, statistics.getDocumentsCreated());
+        assertEquals(0, statistics.getErrors());
+        assertNull(repository.getParent(dir.getName()));
+        assertEquals("top", repository.getParent("0.txt"));
+        assertEquals("fa", repository.getParent("1.txt"));
+        assertEquals("fa", repository.getParent("b"));
+
+        // a third run finds everything
+        repository = new SessionMock();
+        statistics = copy(checkpointFile);
+        assertEquals(0, repository.getCreated());
+        assertEquals(9, statistics.getSkipped());
+    }
+
+    @Test(timeout = 60000)
+    public void testFailedFolderDrains() throws Exception {
+        repository.failOn("a");
+
+        CopyStatistics statistics = copy(checkpointFile);
+
+        // "a" and everything below it fails
+        assertEquals(6, statistics.getErrors());
+        assertEquals(2, statistics.getFoldersCreated());
+        assertEquals(1, statistics.getDocumentsCreated());
+        assertNull(repository.getId("1.txt"));
+        assertNull(repository.getId("b"));
+
+        // a resumed copy creates the missing objects
+        repository = new SessionMock();
+        statistics = copy(checkpointFile);
+        assertEquals(0, statistics.getErrors());
+        assertEquals(3, statistics.getSkipped());
+        assertEquals(2, statistics.getFoldersCreated());
+        assertEquals(4, statistics.getDocumentsCreated());
+    }
+
+    @Test(timeout = 60000)
+    public void testFailedDocumentsDrain() throws Exception {
+        repository.failOn("1.txt");
+        repository.failOn("4.txt");
+
+        CopyStatistics statistics = copy(null);
+
+        assertEquals(2, statistics.getErrors());
+        assertEquals(4, statistics.getFoldersCreated());
+        assertEquals(3, statistics.getDocumentsCreated());
+    }
+
+    @Test(timeout = 60000)
+    public void testErrorsDrain() throws Exception {
+        // errors are not caught by the copier, but they must not stall it
+        repository.failOn("2.txt", new AssertionError("failed"));
+
+        CopyStatistics statistics = copy(null);
+        assertEquals(4, statistics.getDocumentsCreated());
+    }
+
+    private CopyStatistics copy(File checkpoint) throws Exception {
+        ParallelFileCopier copier = new ParallelFileCopier(repository.getSession(), 2, 3, checkpoint);
+        return copier.copyRecursive(dir.getPath(), ROOT_ID);
+    }
+
+    private void createFile(String path) throws Exception {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        FileUtils.writeStringToFile(file, "content of " + path, "UTF-8");
+    }
+
+    /**
+     * Session that records created folders and documents by name.
+     */
+    private static class SessionMock implements InvocationHandler {
+        private final Map<String, String> ids = new ConcurrentHashMap<String, String>();
+        private final Map<String, String> parents = new ConcurrentHashMap<String, String>();
+        private final Map<String, Throwable> failures = new ConcurrentHashMap<String, Throwable>();
+        private final Set<String> reserved = new HashSet<String>();
+        private final AtomicInteger counter = new AtomicInteger();
+        private volatile CountDownLatch documentLatch;
+
+        public Session getSession() {
+            return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+                    this);
+        }
+
+        public String getId(String name) {
+            return ids.get(name);
+        }
+
+        public String getParent(String name) {
+            return parents.get(name);
+        }
+
+        public int getCreated() {
+            return ids.size();
+        }
+
+        public void failOn(String name) {
+            failOn(name, new CmisRuntimeException("failed"));
+        }
+
+        public void failOn(String name, Throwable failure) {
+            failures.put(name, failure);
+        }
+
+        public void blockDocuments(int count) {
+            documentLatch = new CountDownLatch(count);
+            synchronized (reserved) {
+                reserved.add("1.txt");
+                reserved.add("2.txt");
+                reserved.add("3.txt");
+            }
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("createObjectId".equals(name)) {
+                return new ObjectIdImpl((String) args[0]);
+            } else if ("getObjectFactory".equals(name)) {
+                return new ObjectFactoryImpl();
+            } else if ("createFolder".equals(name) && args.length == 2) {
+                return create(args, false);
+            } else if ("createDocument".equals(name) && args.length == 4) {
+                return create(args, true);
+            } else if ("toString".equals(name)) {
+                return "SessionMock";
+            }
+
+            throw new UnsupportedOperationException(name);
+        }
+
+        private ObjectId create(Object[] args, boolean isDocument) throws Throwable {
+            String name = (String) ((Map<?, ?>) args[0]).get(PropertyIds.NAME);
+
+            Throwable failure = failures.get(name);
+            if (failure != null) {
+                throw failure;
+            }
+
+            if (isDocument) {
+                boolean reservedDocument;
+                synchronized (reserved) {
+                    reservedDocument = reserved.contains(name);
+                }
+                if (reservedDocument) {
+                    documentLatch.countDown();
+                    if (!documentLatch.await(10, TimeUnit.SECONDS)) {
+                        throw new CmisRuntimeException("documents are not created concurrently");
+                    }
+                }
+            }
+
+            String id = "id-" + counter.incrementAndGet();
+            ids.put(name, id);
+            parents.put(name, ((ObjectId) args[1]).getId());
+            return new ObjectIdImpl(id);
+        }
+    }
+}
@@ -93,7 +93,7 @@ public class FolderPanel extends JPanel implements FolderListener, ObjectListene
         if (selectedRow > -1 && event.getClientModel().getCurrentObject() != null) {
             if (selectedRow < folderTable.getRowCount()) {
 
-                String selId = folderTable.getValueAt(folderTable.getSelectedRow(), FolderTable.ID_COLUMN).toString();
+                Object selId = folderTable.getValueAt(folderTable.getSelectedRow(), FolderTable.ID_COLUMN);
                 String curId = event.getClientModel().getCurrentObject().getId();
 
                 if (!curId.equals(selId)) {
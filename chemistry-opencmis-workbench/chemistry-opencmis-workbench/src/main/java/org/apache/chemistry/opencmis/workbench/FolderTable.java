@@ -57,6 +57,7 @@ import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.chemistry.opencmis.workbench.model.ClientModel;
 import org.apache.chemistry.opencmis.workbench.model.ClientModelEvent;
 import org.apache.chemistry.opencmis.workbench.model.FolderListener;
+import org.apache.chemistry.opencmis.workbench.model.PagedItemList;
 import org.apache.chemistry.opencmis.workbench.swing.GregorianCalendarRenderer;
 
 public class FolderTable extends JTable implements FolderListener {
@@ -69,6 +70,7 @@ public class FolderTable extends JTable implements FolderListener {
     public static final int ID_COLUMN = 9;
 
     private final ClientModel model;
+    private final FolderTableModel tableModel;
 
     private Map<BaseTypeId, ImageIcon> icons;
     private ImageIcon checkedOutIcon;
@@ -79,7 +81,8 @@ public class FolderTable extends JTable implements FolderListener {
 
         this.model = model;
 
-        setModel(new FolderTableModel());
+        tableModel = new FolderTableModel();
+        setModel(tableModel);
 
         setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         setAutoResizeMode(AUTO_RESIZE_OFF);
@@ -113,11 +116,15 @@ public class FolderTable extends JTable implements FolderListener {
 
                 int row = getSelectedRow();
                 if (row > -1) {
-                    String id = getModel().getValueAt(getRowSorter().convertRowIndexToModel(row), ID_COLUMN).toString();
+                    Object id = getModel().getValueAt(convertRowIndexToModel(row), ID_COLUMN);
+                    if (id == null) {
+                        // page not loaded yet
+                        return;
+                    }
 
                     try {
                         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                        model.loadObject(id);
+                        model.loadObject(id.toString());
                     } catch (Exception ex) {
                         ClientHelper.showError(null, ex);
                         return;
@@ -182,8 +189,22 @@ public class FolderTable extends JTable implements FolderListener {
     public void folderLoaded(final ClientModelEvent event) {
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                event.getClientModel().getCurrentChildren();
-                ((FolderTableModel) getModel()).fireTableDataChanged();
+                PagedItemList<CmisObject> children = event.getClientModel().getCurrentChildren();
+                children.addPageListener(tableModel);
+                tableModel.setRowCount(children.size());
+                tableModel.fireTableDataChanged();
+
+                // sorting reads every row, which would request every page
+                // over and over again; only sort folders that fit into the
+                // first page
+                if (children.isSizeKnown() && children.getLoadedItems().size() >= children.size()) {
+                    if (getRowSorter() == null) {
+                        setAutoCreateRowSorter(true);
+                    }
+                } else {
+                    setAutoCreateRowSorter(false);
+                    setRowSorter(null);
+                }
             }
         });
     }
@@ -191,8 +212,11 @@ public class FolderTable extends JTable implements FolderListener {
     private void doAction(boolean alternate) {
         int row = getSelectedRow();
         if ((row > -1) && (row < model.getCurrentChildren().size())) {
-            String id = getModel().getValueAt(getRowSorter().convertRowIndexToModel(row), ID_COLUMN).toString();
-            CmisObject object = model.getFromCurrentChildren(id);
+            Object id = getModel().getValueAt(convertRowIndexToModel(row), ID_COLUMN);
+            if (id == null) {
+                return;
+            }
+            CmisObject object = model.getFromCurrentChildren(id.toString());
 
             if (object instanceof Document) {
                 if (alternate) {
@@ -214,10 +238,51 @@ public class FolderTable extends JTable implements FolderListener {
         }
     }
 
-    class FolderTableModel extends AbstractTableModel {
+    class FolderTableModel extends AbstractTableModel implements PagedItemList.PageListener {
 
         private static final long serialVersionUID = 1L;
 
+        // number of rows the table has been told about
+        private int rowCount = 0;
+
+        public void setRowCount(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        public void pageLoaded(final PagedItemList<?> list, final int firstIndex, final int lastIndex) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    if (list != model.getCurrentChildren()) {
+                        list.removePageListener(FolderTableModel.this);
+                        return;
+                    }
+
+                    int oldRowCount = rowCount;
+                    rowCount = list.size();
+                    if (rowCount > oldRowCount) {
+                        fireTableRowsInserted(oldRowCount, rowCount - 1);
+                    } else if (rowCount < oldRowCount) {
+                        fireTableDataChanged();
+                        return;
+                    }
+
+                    if (firstIndex < rowCount) {
+                        fireTableRowsUpdated(firstIndex, Math.min(lastIndex, rowCount - 1));
+                    }
+                }
+            });
+        }
+
+        public void pageFailed(final PagedItemList<?> list, final Exception e) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    if (list == model.getCurrentChildren()) {
+                        ClientHelper.showError(null, e);
+                    }
+                }
+            });
+        }
+
         public String getColumnName(int columnIndex) {
             return COLUMN_NAMES[columnIndex];
         }
@@ -227,11 +292,20 @@ public class FolderTable extends JTable implements FolderListener {
         }
 
         public int getRowCount() {
-            return model.getCurrentChildren().size();
+            return rowCount;
         }
 
         public Object getValueAt(int rowIndex, int columnIndex) {
-            CmisObject obj = model.getCurrentChildren().get(rowIndex);
+            PagedItemList<CmisObject> children = model.getCurrentChildren();
+            if (rowIndex >= children.size()) {
+                return null;
+            }
+
+            CmisObject obj = children.get(rowIndex);
+            if (obj == null) {
+                // the page is being loaded
+                return null;
+            }
 
             switch (columnIndex) {
             case 0:
@@ -355,8 +429,8 @@ public class FolderTable extends JTable implements FolderListener {
         protected Transferable createTransferable(JComponent c) {
             int row = getSelectedRow();
             if ((row > -1) && (row < model.getCurrentChildren().size())) {
-                String id = getValueAt(row, ID_COLUMN).toString();
-                CmisObject object = model.getFromCurrentChildren(id);
+                Object id = getValueAt(row, ID_COLUMN);
+                CmisObject object = (id == null ? null : model.getFromCurrentChildren(id.toString()));
 
                 if (object instanceof Document) {
                     Document doc = (Document) object;
@@ -28,6 +28,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
@@ -47,18 +48,19 @@ import javax.swing.JSplitPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.text.NumberFormatter;
 
-import org.apache.chemistry.opencmis.client.api.ItemIterable;
 import org.apache.chemistry.opencmis.client.api.ObjectId;
 import org.apache.chemistry.opencmis.client.api.QueryResult;
 import org.apache.chemistry.opencmis.client.runtime.ObjectIdImpl;
 import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.workbench.model.ClientModel;
+import org.apache.chemistry.opencmis.workbench.model.PagedItemList;
 import org.apache.chemistry.opencmis.workbench.swing.IdRenderer;
 
 public class QueryFrame extends JFrame {
@@ -197,7 +199,8 @@ public class QueryFrame extends JFrame {
             public void mouseClicked(MouseEvent e) {
                 int row = resultsTable.rowAtPoint(e.getPoint());
                 int column = resultsTable.columnAtPoint(e.getPoint());
-                if (row > -1 && resultsTable.getColumnClass(column) == ObjectIdImpl.class) {
+                if (row > -1 && resultsTable.getColumnClass(column) == ObjectIdImpl.class
+                        && resultsTable.getValueAt(row, column) != null) {
                     try {
                         model.loadObject(((ObjectId) resultsTable.getValueAt(row, column)).getId());
                     } catch (Exception ex) {
@@ -253,8 +256,6 @@ public class QueryFrame extends JFrame {
         String text = queryText.getText();
         text = text.replace('\n', ' ');
 
-        ItemIterable<QueryResult> results = null;
-
         try {
             setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 
@@ -266,37 +267,36 @@ public class QueryFrame extends JFrame {
                 ClientHelper.showError(this, e);
             }
 
-            results = model.query(text, searchAllVersionsCheckBox.isSelected(), maxHits);
-
-            ResultTableModel rtm = new ResultTableModel();
-
             long startTime = System.currentTimeMillis();
 
-            int row = 0;
-            ItemIterable<QueryResult> page = results.getPage(maxHits);
-            for (QueryResult qr : page) {
-                rtm.setColumnCount(Math.max(rtm.getColumnCount(), qr.getProperties().size()));
+            // fetches the first page, the others are fetched while scrolling
+            final PagedItemList<QueryResult> results = model.query(text, searchAllVersionsCheckBox.isSelected(),
+                    maxHits);
 
-                for (PropertyData<?> prop : qr.getProperties()) {
-                    if (PropertyIds.OBJECT_ID.equals(prop.getId()) && (prop.getFirstValue() != null)) {
-                        rtm.setValue(row, prop.getQueryName(), new ObjectIdImpl(prop.getFirstValue().toString()));
-                    } else {
-                        rtm.setValue(row, prop.getQueryName(), prop.getValues());
-                    }
+            long stopTime = System.currentTimeMillis();
+            final float time = ((float) (stopTime - startTime)) / 1000f;
+
+            ResultTableModel rtm = new ResultTableModel(results);
+            results.addPageListener(rtm);
+            results.addPageListener(new PagedItemList.PageListener() {
+                public void pageLoaded(PagedItemList<?> list, int firstIndex, int lastIndex) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            updateQueryTimeLabel(results, time);
+                        }
+                    });
                 }
 
-                row++;
-            }
-            rtm.setRowCount(row);
-
-            long stopTime = System.currentTimeMillis();
-            float time = ((float) (stopTime - startTime)) / 1000f;
-            String total = "<unknown>";
-            if (page.getTotalNumItems() >= 0) {
-                total = String.valueOf(page.getTotalNumItems());
-            }
+                public void pageFailed(PagedItemList<?> list, final Exception e) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            ClientHelper.showError(QueryFrame.this, e);
+                        }
+                    });
+                }
+            });
 
-            queryTimeLabel.setText(" " + row + " hits, " + total + " total (" + time + " sec)");
+            updateQueryTimeLabel(results, time);
 
             resultsTable.setModel(rtm);
         } catch (Exception ex) {
@@ -307,104 +307,164 @@ public class QueryFrame extends JFrame {
         }
     }
 
-    static class ResultTableModel extends AbstractTableModel {
+    private void updateQueryTimeLabel(PagedItemList<QueryResult> results, float time) {
+        String total = "<unknown>";
+        if (results.getTotalNumItems() >= 0) {
+            total = String.valueOf(results.getTotalNumItems());
+        }
+
+        queryTimeLabel.setText(" " + results.size() + (results.isSizeKnown() ? "" : "+") + " hits, " + total
+                + " total (" + time + " sec)");
+    }
+
+    /**
+     * Table model on top of a {@link PagedItemList}. Columns are added as
+     * query results with new properties arrive.
+     */
+    static class ResultTableModel extends AbstractTableModel implements PagedItemList.PageListener {
 
         private static final long serialVersionUID = 1L;
 
-        private int columnCount = 0;
-        private int rowCount = 0;
+        private final PagedItemList<QueryResult> results;
+        private int rowCount;
+        private final List<String> columns = new ArrayList<String>();
         private final Map<String, Integer> columnMapping = new HashMap<String, Integer>();
-        private final Map<Integer, Map<Integer, Object>> data = new HashMap<Integer, Map<Integer, Object>>();
-        private final Map<Integer, Map<Integer, List<?>>> multivalue = new HashMap<Integer, Map<Integer, List<?>>>();
         private final Map<Integer, Class<?>> columnClass = new HashMap<Integer, Class<?>>();
 
-        public ResultTableModel() {
+        public ResultTableModel(PagedItemList<QueryResult> results) {
+            this.results = results;
+            this.rowCount = results.size();
+            addColumns(results.getLoadedItems());
         }
 
-        public void setColumnCount(int columnCount) {
-            this.columnCount = columnCount;
-        }
+        public void pageLoaded(PagedItemList<?> list, final int firstIndex, final int lastIndex) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    int oldRowCount = rowCount;
+                    rowCount = results.size();
+
+                    List<QueryResult> page = new ArrayList<QueryResult>();
+                    for (int i = firstIndex; i <= lastIndex && i < rowCount; i++) {
+                        QueryResult qr = results.get(i);
+                        if (qr != null) {
+                            page.add(qr);
+                        }
+                    }
 
-        public int getColumnCount() {
-            return columnCount;
-        }
+                    if (addColumns(page)) {
+                        fireTableStructureChanged();
+                        return;
+                    }
+
+                    if (rowCount > oldRowCount) {
+                        fireTableRowsInserted(oldRowCount, rowCount - 1);
+                    } else if (rowCount < oldRowCount) {
+                        fireTableDataChanged();
+                        return;
+                    }
 
-        public void setRowCount(int rowCount) {
-            this.rowCount = rowCount;
+                    if (firstIndex < rowCount) {
+                        fireTableRowsUpdated(firstIndex, Math.min(lastIndex, rowCount - 1));
+                    }
+                }
+            });
         }
 
-        public int getRowCount() {
-            return rowCount;
+        public void pageFailed(PagedItemList<?> list, Exception e) {
         }
 
-        public void setValue(final int rowIndex, final String queryName, Object value) {
-            Integer col = columnMapping.get(queryName);
-            if (col == null) {
-                col = columnMapping.size();
-                columnMapping.put(queryName, columnMapping.size());
-            }
+        /**
+         * Adds the columns of the given results that are not known yet.
+         * 
+         * @return <code>true</code> if the table structure has changed
+         */
+        private boolean addColumns(List<QueryResult> page) {
+            boolean changed = false;
 
-            if (value == null) {
-                return;
-            }
+            for (QueryResult qr : page) {
+                for (PropertyData<?> prop : qr.getProperties()) {
+                    Integer col = columnMapping.get(prop.getQueryName());
+                    if (col == null) {
+                        col = columns.size();
+                        columns.add(prop.getQueryName());
+                        columnMapping.put(prop.getQueryName(), col);
+                        changed = true;
+                    }
 
-            if (value instanceof List<?>) {
-                List<?> values = (List<?>) value;
-                if (values.isEmpty()) {
-                    return;
+                    if (!columnClass.containsKey(col)) {
+                        Object value = getValue(prop);
+                        if (value != null) {
+                            columnClass.put(col, value.getClass());
+                            changed = true;
+                        }
+                    }
                 }
+            }
 
-                value = values.get(0);
+            return changed;
+        }
 
-                if (values.size() > 1) {
-                    Map<Integer, List<?>> mvrow = multivalue.get(rowIndex);
-                    if (mvrow == null) {
-                        mvrow = new HashMap<Integer, List<?>>();
-                        multivalue.put(rowIndex, mvrow);
-                    }
-                    mvrow.put(col, values);
-                }
+        private static Object getValue(PropertyData<?> prop) {
+            Object value = prop.getFirstValue();
+            if (value == null) {
+                return null;
+            }
+
+            if (PropertyIds.OBJECT_ID.equals(prop.getId())) {
+                return new ObjectIdImpl(value.toString());
             }
 
             if (value instanceof GregorianCalendar) {
-                value = ClientHelper.getDateString((GregorianCalendar) value);
+                return ClientHelper.getDateString((GregorianCalendar) value);
             }
 
-            columnClass.put(col, value.getClass());
+            return value;
+        }
 
-            Map<Integer, Object> row = data.get(rowIndex);
-            if (row == null) {
-                row = new HashMap<Integer, Object>();
-                data.put(rowIndex, row);
+        private PropertyData<?> getProperty(int rowIndex, int columnIndex) {
+            if (rowIndex < 0 || rowIndex >= results.size() || columnIndex < 0 || columnIndex >= columns.size()) {
+                return null;
             }
 
-            row.put(col, value);
+            QueryResult qr = results.get(rowIndex);
+            if (qr == null) {
+                // the page is being loaded
+                return null;
+            }
+
+            return qr.getPropertyByQueryName(columns.get(columnIndex));
+        }
+
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        public int getRowCount() {
+            return rowCount;
         }
 
         public Object getValueAt(int rowIndex, int columnIndex) {
-            Map<Integer, Object> row = data.get(rowIndex);
-            if (row == null) {
+            PropertyData<?> prop = getProperty(rowIndex, columnIndex);
+            if (prop == null) {
                 return null;
             }
 
-            return row.get(columnIndex);
+            return getValue(prop);
         }
 
         public List<?> getMultiValueAt(int rowIndex, int columnIndex) {
-            Map<Integer, List<?>> row = multivalue.get(rowIndex);
-            if (row == null) {
+            PropertyData<?> prop = getProperty(rowIndex, columnIndex);
+            if (prop == null || prop.getValues() == null || prop.getValues().size() < 2) {
                 return null;
             }
 
-            return row.get(columnIndex);
+            return prop.getValues();
         }
 
         @Override
         public String getColumnName(int column) {
-            for (Map.Entry<String, Integer> e : columnMapping.entrySet()) {
-                if (e.getValue().equals(column)) {
-                    return e.getKey();
-                }
+            if (column >= 0 && column < columns.size()) {
+                return columns.get(column);
             }
 
             return "?";
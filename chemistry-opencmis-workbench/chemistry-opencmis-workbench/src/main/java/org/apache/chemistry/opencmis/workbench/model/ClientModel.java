@@ -32,6 +32,9 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.event.EventListenerList;
 
@@ -66,14 +69,26 @@ public class ClientModel {
     // object details must not be older than 60 seconds
     private static final long OLD = 60 * 1000;
 
+    // paging of folder children and query results
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGES_IN_MEMORY = 20;
+
     private ClientSession clientSession;
 
     private Folder currentFolder = null;
-    private List<CmisObject> currentChildren = Collections.emptyList();
+    private PagedItemList<CmisObject> currentChildren = PagedItemList.emptyList();
     private CmisObject currentObject = null;
 
     private final EventListenerList listenerList = new EventListenerList();
 
+    private final ExecutorService pageLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Workbench Page Loader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     public ClientModel() {
     }
 
@@ -180,38 +195,33 @@ public class ClientModel {
                     if (isNotEmpty(parents)) {
                         folderObject = parents.get(0);
                     } else {
-                        setCurrentFolder(null, new ArrayList<CmisObject>(0));
+                        setCurrentFolder(null, PagedItemList.<CmisObject> emptyList());
                         return selectedObject;
                     }
                 } else {
-                    setCurrentFolder(null, new ArrayList<CmisObject>(0));
+                    setCurrentFolder(null, PagedItemList.<CmisObject> emptyList());
                     return selectedObject;
                 }
             }
 
-            List<CmisObject> children = new ArrayList<CmisObject>();
+            PagedItemList<CmisObject> children = PagedItemList.emptyList();
 
             if (clientSession.getMaxChildren() != 0) {
                 // if maxChildren == 0 don't call getChildren()
-                ItemIterable<CmisObject> iter = ((Folder) folderObject).getChildren(clientSession
-                        .getFolderOperationContext());
-
-                if (clientSession.getMaxChildren() > 0) {
-                    // if maxChildren > 0 restrict number of children
-                    // otherwise load all
-                    iter = iter.getPage(clientSession.getMaxChildren());
-                }
+                OperationContext context = clientSession.getFolderOperationContext();
+                ItemIterable<CmisObject> iter = ((Folder) folderObject).getChildren(context);
 
-                for (CmisObject child : iter) {
-                    children.add(child);
-                }
+                // if maxChildren > 0 restrict number of children
+                // otherwise page through all
+                children = new PagedItemList<CmisObject>(iter, getPageSize(context.getMaxItemsPerPage()),
+                        clientSession.getMaxChildren(), MAX_PAGES_IN_MEMORY, pageLoader);
             }
 
             setCurrentFolder((Folder) folderObject, children);
 
             return selectedObject;
         } catch (CmisBaseException ex) {
-            setCurrentFolder(null, new ArrayList<CmisObject>(0));
+            setCurrentFolder(null, PagedItemList.<CmisObject> emptyList());
             throw ex;
         }
     }
@@ -252,12 +262,20 @@ public class ClientModel {
         }
     }
 
-    public synchronized ItemIterable<QueryResult> query(String q, boolean searchAllVersions, int maxHits) {
+    public synchronized PagedItemList<QueryResult> query(String q, boolean searchAllVersions, int maxHits) {
+        int pageSize = getPageSize(Math.min(maxHits, DEFAULT_PAGE_SIZE));
         OperationContext queryContext = new OperationContextImpl(null, false, false, false, IncludeRelationships.NONE,
-                null, false, null, false, maxHits);
+                null, false, null, false, pageSize);
 
         Session session = clientSession.getSession();
-        return session.query(q, searchAllVersions, queryContext);
+        ItemIterable<QueryResult> results = session.query(q, searchAllVersions, queryContext);
+
+        return new PagedItemList<QueryResult>(results, pageSize, (maxHits > 0 ? maxHits : -1), MAX_PAGES_IN_MEMORY,
+                pageLoader);
+    }
+
+    private static int getPageSize(int maxItemsPerPage) {
+        return maxItemsPerPage > 0 ? maxItemsPerPage : DEFAULT_PAGE_SIZE;
     }
 
     public synchronized List<Tree<ObjectType>> getTypeDescendants() {
@@ -422,7 +440,7 @@ public class ClientModel {
         return currentFolder;
     }
 
-    public synchronized List<CmisObject> getCurrentChildren() {
+    public synchronized PagedItemList<CmisObject> getCurrentChildren() {
         return currentChildren;
     }
 
@@ -431,7 +449,7 @@ public class ClientModel {
             return null;
         }
 
-        for (CmisObject o : currentChildren) {
+        for (CmisObject o : currentChildren.getLoadedItems()) {
             if (o.getId().equals(id)) {
                 return o;
             }
@@ -440,7 +458,7 @@ public class ClientModel {
         return null;
     }
 
-    private synchronized void setCurrentFolder(Folder folder, List<CmisObject> children) {
+    private synchronized void setCurrentFolder(Folder folder, PagedItemList<CmisObject> children) {
         currentFolder = folder;
         currentChildren = children;
 
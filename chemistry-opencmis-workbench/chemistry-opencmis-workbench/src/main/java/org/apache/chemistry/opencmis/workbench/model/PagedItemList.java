@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.workbench.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EventListener;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+
+/**
+ * A list view of an {@link ItemIterable} that loads pages on demand.
+ * <p>
+ * The first page is loaded when the list is created. Other pages are fetched
+ * in the background when one of their items is requested; {@link #get(int)}
+ * returns <code>null</code> until the page has arrived and the listeners have
+ * been notified. Only a bounded number of pages is kept in memory. Pages that
+ * haven't been used recently are dropped and fetched again when needed. If the
+ * repository returns fewer items than requested, the rest of the page is
+ * fetched with further requests.
+ * <p>
+ * The size of the list is the total number of items if the repository
+ * provides it. Otherwise it covers the items seen so far plus one page if the
+ * repository reported more items, and grows while the user scrolls.
+ */
+public class PagedItemList<T> extends AbstractList<T> {
+
+    private final ItemIterable<T> iterable;
+    private final int pageSize;
+    private final long maxItems;
+    private final Executor executor;
+    private final List<PageListener> listeners = new CopyOnWriteArrayList<PageListener>();
+
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<Integer>();
+    private long totalNumItems = -1;
+    private long knownItems = 0;
+    private boolean hasMoreItems = false;
+    private Exception error;
+
+    /**
+     * Creates the list and loads the first page.
+     * 
+     * @param iterable
+     *            the items
+     * @param pageSize
+     *            number of items fetched at once
+     * @param maxItems
+     *            maximum number of items of this list, or a negative number
+     *            for no limit
+     * @param maxPages
+     *            maximum number of pages kept in memory
+     * @param executor
+     *            executor that fetches pages in the background
+     */
+    public PagedItemList(ItemIterable<T> iterable, int pageSize, long maxItems, final int maxPages, Executor executor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive!");
+        }
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("At least one page must be kept in memory!");
+        }
+
+        this.iterable = iterable;
+        this.pageSize = pageSize;
+        this.maxItems = maxItems;
+        this.executor = executor;
+
+        pages = new LinkedHashMap<Integer, List<T>>(maxPages + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+
+        if (maxItems != 0) {
+            addPage(0, fetchPage(0));
+        }
+    }
+
+    /**
+     * Returns an empty list.
+     */
+    public static <T> PagedItemList<T> emptyList() {
+        return new PagedItemList<T>(null, 1, 0, 1, null);
+    }
+
+    public void addPageListener(PageListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removePageListener(PageListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the total number of items reported by the repository or -1 if
+     * the repository didn't provide it.
+     */
+    public synchronized long getTotalNumItems() {
+        return totalNumItems;
+    }
+
+    /**
+     * Returns whether the size of the list is final, i.e. loading further
+     * pages won't change it.
+     */
+    public synchronized boolean isSizeKnown() {
+        return totalNumItems >= 0 || !hasMoreItems || (maxItems >= 0 && knownItems >= maxItems);
+    }
+
+    @Override
+    public synchronized int size() {
+        long size;
+        if (totalNumItems >= 0) {
+            size = totalNumItems;
+        } else {
+            size = knownItems + (hasMoreItems ? pageSize : 0);
+        }
+
+        if (maxItems >= 0) {
+            size = Math.min(size, maxItems);
+        }
+
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the item at the given position or <code>null</code> if its page
+     * hasn't been loaded yet. In the latter case, the page is requested and
+     * the listeners are notified when it has arrived.
+     */
+    @Override
+    public synchronized T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        int pageNumber = index / pageSize;
+        List<T> page = pages.get(pageNumber);
+        if (page == null) {
+            requestPage(pageNumber);
+            return null;
+        }
+
+        int offset = index % pageSize;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Returns the items of all pages currently in memory without loading any
+     * page.
+     */
+    public synchronized List<T> getLoadedItems() {
+        List<T> result = new ArrayList<T>();
+        for (List<T> page : pages.values()) {
+            result.addAll(page);
+        }
+
+        return result;
+    }
+
+    private void requestPage(final int pageNumber) {
+        if (error != null || executor == null || !loading.add(pageNumber)) {
+            return;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        addPage(pageNumber, fetchPage(pageNumber));
+                        firePageLoaded(pageNumber * pageSize, (pageNumber + 1) * pageSize - 1);
+                    } catch (Exception e) {
+                        synchronized (PagedItemList.this) {
+                            error = e;
+                        }
+                        firePageFailed(e);
+                    } finally {
+                        synchronized (PagedItemList.this) {
+                            loading.remove(pageNumber);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(pageNumber);
+        }
+    }
+
+    private List<T> fetchPage(int pageNumber) {
+        long skipCount = (long) pageNumber * pageSize;
+
+        int maxNumItems = pageSize;
+        if (maxItems >= 0) {
+            maxNumItems = (int) Math.min(pageSize, maxItems - skipCount);
+        }
+        if (maxNumItems <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<T> items = new ArrayList<T>(maxNumItems);
+        while (items.size() < maxNumItems) {
+            long skip = skipCount + items.size();
+            ItemIterable<T> page = iterable.skipTo(skip).getPage(maxNumItems - items.size());
+
+            int fetched = 0;
+            for (T item : page) {
+                if (items.size() == maxNumItems) {
+                    break;
+                }
+                items.add(item);
+                fetched++;
+            }
+
+            long total = page.getTotalNumItems();
+            boolean hasMore = page.getHasMoreItems();
+            synchronized (this) {
+                if (total >= 0) {
+                    totalNumItems = total;
+                }
+
+                long end = skip + fetched;
+                if (end >= knownItems) {
+                    knownItems = end;
+                    hasMoreItems = hasMore;
+                }
+            }
+
+            // the repository may return fewer items than requested, for
+            // example if it caps the page size; fetch the rest of the page
+            if (fetched == 0 || !hasMore || (total >= 0 && skip + fetched >= total)) {
+                break;
+            }
+        }
+
+        return items;
+    }
+
+    private synchronized void addPage(int pageNumber, List<T> items) {
+        pages.put(pageNumber, items);
+    }
+
+    private void firePageLoaded(int firstIndex, int lastIndex) {
+        for (PageListener listener : listeners) {
+            listener.pageLoaded(this, firstIndex, lastIndex);
+        }
+    }
+
+    private void firePageFailed(Exception e) {
+        for (PageListener listener : listeners) {
+            listener.pageFailed(this, e);
+        }
+    }
+
+    /**
+     * Listener of a {@link PagedItemList}. It is called from the background
+     * thread that fetched the page.
+     */
+    public interface PageListener extends EventListener {
+
+        /**
+         * Called when a page has been loaded. The size of the list may have
+         * changed.
+         */
+        void pageLoaded(PagedItemList<?> list, int firstIndex, int lastIndex);
+
+        /**
+         * Called when a page could not be loaded. No further pages are
+         * requested.
+         */
+        void pageFailed(PagedItemList<?> list, Exception e);
+    }
+}
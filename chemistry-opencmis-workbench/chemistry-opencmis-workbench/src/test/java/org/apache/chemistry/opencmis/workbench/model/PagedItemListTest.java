@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.workbench.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
+import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
+import org.apache.chemistry.opencmis.workbench.model.PagedItemList.PageListener;
+import org.junit.Test;
+
+public class PagedItemListTest {
+
+    private static final Executor SYNCHRONOUS = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void testFullPages() {
+        Fetcher fetcher = new Fetcher(25, -1, true);
+        PagedItemList<String> list = createList(fetcher, 10, -1);
+
+        assertEquals(25, list.size());
+        assertTrue(list.isSizeKnown());
+        assertEquals("item-3", list.get(3));
+        assertAllItems(list, 25);
+        assertEquals(3, fetcher.requests.size());
+    }
+
+    @Test
+    public void testCappedPages() {
+        // the repository returns at most 4 items per request
+        Fetcher fetcher = new Fetcher(25, 4, true);
+        PagedItemList<String> list = createList(fetcher, 10, -1);
+
+        assertEquals(25, list.size());
+        assertEquals("item-9", list.get(9));
+        assertAllItems(list, 25);
+
+        // the first page is completed with two more requests
+        assertEquals(Long.valueOf(0), fetcher.requests.get(0));
+        assertEquals(Long.valueOf(4), fetcher.requests.get(1));
+        assertEquals(Long.valueOf(8), fetcher.requests.get(2));
+    }
+
+    @Test
+    public void testCappedPagesWithoutTotal() {
+        Fetcher fetcher = new Fetcher(25, 4, false);
+        PagedItemList<String> list = createList(fetcher, 10, -1);
+
+        assertEquals(-1, list.getTotalNumItems());
+        assertFalse(list.isSizeKnown());
+        assertEquals(20, list.size());
+
+        int index = 0;
+        while (index < list.size()) {
+            if (list.get(index) == null) {
+                assertNotNull(list.get(index));
+            }
+            assertEquals("item-" + index, list.get(index));
+            index++;
+        }
+
+        assertTrue(list.isSizeKnown());
+        assertEquals(25, list.size());
+    }
+
+    @Test
+    public void testMaxItems() {
+        Fetcher fetcher = new Fetcher(25, 4, true);
+        PagedItemList<String> list = createList(fetcher, 10, 15);
+
+        assertEquals(15, list.size());
+        assertAllItems(list, 15);
+
+        // the last page doesn't fetch more than the limit
+        for (Long skipCount : fetcher.requests) {
+            assertTrue(skipCount < 15);
+        }
+    }
+
+    @Test
+    public void testEmptyResponse() {
+        // a repository that stops returning items but claims there are more
+        Fetcher fetcher = new Fetcher(25, 4, false);
+        fetcher.stopAt = 6;
+        PagedItemList<String> list = createList(fetcher, 10, -1);
+
+        assertEquals("item-5", list.get(5));
+        assertNull(list.get(6));
+        assertEquals(3, fetcher.requests.size());
+    }
+
+    @Test
+    public void testListener() {
+        Fetcher fetcher = new Fetcher(25, 4, true);
+        PagedItemList<String> list = createList(fetcher, 10, -1);
+
+        final List<int[]> loaded = new ArrayList<int[]>();
+        list.addPageListener(new PageListener() {
+            public void pageLoaded(PagedItemList<?> l, int firstIndex, int lastIndex) {
+                loaded.add(new int[] { firstIndex, lastIndex });
+            }
+
+            public void pageFailed(PagedItemList<?> l, Exception e) {
+            }
+        });
+
+        assertNull(list.get(12));
+        assertEquals(1, loaded.size());
+        assertEquals(10, loaded.get(0)[0]);
+        assertEquals(19, loaded.get(0)[1]);
+        assertEquals("item-12", list.get(12));
+        assertEquals("item-19", list.get(19));
+    }
+
+    private static PagedItemList<String> createList(Fetcher fetcher, int pageSize, long maxItems) {
+        return new PagedItemList<String>(new CollectionIterable<String>(fetcher), pageSize, maxItems, 2, SYNCHRONOUS);
+    }
+
+    private static void assertAllItems(PagedItemList<String> list, int size) {
+        for (int i = 0; i < size; i++) {
+            // the first access of a page that isn't in memory loads it
+            String item = list.get(i);
+            if (item == null) {
+                item = list.get(i);
+            }
+            assertEquals("item-" + i, item);
+        }
+    }
+
+    /**
+     * Page fetcher that returns at most <code>cap</code> items per request.
+     */
+    private static class Fetcher extends AbstractPageFetcher<String> {
+        private final int numItems;
+        private final int cap;
+        private final boolean withTotal;
+        private final List<Long> requests = new ArrayList<Long>();
+        private int stopAt = -1;
+
+        public Fetcher(int numItems, int cap, boolean withTotal) {
+            super(0);
+            this.numItems = numItems;
+            this.cap = cap;
+            this.withTotal = withTotal;
+        }
+
+        @Override
+        protected Page<String> fetchPage(long skipCount) {
+            requests.add(skipCount);
+
+            int end = (int) Math.min(numItems, skipCount + maxNumItems);
+            if (cap > 0) {
+                end = (int) Math.min(end, skipCount + cap);
+            }
+            if (stopAt >= 0) {
+                end = (int) Math.min(end, Math.max(skipCount, stopAt));
+            }
+
+            List<String> items = new ArrayList<String>();
+            for (long i = skipCount; i < end; i++) {
+                items.add("item-" + i);
+            }
+
+            return new Page<String>(items, withTotal ? numItems : -1, end < numItems);
+        }
+    }
+}